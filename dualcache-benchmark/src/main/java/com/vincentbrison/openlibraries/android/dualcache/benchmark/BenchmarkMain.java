@@ -0,0 +1,47 @@
+package com.vincentbrison.openlibraries.android.dualcache.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * Run the benchmarks once per thread count, with the GC profiler reporting the allocation rate
+ * and the GC activity. Results are written as JSON, one file per thread count, so they can be
+ * compared from one release to another.
+ *
+ * <p>Arguments: the regular expression selecting the benchmarks. System properties:
+ * {@code dualcache.benchmark.threads}, the comma separated thread counts, and
+ * {@code dualcache.benchmark.results}, the folder of the results.
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : DualCacheBenchmark.class.getSimpleName();
+        String threadCounts = System.getProperty("dualcache.benchmark.threads", "1,4,16");
+        File resultFolder = new File(System.getProperty("dualcache.benchmark.results", "."));
+        if (!resultFolder.isDirectory() && !resultFolder.mkdirs()) {
+            throw new IllegalStateException("Can not create " + resultFolder);
+        }
+
+        for (String threadCount : threadCounts.split(",")) {
+            int threads = Integer.parseInt(threadCount.trim());
+            File result = new File(resultFolder, "results-" + threads + "-threads.json");
+            Options options = new OptionsBuilder()
+                .include(include)
+                .threads(threads)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(result.getPath())
+                .build();
+            new Runner(options).run();
+        }
+    }
+}
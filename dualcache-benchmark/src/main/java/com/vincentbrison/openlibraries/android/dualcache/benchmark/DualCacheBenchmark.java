@@ -0,0 +1,153 @@
+package com.vincentbrison.openlibraries.android.dualcache.benchmark;
+
+import com.vincentbrison.openlibraries.android.dualcache.JvmBuilder;
+import com.vincentbrison.openlibraries.android.dualcache.DualCache;
+import com.vincentbrison.openlibraries.android.dualcache.DualCacheDiskMode;
+import com.vincentbrison.openlibraries.android.dualcache.DualCacheRamMode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the operations of {@link DualCache}, for every valid combination of RAM and disk modes.
+ *
+ * <p>The cache is filled with {@link #KEY_COUNT} objects. {@link #hitRatio} is the share of the
+ * looked up keys which have been put. When the disk layer is enabled, the RAM layer only holds
+ * half of the objects, so half of the hits are served by the disk layer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DualCacheBenchmark {
+
+    private static final int KEY_COUNT = 1000;
+    private static final int APP_VERSION = 1;
+
+    /**
+     * RAM mode and disk mode, separated by a '/'. Both layers can not be disabled at once.
+     */
+    @Param({
+        "ENABLE_WITH_SPECIFIC_SERIALIZER/ENABLE_WITH_SPECIFIC_SERIALIZER",
+        "ENABLE_WITH_SPECIFIC_SERIALIZER/DISABLE",
+        "ENABLE_WITH_REFERENCE/ENABLE_WITH_SPECIFIC_SERIALIZER",
+        "ENABLE_WITH_REFERENCE/DISABLE",
+        "DISABLE/ENABLE_WITH_SPECIFIC_SERIALIZER"
+    })
+    public String modes;
+
+    @Param({"100", "10000"})
+    public int valueSize;
+
+    @Param({"0.5", "0.95"})
+    public double hitRatio;
+
+    private File diskFolder;
+    private DualCache<Payload> cache;
+    private Payload[] payloads;
+    private String[] keys;
+    private int lookupRange;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        String[] split = modes.split("/");
+        DualCacheRamMode ramMode = DualCacheRamMode.valueOf(split[0]);
+        DualCacheDiskMode diskMode = DualCacheDiskMode.valueOf(split[1]);
+        int totalSize = KEY_COUNT * valueSize;
+
+        JvmBuilder<Payload> builder = new JvmBuilder<>("benchmark", APP_VERSION);
+        int ramSize = diskMode == DualCacheDiskMode.DISABLE ? 2 * totalSize : totalSize / 2;
+        if (ramMode == DualCacheRamMode.ENABLE_WITH_SPECIFIC_SERIALIZER) {
+            builder.useSerializerInRam(ramSize, Payload.SERIALIZER);
+        } else if (ramMode == DualCacheRamMode.ENABLE_WITH_REFERENCE) {
+            builder.useReferenceInRam(ramSize, Payload.SIZE_OF);
+        } else {
+            builder.noRam();
+        }
+        if (diskMode == DualCacheDiskMode.ENABLE_WITH_SPECIFIC_SERIALIZER) {
+            diskFolder = File.createTempFile("dualcache-benchmark", "");
+            if (!diskFolder.delete() || !diskFolder.mkdir()) {
+                throw new IOException("Can not create " + diskFolder);
+            }
+            builder.useSerializerInDisk(2 * totalSize, diskFolder, Payload.SERIALIZER);
+        } else {
+            builder.noDisk();
+        }
+        cache = builder.build();
+
+        Random random = new Random(0);
+        payloads = new Payload[16];
+        for (int i = 0; i < payloads.length; i++) {
+            payloads[i] = Payload.random(random, valueSize);
+        }
+        lookupRange = (int) Math.ceil(KEY_COUNT / hitRatio);
+        keys = new String[lookupRange];
+        for (int i = 0; i < lookupRange; i++) {
+            keys[i] = "key" + i;
+        }
+        for (int i = 0; i < KEY_COUNT; i++) {
+            cache.put(keys[i], payloads[i % payloads.length]);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        cache.invalidate();
+        if (diskFolder != null) {
+            File[] files = diskFolder.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            diskFolder.delete();
+        }
+    }
+
+    @Benchmark
+    public Payload get() {
+        return cache.get(keys[ThreadLocalRandom.current().nextInt(lookupRange)]);
+    }
+
+    @Benchmark
+    public boolean contains() {
+        return cache.contains(keys[ThreadLocalRandom.current().nextInt(lookupRange)]);
+    }
+
+    @Benchmark
+    public void put() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        cache.put(keys[random.nextInt(KEY_COUNT)], payloads[random.nextInt(payloads.length)]);
+    }
+
+    /**
+     * Delete an object then put it back, so that the cache content does not drain during the
+     * measurement. Subtract the score of {@link #put()} to get the cost of the delete alone.
+     */
+    @Benchmark
+    public void deleteThenPut() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String key = keys[random.nextInt(KEY_COUNT)];
+        cache.delete(key);
+        cache.put(key, payloads[random.nextInt(payloads.length)]);
+    }
+}
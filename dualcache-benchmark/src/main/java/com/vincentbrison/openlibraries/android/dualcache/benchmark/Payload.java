@@ -0,0 +1,46 @@
+package com.vincentbrison.openlibraries.android.dualcache.benchmark;
+
+import com.vincentbrison.openlibraries.android.dualcache.CacheSerializer;
+import com.vincentbrison.openlibraries.android.dualcache.SizeOf;
+
+import java.util.Random;
+
+/**
+ * Object cached by the benchmarks: an ASCII string of a given size, so that its serialized form,
+ * its size in RAM and its size on disk are all the same.
+ */
+final class Payload {
+
+    static final CacheSerializer<Payload> SERIALIZER = new CacheSerializer<Payload>() {
+        @Override
+        public Payload fromString(String data) {
+            return new Payload(data);
+        }
+
+        @Override
+        public String toString(Payload object) {
+            return object.data;
+        }
+    };
+
+    static final SizeOf<Payload> SIZE_OF = new SizeOf<Payload>() {
+        @Override
+        public int sizeOf(Payload object) {
+            return object.data.length();
+        }
+    };
+
+    private final String data;
+
+    private Payload(String data) {
+        this.data = data;
+    }
+
+    static Payload random(Random random, int size) {
+        char[] chars = new char[size];
+        for (int i = 0; i < size; i++) {
+            chars[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new Payload(new String(chars));
+    }
+}
@@ -0,0 +1,686 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+import com.jakewharton.disklrucache.DiskLruCache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 这个类旨在提供一个简单的，稳定的，容易使用的二级缓存实现。
+ *
+ * @author Scott Smith 2017-02-25 13:38
+ */
+public class AndCache {
+    private static final int VALUES_PER_CACHE_ENTRY = 1;
+
+    private final RamLruCache<String, Serializable> ramCacheLru;
+    private DiskLruCache diskLruCache;
+    private volatile DiskKeyFilter diskKeyFilter;
+    private final int maxDiskSizeBytes;
+    private final File diskCacheFolder;
+    private final int appVersion;
+    private final DualCacheRamMode ramMode;
+    private final CacheSerializer<Serializable> ramSerializer;
+    private final DualCacheLock dualCacheLock;
+    private final StatsRecorder stats;
+    private final TraceRecorder traces;
+    private final RemovalDispatcher<Serializable> removalDispatcher;
+    private final Executor asyncExecutor;
+    private final InFlightLoads<Serializable> inFlightLoads = new InFlightLoads<>();
+    private final Logger logger;
+    private final CacheEventListener eventListener;
+    private final BinaryCodec binaryCodec;
+    private boolean noDisk;
+
+    public AndCache(
+            int appVersion,
+            Logger logger,
+            DualCacheRamMode ramMode,
+            CacheSerializer<Serializable> ramSerializer,
+            int maxRamSizeBytes,
+            SizeOf<Serializable> sizeOf,
+            boolean noDisk,
+            int maxDiskSizeBytes,
+            File diskFolder,
+            Executor asyncExecutor,
+            boolean recordStats,
+            CacheEventListener eventListener,
+            CacheTracer tracer,
+            long traceThresholdNanos,
+            BinaryCodec binaryCodec
+    ) {
+        this.appVersion = appVersion;
+        this.ramMode = ramMode;
+        this.ramSerializer = ramSerializer;
+        this.diskCacheFolder = diskFolder;
+        this.logger = logger;
+        this.eventListener = CacheEventListeners.of(
+                logger.isLogEnabled() ? new LoggerHelper(logger) : null, eventListener);
+        this.asyncExecutor = asyncExecutor;
+        this.binaryCodec = binaryCodec;
+        this.stats = recordStats ? new StatsRecorder(true) : StatsRecorder.DISABLED;
+        this.traces = tracer == null
+                ? TraceRecorder.DISABLED : new TraceRecorder(tracer, traceThresholdNanos);
+        // Without listener, only used to tell the invalidations from the evictions.
+        this.removalDispatcher = new RemovalDispatcher<>(null, null, logger, null, 0);
+        this.dualCacheLock = new DualCacheLock(stats, traces);
+        this.noDisk = noDisk;
+
+        switch (ramMode) {
+            case ENABLE_WITH_SPECIFIC_SERIALIZER:
+                this.ramCacheLru = new RamLruCache<String, Serializable>(maxRamSizeBytes) {
+                    @Override
+                    protected int sizeOf(String key, Serializable value) {
+                        return StringLruCache.sizeOfSerialized((String) value);
+                    }
+
+                    @Override
+                    protected void entryRemoved(boolean evicted, String key,
+                            Serializable oldValue, Serializable newValue) {
+                        onRamEntryRemoved(evicted, key, oldValue);
+                    }
+                };
+                break;
+            case ENABLE_WITH_REFERENCE:
+                this.ramCacheLru = new ReferenceLruCache<Serializable>(maxRamSizeBytes, sizeOf) {
+                    @Override
+                    protected void entryRemoved(boolean evicted, String key,
+                            Serializable oldValue, Serializable newValue) {
+                        onRamEntryRemoved(evicted, key, oldValue);
+                    }
+                };
+                break;
+            default:
+                this.ramCacheLru = null;
+        }
+
+        if(!noDisk) {
+            this.maxDiskSizeBytes = maxDiskSizeBytes;
+            try {
+                openDiskLruCache(diskFolder);
+            } catch (IOException e) {
+                logger.logError(e);
+            }
+        } else {
+            this.maxDiskSizeBytes = 0;
+        }
+    }
+
+    private void openDiskLruCache(File diskFolder) throws IOException {
+        this.diskLruCache = DiskLruCache.open(
+                diskFolder,
+                this.appVersion,
+                VALUES_PER_CACHE_ENTRY,
+                this.maxDiskSizeBytes
+        );
+        this.diskKeyFilter = DiskKeyFilter.fromDirectory(diskFolder);
+    }
+
+    private void onRamEntryRemoved(boolean evicted, String key, Serializable oldValue) {
+        if (evicted) {
+            stats.recordRamEviction();
+            if (eventListener != null) {
+                eventListener.onEvict(key);
+            }
+        }
+        if (traces.isEnabled()
+                && removalDispatcher.causeOf(evicted, null) == RemovalCause.EVICTED) {
+            traces.record(CacheOperation.EVICTION, DualCacheLayer.RAM, key,
+                    ramCacheLru.sizeOf(key, oldValue), 0);
+        }
+    }
+
+    public long getRamUsedInBytes() {
+        if (ramCacheLru == null) {
+            return -1;
+        } else {
+            return ramCacheLru.size();
+        }
+    }
+
+    public long getDiskUsedInBytes() {
+        if (diskLruCache == null) {
+            return -1;
+        } else {
+            return diskLruCache.size();
+        }
+
+    }
+
+    /**
+     * Return a snapshot of the statistics of this cache. Statistics are only collected if the
+     * cache has been built with {@link BaseAndCacheBuilder#recordStats()}, otherwise they are all
+     * zero. Objects are serialized to disk while being written, so the serialize latency includes
+     * the disk write.
+     *
+     * @return the current statistics of this cache.
+     */
+    public DualCacheStats getStats() {
+        return stats.snapshot(null, null);
+    }
+
+    /**
+     * Return the way objects are cached in RAM layer.
+     *
+     * @return the way objects are cached in RAM layer.
+     */
+    public DualCacheRamMode getRAMMode() {
+        return ramMode;
+    }
+
+    /**
+     * Return the object of the corresponding key from the cache. In no object is available,
+     * return null.
+     *
+     * @param key is the key of the object.
+     * @return the object of the corresponding key from the cache. In no object is available,
+     * return null.
+     */
+    public <T extends Serializable> T get(String key) {
+        return get(key, true);
+    }
+
+    /**
+     * @param isRecorded is false for the lookups repeating one already recorded, which must not
+     *                   be counted again by the statistics and the listeners.
+     */
+    private <T extends Serializable> T get(String key, boolean isRecorded) {
+        StatsRecorder stats = isRecorded ? this.stats : StatsRecorder.DISABLED;
+        CacheEventListener eventListener = isRecorded ? this.eventListener : null;
+        long traceStart = traces.startTimer();
+        Serializable ramResult = null;
+        Serializable result = null;
+        DiskLruCache.Snapshot snapshotObject = null;
+
+        // Try to get the object from RAM.
+        boolean isRamSerialized = ramMode.equals(DualCacheRamMode.ENABLE_WITH_SPECIFIC_SERIALIZER);
+        boolean isRamReferenced = ramMode.equals(DualCacheRamMode.ENABLE_WITH_REFERENCE);
+        if (isRamSerialized || isRamReferenced) {
+            long start = stats.startTimer();
+            ramResult = ramCacheLru.get(key);
+            stats.recordRamGet(start, ramResult != null);
+            if (eventListener != null) {
+                if (ramResult == null) {
+                    eventListener.onRamMiss(key);
+                } else {
+                    eventListener.onRamHit(key);
+                }
+            }
+        }
+
+        if (ramResult == null) {
+            long start = stats.startTimer();
+            if (!noDisk && isMaybeOnDisk(key)) {
+                // Try to get the cached object from disk.
+                dualCacheLock.lockDiskEntryRead(key);
+                try {
+                    long readStart = traces.startTimer();
+                    snapshotObject = diskLruCache.get(key);
+                    if (snapshotObject != null) {
+                        traces.recordIfSlow(CacheOperation.DISK_READ, DualCacheLayer.DISK, key,
+                                snapshotObject.getLength(0), readStart);
+                    }
+                } catch (IOException e) {
+                    logger.logError(e);
+                } finally {
+                    dualCacheLock.unLockDiskEntryRead(key);
+                }
+                stats.recordDiskGet(start, snapshotObject != null);
+
+                if (snapshotObject != null) {
+                    if (eventListener != null) {
+                        eventListener.onDiskHit(key);
+                    }
+                    start = stats.startTimer();
+                    long deserializeStart = traces.startTimer();
+                    try {
+                        result = binaryCodec == null
+                                ? readSerializable(snapshotObject.getInputStream(0))
+                                : binaryCodec.decode(snapshotObject.getInputStream(0),
+                                        snapshotObject.getLength(0));
+                    } catch (IOException | ClassNotFoundException e) {
+                        logger.logError(e);
+                    } finally {
+                        snapshotObject.close();
+                    }
+                    stats.recordDeserialize(start);
+                    traces.recordIfSlow(CacheOperation.DESERIALIZATION, DualCacheLayer.DISK, key,
+                            snapshotObject.getLength(0), deserializeStart);
+                } else if (eventListener != null) {
+                    eventListener.onDiskMiss(key);
+                }
+
+                if(null != result) {
+                    if(ramMode.equals(DualCacheRamMode.ENABLE_WITH_SPECIFIC_SERIALIZER)) {
+                        ramCacheLru.put(key , serialize(key, result));
+                    } else {
+                        ramCacheLru.put(key , result);
+                    }
+                }
+            } else if (!noDisk) {
+                stats.recordDiskGet(start, false);
+                if (eventListener != null) {
+                    eventListener.onDiskMiss(key);
+                }
+            }
+        } else {
+            if(ramMode.equals(DualCacheRamMode.ENABLE_WITH_SPECIFIC_SERIALIZER)) {
+                long start = stats.startTimer();
+                long deserializeStart = traces.startTimer();
+                result = ramSerializer.fromString((String) ramResult);
+                stats.recordDeserialize(start);
+                long duration = traces.slowDuration(deserializeStart);
+                if (duration >= 0) {
+                    traces.record(CacheOperation.DESERIALIZATION, DualCacheLayer.RAM, key,
+                            ramCacheLru.sizeOf(key, ramResult), duration);
+                }
+            } else {
+                result = ramResult;
+            }
+        }
+
+        DualCacheLayer layer = ramResult != null
+                ? DualCacheLayer.RAM : (result != null ? DualCacheLayer.DISK : null);
+        traces.recordIfSlow(CacheOperation.GET, layer, key, -1, traceStart);
+        return (T) result;
+    }
+
+    /**
+     * Return the object of the corresponding key from the cache. If no object is available, it is
+     * computed by the loader and put in cache. Concurrent calls missing the same key share a
+     * single invocation of the loader.
+     *
+     * @param key    is the key of the object.
+     * @param loader computes the object when it is not in cache.
+     * @param <T>    the type of value
+     * @return the object of the corresponding key, or null if the loader returned null.
+     */
+    public <T extends Serializable> T get(final String key, final CacheLoader<T> loader) {
+        T cached = get(key);
+        if (cached != null) {
+            return cached;
+        }
+        return (T) inFlightLoads.load(key, new Callable<Serializable>() {
+            @Override
+            public Serializable call() {
+                // Another caller may have loaded the object since the first lookup.
+                T object = get(key, false);
+                if (object == null) {
+                    object = loader.load(key);
+                    if (object != null) {
+                        put(key, object);
+                    }
+                }
+                return object;
+            }
+        });
+    }
+
+    /**
+     * Delete the corresponding object in cache.
+     *
+     * @param key is the key of the object.
+     */
+    public void delete(String key) {
+        if (!ramMode.equals(DualCacheRamMode.DISABLE)) {
+            ramCacheLru.remove(key);
+        }
+        if(!noDisk) {
+            dualCacheLock.lockDiskEntryWrite(key);
+            try {
+                if (diskLruCache.remove(key)) {
+                    diskKeyFilter.remove(key);
+                }
+            } catch (IOException e) {
+                logger.logError(e);
+            } finally {
+                dualCacheLock.unLockDiskEntryWrite(key);
+            }
+        }
+    }
+
+    /**
+     * Remove all objects from cache (both RAM and disk).
+     */
+    public void invalidate() {
+        invalidateDisk();
+        invalidateRAM();
+    }
+
+    /**
+     * Remove all objects from RAM.
+     */
+    public void invalidateRAM() {
+        if (!ramMode.equals(DualCacheRamMode.DISABLE)) {
+            long traceStart = traces.startTimer();
+            long size = ramCacheLru.size();
+            RemovalCause previous = removalDispatcher.beginCause(RemovalCause.INVALIDATED);
+            try {
+                ramCacheLru.evictAll();
+            } finally {
+                removalDispatcher.endCause(previous);
+            }
+            if (traces.isEnabled()) {
+                traces.record(CacheOperation.INVALIDATION, DualCacheLayer.RAM, null, size,
+                        System.nanoTime() - traceStart);
+            }
+        }
+    }
+
+    /**
+     * Remove all objects from Disk.
+     */
+    public void invalidateDisk() {
+        if(!noDisk) {
+            long traceStart = traces.startTimer();
+            long size = -1;
+            dualCacheLock.lockFullDiskWrite();
+            try {
+                size = diskLruCache.size();
+                diskLruCache.delete();
+                openDiskLruCache(diskCacheFolder);
+            } catch (IOException e) {
+                logger.logError(e);
+            } finally {
+                dualCacheLock.unLockFullDiskWrite();
+            }
+            if (traces.isEnabled()) {
+                traces.record(CacheOperation.INVALIDATION, DualCacheLayer.DISK, null, size,
+                        System.nanoTime() - traceStart);
+            }
+        }
+    }
+
+    /**
+     * Test if an object is present in cache.
+     * @param key is the key of the object.
+     * @return true if the object is present in cache, false otherwise.
+     */
+    public boolean contains(String key) {
+        if (!ramMode.equals(DualCacheRamMode.DISABLE) && ramCacheLru.containsKey(key)) {
+            return true;
+        }
+        if (!noDisk && isMaybeOnDisk(key)) {
+            dualCacheLock.lockDiskEntryRead(key);
+            try {
+                DiskLruCache.Snapshot snapshot = diskLruCache.get(key);
+                if (snapshot != null) {
+                    snapshot.close();
+                    return true;
+                }
+            } catch (IOException e) {
+                logger.logError(e);
+            } finally {
+                dualCacheLock.unLockDiskEntryRead(key);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Put a value into cache
+     *
+     * @param key    key used to find a value
+     * @param value  value
+     * @param <T>    the type of value
+     */
+    public <T extends Serializable> void put(String key , T value) {
+        // Synchronize put on each entry. Gives concurrent editions on different entries, and atomic
+        // modification on the same entry.
+        if (ramMode.equals(DualCacheRamMode.ENABLE_WITH_REFERENCE)) {
+            ramCacheLru.put(key, value);
+        }
+
+        String ramSerialized = null;
+        if (ramMode.equals(DualCacheRamMode.ENABLE_WITH_SPECIFIC_SERIALIZER)) {
+            ramSerialized = serialize(key, value);
+            ramCacheLru.put(key, ramSerialized);
+        }
+
+        if(!noDisk) {
+            dualCacheLock.lockDiskEntryWrite(key);
+            try {
+                // The entry lock keeps the entry from being created or removed meanwhile.
+                if (!isMaybeOnDisk(key) || !DiskEntries.fileOf(diskCacheFolder, key).exists()) {
+                    diskKeyFilter.add(key);
+                }
+                DiskLruCache.Editor editor = diskLruCache.edit(key);
+                long start = stats.startTimer();
+                long traceStart = traces.startTimer();
+                OutputStream out = editor.newOutputStream(0);
+                try {
+                    if (binaryCodec != null && binaryCodec.canEncode(value)) {
+                        binaryCodec.encode(value, out);
+                    } else {
+                        ObjectOutputStream objectOut =
+                                new ObjectOutputStream(new BufferedOutputStream(out));
+                        objectOut.writeObject(value);
+                        objectOut.flush();
+                    }
+                } finally {
+                    out.close();
+                }
+                stats.recordSerialize(start);
+                traces.recordIfSlow(
+                        CacheOperation.SERIALIZATION, DualCacheLayer.DISK, key, -1, traceStart);
+                editor.commit();
+            } catch (IOException e) {
+                logger.logError(e);
+            } finally {
+                dualCacheLock.unLockDiskEntryWrite(key);
+            }
+            rebuildDiskKeyFilterIfOverloaded();
+        }
+
+        if (eventListener != null) {
+            eventListener.onWrite(key);
+        }
+    }
+
+    /**
+     * Asynchronous version of {@link #get(String)}. An object found in the RAM layer, or a key
+     * ruled out by the disk key filter, completes the future immediately on the calling thread.
+     * Otherwise the disk layer is read on the async executor.
+     *
+     * @param key is the key of the object.
+     * @param <T> the type of value
+     * @return a future of the object of the corresponding key, or of null if no object is
+     * available.
+     */
+    public <T extends Serializable> CacheFuture<T> getAsync(final String key) {
+        boolean isInRam = !ramMode.equals(DualCacheRamMode.DISABLE)
+            && ramCacheLru.containsKey(key);
+        return runAsync(new Callable<T>() {
+            @Override
+            public T call() {
+                return get(key);
+            }
+        }, isInRam || noDisk || !isMaybeOnDisk(key));
+    }
+
+    /**
+     * Asynchronous version of {@link #put(String, Serializable)}. Runs on the calling thread when
+     * the disk layer is disabled, on the async executor otherwise.
+     *
+     * @param key   key used to find a value
+     * @param value value
+     * @param <T>   the type of value
+     * @return a future completed once the value is in cache.
+     */
+    public <T extends Serializable> CacheFuture<Void> putAsync(final String key, final T value) {
+        return runAsync(new Callable<Void>() {
+            @Override
+            public Void call() {
+                put(key, value);
+                return null;
+            }
+        }, noDisk);
+    }
+
+    /**
+     * Asynchronous version of {@link #delete(String)}. Runs on the calling thread when the disk
+     * layer is disabled, on the async executor otherwise.
+     *
+     * @param key is the key of the object.
+     * @return a future completed once the object is deleted.
+     */
+    public CacheFuture<Void> deleteAsync(final String key) {
+        return runAsync(new Callable<Void>() {
+            @Override
+            public Void call() {
+                delete(key);
+                return null;
+            }
+        }, noDisk);
+    }
+
+    /**
+     * Asynchronous version of {@link #contains(String)}. An object found in the RAM layer
+     * completes the future immediately on the calling thread. Otherwise the disk layer is checked
+     * on the async executor.
+     *
+     * @param key is the key of the object.
+     * @return a future of true if the object is present in cache, false otherwise.
+     */
+    public CacheFuture<Boolean> containsAsync(final String key) {
+        boolean isInRam = !ramMode.equals(DualCacheRamMode.DISABLE)
+            && ramCacheLru.containsKey(key);
+        if (isInRam || noDisk || !isMaybeOnDisk(key)) {
+            return CacheFuture.completed(isInRam);
+        }
+        return runAsync(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return contains(key);
+            }
+        }, false);
+    }
+
+    /**
+     * The max size of disk in bytes which can be used by the disk cache
+     *
+     * @return max size of disk cache
+     */
+    public int maxDiskCacheSize() {
+        if(!noDisk) {
+            return maxDiskSizeBytes;
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * 获取最大可用的Ram缓存大小
+     *
+     * @return 最大Ram缓存大小
+     */
+    public int maxRamCacheSize() {
+        return ramCacheLru.maxSize();
+    }
+
+    private static Serializable readSerializable(InputStream in)
+            throws IOException, ClassNotFoundException {
+        ObjectInputStream objectIn = new ObjectInputStream(new BufferedInputStream(in));
+        try {
+            return (Serializable) objectIn.readObject();
+        } finally {
+            objectIn.close();
+        }
+    }
+
+    private String serialize(String key, Serializable object) {
+        long start = stats.startTimer();
+        long traceStart = traces.startTimer();
+        String serialized = ramSerializer.toString(object);
+        stats.recordSerialize(start);
+        long duration = traces.slowDuration(traceStart);
+        if (duration >= 0) {
+            traces.record(CacheOperation.SERIALIZATION, DualCacheLayer.RAM, key,
+                    ramCacheLru.sizeOf(key, serialized), duration);
+        }
+        return serialized;
+    }
+
+    private <V> CacheFuture<V> runAsync(Callable<V> operation, boolean onCallingThread) {
+        CacheFuture<V> future = new CacheFuture<>(operation);
+        if (onCallingThread) {
+            future.run();
+        } else if (asyncExecutor != null) {
+            asyncExecutor.execute(future);
+        } else {
+            DualCacheExecutors.async().execute(future);
+        }
+        return future;
+    }
+
+    /**
+     * Check the disk key filter, without taking any lock.
+     *
+     * @param key is the key of the object.
+     * @return false if the object is definitely not on disk, true if it may be.
+     */
+    boolean isMaybeOnDisk(String key) {
+        DiskKeyFilter filter = diskKeyFilter;
+        return filter == null || filter.mightContain(key);
+    }
+
+    /**
+     * Rebuild the disk key filter with a bigger capacity once too many keys have been added to it.
+     * The folder is scanned in background, and the full disk write lock is only held to start
+     * recording the keys added meanwhile, and to swap the filters.
+     */
+    private void rebuildDiskKeyFilterIfOverloaded() {
+        final DiskKeyFilter filter = diskKeyFilter;
+        if (filter == null || !filter.isOverloaded()) {
+            return;
+        }
+        dualCacheLock.lockFullDiskWrite();
+        try {
+            if (diskKeyFilter != filter || !filter.beginRebuild()) {
+                return;
+            }
+        } finally {
+            dualCacheLock.unLockFullDiskWrite();
+        }
+        try {
+            DualCacheExecutors.background().execute(new Runnable() {
+                @Override
+                public void run() {
+                    DiskKeyFilter rebuilt = DiskKeyFilter.fromDirectory(diskCacheFolder);
+                    dualCacheLock.lockFullDiskWrite();
+                    try {
+                        filter.endRebuild(rebuilt);
+                        // The disk layer may have been invalidated meanwhile.
+                        if (diskKeyFilter == filter) {
+                            diskKeyFilter = rebuilt;
+                        }
+                    } finally {
+                        dualCacheLock.unLockFullDiskWrite();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            filter.endRebuild(null);
+            logger.logError(e);
+        }
+    }
+
+    /**
+     * 获取磁盘缓存目录
+     *
+     * @return 磁盘缓存目录File对象
+     */
+    public File diskCacheDir() {
+        return diskCacheFolder;
+    }
+}
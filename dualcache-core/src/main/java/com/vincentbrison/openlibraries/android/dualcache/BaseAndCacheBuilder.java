@@ -0,0 +1,268 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class used to build a cache, extended by the builders of each platform.
+ *
+ * @param <B> is the class of the builder, returned by each of its methods.
+ */
+public abstract class BaseAndCacheBuilder<B extends BaseAndCacheBuilder<B>> {
+
+    private String id;
+    private int appVersion;
+    private CacheLogger logger;
+    private int maxRamSizeBytes;
+    private DualCacheRamMode ramMode;
+    private CacheSerializer<Serializable> ramSerializer;
+    private SizeOf<Serializable> sizeOf;
+    private int maxDiskSizeBytes;
+    private File diskFolder;
+    private boolean noDisk;
+    private Executor asyncExecutor;
+    private boolean recordStats;
+    private CacheEventListener eventListener;
+    private CacheTracer tracer;
+    private long traceThresholdNanos;
+    private BinaryCodec binaryCodec;
+
+    /**
+     * Start the building of the cache.
+     *
+     * @param id         is the id of the cache (should be unique).
+     * @param appVersion is the app version of the app. If data are already stored in disk cache
+     *                   with previous app version, it will be invalidate.
+     */
+    protected BaseAndCacheBuilder(String id, int appVersion) {
+        this.id = id;
+        this.appVersion = appVersion;
+        this.ramMode = null;
+        this.logger = null;
+        this.maxDiskSizeBytes = 100 * 1024 * 1024;
+    }
+
+    /**
+     * @return this builder.
+     */
+    protected abstract B self();
+
+    /**
+     * @return the id of the cache.
+     */
+    protected String getId() {
+        return id;
+    }
+
+    /**
+     * @return the logger used by {@link #enableLog()}. Writes with {@link java.util.logging} by
+     * default.
+     */
+    protected CacheLogger defaultLogger() {
+        return new JavaCacheLogger();
+    }
+
+    /**
+     * Enabling log from the cache. By default disable.
+     *
+     * @return the builder.
+     */
+    public B enableLog() {
+        return enableLog(defaultLogger());
+    }
+
+    /**
+     * Enabling log from the cache, written by the given logger. By default disable.
+     *
+     * @param logger writes the logs.
+     * @return the builder.
+     */
+    public B enableLog(CacheLogger logger) {
+        this.logger = logger;
+        return self();
+    }
+
+    /**
+     * Set the executor running the asynchronous operations ({@code getAsync}, {@code putAsync},
+     * {@code deleteAsync} and {@code containsAsync}). By default, a virtual thread is started per
+     * operation when the runtime supports it, and a shared pool of background threads is used
+     * otherwise.
+     *
+     * @param executor runs the asynchronous operations.
+     * @return the builder.
+     */
+    public B useAsyncExecutor(Executor executor) {
+        this.asyncExecutor = executor;
+        return self();
+    }
+
+    /**
+     * Set a listener receiving the hits, misses, evictions and writes of the cache. By default no
+     * listener is set and no event is created.
+     *
+     * @param listener receives the events of the cache.
+     * @return the builder.
+     */
+    public B useEventListener(CacheEventListener listener) {
+        this.eventListener = listener;
+        return self();
+    }
+
+    /**
+     * Set a tracer receiving the operations of the cache lasting at least the given duration:
+     * gets, disk reads, serializations, and waits for the disk locks. Evictions and invalidations
+     * are always reported. By default no tracer is set and no clock is read for it.
+     *
+     * @param tracer    receives the slow operations.
+     * @param threshold is the duration from which an operation is reported.
+     * @param unit      is the unit of the threshold.
+     * @return the builder.
+     */
+    public B useTracer(CacheTracer tracer, long threshold, TimeUnit unit) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("The trace threshold must not be negative");
+        }
+        this.tracer = tracer;
+        this.traceThresholdNanos = unit.toNanos(threshold);
+        return self();
+    }
+
+    /**
+     * Store the objects on disk with the given binary codec instead of the Java serialization.
+     * Objects of classes not registered in the codec are still written with the Java
+     * serialization, and entries written before stay readable. By default the Java serialization
+     * is used.
+     *
+     * @param codec writes and reads the disk entries.
+     * @return the builder.
+     */
+    public B useBinaryCodec(BinaryCodec codec) {
+        this.binaryCodec = codec;
+        return self();
+    }
+
+    /**
+     * Collect statistics on the cache: hits, misses and evictions per layer, and latencies of
+     * lookups, serialization and lock waits. They are read with {@code getStats()}. By default
+     * disabled.
+     *
+     * @return the builder.
+     */
+    public B recordStats() {
+        this.recordStats = true;
+        return self();
+    }
+
+    /**
+     * @return true if the disk layer is used and no folder has been given for it.
+     */
+    protected boolean needsDiskFolder() {
+        return !noDisk && diskFolder == null;
+    }
+
+    /**
+     * Builder the cache. Exception will be thrown if it can not be created.
+     *
+     * @param defaultDiskFolder is the folder of the disk layer if none has been given, may be
+     *                          null if {@link #needsDiskFolder()} is false.
+     * @return the cache instance.
+     */
+    protected AndCache build(File defaultDiskFolder) {
+        if (ramMode == null) {
+            throw new IllegalStateException("No ram mode set");
+        }
+        File folder = diskFolder == null ? defaultDiskFolder : diskFolder;
+        if (!noDisk && folder == null) {
+            throw new IllegalStateException("No disk folder set");
+        }
+
+        return new AndCache(
+                appVersion,
+                new Logger(logger),
+                ramMode,
+                ramSerializer,
+                maxRamSizeBytes,
+                sizeOf,
+                noDisk,
+                maxDiskSizeBytes,
+                folder,
+                asyncExecutor,
+                recordStats,
+                eventListener,
+                tracer,
+                traceThresholdNanos,
+                binaryCodec
+        );
+    }
+
+    /**
+     * Use Json serialization/deserialization to store and retrieve object from ram cache.
+     *
+     * @param maxRamSizeBytes is the max amount of ram in bytes which can be used by the ram cache.
+     * @param serializer      is the cache interface which provide serialization/deserialization
+     *                        methods
+     *                        for the ram cache layer.
+     * @return the builder.
+     */
+    public B useSerializerInRam(
+        int maxRamSizeBytes, CacheSerializer<Serializable> serializer
+    ) {
+        this.ramMode = DualCacheRamMode.ENABLE_WITH_SPECIFIC_SERIALIZER;
+        this.maxRamSizeBytes = maxRamSizeBytes;
+        this.ramSerializer = serializer;
+        return self();
+    }
+
+    /**
+     * Store directly objects in ram (without serialization/deserialization).
+     * You have to provide a way to compute the size of an object in
+     * ram to be able to used the LRU capacity of the ram cache.
+     *
+     * @param maxRamSizeBytes is the max amount of ram which can be used by the ram cache.
+     * @param handlerSizeOf   computes the size of object stored in ram.
+     * @return the builder.
+     */
+    public B useReferenceInRam(
+        int maxRamSizeBytes, SizeOf<Serializable> handlerSizeOf
+    ) {
+        this.ramMode = DualCacheRamMode.ENABLE_WITH_REFERENCE;
+        this.maxRamSizeBytes = maxRamSizeBytes;
+        this.sizeOf = handlerSizeOf;
+        return self();
+    }
+
+    /**
+     * The max size of disk in bytes which can be used by the disk cache
+     *
+     * @param bytes disk cache size in bytes
+     * @return the builder
+     */
+    public B maxDiskSize(int bytes) {
+        this.maxDiskSizeBytes = bytes;
+        return self();
+    }
+
+    /**
+     * 设置磁盘缓存目录，这里需要注意的是，如果使用的是自定义外部存储，6.0以上系统需要保证用户有访问外部存储的权限
+     *
+     * @param diskCacheDir 磁盘缓存目录
+     * @return the builder
+     */
+    public B diskCacheDir(File diskCacheDir) {
+        diskFolder = diskCacheDir;
+        return self();
+    }
+
+    /**
+     * Use this if you do not want use the disk cache layer, meaning that only the ram cache layer
+     * will be used.
+     *
+     * @return the builder.
+     */
+    public B noDisk() {
+        noDisk = true;
+        return self();
+    }
+}
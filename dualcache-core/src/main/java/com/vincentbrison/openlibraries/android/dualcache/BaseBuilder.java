@@ -0,0 +1,603 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class used to build a cache, extended by the builders of each platform.
+ *
+ * @param <T> is the class of object to store in cache.
+ * @param <B> is the class of the builder, returned by each of its methods.
+ */
+public abstract class BaseBuilder<T, B extends BaseBuilder<T, B>> {
+
+    private static final long DEFAULT_PROCESS_SYNC_INTERVAL_MILLIS = 500;
+
+    private String id;
+    private int appVersion;
+    private CacheLogger logger;
+    private int maxRamSizeBytes;
+    private int maxHotObjects;
+    private CacheCopier<T> hotObjectCopier;
+    private DualCacheRamMode ramMode;
+    private CacheSerializer<T> ramSerializer;
+    private SizeOf<T> sizeOf;
+    private int maxDiskSizeBytes;
+    private DualCacheDiskMode diskMode;
+    private CacheSerializer<T> diskSerializer;
+    private boolean compressDisk;
+    private File diskFolder;
+    private long refreshAfterWriteNanos;
+    private Executor refreshExecutor;
+    private Executor asyncExecutor;
+    private boolean recordStats;
+    private CacheEventListener eventListener;
+    private RemovalListener<T> removalListener;
+    private Executor removalExecutor;
+    private final Map<String, CacheNamespace.Quota> namespaceQuotas = new LinkedHashMap<>();
+    private CacheTracer tracer;
+    private long traceThresholdNanos;
+    private RemoteCacheTransport remoteTransport;
+    private long remoteTimeoutNanos;
+    private Executor remoteExecutor;
+    private boolean multiProcessDisk;
+    private long processSyncIntervalNanos;
+    private int maxHotKeys;
+    private long warmUpTimeNanos;
+    private int maxWarmUpSize;
+    private Executor warmUpExecutor;
+    private File ramSnapshotFile;
+
+    /**
+     * Start the building of the cache.
+     *
+     * @param id         is the id of the cache (should be unique).
+     * @param appVersion is the app version of the app. If data are already stored in disk cache
+     *                   with previous app version, it will be invalidate.
+     */
+    protected BaseBuilder(String id, int appVersion) {
+        this.id = id;
+        this.appVersion = appVersion;
+        this.ramMode = null;
+        this.diskMode = null;
+        this.logger = null;
+    }
+
+    /**
+     * @return this builder.
+     */
+    protected abstract B self();
+
+    /**
+     * @return the id of the cache.
+     */
+    protected String getId() {
+        return id;
+    }
+
+    /**
+     * @return the logger used by {@link #enableLog()}. Writes with {@link java.util.logging} by
+     * default.
+     */
+    protected CacheLogger defaultLogger() {
+        return new JavaCacheLogger();
+    }
+
+    /**
+     * Enabling log from the cache. By default disable.
+     *
+     * @return the builder.
+     */
+    public B enableLog() {
+        return enableLog(defaultLogger());
+    }
+
+    /**
+     * Enabling log from the cache, written by the given logger. By default disable.
+     *
+     * @param logger writes the logs.
+     * @return the builder.
+     */
+    public B enableLog(CacheLogger logger) {
+        this.logger = logger;
+        return self();
+    }
+
+    /**
+     * Reload objects in background once they are older than the given duration. Only reads done
+     * with {@link DualCache#get(String, CacheLoader)} trigger a reload: they keep returning the
+     * current object while a single reload per key runs on a shared background executor.
+     *
+     * @param duration is the time after which an object should be reloaded.
+     * @param unit     is the unit of the duration.
+     * @return the builder.
+     */
+    public B refreshAfterWrite(long duration, TimeUnit unit) {
+        return refreshAfterWrite(duration, unit, null);
+    }
+
+    /**
+     * Reload objects in background once they are older than the given duration. Only reads done
+     * with {@link DualCache#get(String, CacheLoader)} trigger a reload: they keep returning the
+     * current object while a single reload per key runs on the given executor.
+     *
+     * @param duration is the time after which an object should be reloaded.
+     * @param unit     is the unit of the duration.
+     * @param executor runs the reloads.
+     * @return the builder.
+     */
+    public B refreshAfterWrite(long duration, TimeUnit unit, Executor executor) {
+        if (duration <= 0) {
+            throw new IllegalArgumentException("The refresh duration must be positive");
+        }
+        this.refreshAfterWriteNanos = unit.toNanos(duration);
+        this.refreshExecutor = executor;
+        return self();
+    }
+
+    /**
+     * Set the executor running the asynchronous operations ({@code getAsync}, {@code putAsync},
+     * {@code deleteAsync} and {@code containsAsync}). By default, a virtual thread is started per
+     * operation when the runtime supports it, and a shared pool of background threads is used
+     * otherwise.
+     *
+     * @param executor runs the asynchronous operations.
+     * @return the builder.
+     */
+    public B useAsyncExecutor(Executor executor) {
+        this.asyncExecutor = executor;
+        return self();
+    }
+
+    /**
+     * Set a listener receiving the hits, misses, evictions and writes of the cache. By default no
+     * listener is set and no event is created.
+     *
+     * @param listener receives the events of the cache.
+     * @return the builder.
+     */
+    public B useEventListener(CacheEventListener listener) {
+        this.eventListener = listener;
+        return self();
+    }
+
+    /**
+     * Set a listener receiving the objects removed from the cache, with the layer and the cause of
+     * the removal. Notifications are delivered on a shared pool of background threads.
+     *
+     * @param listener receives the removed objects.
+     * @return the builder.
+     */
+    public B useRemovalListener(RemovalListener<T> listener) {
+        return useRemovalListener(listener, null);
+    }
+
+    /**
+     * Same as {@link #useRemovalListener(RemovalListener)}, delivering the notifications on the
+     * given executor.
+     *
+     * @param listener receives the removed objects.
+     * @param executor delivers the notifications, or null to use the shared pool.
+     * @return the builder.
+     */
+    public B useRemovalListener(RemovalListener<T> listener, Executor executor) {
+        this.removalListener = listener;
+        this.removalExecutor = executor;
+        return self();
+    }
+
+    /**
+     * Add a remote layer, shared with the other nodes using the same remote cache, read after a
+     * miss in the disk layer. The objects it returns are stored in the local layers. Puts and
+     * deletes are sent to it in background, while invalidations leave it as it is. The objects
+     * are serialized with the disk serializer, or the RAM serializer if there is no disk layer.
+     *
+     * <p>A read waits at most the timeout, after which it is a miss, and the concurrent reads of a
+     * key share a single request, so the remote layer can only lower the cost of a miss. The
+     * requests are made on a virtual thread when the runtime supports them, and otherwise on a
+     * shared pool of threads dedicated to them, growing as needed so that a blocked request never
+     * delays another one. By default no remote layer is used.
+     *
+     * @param transport reaches the remote cache.
+     * @param timeout   is the time after which a read is a miss.
+     * @param unit      is the unit of the timeout.
+     * @return the builder.
+     */
+    public B useRemoteLayer(RemoteCacheTransport transport, long timeout, TimeUnit unit) {
+        return useRemoteLayer(transport, timeout, unit, null);
+    }
+
+    /**
+     * Same as {@link #useRemoteLayer(RemoteCacheTransport, long, TimeUnit)}, making the requests
+     * on the given executor.
+     *
+     * @param transport reaches the remote cache.
+     * @param timeout   is the time after which a read is a miss.
+     * @param unit      is the unit of the timeout.
+     * @param executor  makes the requests, or null to use the shared one. The requests block, so
+     *                  it should be able to run many of them concurrently.
+     * @return the builder.
+     */
+    public B useRemoteLayer(
+        RemoteCacheTransport transport, long timeout, TimeUnit unit, Executor executor) {
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("The remote timeout must be positive");
+        }
+        this.remoteTransport = transport;
+        this.remoteTimeoutNanos = unit.toNanos(timeout);
+        this.remoteExecutor = executor;
+        return self();
+    }
+
+    /**
+     * Share the disk folder with the other processes using it: a cache of another process, or
+     * another cache of this process, built on the same folder. The writes to the folder are made
+     * under a file lock, and recorded in a change log next to the folder. Every 500 milliseconds
+     * at most, the cache reads the changes of the other processes, drops the objects they rewrote
+     * or removed from its RAM layer, and invalidates its RAM layer if they invalidated the folder.
+     * By default the folder is assumed to be used by this cache only.
+     *
+     * @return the builder.
+     */
+    public B useMultiProcessDisk() {
+        return useMultiProcessDisk(DEFAULT_PROCESS_SYNC_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Same as {@link #useMultiProcessDisk()}, reading the changes of the other processes at most
+     * once per given interval. The RAM layer may return an object rewritten by another process
+     * for up to this interval.
+     *
+     * @param interval is the minimum time between two reads of the changes, or 0 to read them
+     *                 on every access.
+     * @param unit     is the unit of the interval.
+     * @return the builder.
+     */
+    public B useMultiProcessDisk(long interval, TimeUnit unit) {
+        if (interval < 0) {
+            throw new IllegalArgumentException("The sync interval must not be negative");
+        }
+        this.multiProcessDisk = true;
+        this.processSyncIntervalNanos = unit.toNanos(interval);
+        return self();
+    }
+
+    /**
+     * Warm up the RAM layer after a restart. While the cache is used, and when it is closed, the
+     * most recently used keys of the RAM layer are recorded in a manifest in the disk folder, at
+     * most once per minute. When the cache is built, the objects of the keys recorded are read
+     * from the disk layer into the RAM layer, the hottest first, in parallel on a shared pool of
+     * background threads, until the time or the size budget is spent. By default no manifest is
+     * recorded.
+     *
+     * @param maxHotKeys    is the maximum number of keys recorded.
+     * @param maxWarmUpTime is the time after which the warm up stops.
+     * @param unit          is the unit of the time budget.
+     * @param maxWarmUpSize is the size of the objects after which the warm up stops, in the unit
+     *                      of the RAM layer size.
+     * @return the builder.
+     */
+    public B useWarmUp(int maxHotKeys, long maxWarmUpTime, TimeUnit unit, int maxWarmUpSize) {
+        return useWarmUp(maxHotKeys, maxWarmUpTime, unit, maxWarmUpSize, null);
+    }
+
+    /**
+     * Same as {@link #useWarmUp(int, long, TimeUnit, int)}, warming up and recording the keys on
+     * the given executor.
+     *
+     * @param maxHotKeys    is the maximum number of keys recorded.
+     * @param maxWarmUpTime is the time after which the warm up stops.
+     * @param unit          is the unit of the time budget.
+     * @param maxWarmUpSize is the size of the objects after which the warm up stops, in the unit
+     *                      of the RAM layer size.
+     * @param executor      runs the warm up and the records, or null to use the shared one.
+     * @return the builder.
+     */
+    public B useWarmUp(
+        int maxHotKeys, long maxWarmUpTime, TimeUnit unit, int maxWarmUpSize, Executor executor) {
+        if (maxHotKeys <= 0 || maxWarmUpTime < 0 || maxWarmUpSize < 0) {
+            throw new IllegalArgumentException("The warm up budgets must not be negative");
+        }
+        this.maxHotKeys = maxHotKeys;
+        this.warmUpTimeNanos = unit.toNanos(maxWarmUpTime);
+        this.maxWarmUpSize = maxWarmUpSize;
+        this.warmUpExecutor = executor;
+        return self();
+    }
+
+    /**
+     * Keep the content of the RAM layer across restarts. When the cache is closed, the entries of
+     * the RAM layer are written to the given file in a single sequential pass, and when the cache
+     * is built again, they are read back and put in the RAM layer in their LRU order, which is
+     * much faster than reading them one by one from the disk layer. Objects held by reference are
+     * serialized with the disk serializer. The snapshot is deleted once read, and ignored if it
+     * has been written by another app version. By default no snapshot is written.
+     *
+     * @param snapshotFile is the file of the snapshot.
+     * @return the builder.
+     */
+    public B useRamSnapshot(File snapshotFile) {
+        this.ramSnapshotFile = snapshotFile;
+        return self();
+    }
+
+    /**
+     * Set a tracer receiving the operations of the cache lasting at least the given duration:
+     * gets, disk reads, serializations, and waits for the disk locks. Evictions and invalidations
+     * are always reported. By default no tracer is set and no clock is read for it.
+     *
+     * @param tracer    receives the slow operations.
+     * @param threshold is the duration from which an operation is reported.
+     * @param unit      is the unit of the threshold.
+     * @return the builder.
+     */
+    public B useTracer(CacheTracer tracer, long threshold, TimeUnit unit) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("The trace threshold must not be negative");
+        }
+        this.tracer = tracer;
+        this.traceThresholdNanos = unit.toNanos(threshold);
+        return self();
+    }
+
+    /**
+     * Declare a namespace: the objects whose key starts with the given name followed by a dash.
+     * They share the layers of the cache with the other objects, but never use more than the
+     * given quotas, and have their own statistics. They are accessed with
+     * {@link DualCache#namespace(String)}, or directly with their prefixed key.
+     *
+     * @param name             is the name of the namespace, made of lowercase letters and digits.
+     * @param maxRamSizeBytes  is the maximum size of the namespace in the RAM layer, or 0 to only
+     *                         be limited by the size of the layer.
+     * @param maxDiskSizeBytes is the maximum size of the namespace in the disk layer, or 0 to only
+     *                         be limited by the size of the layer.
+     * @return the builder.
+     */
+    public B useNamespace(String name, int maxRamSizeBytes, int maxDiskSizeBytes) {
+        if (name == null || !name.matches("[a-z0-9]+")) {
+            throw new IllegalArgumentException(
+                "Namespace names must be made of lowercase letters and digits: " + name);
+        }
+        if (namespaceQuotas.containsKey(name)) {
+            throw new IllegalArgumentException("Namespace " + name + " is already declared");
+        }
+        if (maxRamSizeBytes < 0 || maxDiskSizeBytes < 0) {
+            throw new IllegalArgumentException("Namespace quotas must not be negative");
+        }
+        namespaceQuotas.put(name, new CacheNamespace.Quota(maxRamSizeBytes, maxDiskSizeBytes));
+        return self();
+    }
+
+    /**
+     * Collect statistics on the cache: hits, misses and evictions per layer, and latencies of
+     * lookups, serialization and lock waits. They are read with {@code getStats()}. By default
+     * disabled.
+     *
+     * @return the builder.
+     */
+    public B recordStats() {
+        this.recordStats = true;
+        return self();
+    }
+
+    /**
+     * Builder the cache. Exception will be thrown if it can not be created.
+     *
+     * @return the cache instance.
+     */
+    public DualCache<T> build() {
+        if (ramMode == null) {
+            throw new IllegalStateException("No ram mode set");
+        }
+        if (diskMode == null) {
+            throw new IllegalStateException("No disk mode set");
+        }
+
+        boolean isRamDisable = ramMode.equals(DualCacheRamMode.DISABLE);
+        boolean isDiskDisable = diskMode.equals(DualCacheDiskMode.DISABLE);
+
+        if (isRamDisable && isDiskDisable) {
+            throw new IllegalStateException(
+                "The ram cache layer and the disk cache layer are "
+                    + "disable. You have to use at least one of those "
+                    + "layers.");
+        }
+        if (remoteTransport != null && isDiskDisable
+            && ramMode != DualCacheRamMode.ENABLE_WITH_SPECIFIC_SERIALIZER) {
+            throw new IllegalStateException(
+                "The remote layer needs a serializer from the disk or the ram layer.");
+        }
+        if (multiProcessDisk && isDiskDisable) {
+            throw new IllegalStateException("A multi-process disk needs the disk layer.");
+        }
+        if (multiProcessDisk && compressDisk) {
+            throw new IllegalStateException(
+                "The disk compression can not be used with a multi-process disk.");
+        }
+        if (maxHotKeys > 0 && (isRamDisable || isDiskDisable)) {
+            throw new IllegalStateException("The warm up needs the ram and the disk layers.");
+        }
+
+        if (ramSnapshotFile != null && (isRamDisable
+            || ramMode == DualCacheRamMode.ENABLE_WITH_REFERENCE && isDiskDisable)) {
+            throw new IllegalStateException(
+                "The ram snapshot needs the ram layer, and the disk serializer for references.");
+        }
+        if (ramSnapshotFile != null && multiProcessDisk) {
+            throw new IllegalStateException(
+                "The ram snapshot can not be used with a multi-process disk.");
+        }
+
+        DualCacheConfig<T> config = new DualCacheConfig<>();
+        config.appVersion = appVersion;
+        config.logger = new Logger(logger);
+        config.ramMode = ramMode;
+        config.ramSerializer = ramSerializer;
+        config.maxRamSizeBytes = maxRamSizeBytes;
+        config.maxHotObjects = maxHotObjects;
+        config.hotObjectCopier = hotObjectCopier;
+        config.sizeOf = sizeOf;
+        config.diskMode = diskMode;
+        config.diskSerializer = diskSerializer;
+        config.compressDisk = compressDisk;
+        config.maxDiskSizeBytes = maxDiskSizeBytes;
+        config.diskFolder = diskFolder;
+        config.refreshAfterWriteNanos = refreshAfterWriteNanos;
+        config.refreshExecutor = refreshAfterWriteNanos > 0 && refreshExecutor == null
+            ? DualCacheExecutors.background() : refreshExecutor;
+        config.asyncExecutor = asyncExecutor;
+        config.recordStats = recordStats;
+        config.eventListener = eventListener;
+        config.removalListener = removalListener;
+        config.removalExecutor = removalListener != null && removalExecutor == null
+            ? DualCacheExecutors.background() : removalExecutor;
+        config.namespaceQuotas = namespaceQuotas;
+        config.tracer = tracer;
+        config.traceThresholdNanos = traceThresholdNanos;
+        config.remoteTier = remoteTransport == null ? null : new RemoteTier<>(
+            remoteTransport,
+            isDiskDisable ? ramSerializer : diskSerializer,
+            remoteTimeoutNanos,
+            TimeUnit.NANOSECONDS,
+            remoteExecutor,
+            logger
+        );
+        config.multiProcessDisk = multiProcessDisk;
+        config.processSyncIntervalNanos = processSyncIntervalNanos;
+        config.maxHotKeys = maxHotKeys;
+        config.warmUpTimeNanos = warmUpTimeNanos;
+        config.maxWarmUpSize = maxWarmUpSize;
+        config.warmUpExecutor = maxHotKeys > 0 && warmUpExecutor == null
+            ? DualCacheExecutors.background() : warmUpExecutor;
+        config.ramSnapshotFile = ramSnapshotFile;
+        DualCache<T> cache = new DualCache<>(config);
+
+        cache.restoreRam();
+        cache.startWarmUp();
+
+        return cache;
+    }
+
+    /**
+     * Use Json serialization/deserialization to store and retrieve object from ram cache.
+     *
+     * @param maxRamSizeBytes is the max amount of ram in bytes which can be used by the ram cache.
+     * @param serializer      is the cache interface which provide serialization/deserialization
+     *                        methods
+     *                        for the ram cache layer.
+     * @return the builder.
+     */
+    public B useSerializerInRam(
+        int maxRamSizeBytes, CacheSerializer<T> serializer
+    ) {
+        return useSerializerInRam(maxRamSizeBytes, serializer, 0, null);
+    }
+
+    /**
+     * Same as {@link #useSerializerInRam(int, CacheSerializer)}, also keeping the objects most
+     * recently read from the RAM layer decoded, so that the hits on hot keys skip the
+     * deserialization. The decoded objects are kept in addition to the serialized ones, which
+     * still define the size of the RAM layer, and are dropped as soon as their key is written or
+     * removed.
+     *
+     * @param maxRamSizeBytes is the max amount of ram in bytes which can be used by the ram cache.
+     * @param serializer      provides serialization/deserialization methods for the ram cache
+     *                        layer.
+     * @param maxHotObjects   is the maximum number of decoded objects kept, or 0 to keep none.
+     * @param copier          copies the decoded objects, or wraps them in a read-only view,
+     *                        before they are returned. If null, the same instance is returned to
+     *                        every caller, which must then not modify it.
+     * @return the builder.
+     */
+    public B useSerializerInRam(
+        int maxRamSizeBytes, CacheSerializer<T> serializer, int maxHotObjects,
+        CacheCopier<T> copier
+    ) {
+        if (maxHotObjects < 0) {
+            throw new IllegalArgumentException("The number of hot objects must not be negative");
+        }
+        this.ramMode = DualCacheRamMode.ENABLE_WITH_SPECIFIC_SERIALIZER;
+        this.maxRamSizeBytes = maxRamSizeBytes;
+        this.ramSerializer = serializer;
+        this.maxHotObjects = maxHotObjects;
+        this.hotObjectCopier = copier;
+        return self();
+    }
+
+    /**
+     * Store directly objects in ram (without serialization/deserialization).
+     * You have to provide a way to compute the size of an object in
+     * ram to be able to used the LRU capacity of the ram cache.
+     *
+     * @param maxRamSizeBytes is the max amount of ram which can be used by the ram cache.
+     * @param handlerSizeOf   computes the size of object stored in ram.
+     * @return the builder.
+     */
+    public B useReferenceInRam(
+        int maxRamSizeBytes, SizeOf<T> handlerSizeOf
+    ) {
+        this.ramMode = DualCacheRamMode.ENABLE_WITH_REFERENCE;
+        this.maxRamSizeBytes = maxRamSizeBytes;
+        this.sizeOf = handlerSizeOf;
+        return self();
+    }
+
+    /**
+     * The ram cache will not be used, meaning that only the disk cache will be used.
+     *
+     * @return the builder for the disk cache layer.
+     */
+    public B noRam() {
+        this.ramMode = DualCacheRamMode.DISABLE;
+        return self();
+    }
+
+    /**
+     * Use custom serialization/deserialization to store and retrieve object from disk cache.
+     *
+     * @param maxDiskSizeBytes is the max size of disk in bytes which an be used by the disk cache
+     *                         layer.
+     * @param diskCacheFolder  is the folder where the disk cache will be stored.
+     * @param serializer       provides serialization/deserialization methods for the disk cache
+     *                         layer.
+     * @return the builder.
+     */
+    public B useSerializerInDisk(
+        int maxDiskSizeBytes, File diskCacheFolder, CacheSerializer<T> serializer
+    ) {
+        this.diskFolder = diskCacheFolder;
+        this.diskMode = DualCacheDiskMode.ENABLE_WITH_SPECIFIC_SERIALIZER;
+        this.maxDiskSizeBytes = maxDiskSizeBytes;
+        this.diskSerializer = serializer;
+        return self();
+    }
+
+    /**
+     * Compress the disk entries against a dictionary trained in background from a sample of the
+     * entries written, and retrained once the compression ratio drops. Small entries sharing the
+     * same structure, such as JSON objects of the same class, take several times less disk space
+     * and read I/O. Entries written without compression stay readable. The dictionaries are not
+     * shared between processes, so this can not be used with {@link #useMultiProcessDisk()}. By
+     * default disabled.
+     *
+     * @return the builder.
+     */
+    public B useDiskCompression() {
+        this.compressDisk = true;
+        return self();
+    }
+
+    /**
+     * Use this if you do not want use the disk cache layer, meaning that only the ram cache layer
+     * will be used.
+     *
+     * @return the builder.
+     */
+    public B noDisk() {
+        this.diskMode = DualCacheDiskMode.DISABLE;
+        return self();
+    }
+}
@@ -0,0 +1,250 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compact binary format for the disk entries of {@link AndCache}, much faster and smaller than
+ * the Java serialization. Each class stored with it is registered with a stable id and a
+ * {@link BinaryTypeCodec}; an entry is made of a header, the id of the class of the object and
+ * the fields written by its codec. {@link String}, {@link Integer}, {@link Long} and byte arrays
+ * are registered by default.
+ *
+ * <p>Objects of classes which are not registered are still written with the Java serialization,
+ * and entries written with the Java serialization, before the codec has been used, stay
+ * readable. The ids must therefore never be reused for another class once entries have been
+ * written to disk; bumping the app version clears the cache when the format of a class changes.
+ *
+ * <p>Buffers are reused per thread, so a codec should be shared. Register all the classes before
+ * the codec is given to the cache; it is not safe to register while it is used.
+ */
+public final class BinaryCodec {
+
+    /** Ids below this one are reserved for the classes registered by default. */
+    public static final int FIRST_USER_ID = 16;
+
+    private static final int NULL_ID = 0;
+    private static final int MAGIC_0 = 0xDC;
+    private static final int MAGIC_1 = 0x01;
+    private static final int JAVA_MAGIC_0 = 0xAC;
+    private static final int JAVA_MAGIC_1 = 0xED;
+    /** Buffers which grew bigger than this are not kept by the threads. */
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+    private final Map<Class<?>, Registration<?>> registrationsByClass = new HashMap<>();
+    private final Map<Integer, Registration<?>> registrationsById = new HashMap<>();
+    private final ThreadLocal<BinaryWriter> writers = new ThreadLocal<>();
+    private final ThreadLocal<byte[]> readBuffers = new ThreadLocal<>();
+
+    public BinaryCodec() {
+        registerBuiltIn(1, String.class, new BinaryTypeCodec<String>() {
+            @Override
+            public void write(BinaryWriter writer, String value) {
+                writer.writeString(value);
+            }
+
+            @Override
+            public String read(BinaryReader reader) throws IOException {
+                return reader.readString();
+            }
+        });
+        registerBuiltIn(2, Integer.class, new BinaryTypeCodec<Integer>() {
+            @Override
+            public void write(BinaryWriter writer, Integer value) {
+                writer.writeInt(value);
+            }
+
+            @Override
+            public Integer read(BinaryReader reader) throws IOException {
+                return reader.readInt();
+            }
+        });
+        registerBuiltIn(3, Long.class, new BinaryTypeCodec<Long>() {
+            @Override
+            public void write(BinaryWriter writer, Long value) {
+                writer.writeLong(value);
+            }
+
+            @Override
+            public Long read(BinaryReader reader) throws IOException {
+                return reader.readLong();
+            }
+        });
+        registerBuiltIn(4, byte[].class, new BinaryTypeCodec<byte[]>() {
+            @Override
+            public void write(BinaryWriter writer, byte[] value) {
+                writer.writeBytes(value);
+            }
+
+            @Override
+            public byte[] read(BinaryReader reader) throws IOException {
+                return reader.readBytes();
+            }
+        });
+    }
+
+    /**
+     * Register a class. Only objects of exactly this class are written with the codec, not the
+     * ones of its subclasses.
+     *
+     * @param id    is the stable id of the class, at least {@link #FIRST_USER_ID}.
+     * @param type  is the class.
+     * @param codec writes and reads the objects of the class.
+     * @param <T>   is the class.
+     * @return this codec.
+     */
+    public <T> BinaryCodec register(int id, Class<T> type, BinaryTypeCodec<T> codec) {
+        if (id < FIRST_USER_ID) {
+            throw new IllegalArgumentException(
+                    "Ids below " + FIRST_USER_ID + " are reserved, got " + id);
+        }
+        registerBuiltIn(id, type, codec);
+        return this;
+    }
+
+    /**
+     * @param value is the object to write.
+     * @return true if the class of the object is registered.
+     */
+    boolean canEncode(Object value) {
+        return value != null && registrationsByClass.containsKey(value.getClass());
+    }
+
+    /**
+     * Write an entry. The class of the object must be registered.
+     *
+     * @param value is the object to write.
+     * @param out   receives the entry, it is not closed.
+     * @throws IOException if the entry can not be written.
+     */
+    void encode(Object value, OutputStream out) throws IOException {
+        BinaryWriter writer = writers.get();
+        if (writer == null) {
+            writer = new BinaryWriter(this);
+        } else {
+            // Removed while in use, so that a codec writing another entry gets its own writer.
+            writers.set(null);
+        }
+        try {
+            writer.writeByte(MAGIC_0);
+            writer.writeByte(MAGIC_1);
+            writer.writeObject(value);
+            out.write(writer.buffer(), 0, writer.size());
+        } finally {
+            writer.reset(MAX_RETAINED_BUFFER_SIZE);
+            writers.set(writer);
+        }
+    }
+
+    /**
+     * Read an entry written with this codec, or with the Java serialization.
+     *
+     * @param in     gives the entry, it is not closed.
+     * @param length is the length of the entry in bytes.
+     * @return the object read.
+     * @throws IOException            if the entry is truncated or corrupted.
+     * @throws ClassNotFoundException if the class of an entry written with the Java serialization
+     *                                is not found.
+     */
+    Serializable decode(InputStream in, long length) throws IOException, ClassNotFoundException {
+        if (length < 2 || length > Integer.MAX_VALUE) {
+            throw new IOException("Invalid entry length " + length);
+        }
+        int size = (int) length;
+        byte[] buffer = readBuffers.get();
+        if (buffer == null || buffer.length < size) {
+            buffer = new byte[size];
+        } else {
+            readBuffers.set(null);
+        }
+        try {
+            int read = 0;
+            while (read < size) {
+                int count = in.read(buffer, read, size - read);
+                if (count < 0) {
+                    throw new EOFException("Truncated entry");
+                }
+                read += count;
+            }
+            int magic0 = buffer[0] & 0xFF;
+            int magic1 = buffer[1] & 0xFF;
+            if (magic0 == JAVA_MAGIC_0 && magic1 == JAVA_MAGIC_1) {
+                ObjectInputStream objectIn =
+                        new ObjectInputStream(new ByteArrayInputStream(buffer, 0, size));
+                return (Serializable) objectIn.readObject();
+            }
+            if (magic0 != MAGIC_0 || magic1 != MAGIC_1) {
+                throw new IOException("Unknown entry format");
+            }
+            Object value = new BinaryReader(this, buffer, 2, size).readObject();
+            if (value != null && !(value instanceof Serializable)) {
+                throw new IOException("Entry of a class which is not serializable: "
+                        + value.getClass().getName());
+            }
+            return (Serializable) value;
+        } finally {
+            if (buffer.length <= MAX_RETAINED_BUFFER_SIZE) {
+                readBuffers.set(buffer);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    void writeObject(BinaryWriter writer, Object value) throws IOException {
+        if (value == null) {
+            writer.writeVarInt(NULL_ID);
+            return;
+        }
+        Registration<Object> registration =
+                (Registration<Object>) registrationsByClass.get(value.getClass());
+        if (registration == null) {
+            throw new IOException("No codec registered for " + value.getClass().getName());
+        }
+        writer.writeVarInt(registration.id);
+        registration.codec.write(writer, value);
+    }
+
+    Object readObject(BinaryReader reader) throws IOException {
+        int id = reader.readVarInt();
+        if (id == NULL_ID) {
+            return null;
+        }
+        Registration<?> registration = registrationsById.get(id);
+        if (registration == null) {
+            throw new IOException("No codec registered for the id " + id);
+        }
+        return registration.codec.read(reader);
+    }
+
+    private <T> void registerBuiltIn(int id, Class<T> type, BinaryTypeCodec<T> codec) {
+        if (type == null || codec == null) {
+            throw new IllegalArgumentException("The class and its codec must not be null");
+        }
+        if (registrationsById.containsKey(id)) {
+            throw new IllegalArgumentException("The id " + id + " is already registered");
+        }
+        if (registrationsByClass.containsKey(type)) {
+            throw new IllegalArgumentException(type.getName() + " is already registered");
+        }
+        Registration<T> registration = new Registration<>(id, codec);
+        registrationsById.put(id, registration);
+        registrationsByClass.put(type, registration);
+    }
+
+    private static final class Registration<T> {
+        private final int id;
+        private final BinaryTypeCodec<T> codec;
+
+        private Registration(int id, BinaryTypeCodec<T> codec) {
+            this.id = id;
+            this.codec = codec;
+        }
+    }
+}
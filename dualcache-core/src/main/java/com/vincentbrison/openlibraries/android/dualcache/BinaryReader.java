@@ -0,0 +1,134 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/**
+ * Buffer the fields of the objects are read from by a {@link BinaryTypeCodec}, in the format
+ * written by {@link BinaryWriter}.
+ */
+public final class BinaryReader {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final BinaryCodec codec;
+    private byte[] buffer;
+    private int position;
+    private int limit;
+
+    BinaryReader(BinaryCodec codec, byte[] buffer, int position, int limit) {
+        this.codec = codec;
+        this.buffer = buffer;
+        this.position = position;
+        this.limit = limit;
+    }
+
+    public int readVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length integer");
+    }
+
+    public long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length long");
+    }
+
+    public int readInt() throws IOException {
+        int value = readVarInt();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public long readLong() throws IOException {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public boolean readBoolean() throws IOException {
+        return readByte() != 0;
+    }
+
+    public double readDouble() throws IOException {
+        return Double.longBitsToDouble(readFixedLong());
+    }
+
+    public float readFloat() throws IOException {
+        require(4);
+        int bits = 0;
+        for (int shift = 0; shift < 32; shift += 8) {
+            bits |= (buffer[position++] & 0xFF) << shift;
+        }
+        return Float.intBitsToFloat(bits);
+    }
+
+    /**
+     * @return the string read, or null if null was written.
+     */
+    public String readString() throws IOException {
+        int length = readVarInt() - 1;
+        if (length < 0) {
+            return null;
+        }
+        require(length);
+        String value = new String(buffer, position, length, UTF_8);
+        position += length;
+        return value;
+    }
+
+    /**
+     * @return a copy of the array read, or null if null was written.
+     */
+    public byte[] readBytes() throws IOException {
+        int length = readVarInt() - 1;
+        if (length < 0) {
+            return null;
+        }
+        require(length);
+        byte[] value = new byte[length];
+        System.arraycopy(buffer, position, value, 0, length);
+        position += length;
+        return value;
+    }
+
+    /**
+     * @return the object read, or null if null was written.
+     * @throws IOException if the class of the object is not registered in the codec.
+     */
+    public Object readObject() throws IOException {
+        return codec.readObject(this);
+    }
+
+    long readFixedLong() throws IOException {
+        require(8);
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 8) {
+            value |= (long) (buffer[position++] & 0xFF) << shift;
+        }
+        return value;
+    }
+
+    int readByte() throws IOException {
+        require(1);
+        return buffer[position++] & 0xFF;
+    }
+
+    private void require(int length) throws IOException {
+        if (length > limit - position) {
+            throw new EOFException("Truncated entry");
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+import java.io.IOException;
+
+/**
+ * Write and read the objects of one class registered in a {@link BinaryCodec}. Implementations
+ * write the fields of the object in a fixed order, and read them back in the same order.
+ *
+ * @param <T> is the class of the objects.
+ */
+public interface BinaryTypeCodec<T> {
+
+    /**
+     * @param writer receives the fields of the object.
+     * @param value  is the object to write, never null.
+     * @throws IOException if a nested object can not be written.
+     */
+    void write(BinaryWriter writer, T value) throws IOException;
+
+    /**
+     * @param reader gives the fields of the object, in the order they have been written.
+     * @return the object read.
+     * @throws IOException if the data is truncated or corrupted.
+     */
+    T read(BinaryReader reader) throws IOException;
+}
@@ -0,0 +1,170 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Growable buffer the fields of the objects are written to by a {@link BinaryTypeCodec}. Integers
+ * are written as variable length integers (one byte below 128), signed ones zigzag encoded first
+ * so that small negative numbers stay short, and strings in UTF-8 prefixed by their length.
+ */
+public final class BinaryWriter {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final BinaryCodec codec;
+    private byte[] buffer = new byte[INITIAL_CAPACITY];
+    private int position;
+
+    BinaryWriter(BinaryCodec codec) {
+        this.codec = codec;
+    }
+
+    /**
+     * Write a non negative integer, in 1 to 5 bytes.
+     *
+     * @param value is the integer, interpreted as unsigned.
+     */
+    public void writeVarInt(int value) {
+        ensureCapacity(5);
+        int remaining = value;
+        while ((remaining & ~0x7F) != 0) {
+            buffer[position++] = (byte) ((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        buffer[position++] = (byte) remaining;
+    }
+
+    /**
+     * Write a non negative long, in 1 to 10 bytes.
+     *
+     * @param value is the long, interpreted as unsigned.
+     */
+    public void writeVarLong(long value) {
+        ensureCapacity(10);
+        long remaining = value;
+        while ((remaining & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        buffer[position++] = (byte) remaining;
+    }
+
+    public void writeInt(int value) {
+        writeVarInt((value << 1) ^ (value >> 31));
+    }
+
+    public void writeLong(long value) {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    public void writeBoolean(boolean value) {
+        ensureCapacity(1);
+        buffer[position++] = (byte) (value ? 1 : 0);
+    }
+
+    public void writeDouble(double value) {
+        writeFixedLong(Double.doubleToLongBits(value));
+    }
+
+    public void writeFloat(float value) {
+        int bits = Float.floatToIntBits(value);
+        ensureCapacity(4);
+        for (int shift = 0; shift < 32; shift += 8) {
+            buffer[position++] = (byte) (bits >>> shift);
+        }
+    }
+
+    /**
+     * @param value is the string to write, may be null.
+     */
+    public void writeString(String value) {
+        if (value == null) {
+            writeVarInt(0);
+            return;
+        }
+        int length = Utf8.length(value);
+        writeVarInt(length + 1);
+        ensureCapacity(length);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer[position++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xC0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else {
+                buffer[position++] = (byte) (0xE0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    /**
+     * @param value is the array to write, may be null.
+     */
+    public void writeBytes(byte[] value) {
+        if (value == null) {
+            writeVarInt(0);
+            return;
+        }
+        writeVarInt(value.length + 1);
+        ensureCapacity(value.length);
+        System.arraycopy(value, 0, buffer, position, value.length);
+        position += value.length;
+    }
+
+    /**
+     * Write an object of a class registered in the codec, preceded by the id of its class.
+     *
+     * @param value is the object to write, may be null.
+     * @throws IOException if the class of the object is not registered.
+     */
+    public void writeObject(Object value) throws IOException {
+        codec.writeObject(this, value);
+    }
+
+    void writeFixedLong(long value) {
+        ensureCapacity(8);
+        for (int shift = 0; shift < 64; shift += 8) {
+            buffer[position++] = (byte) (value >>> shift);
+        }
+    }
+
+    void writeByte(int value) {
+        ensureCapacity(1);
+        buffer[position++] = (byte) value;
+    }
+
+    byte[] buffer() {
+        return buffer;
+    }
+
+    int size() {
+        return position;
+    }
+
+    /**
+     * Empty the writer, dropping its buffer if it grew too big to be kept.
+     */
+    void reset(int maxRetainedCapacity) {
+        position = 0;
+        if (buffer.length > maxRetainedCapacity) {
+            buffer = new byte[INITIAL_CAPACITY];
+        }
+    }
+
+    private void ensureCapacity(int extra) {
+        if (position + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + extra));
+        }
+    }
+}
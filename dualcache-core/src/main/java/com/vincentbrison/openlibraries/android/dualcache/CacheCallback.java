@@ -0,0 +1,20 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+/**
+ * Interface used to be notified of the completion of an asynchronous cache operation.
+ * @param <V> is the class of the result of the operation.
+ */
+public interface CacheCallback<V> {
+
+    /**
+     * Called when the operation completed normally.
+     * @param result is the result of the operation.
+     */
+    void onSuccess(V result);
+
+    /**
+     * Called when the operation failed.
+     * @param error is the reason of the failure.
+     */
+    void onFailure(Throwable error);
+}
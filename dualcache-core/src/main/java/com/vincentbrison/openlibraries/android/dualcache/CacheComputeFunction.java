@@ -0,0 +1,16 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+/**
+ * Interface used to compute the new object of an entry from its current object.
+ * @param <T> is the class of object cached.
+ */
+public interface CacheComputeFunction<T> {
+
+    /**
+     * Compute the new object of an entry.
+     * @param key           is the key of the entry.
+     * @param currentObject is the object currently cached for the key, or null if there is none.
+     * @return the new object of the entry, or null to delete it.
+     */
+    T compute(String key, T currentObject);
+}
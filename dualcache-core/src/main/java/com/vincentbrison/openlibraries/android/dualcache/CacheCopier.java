@@ -0,0 +1,16 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+/**
+ * Interface used to describe how to hand out an object kept decoded in the RAM layer, so that the
+ * callers can not modify the shared instance.
+ * @param <T> is the class of object to copy.
+ */
+public interface CacheCopier<T> {
+
+    /**
+     * Copy an object, or wrap it in a read-only view.
+     * @param object is the shared instance, which must not be modified.
+     * @return the object given to the caller.
+     */
+    T copy(T object);
+}
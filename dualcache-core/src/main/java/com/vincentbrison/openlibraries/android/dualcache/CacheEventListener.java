@@ -0,0 +1,55 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+/**
+ * Receive the events of a cache, as they happen. Register it with
+ * {@link BaseBuilder#useEventListener(CacheEventListener)}. A cache without listener and without
+ * log does not create any event, so the lookups pay nothing for this feature.
+ *
+ * <p>Events are delivered synchronously on the thread using the cache, possibly while it holds
+ * the lock of the entry: implementations must be fast and must not use the cache.
+ */
+public interface CacheEventListener {
+
+    /**
+     * The object of the given key has been found in the RAM layer.
+     *
+     * @param key is the key of the object.
+     */
+    void onRamHit(String key);
+
+    /**
+     * The object of the given key has not been found in the RAM layer.
+     *
+     * @param key is the key of the object.
+     */
+    void onRamMiss(String key);
+
+    /**
+     * The object of the given key has been found in the disk layer.
+     *
+     * @param key is the key of the object.
+     */
+    void onDiskHit(String key);
+
+    /**
+     * The object of the given key has not been found in the disk layer.
+     *
+     * @param key is the key of the object.
+     */
+    void onDiskMiss(String key);
+
+    /**
+     * The object of the given key has been evicted from the RAM layer, either to respect its
+     * maximum size or by an invalidation of the RAM layer.
+     *
+     * @param key is the key of the object.
+     */
+    void onEvict(String key);
+
+    /**
+     * An object has been put in cache for the given key.
+     *
+     * @param key is the key of the object.
+     */
+    void onWrite(String key);
+}
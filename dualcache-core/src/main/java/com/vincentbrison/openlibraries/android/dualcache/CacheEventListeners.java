@@ -0,0 +1,68 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+/**
+ * Forward the events of a cache to two listeners.
+ */
+final class CacheEventListeners implements CacheEventListener {
+
+    private final CacheEventListener first;
+    private final CacheEventListener second;
+
+    private CacheEventListeners(CacheEventListener first, CacheEventListener second) {
+        this.first = first;
+        this.second = second;
+    }
+
+    /**
+     * Combine two optional listeners.
+     *
+     * @param first  is the first listener, may be null.
+     * @param second is the second listener, may be null.
+     * @return a listener forwarding to both, or the only non null one, or null if both are null.
+     */
+    static CacheEventListener of(CacheEventListener first, CacheEventListener second) {
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        return new CacheEventListeners(first, second);
+    }
+
+    @Override
+    public void onRamHit(String key) {
+        first.onRamHit(key);
+        second.onRamHit(key);
+    }
+
+    @Override
+    public void onRamMiss(String key) {
+        first.onRamMiss(key);
+        second.onRamMiss(key);
+    }
+
+    @Override
+    public void onDiskHit(String key) {
+        first.onDiskHit(key);
+        second.onDiskHit(key);
+    }
+
+    @Override
+    public void onDiskMiss(String key) {
+        first.onDiskMiss(key);
+        second.onDiskMiss(key);
+    }
+
+    @Override
+    public void onEvict(String key) {
+        first.onEvict(key);
+        second.onEvict(key);
+    }
+
+    @Override
+    public void onWrite(String key) {
+        first.onWrite(key);
+        second.onWrite(key);
+    }
+}
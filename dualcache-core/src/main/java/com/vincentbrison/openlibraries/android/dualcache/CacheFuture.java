@@ -0,0 +1,126 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Result of an asynchronous cache operation. Besides the blocking methods of
+ * {@link java.util.concurrent.Future}, callbacks can be registered to be notified of the
+ * completion without blocking.
+ *
+ * @param <V> is the class of the result of the operation.
+ */
+public final class CacheFuture<V> extends FutureTask<V> {
+
+    private final List<CacheCallback<? super V>> callbacks = new ArrayList<>();
+    private boolean callbacksDispatched;
+
+    CacheFuture(Callable<V> callable) {
+        super(callable);
+    }
+
+    /**
+     * Return a future already completed with the given result.
+     *
+     * @param result is the result of the operation.
+     * @param <V>    is the class of the result.
+     * @return a completed future.
+     */
+    static <V> CacheFuture<V> completed(final V result) {
+        CacheFuture<V> future = new CacheFuture<>(new Callable<V>() {
+            @Override
+            public V call() {
+                return result;
+            }
+        });
+        future.run();
+        return future;
+    }
+
+    /**
+     * Register a callback notified when the operation completes. If it is already completed, the
+     * callback is invoked immediately on the calling thread. Otherwise it is invoked on the thread
+     * which completes the operation.
+     *
+     * @param callback is notified of the result of the operation.
+     * @return this future.
+     */
+    public CacheFuture<V> addCallback(CacheCallback<? super V> callback) {
+        synchronized (callbacks) {
+            if (!callbacksDispatched) {
+                callbacks.add(callback);
+                return this;
+            }
+        }
+        dispatch(callback);
+        return this;
+    }
+
+    /**
+     * Wait for the result of the operation, without being interruptible. A failure of the
+     * operation is rethrown unchecked.
+     *
+     * @return the result of the operation.
+     */
+    V join() {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new IllegalStateException(cause);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    protected void done() {
+        List<CacheCallback<? super V>> toNotify;
+        synchronized (callbacks) {
+            callbacksDispatched = true;
+            toNotify = new ArrayList<>(callbacks);
+            callbacks.clear();
+        }
+        for (CacheCallback<? super V> callback : toNotify) {
+            dispatch(callback);
+        }
+    }
+
+    private void dispatch(CacheCallback<? super V> callback) {
+        V result;
+        try {
+            result = get();
+        } catch (ExecutionException e) {
+            callback.onFailure(e.getCause());
+            return;
+        } catch (CancellationException e) {
+            callback.onFailure(e);
+            return;
+        } catch (InterruptedException e) {
+            // Not reachable: the future is done when callbacks are notified.
+            Thread.currentThread().interrupt();
+            callback.onFailure(e);
+            return;
+        }
+        callback.onSuccess(result);
+    }
+}
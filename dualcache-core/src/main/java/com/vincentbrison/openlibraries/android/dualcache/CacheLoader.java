@@ -0,0 +1,16 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+/**
+ * Interface used to compute an object which is missing from the cache.
+ * @param <T> is the class of object to load.
+ */
+public interface CacheLoader<T> {
+
+    /**
+     * Compute the object corresponding to a key. When several threads miss the same key at the
+     * same time, this method is called only once and the result is shared between them.
+     * @param key is the key of the object to load.
+     * @return the loaded object, or null if there is no object for this key.
+     */
+    T load(String key);
+}
@@ -0,0 +1,22 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+/**
+ * Interface used to describe where the logs of the library are written. The priorities have the
+ * values of the ones of {@code android.util.Log}.
+ */
+public interface CacheLogger {
+
+    int VERBOSE = 2;
+    int INFO = 4;
+    int WARN = 5;
+    int ERROR = 6;
+
+    /**
+     * Write a log.
+     * @param priority is the priority of the log, one of the constants of this interface.
+     * @param tag      is the tag of the log.
+     * @param msg      is the msg to log.
+     * @param error    is the error to log, or null.
+     */
+    void log(int priority, String tag, String msg, Throwable error);
+}
@@ -0,0 +1,16 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+/**
+ * Interface used to merge an object with the object already cached for the same key.
+ * @param <T> is the class of object cached.
+ */
+public interface CacheMergeFunction<T> {
+
+    /**
+     * Merge two objects of the same entry.
+     * @param currentObject is the object currently cached for the key.
+     * @param object        is the object given to the merge.
+     * @return the merged object, or null to delete the entry.
+     */
+    T merge(T currentObject, T object);
+}
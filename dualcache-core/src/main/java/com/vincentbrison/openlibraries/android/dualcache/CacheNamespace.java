@@ -0,0 +1,251 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+import java.io.File;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Accounting of a namespace of a {@link DualCache}: the entries whose key starts with the name of
+ * the namespace followed by {@link #SEPARATOR}. They are stored in the layers shared by the whole
+ * cache, and each layer is mirrored by an index of the sizes of the entries of the namespace, in
+ * the same least recently used order. An index bounded by the quota of the namespace evicts the
+ * entries which make it go over quota.
+ *
+ * <p>RAM entries over quota are removed right away. Disk entries over quota are queued, and
+ * removed by the cache once it does not hold any entry lock anymore. Entries evicted by the disk
+ * layer itself are dropped from the index as soon as the cache finds out, once the disk layer
+ * trimmed itself.
+ */
+final class CacheNamespace {
+
+    static final char SEPARATOR = '-';
+
+    private final String name;
+    private final String prefix;
+    private final RamLruCache<String, Integer> ramIndex;
+    private final RamLruCache<String, Integer> diskIndex;
+    private final Queue<String> diskOverQuota = new ConcurrentLinkedQueue<>();
+    private final StripedCounter ramHitCount = new StripedCounter();
+    private final StripedCounter ramMissCount = new StripedCounter();
+    private final StripedCounter ramEvictionCount = new StripedCounter();
+    private final StripedCounter diskHitCount = new StripedCounter();
+    private final StripedCounter diskMissCount = new StripedCounter();
+    private final StripedCounter diskEvictionCount = new StripedCounter();
+
+    /**
+     * @param name              is the name of the namespace.
+     * @param quota             is the maximum size of the namespace in each layer.
+     * @param ramLayer          is the RAM layer of the cache, or null if it is disabled.
+     * @param isDiskEnabled     is true if the disk layer of the cache is enabled.
+     * @param removalDispatcher reports the removals of the entries over quota as evictions.
+     */
+    CacheNamespace(
+        String name,
+        Quota quota,
+        final RamLruCache<String, ?> ramLayer,
+        boolean isDiskEnabled,
+        final RemovalDispatcher<?> removalDispatcher
+    ) {
+        this.name = name;
+        this.prefix = name + SEPARATOR;
+        if (ramLayer == null) {
+            this.ramIndex = null;
+        } else {
+            this.ramIndex = new SizeIndex(quota.maxRamSizeBytes) {
+                @Override
+                protected void entryRemoved(
+                    boolean evicted, String key, Integer oldValue, Integer newValue) {
+                    if (evicted) {
+                        RemovalCause previous = removalDispatcher.beginCause(RemovalCause.EVICTED);
+                        try {
+                            ramLayer.remove(key);
+                        } finally {
+                            removalDispatcher.endCause(previous);
+                        }
+                    }
+                }
+            };
+        }
+        if (!isDiskEnabled) {
+            this.diskIndex = null;
+        } else {
+            this.diskIndex = new SizeIndex(quota.maxDiskSizeBytes) {
+                @Override
+                protected void entryRemoved(
+                    boolean evicted, String key, Integer oldValue, Integer newValue) {
+                    if (evicted) {
+                        diskOverQuota.add(key);
+                    }
+                }
+            };
+        }
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * @param key is a key of the namespace.
+     * @return the key of the entry in the layers of the cache.
+     */
+    String keyOf(String key) {
+        return prefix + key;
+    }
+
+    /**
+     * @param key is a key of the cache.
+     * @return true if the entry belongs to this namespace.
+     */
+    boolean contains(String key) {
+        return key.startsWith(prefix);
+    }
+
+    void recordRamGet(boolean hit) {
+        (hit ? ramHitCount : ramMissCount).increment();
+    }
+
+    void recordDiskGet(boolean hit) {
+        (hit ? diskHitCount : diskMissCount).increment();
+    }
+
+    void onRamRead(String key) {
+        if (ramIndex != null) {
+            ramIndex.get(key);
+        }
+    }
+
+    void onRamWrite(String key, int size) {
+        if (ramIndex != null) {
+            ramIndex.put(key, size);
+        }
+    }
+
+    /**
+     * @param key     is the key of the entry.
+     * @param evicted is true if the entry has been evicted by the RAM layer or the quota.
+     */
+    void onRamRemoved(String key, boolean evicted) {
+        if (ramIndex != null) {
+            ramIndex.remove(key);
+        }
+        if (evicted) {
+            ramEvictionCount.increment();
+        }
+    }
+
+    void onDiskRead(String key) {
+        if (diskIndex != null) {
+            diskIndex.get(key);
+        }
+    }
+
+    void onDiskWrite(String key, int size) {
+        if (diskIndex != null) {
+            diskIndex.put(key, size);
+        }
+    }
+
+    /**
+     * @param key     is the key of the entry.
+     * @param evicted is true if the entry has been removed because it was over quota.
+     */
+    void onDiskRemoved(String key, boolean evicted) {
+        if (diskIndex != null) {
+            diskIndex.remove(key);
+        }
+        if (evicted) {
+            diskEvictionCount.increment();
+        }
+    }
+
+    void onDiskInvalidated() {
+        if (diskIndex != null) {
+            diskIndex.evictAll();
+            diskOverQuota.clear();
+        }
+    }
+
+    /**
+     * Fill the empty disk index with the entries of the namespace already on disk.
+     *
+     * @param entries are the files of the entries on disk, the oldest first.
+     */
+    void loadDiskIndex(List<File> entries) {
+        if (diskIndex == null) {
+            return;
+        }
+        for (File entry : entries) {
+            String key = DiskEntries.keyOf(entry);
+            if (contains(key)) {
+                diskIndex.put(key, DiskEntries.sizeOf(entry));
+            }
+        }
+    }
+
+    /**
+     * @return the key of the next disk entry to remove because it went over quota, or null.
+     */
+    String pollDiskOverQuota() {
+        return diskOverQuota.poll();
+    }
+
+    /**
+     * @param key is the key of the entry.
+     * @return true if the entry is written in the disk layer and within quota.
+     */
+    boolean isIndexedOnDisk(String key) {
+        return diskIndex != null && diskIndex.containsKey(key);
+    }
+
+    long getRamUsedInBytes() {
+        return ramIndex == null ? -1 : ramIndex.size();
+    }
+
+    long getDiskUsedInBytes() {
+        return diskIndex == null ? -1 : diskIndex.size();
+    }
+
+    DualCacheNamespaceStats snapshot() {
+        return new DualCacheNamespaceStats(
+            ramHitCount.sum(),
+            ramMissCount.sum(),
+            ramEvictionCount.sum(),
+            diskHitCount.sum(),
+            diskMissCount.sum(),
+            diskEvictionCount.sum(),
+            getRamUsedInBytes(),
+            getDiskUsedInBytes()
+        );
+    }
+
+    /**
+     * Maximum sizes of a namespace in the layers of the cache.
+     */
+    static final class Quota {
+        private final int maxRamSizeBytes;
+        private final int maxDiskSizeBytes;
+
+        /**
+         * @param maxRamSizeBytes  is the maximum size in the RAM layer, or 0 for no quota.
+         * @param maxDiskSizeBytes is the maximum size in the disk layer, or 0 for no quota.
+         */
+        Quota(int maxRamSizeBytes, int maxDiskSizeBytes) {
+            this.maxRamSizeBytes = maxRamSizeBytes > 0 ? maxRamSizeBytes : Integer.MAX_VALUE;
+            this.maxDiskSizeBytes = maxDiskSizeBytes > 0 ? maxDiskSizeBytes : Integer.MAX_VALUE;
+        }
+    }
+
+    private static class SizeIndex extends RamLruCache<String, Integer> {
+
+        SizeIndex(int maxSize) {
+            super(maxSize);
+        }
+
+        @Override
+        protected int sizeOf(String key, Integer size) {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+/**
+ * Define the operations of a cache reported to a {@link CacheTracer}.
+ */
+public enum CacheOperation {
+    /**
+     * A lookup of an object, from the call to its return. The layer is the one which answered, or
+     * null if the object was not found.
+     */
+    GET,
+
+    /**
+     * A read of an entry from the disk layer, without deserializing it.
+     */
+    DISK_READ,
+
+    /**
+     * A serialization of an object for the given layer.
+     */
+    SERIALIZATION,
+
+    /**
+     * A deserialization of an object read from the given layer.
+     */
+    DESERIALIZATION,
+
+    /**
+     * An eviction of an entry, to respect the maximum size of the layer or the quota of its
+     * namespace. Evictions take no time of their own and are always reported.
+     */
+    EVICTION,
+
+    /**
+     * An invalidation of a whole layer. Invalidations are always reported.
+     */
+    INVALIDATION,
+
+    /**
+     * A wait for the lock of a disk entry, or of the whole disk layer.
+     */
+    LOCK_WAIT
+}
@@ -0,0 +1,63 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+import java.io.IOException;
+
+/**
+ * A level of a {@link TieredCache}, such as references in RAM, compressed objects in RAM, the
+ * disk or a remote cache. A tier stores the objects in its own form, with its own serializer,
+ * and evicts them by its own rules; the {@link TierPolicy} it is added with declares how the
+ * objects move between it and the other tiers.
+ *
+ * <p>A tier has to be thread safe. An {@link IOException} makes the operation a miss, and is
+ * logged by the tiered cache.
+ *
+ * @param <T> is the class of object stored in the tier.
+ */
+public interface CacheTier<T> {
+
+    /**
+     * @param key is the key of the object.
+     * @return the object stored in this tier, or null if there is none.
+     * @throws IOException if the tier could not be read.
+     */
+    T get(String key) throws IOException;
+
+    /**
+     * Tell whether the tier stores an object, without reading it nor changing its recency.
+     *
+     * @param key is the key of the object.
+     * @return true if the tier stores an object for the key.
+     * @throws IOException if the tier could not be read.
+     */
+    boolean contains(String key) throws IOException;
+
+    /**
+     * Store an object, replacing the previous one.
+     *
+     * @param key   is the key of the object.
+     * @param value is the object to store, never null.
+     * @throws IOException if the object could not be stored.
+     */
+    void put(String key, T value) throws IOException;
+
+    /**
+     * @param key is the key of the object to remove from this tier.
+     * @throws IOException if the object could not be removed.
+     */
+    void remove(String key) throws IOException;
+
+    /**
+     * Remove all the objects from this tier.
+     *
+     * @throws IOException if the objects could not be removed.
+     */
+    void clear() throws IOException;
+
+    /**
+     * Set the listener receiving the objects this tier evicts to make space. A tier which can not
+     * tell what it evicts, such as the disk, can ignore it.
+     *
+     * @param listener receives the evicted objects.
+     */
+    void setEvictionListener(TierEvictionListener<T> listener);
+}
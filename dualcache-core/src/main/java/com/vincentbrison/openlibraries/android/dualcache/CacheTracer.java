@@ -0,0 +1,31 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+/**
+ * Receive the slow operations of a cache, to correlate them with the rest of the application
+ * (e.g. as Java Flight Recorder events). Register it with {@code useTracer(...)} on the builder
+ * of the cache, with the duration above which an operation is slow. A cache without tracer does
+ * not read any clock for it.
+ *
+ * <p>Operations are reported synchronously on the thread using the cache, possibly while it
+ * holds the lock of the entry: implementations must be fast and must not use the cache.
+ */
+public interface CacheTracer {
+
+    /**
+     * An operation of the cache took at least the threshold of the tracer, or is an eviction or
+     * an invalidation.
+     *
+     * @param operation     is the operation.
+     * @param layer         is the layer the operation applies to, or null if there is none.
+     * @param keyHash       is the hash code of the key of the entry, or 0 for invalidations.
+     * @param sizeBytes     is the size of the entry in the layer, or -1 if it is not known.
+     * @param durationNanos is the duration of the operation, in nanoseconds.
+     */
+    void trace(
+        CacheOperation operation,
+        DualCacheLayer layer,
+        int keyHash,
+        long sizeBytes,
+        long durationNanos
+    );
+}
@@ -0,0 +1,36 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+import java.nio.ByteBuffer;
+
+/**
+ * This cache interface describe the way a lazy view of an object is created from its stored form,
+ * without deserializing the whole object: the fields should only be decoded when they are read.
+ * It is used by {@link DualCache#getView(String, CacheViewSerializer)}.
+ * @param <T> is the class of object stored in the cache.
+ * @param <V> is the class of the view.
+ */
+public interface CacheViewSerializer<T, V> {
+
+    /**
+     * Create a view over the serialized form of an object held by the RAM layer.
+     * @param data is the result of the serialization by the RAM serializer.
+     * @return the view of the object.
+     */
+    V fromString(String data);
+
+    /**
+     * Create a view over a disk entry. The buffer may be mapped on the file of the entry: it stays
+     * valid after the entry is overwritten or removed, but the view should not be kept longer
+     * than needed.
+     * @param data is the result of the serialization by the disk serializer, encoded in UTF-8.
+     * @return the view of the object.
+     */
+    V fromBytes(ByteBuffer data);
+
+    /**
+     * Create a view over an object held by reference by the RAM layer.
+     * @param object is the object, which must not be modified.
+     * @return the view of the object.
+     */
+    V fromObject(T object);
+}
@@ -0,0 +1,151 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Tier of a {@link TieredCache} keeping the objects serialized and deflated in RAM. It holds
+ * several times more objects than a {@link SerializedRamTier} of the same size, at the cost of
+ * inflating them on each hit, which is still far cheaper than reading the disk.
+ *
+ * @param <T> is the class of object stored in the tier.
+ */
+public class CompressedRamTier<T> implements CacheTier<T> {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final byte STORED = 0;
+    private static final byte DEFLATED = 1;
+    /** Flag and length of the serialized object in front of a deflated entry. */
+    private static final int DEFLATED_HEADER_SIZE = 5;
+
+    private final RamLruCache<String, byte[]> ramCache;
+    private final CacheSerializer<T> serializer;
+    private final ThreadLocal<Deflater> deflaters = new ThreadLocal<>();
+    private final ThreadLocal<Inflater> inflaters = new ThreadLocal<>();
+    private volatile TierEvictionListener<T> evictionListener;
+
+    /**
+     * @param maxRamSizeBytes is the maximum amount of RAM in bytes used by the compressed objects.
+     * @param serializer      serializes the objects stored in the tier.
+     */
+    public CompressedRamTier(int maxRamSizeBytes, CacheSerializer<T> serializer) {
+        this.serializer = serializer;
+        this.ramCache = new RamLruCache<String, byte[]>(maxRamSizeBytes) {
+            @Override
+            protected int sizeOf(String key, byte[] value) {
+                return value.length;
+            }
+
+            @Override
+            protected void entryRemoved(
+                boolean evicted, String key, byte[] oldValue, byte[] newValue) {
+                TierEvictionListener<T> listener = evictionListener;
+                if (evicted && listener != null) {
+                    try {
+                        listener.onEvicted(key, decode(oldValue));
+                    } catch (IOException e) {
+                        // A corrupted entry is simply not demoted.
+                    }
+                }
+            }
+        };
+    }
+
+    @Override
+    public T get(String key) throws IOException {
+        byte[] entry = ramCache.get(key);
+        return entry == null ? null : decode(entry);
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return ramCache.containsKey(key);
+    }
+
+    @Override
+    public void put(String key, T value) {
+        ramCache.put(key, encode(value));
+    }
+
+    @Override
+    public void remove(String key) {
+        ramCache.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        // Removed rather than evicted, so that they are not demoted.
+        ramCache.removeAll(ramCache.snapshot().keySet());
+    }
+
+    @Override
+    public void setEvictionListener(TierEvictionListener<T> listener) {
+        this.evictionListener = listener;
+    }
+
+    /**
+     * Deflate the serialized object, or keep it as it is when it does not get smaller.
+     */
+    private byte[] encode(T value) {
+        byte[] utf8 = serializer.toString(value).getBytes(UTF_8);
+        Deflater deflater = deflaters.get();
+        if (deflater == null) {
+            deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            deflaters.set(deflater);
+        }
+        deflater.reset();
+        deflater.setInput(utf8);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(utf8.length / 2 + 8);
+        out.write(DEFLATED);
+        out.write(utf8.length >>> 24);
+        out.write(utf8.length >>> 16);
+        out.write(utf8.length >>> 8);
+        out.write(utf8.length);
+        byte[] buffer = new byte[Math.max(64, utf8.length / 2)];
+        while (!deflater.finished()) {
+            int count = deflater.deflate(buffer);
+            out.write(buffer, 0, count);
+            if (out.size() > utf8.length) {
+                byte[] stored = new byte[utf8.length + 1];
+                stored[0] = STORED;
+                System.arraycopy(utf8, 0, stored, 1, utf8.length);
+                return stored;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private T decode(byte[] entry) throws IOException {
+        if (entry[0] == STORED) {
+            return serializer.fromString(new String(entry, 1, entry.length - 1, UTF_8));
+        }
+        int length = (entry[1] & 0xFF) << 24 | (entry[2] & 0xFF) << 16
+            | (entry[3] & 0xFF) << 8 | entry[4] & 0xFF;
+        Inflater inflater = inflaters.get();
+        if (inflater == null) {
+            inflater = new Inflater(true);
+            inflaters.set(inflater);
+        }
+        inflater.reset();
+        inflater.setInput(entry, DEFLATED_HEADER_SIZE, entry.length - DEFLATED_HEADER_SIZE);
+        byte[] utf8 = new byte[length];
+        int inflated = 0;
+        try {
+            while (inflated < length) {
+                int count = inflater.inflate(utf8, inflated, length - inflated);
+                if (count == 0 && inflater.needsInput()) {
+                    throw new IOException("Truncated compressed entry");
+                }
+                inflated += count;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException(e.getMessage());
+        }
+        return serializer.fromString(new String(utf8, UTF_8));
+    }
+}
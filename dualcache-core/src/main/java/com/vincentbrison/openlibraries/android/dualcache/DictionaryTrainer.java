@@ -0,0 +1,127 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Build a compression dictionary from sample entries, picking greedily the segments of the
+ * samples made of the byte sequences shared by the most samples (a simplified version of the
+ * COVER algorithm of Zstandard). The sequences of a picked segment no longer count for the next
+ * ones, so the dictionary covers as many different shared sequences as possible.
+ */
+final class DictionaryTrainer {
+
+    /** Length of the byte sequences counted, packed in a long. */
+    private static final int SEQUENCE_LENGTH = 8;
+    private static final int SEGMENT_LENGTH = 48;
+    private static final int SEGMENT_STEP = 16;
+
+    private DictionaryTrainer() {
+    }
+
+    /**
+     * @param samples are the sample entries.
+     * @param maxSize is the maximum size of the dictionary in bytes.
+     * @return the dictionary, the most useful segments at the end where the compressor finds them
+     * with the shortest distances, or an empty array if the samples share nothing.
+     */
+    static byte[] train(List<byte[]> samples, int maxSize) {
+        final Map<Long, Integer> sampleCounts = new HashMap<>();
+        for (byte[] sample : samples) {
+            Map<Long, Boolean> seen = new HashMap<>();
+            for (int i = 0; i + SEQUENCE_LENGTH <= sample.length; i++) {
+                Long sequence = sequenceAt(sample, i);
+                if (seen.put(sequence, Boolean.TRUE) == null) {
+                    Integer count = sampleCounts.get(sequence);
+                    sampleCounts.put(sequence, count == null ? 1 : count + 1);
+                }
+            }
+        }
+
+        PriorityQueue<Segment> candidates = new PriorityQueue<>();
+        for (byte[] sample : samples) {
+            for (int start = 0; start + SEQUENCE_LENGTH <= sample.length; start += SEGMENT_STEP) {
+                Segment segment = new Segment(sample, start,
+                    Math.min(sample.length, start + SEGMENT_LENGTH));
+                segment.score = segment.score(sampleCounts);
+                if (segment.score > 0) {
+                    candidates.add(segment);
+                }
+            }
+        }
+
+        // Scores only decrease as segments are picked, so a segment whose updated score is still
+        // the best one can be picked without updating the others.
+        List<Segment> picked = new ArrayList<>();
+        int size = 0;
+        while (!candidates.isEmpty() && size < maxSize) {
+            Segment segment = candidates.poll();
+            segment.score = segment.score(sampleCounts);
+            if (segment.score <= 0) {
+                continue;
+            }
+            Segment next = candidates.peek();
+            if (next != null && next.score > segment.score) {
+                candidates.add(segment);
+                continue;
+            }
+            int length = Math.min(segment.end - segment.start, maxSize - size);
+            picked.add(new Segment(segment.sample, segment.end - length, segment.end));
+            size += length;
+            for (int i = segment.start; i + SEQUENCE_LENGTH <= segment.end; i++) {
+                sampleCounts.remove(sequenceAt(segment.sample, i));
+            }
+        }
+
+        ByteArrayOutputStream dictionary = new ByteArrayOutputStream(size);
+        for (int i = picked.size() - 1; i >= 0; i--) {
+            Segment segment = picked.get(i);
+            dictionary.write(segment.sample, segment.start, segment.end - segment.start);
+        }
+        return dictionary.toByteArray();
+    }
+
+    private static long sequenceAt(byte[] sample, int offset) {
+        long sequence = 0;
+        for (int i = 0; i < SEQUENCE_LENGTH; i++) {
+            sequence = (sequence << 8) | (sample[offset + i] & 0xFF);
+        }
+        return sequence;
+    }
+
+    private static final class Segment implements Comparable<Segment> {
+        private final byte[] sample;
+        private final int start;
+        private final int end;
+        private long score;
+
+        private Segment(byte[] sample, int start, int end) {
+            this.sample = sample;
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * @return the number of other samples sharing each sequence of the segment, summed.
+         */
+        private long score(Map<Long, Integer> sampleCounts) {
+            long score = 0;
+            for (int i = start; i + SEQUENCE_LENGTH <= end; i++) {
+                Integer count = sampleCounts.get(sequenceAt(sample, i));
+                if (count != null) {
+                    score += count - 1;
+                }
+            }
+            return score;
+        }
+
+        @Override
+        public int compareTo(Segment other) {
+            return score > other.score ? -1 : (score == other.score ? 0 : 1);
+        }
+    }
+}
@@ -0,0 +1,499 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compress the disk entries against a dictionary trained from a sample of the entries written,
+ * which lets small entries sharing the same structure compress several fold where compressing
+ * each on its own barely helps.
+ *
+ * <p>A compressed entry starts with a byte which never starts a UTF-8 string, followed by the id
+ * of its dictionary and the deflated string, so entries written before a dictionary is trained,
+ * or which do not get smaller, are stored as plain UTF-8. The compression ratio of the writes is
+ * measured over windows of writes, and the dictionary is retrained from the entries of the last
+ * window once the ratio got worse than with the fresh dictionary. Dictionaries are trained in
+ * background, then the entries are scanned to delete the dictionaries no entry uses anymore, so
+ * that every entry on disk stays readable.
+ */
+final class DiskCompressor {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int COMPRESSED_MARKER = 0xFE;
+    /** Marker and largest id, the bytes read from an entry to tell its dictionary. */
+    private static final int MAX_HEADER_SIZE = 6;
+    private static final String DICTIONARY_FILE_PREFIX = "dictionary-";
+    private static final String DICTIONARY_FILE_SUFFIX = ".dict";
+    private static final int MAX_DICTIONARY_SIZE = 16 * 1024;
+    private static final int SAMPLE_COUNT = 128;
+    private static final int MAX_SAMPLE_SIZE = 2 * 1024;
+    /** Number of writes over which the compression ratio is measured. */
+    private static final int RATIO_WINDOW = 1024;
+    /**
+     * Growth of the compressed size of a window, relative to the first window of the dictionary,
+     * which makes the dictionary retrained.
+     */
+    private static final double RETRAIN_DEGRADATION = 1.25;
+
+    private final Logger logger;
+    private final DualCacheLock lock;
+    private final Executor executor;
+    private final Map<Integer, byte[]> dictionaries = new ConcurrentHashMap<>();
+    private final ThreadLocal<Deflater> deflaters = new ThreadLocal<>();
+    private final ThreadLocal<Inflater> inflaters = new ThreadLocal<>();
+    private final AtomicBoolean isTraining = new AtomicBoolean();
+    private volatile int currentId;
+    /** Ids of the dictionaries used by the writes since the scan of the entries started. */
+    private volatile Set<Integer> usedDuringScan;
+
+    // Guarded by this.
+    private File diskFolder;
+    private int generation;
+    private final List<byte[]> samples = new ArrayList<>();
+    private final Random random = new Random();
+    private int sampledWrites;
+    private int windowWrites;
+    private long windowInputBytes;
+    private long windowOutputBytes;
+    /** Compressed size per byte of the first window of the dictionary, or 0 if not measured. */
+    private double baselineRatio;
+
+    /**
+     * @param logger   logs the errors.
+     * @param lock     is the lock of the disk entries, whose full write lock keeps the entries
+     *                 from being written while a scan starts or ends.
+     * @param executor trains the dictionaries and scans the entries.
+     */
+    DiskCompressor(Logger logger, DualCacheLock lock, Executor executor) {
+        this.logger = logger;
+        this.lock = lock;
+        this.executor = executor;
+    }
+
+    /**
+     * Load the dictionaries stored in the disk folder, dropping the ones loaded before.
+     *
+     * @param diskFolder is the folder of the disk cache.
+     */
+    synchronized void load(File diskFolder) {
+        this.diskFolder = diskFolder;
+        generation++;
+        dictionaries.clear();
+        samples.clear();
+        sampledWrites = 0;
+        resetWindow();
+        int lastId = 0;
+        File[] files = diskFolder.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                int id = idOf(file);
+                if (id > 0) {
+                    try {
+                        dictionaries.put(id, readFile(file));
+                        lastId = Math.max(lastId, id);
+                    } catch (IOException e) {
+                        logger.logError(e);
+                    }
+                }
+            }
+        }
+        currentId = lastId;
+    }
+
+    /**
+     * @param value is the serialized object.
+     * @return the bytes of the disk entry.
+     */
+    byte[] encode(String value) {
+        byte[] utf8 = value.getBytes(UTF_8);
+        int id = currentId;
+        Set<Integer> usedIds = usedDuringScan;
+        if (usedIds != null) {
+            usedIds.add(id);
+        }
+        byte[] dictionary = id == 0 ? null : dictionaries.get(id);
+        byte[] entry = dictionary == null ? utf8 : compress(id, dictionary, utf8);
+        record(utf8, entry.length, dictionary != null);
+        return entry;
+    }
+
+    private byte[] compress(int id, byte[] dictionary, byte[] utf8) {
+        Deflater deflater = deflaters.get();
+        if (deflater == null) {
+            deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            deflaters.set(deflater);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(utf8.length / 2 + 8);
+        out.write(COMPRESSED_MARKER);
+        writeVarInt(out, id);
+        deflater.reset();
+        deflater.setDictionary(dictionary);
+        deflater.setInput(utf8);
+        deflater.finish();
+        byte[] buffer = new byte[Math.max(64, utf8.length / 2)];
+        while (!deflater.finished()) {
+            int count = deflater.deflate(buffer);
+            out.write(buffer, 0, count);
+            if (out.size() >= utf8.length) {
+                return utf8;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @param in     gives the disk entry.
+     * @param length is the length of the disk entry in bytes.
+     * @return the serialized object.
+     * @throws IOException if the entry can not be read or its dictionary is gone.
+     */
+    String decode(InputStream in, long length) throws IOException {
+        byte[] data = new byte[(int) length];
+        int read = 0;
+        while (read < data.length) {
+            int count = in.read(data, read, data.length - read);
+            if (count < 0) {
+                throw new IOException("Truncated disk entry");
+            }
+            read += count;
+        }
+        return new String(decodeBytes(data), UTF_8);
+    }
+
+    /**
+     * @param data is the disk entry.
+     * @return the serialized object, encoded in UTF-8.
+     * @throws IOException if the entry is corrupted or its dictionary is gone.
+     */
+    byte[] decodeBytes(byte[] data) throws IOException {
+        if (data.length == 0 || (data[0] & 0xFF) != COMPRESSED_MARKER) {
+            return data;
+        }
+        int id = 0;
+        int offset = 1;
+        for (int shift = 0; ; shift += 7) {
+            if (offset == data.length || shift > 28) {
+                throw new IOException("Corrupted disk entry");
+            }
+            int b = data[offset++];
+            id |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+        }
+        byte[] dictionary = dictionaries.get(id);
+        if (dictionary == null) {
+            throw new IOException("Missing compression dictionary " + id);
+        }
+        Inflater inflater = inflaters.get();
+        if (inflater == null) {
+            inflater = new Inflater(true);
+            inflaters.set(inflater);
+        }
+        inflater.reset();
+        inflater.setDictionary(dictionary);
+        inflater.setInput(data, offset, data.length - offset);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+        byte[] buffer = new byte[Math.max(256, data.length * 4)];
+        try {
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated disk entry");
+                }
+                out.write(buffer, 0, count);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException(e.getMessage());
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Keep the entry in the samples and measure the compression ratio, then start training a
+     * dictionary if there is none yet, or if the ratio of the last window got too bad.
+     *
+     * @param utf8        is the entry before compression.
+     * @param entryLength is the length of the entry written.
+     * @param compressed  is true if a dictionary has been used.
+     */
+    private void record(byte[] utf8, int entryLength, boolean compressed) {
+        List<byte[]> trainingSamples = null;
+        synchronized (this) {
+            if (utf8.length <= MAX_SAMPLE_SIZE) {
+                sampledWrites++;
+                if (samples.size() < SAMPLE_COUNT) {
+                    samples.add(utf8);
+                } else {
+                    // Reservoir sampling over the writes of the window.
+                    int index = random.nextInt(sampledWrites);
+                    if (index < SAMPLE_COUNT) {
+                        samples.set(index, utf8);
+                    }
+                }
+            }
+            boolean isDue;
+            if (!compressed) {
+                isDue = currentId == 0 && samples.size() >= SAMPLE_COUNT;
+            } else {
+                isDue = false;
+                windowWrites++;
+                windowInputBytes += utf8.length;
+                windowOutputBytes += entryLength;
+                if (windowWrites >= RATIO_WINDOW) {
+                    double ratio = (double) windowOutputBytes / windowInputBytes;
+                    if (baselineRatio == 0) {
+                        baselineRatio = ratio;
+                    } else {
+                        isDue = ratio > baselineRatio * RETRAIN_DEGRADATION;
+                    }
+                    resetWindow();
+                    if (!isDue) {
+                        // The samples of the next window give the next dictionary.
+                        samples.clear();
+                        sampledWrites = 0;
+                    }
+                }
+            }
+            if (isDue && isTraining.compareAndSet(false, true)) {
+                trainingSamples = new ArrayList<>(samples);
+                samples.clear();
+                sampledWrites = 0;
+            }
+        }
+        if (trainingSamples != null) {
+            trainInBackground(trainingSamples);
+        }
+    }
+
+    // Guarded by this.
+    private void resetWindow() {
+        windowWrites = 0;
+        windowInputBytes = 0;
+        windowOutputBytes = 0;
+    }
+
+    private void trainInBackground(final List<byte[]> trainingSamples) {
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        if (train(trainingSamples)) {
+                            deleteUnusedDictionaries();
+                        }
+                    } finally {
+                        isTraining.set(false);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            isTraining.set(false);
+            logger.logError(e);
+        }
+    }
+
+    /**
+     * Train a dictionary, store it in the disk folder, then compress the next writes with it.
+     *
+     * @return true if a new dictionary is used.
+     */
+    private boolean train(List<byte[]> trainingSamples) {
+        byte[] dictionary = DictionaryTrainer.train(trainingSamples, MAX_DICTIONARY_SIZE);
+        File folder;
+        int trainedGeneration;
+        int id;
+        synchronized (this) {
+            folder = diskFolder;
+            trainedGeneration = generation;
+            id = currentId + 1;
+        }
+        if (dictionary.length == 0 || folder == null) {
+            return false;
+        }
+        File file = fileOf(folder, id);
+        try {
+            FileOutputStream out = new FileOutputStream(file);
+            try {
+                out.write(dictionary);
+                out.getFD().sync();
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            logger.logError(e);
+            return false;
+        }
+        synchronized (this) {
+            if (generation == trainedGeneration) {
+                dictionaries.put(id, dictionary);
+                currentId = id;
+                baselineRatio = 0;
+                resetWindow();
+                return true;
+            }
+        }
+        // The disk folder has been loaded again meanwhile, the dictionary belongs to no entry.
+        if (file.exists() && !file.delete()) {
+            logger.logError(new IOException("Can not delete " + file));
+        }
+        return false;
+    }
+
+    /**
+     * Delete the dictionaries no entry is compressed with. The entries are scanned without any
+     * lock; the full disk write lock is only held to start recording the dictionaries used by the
+     * writes made meanwhile, and to delete the dictionaries, so that none is deleted while an
+     * entry compressed with it is being written.
+     */
+    private void deleteUnusedDictionaries() {
+        File folder;
+        int scannedGeneration;
+        lock.lockFullDiskWrite();
+        try {
+            synchronized (this) {
+                folder = diskFolder;
+                scannedGeneration = generation;
+            }
+            Set<Integer> usedIds =
+                Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+            usedIds.add(currentId);
+            usedDuringScan = usedIds;
+        } finally {
+            lock.unLockFullDiskWrite();
+        }
+        Set<Integer> scannedIds = new HashSet<>();
+        for (File entry : DiskEntries.list(folder)) {
+            try {
+                scannedIds.add(dictionaryIdOf(entry));
+            } catch (IOException e) {
+                // Removed meanwhile, or written after the scan started and recorded as such.
+            }
+        }
+        lock.lockFullDiskWrite();
+        try {
+            Set<Integer> usedIds = usedDuringScan;
+            usedDuringScan = null;
+            synchronized (this) {
+                if (generation != scannedGeneration) {
+                    return;
+                }
+                for (Integer id : new ArrayList<>(dictionaries.keySet())) {
+                    if (!scannedIds.contains(id) && !usedIds.contains(id)) {
+                        dictionaries.remove(id);
+                        File file = fileOf(folder, id);
+                        if (!file.delete()) {
+                            logger.logError(new IOException("Can not delete " + file));
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.unLockFullDiskWrite();
+        }
+    }
+
+    /**
+     * @return the ids of the dictionaries stored in the disk folder.
+     */
+    Set<Integer> getDictionaryIds() {
+        return new HashSet<>(dictionaries.keySet());
+    }
+
+    /**
+     * @param entry is the file of a disk entry.
+     * @return the id of the dictionary the entry is compressed with, or 0 if it is not.
+     * @throws IOException if the entry can not be read.
+     */
+    private static int dictionaryIdOf(File entry) throws IOException {
+        byte[] header = new byte[MAX_HEADER_SIZE];
+        int length = 0;
+        FileInputStream in = new FileInputStream(entry);
+        try {
+            while (length < header.length) {
+                int count = in.read(header, length, header.length - length);
+                if (count < 0) {
+                    break;
+                }
+                length += count;
+            }
+        } finally {
+            in.close();
+        }
+        if (length == 0 || (header[0] & 0xFF) != COMPRESSED_MARKER) {
+            return 0;
+        }
+        int id = 0;
+        for (int offset = 1, shift = 0; offset < length; offset++, shift += 7) {
+            int b = header[offset];
+            id |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return id;
+            }
+        }
+        throw new IOException("Corrupted disk entry " + entry);
+    }
+
+    private static File fileOf(File diskFolder, int id) {
+        return new File(diskFolder, DICTIONARY_FILE_PREFIX + id + DICTIONARY_FILE_SUFFIX);
+    }
+
+    private static int idOf(File file) {
+        String name = file.getName();
+        if (!name.startsWith(DICTIONARY_FILE_PREFIX) || !name.endsWith(DICTIONARY_FILE_SUFFIX)) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(name.substring(
+                DICTIONARY_FILE_PREFIX.length(), name.length() - DICTIONARY_FILE_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        byte[] data = new byte[(int) file.length()];
+        FileInputStream in = new FileInputStream(file);
+        try {
+            int read = 0;
+            while (read < data.length) {
+                int count = in.read(data, read, data.length - read);
+                if (count < 0) {
+                    throw new IOException("Truncated dictionary " + file);
+                }
+                read += count;
+            }
+        } finally {
+            in.close();
+        }
+        return data;
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        int remaining = value;
+        while ((remaining & ~0x7F) != 0) {
+            out.write((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        out.write(remaining);
+    }
+}
@@ -0,0 +1,83 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Read the entries stored in a disk cache folder. Entries are the clean files written by
+ * {@link com.jakewharton.disklrucache.DiskLruCache}, named after their key followed by the value
+ * index.
+ */
+final class DiskEntries {
+
+    private static final String CLEAN_FILE_SUFFIX = ".0";
+    private static final String JOURNAL_FILE_PREFIX = "journal";
+
+    private DiskEntries() {
+    }
+
+    /**
+     * @param diskFolder is the folder of the disk cache, may be null.
+     * @return the files of the entries, the least recently modified first.
+     */
+    static List<File> listByAge(File diskFolder) {
+        List<File> entries = list(diskFolder);
+        Collections.sort(entries, new Comparator<File>() {
+            @Override
+            public int compare(File lhs, File rhs) {
+                long lhsModified = lhs.lastModified();
+                long rhsModified = rhs.lastModified();
+                return lhsModified < rhsModified ? -1 : (lhsModified == rhsModified ? 0 : 1);
+            }
+        });
+        return entries;
+    }
+
+    /**
+     * @param diskFolder is the folder of the disk cache, may be null.
+     * @return the files of the entries, in no particular order.
+     */
+    static List<File> list(File diskFolder) {
+        List<File> entries = new ArrayList<>();
+        File[] files = diskFolder == null ? null : diskFolder.listFiles();
+        if (files == null) {
+            return entries;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(CLEAN_FILE_SUFFIX) && !name.startsWith(JOURNAL_FILE_PREFIX)) {
+                entries.add(file);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * @param diskFolder is the folder of the disk cache.
+     * @param key        is the key of an entry.
+     * @return the file of the entry, which exists only if the entry is on disk.
+     */
+    static File fileOf(File diskFolder, String key) {
+        return new File(diskFolder, key + CLEAN_FILE_SUFFIX);
+    }
+
+    /**
+     * @param entry is the file of an entry.
+     * @return the key of the entry.
+     */
+    static String keyOf(File entry) {
+        String name = entry.getName();
+        return name.substring(0, name.length() - CLEAN_FILE_SUFFIX.length());
+    }
+
+    /**
+     * @param entry is the file of an entry.
+     * @return the size of the entry in bytes, capped to {@link Integer#MAX_VALUE}.
+     */
+    static int sizeOf(File entry) {
+        return (int) Math.min(Integer.MAX_VALUE, entry.length());
+    }
+}
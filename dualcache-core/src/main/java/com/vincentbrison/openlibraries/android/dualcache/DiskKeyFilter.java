@@ -0,0 +1,200 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counting Bloom filter over the keys stored in the disk layer. It answers "definitely not on
+ * disk" without taking any lock, so a miss on a cold key never touches {@link DualCacheLock} or
+ * the disk index.
+ *
+ * <p>A key is added once, when its entry is created on disk, and removed once, when the disk
+ * layer confirms that the entry is gone, so that the counters only count the keys on disk. The
+ * filter may only err on the side of "maybe": a key added twice stays in it, and saturated
+ * counters are never decremented.
+ *
+ * <p>An overloaded filter is rebuilt from the disk content in background: the keys added while
+ * the folder is scanned are recorded, and added to the new filter before it replaces this one.
+ */
+final class DiskKeyFilter {
+
+    private static final int MIN_EXPECTED_KEYS = 1024;
+    private static final int COUNTERS_PER_KEY = 10;
+    private static final int HASH_FUNCTIONS = 7;
+    private static final int COUNTERS_PER_WORD = 8;
+    private static final int BITS_PER_COUNTER = 4;
+    private static final int MAX_COUNT = (1 << BITS_PER_COUNTER) - 1;
+
+    private final AtomicIntegerArray words;
+    private final int counterCount;
+    private final int expectedKeys;
+    /** Number of keys added and not removed since. */
+    private final AtomicLong keyCount = new AtomicLong();
+    /** Keys added since the rebuild of the filter began, or null if no rebuild is running. */
+    private volatile Set<String> addedDuringRebuild;
+
+    DiskKeyFilter(int expectedKeys) {
+        this.expectedKeys = Math.max(MIN_EXPECTED_KEYS, expectedKeys);
+        this.counterCount = this.expectedKeys * COUNTERS_PER_KEY;
+        this.words = new AtomicIntegerArray(
+            (counterCount + COUNTERS_PER_WORD - 1) / COUNTERS_PER_WORD
+        );
+    }
+
+    /**
+     * Build a filter from the entries currently stored in a disk cache folder.
+     *
+     * @param diskFolder is the folder of the disk cache.
+     * @return a filter containing every key found on disk.
+     */
+    static DiskKeyFilter fromDirectory(File diskFolder) {
+        List<File> entries = DiskEntries.list(diskFolder);
+        DiskKeyFilter filter = new DiskKeyFilter(entries.size() * 2);
+        for (File entry : entries) {
+            filter.add(DiskEntries.keyOf(entry));
+        }
+        return filter;
+    }
+
+    /**
+     * Record that the entry of the given key is (about to be) created on disk. Must not be called
+     * again when the entry is rewritten, or its counters would never go back to zero.
+     *
+     * @param key is the key of the entry.
+     */
+    void add(String key) {
+        keyCount.incrementAndGet();
+        int h1 = mix(key.hashCode());
+        int h2 = mix(h1 ^ 0x5bd1e995) | 1;
+        for (int i = 0; i < HASH_FUNCTIONS; i++) {
+            increment(index(h1 + i * h2));
+        }
+        Set<String> added = addedDuringRebuild;
+        if (added != null) {
+            added.add(key);
+        }
+    }
+
+    /**
+     * Record that the given key has been removed from disk. Must only be called for keys which
+     * were previously added.
+     *
+     * @param key is the key of the entry.
+     */
+    void remove(String key) {
+        keyCount.decrementAndGet();
+        int h1 = mix(key.hashCode());
+        int h2 = mix(h1 ^ 0x5bd1e995) | 1;
+        for (int i = 0; i < HASH_FUNCTIONS; i++) {
+            decrement(index(h1 + i * h2));
+        }
+    }
+
+    /**
+     * Test if a key may be on disk.
+     *
+     * @param key is the key of the entry.
+     * @return false if the key is definitely not on disk, true if it may be.
+     */
+    boolean mightContain(String key) {
+        int h1 = mix(key.hashCode());
+        int h2 = mix(h1 ^ 0x5bd1e995) | 1;
+        for (int i = 0; i < HASH_FUNCTIONS; i++) {
+            if (counter(index(h1 + i * h2)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Once it counts more keys than planned, the false positive rate climbs and the filter should
+     * be rebuilt from the disk content with a bigger capacity.
+     *
+     * @return true if the filter should be rebuilt.
+     */
+    boolean isOverloaded() {
+        return keyCount.get() > expectedKeys;
+    }
+
+    /**
+     * Start recording the keys added, until {@link #endRebuild(DiskKeyFilter)}. The caller must
+     * hold the full disk write lock, so that every key added before is already on disk when the
+     * folder is scanned.
+     *
+     * @return false if a rebuild is already running.
+     */
+    boolean beginRebuild() {
+        if (addedDuringRebuild != null) {
+            return false;
+        }
+        addedDuringRebuild =
+            Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        return true;
+    }
+
+    /**
+     * Stop recording the keys added, and add the ones recorded to the rebuilt filter. The caller
+     * must hold the full disk write lock, so that no key is added meanwhile.
+     *
+     * @param rebuilt is the filter built from the disk content, or null if the rebuild failed.
+     */
+    void endRebuild(DiskKeyFilter rebuilt) {
+        Set<String> added = addedDuringRebuild;
+        addedDuringRebuild = null;
+        if (rebuilt != null && added != null) {
+            for (String key : added) {
+                rebuilt.add(key);
+            }
+        }
+    }
+
+    private int index(int hash) {
+        return (hash & Integer.MAX_VALUE) % counterCount;
+    }
+
+    private int counter(int index) {
+        int shift = (index % COUNTERS_PER_WORD) * BITS_PER_COUNTER;
+        return (words.get(index / COUNTERS_PER_WORD) >>> shift) & MAX_COUNT;
+    }
+
+    private void increment(int index) {
+        int word = index / COUNTERS_PER_WORD;
+        int shift = (index % COUNTERS_PER_WORD) * BITS_PER_COUNTER;
+        while (true) {
+            int current = words.get(word);
+            int count = (current >>> shift) & MAX_COUNT;
+            if (count == MAX_COUNT || words.compareAndSet(word, current, current + (1 << shift))) {
+                return;
+            }
+        }
+    }
+
+    private void decrement(int index) {
+        int word = index / COUNTERS_PER_WORD;
+        int shift = (index % COUNTERS_PER_WORD) * BITS_PER_COUNTER;
+        while (true) {
+            int current = words.get(word);
+            int count = (current >>> shift) & MAX_COUNT;
+            if (count == 0 || count == MAX_COUNT
+                || words.compareAndSet(word, current, current - (1 << shift))) {
+                return;
+            }
+        }
+    }
+
+    private static int mix(int hash) {
+        int h = hash;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
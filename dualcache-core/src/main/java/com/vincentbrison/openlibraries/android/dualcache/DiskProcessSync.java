@@ -0,0 +1,259 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Coordinate the processes sharing a disk cache folder, through a change log stored next to the
+ * folder, so that it survives the deletion of the folder by an invalidation.
+ *
+ * <p>The writes to the folder are made under an exclusive lock of the change log, and append the
+ * key written to it. Each process reads the log from where it stopped and learns which keys the
+ * other processes rewrote or removed since. The header of the log holds two generations: the
+ * disk generation, bumped when a process invalidates the folder, and the log generation, bumped
+ * when the log is truncated, after which a reader which had not read all the records has lost
+ * track of the changes.
+ *
+ * <p>File locks are held on behalf of the whole virtual machine, so the caches of a process
+ * opened on the same folder also share a lock, and each of them is seen by the others as another
+ * process.
+ */
+final class DiskProcessSync {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String CHANGE_LOG_SUFFIX = ".changes";
+    private static final int HEADER_SIZE = 16;
+    /** Writer id and key length in front of each key. */
+    private static final int RECORD_HEADER_SIZE = 10;
+    private static final long MAX_LOG_SIZE = 1024 * 1024;
+    private static final ConcurrentMap<String, ReentrantLock> PROCESS_LOCKS =
+        new ConcurrentHashMap<>();
+
+    private final long writerId = new Random().nextLong();
+    private final FileChannel channel;
+    private final ReentrantLock processLock;
+    private FileLock fileLock;
+
+    // Guarded by processLock.
+    private long diskGeneration;
+    private long logGeneration;
+    private long readOffset;
+
+    /**
+     * Open the change log of the given folder, starting to read it from its end.
+     *
+     * @param diskFolder is the folder of the disk cache.
+     * @throws IOException if the change log can not be opened.
+     */
+    DiskProcessSync(File diskFolder) throws IOException {
+        File changeLog = new File(
+            diskFolder.getAbsoluteFile().getParentFile(), diskFolder.getName() + CHANGE_LOG_SUFFIX);
+        String path = changeLog.getCanonicalPath();
+        ReentrantLock lock = new ReentrantLock();
+        ReentrantLock sharedLock = PROCESS_LOCKS.putIfAbsent(path, lock);
+        this.processLock = sharedLock == null ? lock : sharedLock;
+        this.channel = new RandomAccessFile(changeLog, "rw").getChannel();
+        lock();
+        try {
+            if (channel.size() < HEADER_SIZE) {
+                writeHeader(0, 0);
+            }
+            ByteBuffer header = readHeader();
+            diskGeneration = header.getLong(0);
+            logGeneration = header.getLong(8);
+            readOffset = channel.size();
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * Lock the folder against the other processes and the other caches of this process.
+     * Reentrant.
+     *
+     * @throws IOException if the lock can not be taken.
+     */
+    void lock() throws IOException {
+        processLock.lock();
+        if (processLock.getHoldCount() == 1) {
+            try {
+                fileLock = channel.lock();
+            } catch (IOException | RuntimeException e) {
+                processLock.unlock();
+                throw e;
+            }
+        }
+    }
+
+    void unlock() {
+        try {
+            if (processLock.getHoldCount() == 1 && fileLock != null) {
+                fileLock.release();
+                fileLock = null;
+            }
+        } catch (IOException e) {
+            // The lock is released anyway when the channel is closed.
+        } finally {
+            processLock.unlock();
+        }
+    }
+
+    /**
+     * Close the change log, releasing the lock if this process holds it.
+     */
+    void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Nothing is left to write.
+        }
+    }
+
+    /**
+     * Tell whether another process invalidated the folder since it was last opened by this one,
+     * in which case the folder must be opened again before writing to it. The caller must hold
+     * the lock.
+     *
+     * @return true if the folder has been invalidated by another process.
+     * @throws IOException if the change log can not be read.
+     */
+    boolean isInvalidatedElsewhere() throws IOException {
+        return readHeader().getLong(0) != diskGeneration;
+    }
+
+    /**
+     * Record that the entry of the key has been written or removed. The caller must hold the
+     * lock.
+     *
+     * @param key is the key of the entry.
+     * @throws IOException if the change log can not be written.
+     */
+    void recordChange(String key) throws IOException {
+        long size = channel.size();
+        if (size >= MAX_LOG_SIZE) {
+            // Every reader, this one included, will see that it lost track of the changes, even
+            // if it had read all of them: it is simpler than keeping the unread ones.
+            channel.truncate(HEADER_SIZE);
+            writeHeader(diskGeneration, logGeneration + 1);
+            size = HEADER_SIZE;
+        }
+        byte[] keyBytes = key.getBytes(UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + keyBytes.length);
+        record.putLong(writerId).putShort((short) keyBytes.length).put(keyBytes).flip();
+        writeFully(record, size);
+    }
+
+    /**
+     * Record that the folder has been invalidated and opened again by this process. The caller
+     * must hold the lock.
+     *
+     * @throws IOException if the change log can not be written.
+     */
+    void recordInvalidation() throws IOException {
+        diskGeneration = readHeader().getLong(0) + 1;
+        writeHeader(diskGeneration, logGeneration);
+    }
+
+    /**
+     * Read the changes made by the other processes since the last call. The caller must hold the
+     * lock.
+     *
+     * @return the changes, or null if there are none.
+     * @throws IOException if the change log can not be read.
+     */
+    Changes readChanges() throws IOException {
+        ByteBuffer header = readHeader();
+        long currentDiskGeneration = header.getLong(0);
+        long currentLogGeneration = header.getLong(8);
+        long size = channel.size();
+        boolean invalidated = currentDiskGeneration != diskGeneration;
+        boolean lostTrack = currentLogGeneration != logGeneration || size < readOffset;
+        diskGeneration = currentDiskGeneration;
+        logGeneration = currentLogGeneration;
+        if (lostTrack) {
+            readOffset = size;
+            return new Changes(invalidated, true, new ArrayList<String>());
+        }
+        if (!invalidated && size == readOffset) {
+            return null;
+        }
+        ByteBuffer records = ByteBuffer.allocate((int) (size - readOffset));
+        readFully(records, readOffset);
+        readOffset = size;
+        records.flip();
+        List<String> keys = new ArrayList<>();
+        while (records.remaining() >= RECORD_HEADER_SIZE) {
+            long recordWriterId = records.getLong();
+            int keyLength = records.getShort();
+            if (keyLength < 0 || keyLength > records.remaining()) {
+                return new Changes(invalidated, true, keys);
+            }
+            byte[] keyBytes = new byte[keyLength];
+            records.get(keyBytes);
+            if (recordWriterId != writerId) {
+                keys.add(new String(keyBytes, UTF_8));
+            }
+        }
+        if (!invalidated && keys.isEmpty()) {
+            return null;
+        }
+        return new Changes(invalidated, false, keys);
+    }
+
+    private ByteBuffer readHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(header, 0);
+        return header;
+    }
+
+    private void writeHeader(long newDiskGeneration, long newLogGeneration) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putLong(newDiskGeneration).putLong(newLogGeneration).flip();
+        writeFully(header, 0);
+        channel.force(false);
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int count = channel.read(buffer, position + buffer.position());
+            if (count < 0) {
+                throw new IOException("Truncated change log");
+            }
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+
+    /**
+     * Changes made by the other processes.
+     */
+    static final class Changes {
+        /** True if the folder has been invalidated, and must be opened again. */
+        final boolean invalidated;
+        /** True if some changes could not be read, and all keys may have changed. */
+        final boolean lostTrack;
+        /** Keys written or removed, in the order of the changes. */
+        final List<String> keys;
+
+        Changes(boolean invalidated, boolean lostTrack, List<String> keys) {
+            this.invalidated = invalidated;
+            this.lostTrack = lostTrack;
+            this.keys = keys;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+import com.jakewharton.disklrucache.DiskLruCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Tier of a {@link TieredCache} keeping the objects serialized on disk. The keys have to match
+ * the regex <b>[a-z0-9_-]{1,64}</b>. The disk cache does not report its evictions, so this tier
+ * never demotes.
+ *
+ * @param <T> is the class of object stored in the tier.
+ */
+public class DiskTier<T> implements CacheTier<T> {
+
+    private static final int VALUES_PER_CACHE_ENTRY = 1;
+
+    private final File diskFolder;
+    private final int appVersion;
+    private final long maxDiskSizeBytes;
+    private final CacheSerializer<T> serializer;
+    /** Shared by the operations on entries, exclusive while the folder is cleared. */
+    private final ReadWriteLock clearLock = new ReentrantReadWriteLock();
+    private DiskLruCache diskLruCache;
+
+    /**
+     * Open the disk cache in the given folder, keeping the entries written with the same app
+     * version.
+     *
+     * @param maxDiskSizeBytes is the maximum amount of disk in bytes used by the tier.
+     * @param diskFolder       is the folder of the tier, which must not be shared.
+     * @param appVersion       is the app version of the app. If data are already stored in the
+     *                         folder with previous app version, it will be invalidate.
+     * @param serializer       serializes the objects stored in the tier.
+     * @throws IOException if the folder can not be opened.
+     */
+    public DiskTier(
+        long maxDiskSizeBytes,
+        File diskFolder,
+        int appVersion,
+        CacheSerializer<T> serializer
+    ) throws IOException {
+        this.diskFolder = diskFolder;
+        this.appVersion = appVersion;
+        this.maxDiskSizeBytes = maxDiskSizeBytes;
+        this.serializer = serializer;
+        this.diskLruCache = open();
+    }
+
+    @Override
+    public T get(String key) throws IOException {
+        clearLock.readLock().lock();
+        try {
+            DiskLruCache.Snapshot snapshot = diskLruCache.get(key);
+            if (snapshot == null) {
+                return null;
+            }
+            try {
+                return serializer.fromString(snapshot.getString(0));
+            } finally {
+                snapshot.close();
+            }
+        } finally {
+            clearLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean contains(String key) throws IOException {
+        clearLock.readLock().lock();
+        try {
+            DiskLruCache.Snapshot snapshot = diskLruCache.get(key);
+            if (snapshot == null) {
+                return false;
+            }
+            snapshot.close();
+            return true;
+        } finally {
+            clearLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void put(String key, T value) throws IOException {
+        String serialized = serializer.toString(value);
+        clearLock.readLock().lock();
+        try {
+            DiskLruCache.Editor editor = diskLruCache.edit(key);
+            if (editor == null) {
+                throw new IOException("The disk entry " + key + " is already being written");
+            }
+            boolean committed = false;
+            try {
+                editor.set(0, serialized);
+                editor.commit();
+                committed = true;
+            } finally {
+                if (!committed) {
+                    editor.abort();
+                }
+            }
+        } finally {
+            clearLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(String key) throws IOException {
+        clearLock.readLock().lock();
+        try {
+            diskLruCache.remove(key);
+        } finally {
+            clearLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear() throws IOException {
+        clearLock.writeLock().lock();
+        try {
+            diskLruCache.delete();
+            diskLruCache = open();
+        } finally {
+            clearLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void setEvictionListener(TierEvictionListener<T> listener) {
+        // The disk cache evicts in background without telling which entries.
+    }
+
+    private DiskLruCache open() throws IOException {
+        return DiskLruCache.open(diskFolder, appVersion, VALUES_PER_CACHE_ENTRY, maxDiskSizeBytes);
+    }
+}
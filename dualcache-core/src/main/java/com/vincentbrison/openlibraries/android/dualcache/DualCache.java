@@ -0,0 +1,2197 @@
+/*
+ * Copyright 2014 Vincent Brison.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.vincentbrison.openlibraries.android.dualcache;
+
+import com.jakewharton.disklrucache.DiskLruCache;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class intent to provide a very easy to use, reliable, highly configurable caching library
+ * for Android.
+ *
+ * @param <T> is the Class of object to cache.
+ */
+public class DualCache<T> implements Closeable {
+
+    private static final int VALUES_PER_CACHE_ENTRY = 1;
+    private static final int MAX_TRACKED_WRITE_TIMES = 8192;
+    /** Disk entries smaller than this are read for views rather than mapped in memory. */
+    private static final int MIN_MAPPED_VIEW_SIZE = 16 * 1024;
+    private static final long HOT_KEYS_RECORD_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final int WARM_UP_PARALLELISM = 4;
+
+    private final RamLruCache<String, Object> ramCacheLru;
+    private final HotObjectCache<T> hotObjects;
+    private DiskLruCache diskLruCache;
+    private volatile DiskKeyFilter diskKeyFilter;
+    private final int maxDiskSizeBytes;
+    private final File diskCacheFolder;
+    private final int appVersion;
+    private final DualCacheRamMode ramMode;
+    private final DualCacheDiskMode diskMode;
+    private final CacheSerializer<T> diskSerializer;
+    private final DiskCompressor diskCompressor;
+    private final CacheSerializer<T> ramSerializer;
+    private final DualCacheLock dualCacheLock;
+    private final StatsRecorder stats;
+    private final TraceRecorder traces;
+    private final HitRatioCurveEstimator ramCurve;
+    private final HitRatioCurveEstimator diskCurve;
+    private final Executor asyncExecutor;
+    private final InFlightLoads<T> inFlightLoads = new InFlightLoads<>();
+    private final long refreshAfterWriteNanos;
+    private final Executor refreshExecutor;
+    private final RamLruCache<String, Long> writeTimes;
+    private final ConcurrentMap<String, Boolean> refreshing = new ConcurrentHashMap<>();
+    private final Logger logger;
+    private final CacheEventListener eventListener;
+    private final RemovalDispatcher<T> removalDispatcher;
+    private final CacheNamespace[] namespaces;
+    private final RemoteTier<T> remoteTier;
+    private final DiskProcessSync processSync;
+    private final long processSyncIntervalNanos;
+    private volatile long lastProcessSyncNanos;
+    private volatile boolean processSyncForced;
+    /** Keys written by other processes since the disk layer was last opened. */
+    private final Set<String> foreignKeys =
+        Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final HotKeyManifest hotKeyManifest;
+    private final int maxHotKeys;
+    private final long warmUpTimeNanos;
+    private final int maxWarmUpSize;
+    private final Executor warmUpExecutor;
+    private volatile long lastHotKeysRecordNanos;
+    private final AtomicBoolean isRecordingHotKeys = new AtomicBoolean();
+    private volatile boolean isClosed;
+    private final RamSnapshot ramSnapshot;
+
+    DualCache(DualCacheConfig<T> config) {
+        this.appVersion = config.appVersion;
+        this.ramMode = config.ramMode;
+        this.ramSerializer = config.ramSerializer;
+        this.hotObjects = ramMode == DualCacheRamMode.ENABLE_WITH_SPECIFIC_SERIALIZER
+            && config.maxHotObjects > 0
+            ? new HotObjectCache<>(config.maxHotObjects, config.hotObjectCopier) : null;
+        this.diskMode = config.diskMode;
+        this.diskSerializer = config.diskSerializer;
+        this.diskCacheFolder = config.diskFolder;
+        this.logger = config.logger;
+        this.eventListener = CacheEventListeners.of(
+            logger.isLogEnabled() ? new LoggerHelper(logger) : null, config.eventListener);
+        this.removalDispatcher = new RemovalDispatcher<>(
+            config.removalListener,
+            config.removalExecutor,
+            logger,
+            ramMode == DualCacheRamMode.ENABLE_WITH_SPECIFIC_SERIALIZER ? ramSerializer : null,
+            diskMode == DualCacheDiskMode.ENABLE_WITH_SPECIFIC_SERIALIZER
+                ? config.maxDiskSizeBytes : 0
+        );
+        this.asyncExecutor = config.asyncExecutor;
+        this.stats = config.recordStats ? new StatsRecorder(true) : StatsRecorder.DISABLED;
+        this.traces = config.tracer == null
+            ? TraceRecorder.DISABLED : new TraceRecorder(config.tracer, config.traceThresholdNanos);
+        this.dualCacheLock = new DualCacheLock(stats, traces);
+        this.diskCompressor = config.compressDisk
+            ? new DiskCompressor(logger, dualCacheLock, DualCacheExecutors.background()) : null;
+        this.ramCurve = config.recordStats && ramMode != DualCacheRamMode.DISABLE
+            ? new HitRatioCurveEstimator(config.maxRamSizeBytes) : null;
+        this.diskCurve = config.recordStats && diskMode != DualCacheDiskMode.DISABLE
+            ? new HitRatioCurveEstimator(config.maxDiskSizeBytes) : null;
+        this.refreshAfterWriteNanos = config.refreshAfterWriteNanos;
+        this.refreshExecutor = config.refreshExecutor;
+        this.writeTimes = refreshAfterWriteNanos > 0
+            ? new RamLruCache<String, Long>(MAX_TRACKED_WRITE_TIMES) : null;
+        this.remoteTier = config.remoteTier;
+
+        // The RAM layer holds serialized strings or the objects themselves, depending on its mode.
+        switch (ramMode) {
+            case ENABLE_WITH_SPECIFIC_SERIALIZER:
+                this.ramCacheLru = new RamLruCache<String, Object>(config.maxRamSizeBytes) {
+                    @Override
+                    protected int sizeOf(String key, Object value) {
+                        return StringLruCache.sizeOfSerialized((String) value);
+                    }
+
+                    @Override
+                    protected void entryRemoved(
+                        boolean evicted, String key, Object oldValue, Object newValue) {
+                        onRamEntryRemoved(evicted, key, oldValue, newValue);
+                    }
+                };
+                break;
+            case ENABLE_WITH_REFERENCE:
+                final SizeOf<T> objectSizeOf = config.sizeOf;
+                this.ramCacheLru = new RamLruCache<String, Object>(config.maxRamSizeBytes) {
+                    @Override
+                    protected int sizeOf(String key, Object value) {
+                        return objectSizeOf.sizeOf(objectOf(value));
+                    }
+
+                    @Override
+                    protected void entryRemoved(
+                        boolean evicted, String key, Object oldValue, Object newValue) {
+                        onRamEntryRemoved(evicted, key, oldValue, newValue);
+                    }
+                };
+                break;
+            default:
+                this.ramCacheLru = null;
+        }
+
+        this.namespaces = new CacheNamespace[config.namespaceQuotas.size()];
+        int namespaceIndex = 0;
+        for (Map.Entry<String, CacheNamespace.Quota> entry : config.namespaceQuotas.entrySet()) {
+            namespaces[namespaceIndex++] = new CacheNamespace(
+                entry.getKey(),
+                entry.getValue(),
+                ramCacheLru,
+                diskMode != DualCacheDiskMode.DISABLE,
+                removalDispatcher
+            );
+        }
+
+        DiskProcessSync sync = null;
+        if (config.multiProcessDisk
+            && diskMode == DualCacheDiskMode.ENABLE_WITH_SPECIFIC_SERIALIZER) {
+            try {
+                sync = new DiskProcessSync(diskCacheFolder);
+            } catch (IOException e) {
+                logger.logError(e);
+            }
+        }
+        this.processSync = sync;
+        this.processSyncIntervalNanos = config.processSyncIntervalNanos;
+        this.lastProcessSyncNanos = System.nanoTime();
+        this.hotKeyManifest = config.maxHotKeys > 0 && ramMode != DualCacheRamMode.DISABLE
+            && diskMode == DualCacheDiskMode.ENABLE_WITH_SPECIFIC_SERIALIZER
+            ? new HotKeyManifest(diskCacheFolder) : null;
+        this.maxHotKeys = config.maxHotKeys;
+        this.warmUpTimeNanos = config.warmUpTimeNanos;
+        this.maxWarmUpSize = config.maxWarmUpSize;
+        this.warmUpExecutor = config.warmUpExecutor;
+        this.lastHotKeysRecordNanos = System.nanoTime();
+        this.ramSnapshot = config.ramSnapshotFile == null || ramMode == DualCacheRamMode.DISABLE
+            ? null : new RamSnapshot(config.ramSnapshotFile, appVersion,
+                ramMode == DualCacheRamMode.ENABLE_WITH_REFERENCE ? referenceSerializer() : null);
+
+        switch (diskMode) {
+            case ENABLE_WITH_SPECIFIC_SERIALIZER:
+                this.maxDiskSizeBytes = config.maxDiskSizeBytes;
+                try {
+                    lockOtherProcesses();
+                    try {
+                        openDiskLruCache(diskCacheFolder);
+                    } finally {
+                        unlockOtherProcesses();
+                    }
+                } catch (IOException e) {
+                    logger.logError(e);
+                }
+                break;
+            default:
+                this.maxDiskSizeBytes = 0;
+        }
+    }
+
+    /**
+     * @return the object held by a RAM layer of references.
+     */
+    @SuppressWarnings("unchecked")
+    private T objectOf(Object ramValue) {
+        // The RAM layer of references only ever holds objects put in this cache.
+        return (T) ramValue;
+    }
+
+    /**
+     * @return the disk serializer, applied to the objects held by a RAM layer of references.
+     */
+    private CacheSerializer<Object> referenceSerializer() {
+        return new CacheSerializer<Object>() {
+            @Override
+            public Object fromString(String data) {
+                return diskSerializer.fromString(data);
+            }
+
+            @Override
+            public String toString(Object object) {
+                return diskSerializer.toString(objectOf(object));
+            }
+        };
+    }
+
+    private void openDiskLruCache(File diskFolder) throws IOException {
+        openJournal(diskFolder);
+        removalDispatcher.loadDiskIndex(diskFolder);
+        if (namespaces.length > 0) {
+            List<File> entries = DiskEntries.listByAge(diskFolder);
+            for (CacheNamespace namespace : namespaces) {
+                namespace.loadDiskIndex(entries);
+            }
+        }
+    }
+
+    /**
+     * Open the journal of the disk layer and the files which depend on the entries stored.
+     */
+    private void openJournal(File diskFolder) throws IOException {
+        this.diskLruCache = DiskLruCache.open(
+            diskFolder,
+            this.appVersion,
+            VALUES_PER_CACHE_ENTRY,
+            this.maxDiskSizeBytes
+        );
+        this.diskKeyFilter = DiskKeyFilter.fromDirectory(diskFolder);
+        if (diskCompressor != null) {
+            diskCompressor.load(diskFolder);
+        }
+        foreignKeys.clear();
+    }
+
+    private void onRamEntryRemoved(
+        boolean evicted, String key, Object oldValue, Object newValue) {
+        RemovalCause cause = removalDispatcher.causeOf(evicted, newValue);
+        if (evicted || cause == RemovalCause.EVICTED) {
+            stats.recordRamEviction();
+            if (eventListener != null) {
+                eventListener.onEvict(key);
+            }
+        }
+        if (cause == RemovalCause.EVICTED && traces.isEnabled()) {
+            traces.record(CacheOperation.EVICTION, DualCacheLayer.RAM, key,
+                ramCacheLru.sizeOf(key, oldValue), 0);
+        }
+        CacheNamespace namespace = namespaceOf(key);
+        if (namespace != null && newValue == null) {
+            namespace.onRamRemoved(key, cause == RemovalCause.EVICTED);
+        }
+        if (hotObjects != null && newValue == null && cause != RemovalCause.INVALIDATED) {
+            // The invalidation of the RAM layer clears the hot objects at once.
+            hotObjects.remove(key);
+        }
+        if (ramMode == DualCacheRamMode.ENABLE_WITH_REFERENCE) {
+            removalDispatcher.onRamEntryRemoved(evicted, key, objectOf(oldValue), null, newValue);
+        } else {
+            removalDispatcher.onRamEntryRemoved(evicted, key, null, (String) oldValue, newValue);
+        }
+    }
+
+    public long getRamUsedInBytes() {
+        if (ramCacheLru == null) {
+            return -1;
+        } else {
+            return ramCacheLru.size();
+        }
+    }
+
+    public long getDiskUsedInBytes() {
+        if (diskLruCache == null) {
+            return -1;
+        } else {
+            return diskLruCache.size();
+        }
+
+    }
+
+    /**
+     * Return the view of a namespace declared with
+     * {@link BaseBuilder#useNamespace(String, int, int)}.
+     *
+     * @param name is the name of the namespace.
+     * @return the view of the namespace.
+     */
+    public DualCacheNamespace<T> namespace(String name) {
+        for (CacheNamespace namespace : namespaces) {
+            if (namespace.getName().equals(name)) {
+                return new DualCacheNamespace<>(this, namespace);
+            }
+        }
+        throw new IllegalArgumentException("Unknown namespace " + name);
+    }
+
+    /**
+     * Return a snapshot of the statistics of this cache. Statistics are only collected if the
+     * cache has been built with {@link BaseBuilder#recordStats()}, otherwise they are all zero.
+     *
+     * @return the current statistics of this cache.
+     */
+    public DualCacheStats getStats() {
+        return stats.snapshot(ramCurve, diskCurve);
+    }
+
+    /**
+     * Return the way objects are cached in RAM layer.
+     *
+     * @return the way objects are cached in RAM layer.
+     */
+    public DualCacheRamMode getRAMMode() {
+        return ramMode;
+    }
+
+    /**
+     * Return the way objects are cached in disk layer.
+     *
+     * @return the way objects are cached in disk layer.
+     */
+    public DualCacheDiskMode getDiskMode() {
+        return diskMode;
+    }
+
+    /**
+     * Put an object in cache.
+     *
+     * @param key    is the key of the object.
+     * @param object is the object to put in cache.
+     */
+    public void put(String key, T object) {
+        syncWithOtherProcesses(key);
+        // Synchronize put on each entry. Gives concurrent editions on different entries, and atomic
+        // modification on the same entry.
+        dualCacheLock.lockDiskEntryWrite(key);
+        try {
+            putLocked(key, object);
+        } finally {
+            dualCacheLock.unLockDiskEntryWrite(key);
+        }
+        rebuildDiskKeyFilterIfOverloaded();
+        evictNamespacesOverQuota();
+        recordHotKeysIfDue();
+    }
+
+    /**
+     * Put an object in all the layers. The caller must hold the write lock of the entry.
+     */
+    private void putLocked(String key, T object) {
+        if (writeTimes != null) {
+            writeTimes.put(key, System.nanoTime());
+        }
+
+        String ramSerialized = putInRam(key, object, null);
+        String diskSerialized = null;
+        if (diskMode.equals(DualCacheDiskMode.ENABLE_WITH_SPECIFIC_SERIALIZER)) {
+            diskSerialized = putInDisk(
+                key, object, ramSerializer == diskSerializer ? ramSerialized : null);
+        }
+        if (remoteTier != null) {
+            putInRemote(key, object, ramSerialized, diskSerialized);
+        }
+
+        if (eventListener != null) {
+            eventListener.onWrite(key);
+        }
+    }
+
+    /**
+     * Put an object in the RAM layer.
+     *
+     * @param ramSerialized is the object already serialized with the RAM serializer, or null.
+     * @return the object serialized with the RAM serializer, or null if the RAM layer does not
+     * serialize.
+     */
+    private String putInRam(String key, T object, String ramSerialized) {
+        if (ramMode.equals(DualCacheRamMode.ENABLE_WITH_REFERENCE)) {
+            ramCacheLru.put(key, object);
+            recordRamWrite(key, object);
+        } else if (ramMode.equals(DualCacheRamMode.ENABLE_WITH_SPECIFIC_SERIALIZER)) {
+            if (ramSerialized == null) {
+                ramSerialized = serialize(DualCacheLayer.RAM, key, object);
+            }
+            ramCacheLru.put(key, ramSerialized);
+            recordRamWrite(key, ramSerialized);
+            return ramSerialized;
+        }
+        return null;
+    }
+
+    /**
+     * Send an object to the remote layer in background, reusing its serialized form when a local
+     * layer uses the same serializer.
+     */
+    private void putInRemote(String key, T object, String ramSerialized, String diskSerialized) {
+        CacheSerializer<T> remoteSerializer = remoteTier.getSerializer();
+        String remoteSerialized;
+        if (diskSerialized != null && remoteSerializer == diskSerializer) {
+            remoteSerialized = diskSerialized;
+        } else if (ramSerialized != null && remoteSerializer == ramSerializer) {
+            remoteSerialized = ramSerialized;
+        } else {
+            remoteSerialized = serialize(DualCacheLayer.REMOTE, key, object);
+        }
+        remoteTier.putSerialized(key, remoteSerialized);
+    }
+
+    /**
+     * Put all the given objects in cache. Like {@link #put(String, Object)}, the disk entry of
+     * each key is written under the write lock of the entry, and the disk entries of the different
+     * keys are written in parallel on the async executor. The RAM entries are then written all at
+     * once under the lock of the whole disk, the way {@link #getAll(Collection)} reads them,
+     * except for the keys written or deleted by another thread since their disk entry was.
+     *
+     * @param objects are the objects to put in cache, mapped by key.
+     */
+    public void putAll(Map<String, ? extends T> objects) {
+        syncWithOtherProcesses(objects.keySet());
+        final Map<String, String> ramSerialized = new HashMap<>();
+        if (ramMode.equals(DualCacheRamMode.ENABLE_WITH_SPECIFIC_SERIALIZER)) {
+            for (Map.Entry<String, ? extends T> entry : objects.entrySet()) {
+                String key = entry.getKey();
+                ramSerialized.put(key, serialize(DualCacheLayer.RAM, key, entry.getValue()));
+            }
+        }
+
+        final boolean isDiskEnabled =
+            diskMode.equals(DualCacheDiskMode.ENABLE_WITH_SPECIFIC_SERIALIZER);
+        // Write stamps of the stripes of the keys, once their disk entry is written.
+        final Map<String, Integer> writeStamps = new ConcurrentHashMap<>();
+        if (isDiskEnabled) {
+            List<Callable<Void>> writes = new ArrayList<>(objects.size());
+            for (final Map.Entry<String, ? extends T> entry : objects.entrySet()) {
+                writes.add(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        String key = entry.getKey();
+                        dualCacheLock.lockDiskEntryWrite(key);
+                        try {
+                            if (writeTimes != null) {
+                                writeTimes.put(key, System.nanoTime());
+                            }
+                            putInDisk(key, entry.getValue(),
+                                ramSerializer == diskSerializer ? ramSerialized.get(key) : null);
+                            writeStamps.put(key, dualCacheLock.writeStampOf(key));
+                        } finally {
+                            dualCacheLock.unLockDiskEntryWrite(key);
+                        }
+                        return null;
+                    }
+                });
+            }
+            invokeAll(writes);
+        }
+        if (!ramMode.equals(DualCacheRamMode.DISABLE)) {
+            putAllInRam(objects, ramSerialized, isDiskEnabled ? writeStamps : null);
+        } else if (!isDiskEnabled && writeTimes != null) {
+            for (String key : objects.keySet()) {
+                writeTimes.put(key, System.nanoTime());
+            }
+        }
+        rebuildDiskKeyFilterIfOverloaded();
+        evictNamespacesOverQuota();
+
+        if (remoteTier != null) {
+            for (Map.Entry<String, ? extends T> entry : objects.entrySet()) {
+                String key = entry.getKey();
+                putInRemote(key, entry.getValue(), ramSerialized.get(key), null);
+            }
+        }
+
+        if (eventListener != null) {
+            for (String key : objects.keySet()) {
+                eventListener.onWrite(key);
+            }
+        }
+    }
+
+    /**
+     * Put objects in the RAM layer under a single acquisition of its lock. The lock of the whole
+     * disk keeps the other threads from writing any entry meanwhile.
+     *
+     * @param ramSerialized are the objects serialized with the RAM serializer, if it serializes.
+     * @param writeStamps   are the write stamps of the stripes of the keys once their disk entry
+     *                      was written, or null if the disk layer is disabled. A stamp which grew
+     *                      more than by the writes of this batch tells another thread wrote the
+     *                      stripe since, and maybe the key: its RAM entry is not written.
+     */
+    private void putAllInRam(
+        Map<String, ? extends T> objects,
+        Map<String, String> ramSerialized,
+        Map<String, Integer> writeStamps
+    ) {
+        boolean isRamSerialized = ramMode.equals(DualCacheRamMode.ENABLE_WITH_SPECIFIC_SERIALIZER);
+        Map<String, Object> ramValues = new HashMap<>();
+        dualCacheLock.lockFullDiskWrite();
+        try {
+            Set<String> keys = writeStamps == null
+                ? objects.keySet() : keysNotWrittenSince(writeStamps);
+            for (String key : keys) {
+                if (writeStamps == null && writeTimes != null) {
+                    writeTimes.put(key, System.nanoTime());
+                }
+                ramValues.put(key, isRamSerialized ? ramSerialized.get(key) : objects.get(key));
+            }
+            ramCacheLru.putAll(ramValues);
+            for (Map.Entry<String, Object> entry : ramValues.entrySet()) {
+                recordRamWrite(entry.getKey(), entry.getValue());
+            }
+        } finally {
+            dualCacheLock.unLockFullDiskWrite();
+        }
+    }
+
+    /**
+     * Return the keys whose stripe has only been written by this batch since their disk entry
+     * was. Each write of the batch grows the stamp of its stripe by one, so on a stripe stamped
+     * s now, the last key written by the batch recorded s - 1, the one before s - 2, and so on
+     * until a write of another thread broke the sequence. The caller must hold the lock of the
+     * whole disk.
+     *
+     * @param writeStamps are the stamps recorded by the batch, mapped by key.
+     * @return the keys which may be written in RAM.
+     */
+    private Set<String> keysNotWrittenSince(Map<String, Integer> writeStamps) {
+        Map<Integer, List<String>> keysByStripe = new HashMap<>();
+        for (String key : writeStamps.keySet()) {
+            int stripe = dualCacheLock.stripeOf(key);
+            List<String> keys = keysByStripe.get(stripe);
+            if (keys == null) {
+                keys = new ArrayList<>();
+                keysByStripe.put(stripe, keys);
+            }
+            keys.add(key);
+        }
+        Set<String> notWritten = new HashSet<>();
+        for (List<String> keys : keysByStripe.values()) {
+            Map<Integer, String> keyByStamp = new HashMap<>();
+            for (String key : keys) {
+                keyByStamp.put(writeStamps.get(key), key);
+            }
+            int stamp = dualCacheLock.writeStampOf(keys.get(0)) - 1;
+            while (keyByStamp.containsKey(stamp)) {
+                notWritten.add(keyByStamp.get(stamp));
+                stamp--;
+            }
+        }
+        return notWritten;
+    }
+
+    /**
+     * Put an object in the disk layer.
+     *
+     * @param diskSerialized is the object already serialized with the disk serializer, or null.
+     * @return the object serialized with the disk serializer, or null if it could not be.
+     */
+    private String putInDisk(String key, T object, String diskSerialized) {
+        boolean isOtherProcessesLocked = false;
+        dualCacheLock.lockDiskEntryWrite(key);
+        try {
+            lockOtherProcesses();
+            isOtherProcessesLocked = true;
+            if (isInvalidatedByOtherProcess()) {
+                return null;
+            }
+            DiskLruCache.Editor editor = diskLruCache.edit(key);
+            if (diskSerialized == null) {
+                diskSerialized = serialize(DualCacheLayer.DISK, key, object);
+            }
+            int diskSize;
+            if (diskCompressor == null) {
+                editor.set(0, diskSerialized);
+                diskSize = Utf8.length(diskSerialized);
+            } else {
+                byte[] entry = diskCompressor.encode(diskSerialized);
+                OutputStream out = editor.newOutputStream(0);
+                try {
+                    out.write(entry);
+                } finally {
+                    out.close();
+                }
+                diskSize = entry.length;
+            }
+            editor.commit();
+            recordChangeForOtherProcesses(key);
+            if (removalDispatcher.onDiskWrite(key, diskSize)) {
+                diskKeyFilter.add(key);
+            }
+            if (diskCurve != null && diskCurve.isSampled(key)) {
+                diskCurve.recordWrite(key, diskSize);
+            }
+            CacheNamespace namespace = namespaceOf(key);
+            if (namespace != null) {
+                namespace.onDiskWrite(key, diskSize);
+            }
+            if (removalDispatcher.isDiskOverSize()) {
+                // Trim now rather than later on the thread of the disk layer, to tell which
+                // entries it evicted.
+                diskLruCache.flush();
+                onDiskEvicted(removalDispatcher.onDiskTrimmed(diskLruCache.size()));
+            }
+        } catch (IOException e) {
+            logger.logError(e);
+        } finally {
+            if (isOtherProcessesLocked) {
+                unlockOtherProcesses();
+            }
+            dualCacheLock.unLockDiskEntryWrite(key);
+        }
+        return diskSerialized;
+    }
+
+    /**
+     * Record the entries the disk layer evicted to make space.
+     *
+     * @param keys are the keys of the entries.
+     */
+    private void onDiskEvicted(List<String> keys) {
+        for (String key : keys) {
+            diskKeyFilter.remove(key);
+            CacheNamespace namespace = namespaceOf(key);
+            if (namespace != null) {
+                namespace.onDiskRemoved(key, true);
+            }
+            stats.recordDiskEviction();
+            traces.record(CacheOperation.EVICTION, DualCacheLayer.DISK, key, -1, 0);
+        }
+    }
+
+    /**
+     * Return the object of the corresponding key from the cache. In no object is available,
+     * return null.
+     *
+     * @param key is the key of the object.
+     * @return the object of the corresponding key from the cache. In no object is available,
+     * return null.
+     */
+    public T get(String key) {
+        syncWithOtherProcesses(key);
+        return get(key, true);
+    }
+
+    /**
+     * @param isRecorded is false for the lookups repeating one already recorded, which must not
+     *                   be counted again by the statistics and the listeners.
+     */
+    private T get(String key, boolean isRecorded) {
+        long traceStart = traces.startTimer();
+        T ramObject = getFromRam(key, isRecorded);
+        if (ramObject != null) {
+            traces.recordIfSlow(CacheOperation.GET, DualCacheLayer.RAM, key, -1, traceStart);
+            return ramObject;
+        }
+        return getBelowRam(key, isRecorded, true, traceStart);
+    }
+
+    /**
+     * Look an object up in the layers below the RAM layer, once the RAM layer missed it.
+     *
+     * @param isDiskRead is false if the disk miss has already been recorded.
+     * @param traceStart is the start time of the whole lookup.
+     */
+    private T getBelowRam(String key, boolean isRecorded, boolean isDiskRead, long traceStart) {
+        T diskObject = isDiskRead ? getFromDisk(key, isRecorded) : null;
+        if (diskObject != null) {
+            traces.recordIfSlow(CacheOperation.GET, DualCacheLayer.DISK, key, -1, traceStart);
+            recordHotKeysIfDue();
+            return diskObject;
+        }
+        T remoteObject = getFromRemote(key);
+        traces.recordIfSlow(CacheOperation.GET,
+            remoteObject == null ? null : DualCacheLayer.REMOTE, key, -1, traceStart);
+        return remoteObject;
+    }
+
+    /**
+     * Return the object of the corresponding key from the RAM layer, or null if it is not there.
+     */
+    private T getFromRam(String key, boolean isRecorded) {
+        Object ramResult = lookUpRam(key, isRecorded);
+        if (ramResult == null) {
+            return null;
+        }
+        return fromRamValue(key, ramResult);
+    }
+
+    /**
+     * Return the value held by the RAM layer for the corresponding key, serialized or not, or
+     * null if it is not there.
+     */
+    private Object lookUpRam(String key, boolean isRecorded) {
+        Object ramResult = null;
+
+        // Try to get the object from RAM.
+        boolean isRamSerialized = ramMode.equals(DualCacheRamMode.ENABLE_WITH_SPECIFIC_SERIALIZER);
+        boolean isRamReferenced = ramMode.equals(DualCacheRamMode.ENABLE_WITH_REFERENCE);
+        if (isRamSerialized || isRamReferenced) {
+            if (ramCurve != null && isRecorded) {
+                ramCurve.recordLookup(key);
+            }
+            long start = stats.startTimer();
+            ramResult = ramCacheLru.get(key);
+            if (isRecorded) {
+                stats.recordRamGet(start, ramResult != null);
+            }
+            CacheNamespace namespace = namespaceOf(key);
+            if (namespace != null) {
+                onNamespaceRamGet(namespace, key, ramResult != null, isRecorded);
+            }
+            if (eventListener != null && isRecorded) {
+                if (ramResult == null) {
+                    eventListener.onRamMiss(key);
+                } else {
+                    eventListener.onRamHit(key);
+                }
+            }
+        }
+        return ramResult;
+    }
+
+    private T fromRamValue(String key, Object ramResult) {
+        if (ramMode.equals(DualCacheRamMode.ENABLE_WITH_REFERENCE)) {
+            return objectOf(ramResult);
+        }
+        String serialized = (String) ramResult;
+        if (hotObjects == null) {
+            return deserialize(DualCacheLayer.RAM, key, serialized);
+        }
+        T hotObject = hotObjects.get(key, serialized);
+        if (hotObject != null) {
+            return hotObject;
+        }
+        return hotObjects.put(key, serialized, deserialize(DualCacheLayer.RAM, key, serialized));
+    }
+
+    private void onNamespaceRamGet(
+        CacheNamespace namespace, String key, boolean hit, boolean isRecorded) {
+        if (hit) {
+            namespace.onRamRead(key);
+        }
+        if (isRecorded) {
+            namespace.recordRamGet(hit);
+        }
+    }
+
+    /**
+     * Record a write in the RAM layer for the hit ratio curve and the namespace of the key,
+     * computing the size of the object only if it is needed.
+     */
+    private void recordRamWrite(String key, Object ramValue) {
+        boolean isSampled = ramCurve != null && ramCurve.isSampled(key);
+        CacheNamespace namespace = namespaceOf(key);
+        if (!isSampled && namespace == null) {
+            return;
+        }
+        int size = ramCacheLru.sizeOf(key, ramValue);
+        if (isSampled) {
+            ramCurve.recordWrite(key, size);
+        }
+        if (namespace != null) {
+            namespace.onRamWrite(key, size);
+        }
+    }
+
+    private String serialize(DualCacheLayer layer, String key, T object) {
+        long start = stats.startTimer();
+        long traceStart = traces.startTimer();
+        String serialized = serializerOf(layer).toString(object);
+        stats.recordSerialize(start);
+        traceSerializer(CacheOperation.SERIALIZATION, layer, key, serialized, traceStart);
+        return serialized;
+    }
+
+    private T deserialize(DualCacheLayer layer, String key, String serialized) {
+        long start = stats.startTimer();
+        long traceStart = traces.startTimer();
+        T object = serializerOf(layer).fromString(serialized);
+        stats.recordDeserialize(start);
+        traceSerializer(CacheOperation.DESERIALIZATION, layer, key, serialized, traceStart);
+        return object;
+    }
+
+    private CacheSerializer<T> serializerOf(DualCacheLayer layer) {
+        switch (layer) {
+            case RAM:
+                return ramSerializer;
+            case DISK:
+                return diskSerializer;
+            default:
+                return remoteTier.getSerializer();
+        }
+    }
+
+    private void traceSerializer(
+        CacheOperation operation, DualCacheLayer layer, String key, String serialized,
+        long traceStart) {
+        long duration = traces.slowDuration(traceStart);
+        if (duration >= 0) {
+            long size = layer == DualCacheLayer.RAM && ramCacheLru != null
+                ? ramCacheLru.sizeOf(key, serialized) : Utf8.length(serialized);
+            traces.record(operation, layer, key, size, duration);
+        }
+    }
+
+    /**
+     * Return the object of the corresponding key from the disk layer and refresh it in the RAM
+     * layer, or null if it is not on disk.
+     */
+    private T getFromDisk(String key, boolean isRecorded) {
+        if (!diskMode.equals(DualCacheDiskMode.ENABLE_WITH_SPECIFIC_SERIALIZER)) {
+            return null;
+        }
+        if (diskCurve != null && isRecorded) {
+            diskCurve.recordLookup(key);
+        }
+        long start = stats.startTimer();
+        if (!isMaybeOnDisk(key)) {
+            recordDiskLookup(key, start, false, isRecorded);
+            return null;
+        }
+
+        // The entry lock is held until the object is refreshed in RAM, so that an object written
+        // meanwhile for the same key can not be replaced in RAM by this older one.
+        dualCacheLock.lockDiskEntryRead(key);
+        try {
+            String diskResult = readFromDisk(key);
+            recordDiskLookup(key, start, diskResult != null, isRecorded);
+            if (diskResult == null) {
+                // No data is available.
+                return null;
+            }
+
+            // Load object, no need to check disk configuration since diskresult != null.
+            T objectFromStringDisk = deserialize(DualCacheLayer.DISK, key, diskResult);
+
+            // Refresh object in ram.
+            if (ramMode.equals(DualCacheRamMode.ENABLE_WITH_REFERENCE)) {
+                ramCacheLru.put(key, objectFromStringDisk);
+                recordRamWrite(key, objectFromStringDisk);
+            } else if (ramMode.equals(DualCacheRamMode.ENABLE_WITH_SPECIFIC_SERIALIZER)) {
+                String ramSerialized = diskSerializer == ramSerializer
+                    ? diskResult : serialize(DualCacheLayer.RAM, key, objectFromStringDisk);
+                ramCacheLru.put(key, ramSerialized);
+                recordRamWrite(key, ramSerialized);
+            }
+            return objectFromStringDisk;
+        } finally {
+            dualCacheLock.unLockDiskEntryRead(key);
+        }
+    }
+
+    /**
+     * Return the object of the corresponding key from the remote layer and store it in the local
+     * layers, or null if the remote layer does not have it or does not answer in time.
+     */
+    private T getFromRemote(String key) {
+        if (remoteTier == null) {
+            return null;
+        }
+        String remoteSerialized = remoteTier.getSerialized(key);
+        if (remoteSerialized == null) {
+            return null;
+        }
+        T object = deserialize(DualCacheLayer.REMOTE, key, remoteSerialized);
+        dualCacheLock.lockDiskEntryWrite(key);
+        try {
+            // An object put while waiting for the remote layer is more recent than this one.
+            if (!isCachedLocally(key)) {
+                CacheSerializer<T> remoteSerializer = remoteTier.getSerializer();
+                String ramSerialized = putInRam(key, object,
+                    remoteSerializer == ramSerializer ? remoteSerialized : null);
+                if (diskMode.equals(DualCacheDiskMode.ENABLE_WITH_SPECIFIC_SERIALIZER)) {
+                    String diskSerialized = null;
+                    if (remoteSerializer == diskSerializer) {
+                        diskSerialized = remoteSerialized;
+                    } else if (ramSerializer == diskSerializer) {
+                        diskSerialized = ramSerialized;
+                    }
+                    putInDisk(key, object, diskSerialized);
+                }
+            }
+        } finally {
+            dualCacheLock.unLockDiskEntryWrite(key);
+        }
+        return object;
+    }
+
+    /**
+     * Tell whether one of the local layers holds an object, without reading it. The caller must
+     * hold the lock of the entry.
+     */
+    private boolean isCachedLocally(String key) {
+        if (!ramMode.equals(DualCacheRamMode.DISABLE) && ramCacheLru.containsKey(key)) {
+            return true;
+        }
+        if (diskMode.equals(DualCacheDiskMode.DISABLE) || !isMaybeOnDisk(key)) {
+            return false;
+        }
+        try {
+            DiskLruCache.Snapshot snapshot = diskLruCache.get(key);
+            if (snapshot != null) {
+                snapshot.close();
+                onDiskRead(key);
+                return true;
+            }
+        } catch (IOException e) {
+            logger.logError(e);
+        }
+        return false;
+    }
+
+    private void recordDiskLookup(String key, long start, boolean hit, boolean isRecorded) {
+        if (!isRecorded) {
+            return;
+        }
+        stats.recordDiskGet(start, hit);
+        CacheNamespace namespace = namespaceOf(key);
+        if (namespace != null) {
+            namespace.recordDiskGet(hit);
+        }
+        if (eventListener != null) {
+            if (hit) {
+                eventListener.onDiskHit(key);
+            } else {
+                eventListener.onDiskMiss(key);
+            }
+        }
+    }
+
+    private String readFromDisk(String key) {
+        long traceStart = traces.startTimer();
+        DiskLruCache.Snapshot snapshotObject = openDiskEntry(key);
+        if (snapshotObject == null) {
+            return null;
+        }
+        try {
+            String diskResult = diskCompressor == null
+                ? snapshotObject.getString(0)
+                : diskCompressor.decode(
+                    snapshotObject.getInputStream(0), snapshotObject.getLength(0));
+            traces.recordIfSlow(CacheOperation.DISK_READ, DualCacheLayer.DISK, key,
+                snapshotObject.getLength(0), traceStart);
+            return diskResult;
+        } catch (IOException e) {
+            logger.logError(e);
+            return null;
+        } finally {
+            snapshotObject.close();
+        }
+    }
+
+    /**
+     * Return the snapshot of the disk entry of the corresponding key, or null if there is none.
+     */
+    private DiskLruCache.Snapshot openDiskEntry(String key) {
+        DiskLruCache.Snapshot snapshotObject = null;
+        try {
+            snapshotObject = diskLruCache.get(key);
+        } catch (IOException e) {
+            logger.logError(e);
+        }
+
+        if (snapshotObject == null) {
+            CacheNamespace namespace = namespaceOf(key);
+            if (namespace != null) {
+                // The entry may have been removed by another process.
+                namespace.onDiskRemoved(key, false);
+            }
+            return null;
+        }
+        onDiskRead(key);
+        return snapshotObject;
+    }
+
+    /**
+     * Return a lazy view of the object of the corresponding key, created straight from the form
+     * it is stored in: the serialized string held by the RAM layer, or the disk entry, mapped in
+     * memory when it is big enough. Reading a few fields of a big object then costs time
+     * proportional to the fields read, instead of deserializing the whole object. An object held
+     * by reference in RAM is given as is to the view serializer. Unlike {@link #get(String)}, a
+     * view read from disk does not refresh the object in the RAM layer.
+     *
+     * @param key            is the key of the object.
+     * @param viewSerializer creates the view from the stored form.
+     * @param <V>            is the class of the view.
+     * @return the view of the object, or null if no object is available.
+     */
+    public <V> V getView(String key, CacheViewSerializer<T, V> viewSerializer) {
+        syncWithOtherProcesses(key);
+        long traceStart = traces.startTimer();
+        Object ramResult = lookUpRam(key, true);
+        if (ramResult != null) {
+            traces.recordIfSlow(CacheOperation.GET, DualCacheLayer.RAM, key, -1, traceStart);
+            return ramMode.equals(DualCacheRamMode.ENABLE_WITH_REFERENCE)
+                ? viewSerializer.fromObject(objectOf(ramResult))
+                : viewSerializer.fromString((String) ramResult);
+        }
+        if (!diskMode.equals(DualCacheDiskMode.ENABLE_WITH_SPECIFIC_SERIALIZER)) {
+            return null;
+        }
+        if (diskCurve != null) {
+            diskCurve.recordLookup(key);
+        }
+        long start = stats.startTimer();
+        ByteBuffer diskResult = null;
+        if (isMaybeOnDisk(key)) {
+            dualCacheLock.lockDiskEntryRead(key);
+            try {
+                diskResult = mapFromDisk(key);
+            } finally {
+                dualCacheLock.unLockDiskEntryRead(key);
+            }
+        }
+        recordDiskLookup(key, start, diskResult != null, true);
+        traces.recordIfSlow(CacheOperation.GET,
+            diskResult == null ? null : DualCacheLayer.DISK, key, -1, traceStart);
+        return diskResult == null ? null : viewSerializer.fromBytes(diskResult);
+    }
+
+    /**
+     * Return the bytes of the disk entry of the corresponding key, or null if there is none. Big
+     * entries are mapped in memory: the mapping keeps the content of the file even if the entry
+     * is replaced or removed meanwhile, since the disk layer never writes over a clean file.
+     */
+    private ByteBuffer mapFromDisk(String key) {
+        long traceStart = traces.startTimer();
+        DiskLruCache.Snapshot snapshotObject = openDiskEntry(key);
+        if (snapshotObject == null) {
+            return null;
+        }
+        try {
+            long length = snapshotObject.getLength(0);
+            ByteBuffer diskResult;
+            if (length < MIN_MAPPED_VIEW_SIZE || diskCompressor != null) {
+                byte[] bytes = new byte[(int) length];
+                InputStream in = snapshotObject.getInputStream(0);
+                int read = 0;
+                while (read < bytes.length) {
+                    int count = in.read(bytes, read, bytes.length - read);
+                    if (count < 0) {
+                        throw new IOException("Truncated disk entry " + key);
+                    }
+                    read += count;
+                }
+                diskResult = ByteBuffer.wrap(
+                    diskCompressor == null ? bytes : diskCompressor.decodeBytes(bytes));
+            } else {
+                RandomAccessFile file = new RandomAccessFile(
+                    new File(diskCacheFolder, key + "." + 0), "r");
+                try {
+                    diskResult = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+                } finally {
+                    file.close();
+                }
+            }
+            traces.recordIfSlow(
+                CacheOperation.DISK_READ, DualCacheLayer.DISK, key, length, traceStart);
+            return diskResult;
+        } catch (IOException e) {
+            logger.logError(e);
+            return null;
+        } finally {
+            snapshotObject.close();
+        }
+    }
+
+    /**
+     * Return the objects of the corresponding keys from the cache. The RAM layer is looked up
+     * under a single acquisition of its lock, then the keys missing from RAM are read from disk
+     * in parallel on the async executor.
+     *
+     * @param keys are the keys of the objects.
+     * @return the objects available in cache mapped by key, in the iteration order of the keys.
+     * Keys without object are absent from the map.
+     */
+    public Map<String, T> getAll(Collection<String> keys) {
+        syncWithOtherProcesses(keys);
+        Map<String, T> found = new HashMap<>();
+        List<String> missingFromRam = new ArrayList<>();
+        if (ramMode.equals(DualCacheRamMode.DISABLE)) {
+            missingFromRam.addAll(keys);
+        } else {
+            long start = stats.startTimer();
+            Map<String, Object> ramResults = ramCacheLru.getAll(keys);
+            stats.recordRamGets(start, ramResults.size(), keys.size() - ramResults.size());
+            for (String key : keys) {
+                if (ramCurve != null) {
+                    ramCurve.recordLookup(key);
+                }
+                Object ramResult = ramResults.get(key);
+                CacheNamespace namespace = namespaceOf(key);
+                if (namespace != null) {
+                    onNamespaceRamGet(namespace, key, ramResult != null, true);
+                }
+                if (ramResult == null) {
+                    if (eventListener != null) {
+                        eventListener.onRamMiss(key);
+                    }
+                    missingFromRam.add(key);
+                } else {
+                    if (eventListener != null) {
+                        eventListener.onRamHit(key);
+                    }
+                    found.put(key, fromRamValue(key, ramResult));
+                }
+            }
+        }
+
+        if (diskMode.equals(DualCacheDiskMode.ENABLE_WITH_SPECIFIC_SERIALIZER)) {
+            final List<String> diskKeys = new ArrayList<>();
+            List<Callable<T>> reads = new ArrayList<>();
+            for (final String key : missingFromRam) {
+                if (!isMaybeOnDisk(key)) {
+                    stats.recordDiskGet(stats.startTimer(), false);
+                    CacheNamespace namespace = namespaceOf(key);
+                    if (namespace != null) {
+                        namespace.recordDiskGet(false);
+                    }
+                    if (eventListener != null) {
+                        eventListener.onDiskMiss(key);
+                    }
+                } else {
+                    diskKeys.add(key);
+                    reads.add(new Callable<T>() {
+                        @Override
+                        public T call() {
+                            return getFromDisk(key, true);
+                        }
+                    });
+                }
+            }
+            List<T> diskResults = invokeAll(reads);
+            for (int i = 0; i < diskKeys.size(); i++) {
+                if (diskResults.get(i) != null) {
+                    found.put(diskKeys.get(i), diskResults.get(i));
+                }
+            }
+        }
+
+        if (remoteTier != null) {
+            final List<String> remoteKeys = new ArrayList<>();
+            List<Callable<T>> reads = new ArrayList<>();
+            for (final String key : missingFromRam) {
+                if (!found.containsKey(key)) {
+                    remoteKeys.add(key);
+                    reads.add(new Callable<T>() {
+                        @Override
+                        public T call() {
+                            return getFromRemote(key);
+                        }
+                    });
+                }
+            }
+            List<T> remoteResults = invokeAll(reads);
+            for (int i = 0; i < remoteKeys.size(); i++) {
+                if (remoteResults.get(i) != null) {
+                    found.put(remoteKeys.get(i), remoteResults.get(i));
+                }
+            }
+        }
+
+        Map<String, T> result = new LinkedHashMap<>();
+        for (String key : keys) {
+            T object = found.get(key);
+            if (object != null) {
+                result.put(key, object);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Return the object of the corresponding key from the cache. If no object is available, it is
+     * computed by the loader and put in cache. Concurrent calls missing the same key share a
+     * single invocation of the loader.
+     *
+     * @param key    is the key of the object.
+     * @param loader computes the object when it is not in cache.
+     * @return the object of the corresponding key, or null if the loader returned null.
+     */
+    public T get(final String key, final CacheLoader<T> loader) {
+        T cached = get(key);
+        if (cached != null) {
+            if (writeTimes != null) {
+                refreshIfStale(key, loader);
+            }
+            return cached;
+        }
+        return inFlightLoads.load(key, new Callable<T>() {
+            @Override
+            public T call() {
+                // Another caller may have loaded the object since the first lookup.
+                T object = get(key, false);
+                if (object == null) {
+                    object = loader.load(key);
+                    if (object != null) {
+                        put(key, object);
+                    }
+                }
+                return object;
+            }
+        });
+    }
+
+    /**
+     * Reload the object in background if it has been written more than the refresh interval ago.
+     * Entries whose write time is not tracked anymore are considered written now.
+     */
+    private void refreshIfStale(final String key, final CacheLoader<T> loader) {
+        long now = System.nanoTime();
+        final Long writeTime = writeTimes.get(key);
+        if (writeTime == null) {
+            writeTimes.put(key, now);
+            return;
+        }
+        if (now - writeTime < refreshAfterWriteNanos || refreshing.putIfAbsent(key, true) != null) {
+            return;
+        }
+        refreshExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    inFlightLoads.load(key, new Callable<T>() {
+                        @Override
+                        public T call() {
+                            T object = loader.load(key);
+                            if (object != null && putIfNotWrittenSince(key, object, writeTime)) {
+                                rebuildDiskKeyFilterIfOverloaded();
+                                evictNamespacesOverQuota();
+                            }
+                            return object;
+                        }
+                    });
+                } catch (Exception e) {
+                    // Keep serving the current object, the next read will retry the refresh.
+                    logger.logError(e);
+                } finally {
+                    refreshing.remove(key);
+                }
+            }
+        });
+    }
+
+    /**
+     * Put the reloaded object of a key, unless the entry has been written or deleted during the
+     * reload. The check and the put are made under the write lock of the entry, so that a put
+     * landing meanwhile is never overwritten by the reloaded object.
+     *
+     * @param writeTime is the write time of the entry when the reload started.
+     * @return true if the object has been put.
+     */
+    private boolean putIfNotWrittenSince(String key, T object, Long writeTime) {
+        syncWithOtherProcesses(key);
+        dualCacheLock.lockDiskEntryWrite(key);
+        try {
+            if (!writeTime.equals(writeTimes.get(key))) {
+                return false;
+            }
+            putLocked(key, object);
+            return true;
+        } finally {
+            dualCacheLock.unLockDiskEntryWrite(key);
+        }
+    }
+
+    /**
+     * Delete the corresponding object in cache.
+     *
+     * @param key is the key of the object.
+     */
+    public void delete(String key) {
+        syncWithOtherProcesses(key);
+        dualCacheLock.lockDiskEntryWrite(key);
+        try {
+            deleteLocked(key);
+        } finally {
+            dualCacheLock.unLockDiskEntryWrite(key);
+        }
+    }
+
+    /**
+     * Delete an object from all the layers. The caller must hold the write lock of the entry.
+     */
+    private void deleteLocked(String key) {
+        if (writeTimes != null) {
+            writeTimes.remove(key);
+        }
+        recordRemoval(key);
+        if (!ramMode.equals(DualCacheRamMode.DISABLE)) {
+            ramCacheLru.remove(key);
+        }
+        if (!diskMode.equals(DualCacheDiskMode.DISABLE) && isMaybeOnDisk(key)) {
+            deleteFromDisk(key);
+        }
+        if (remoteTier != null) {
+            remoteTier.remove(key);
+        }
+    }
+
+    /**
+     * Put an object in cache if no object is cached for its key yet. The check and the put are
+     * atomic with respect to other writes of the same key.
+     *
+     * @param key    is the key of the object.
+     * @param object is the object to put in cache.
+     * @return the object already cached for the key, or null if the given object has been put.
+     */
+    public T putIfAbsent(String key, T object) {
+        syncWithOtherProcesses(key);
+        T current;
+        dualCacheLock.lockDiskEntryWrite(key);
+        try {
+            current = get(key, true);
+            if (current == null) {
+                putLocked(key, object);
+            }
+        } finally {
+            dualCacheLock.unLockDiskEntryWrite(key);
+        }
+        rebuildDiskKeyFilterIfOverloaded();
+        evictNamespacesOverQuota();
+        return current;
+    }
+
+    /**
+     * Compute a new object for a key from the object currently cached, atomically with respect to
+     * other writes of the same key. The current object is taken from the RAM layer when it is
+     * there, and from the disk layer otherwise. If the function returns null, the entry is
+     * deleted.
+     *
+     * <p>The function must not access other entries of this cache: the entry stays locked while
+     * it runs, and locking another entry meanwhile throws an {@link IllegalStateException}.
+     *
+     * @param key      is the key of the object.
+     * @param function computes the new object from the current one, which may be null.
+     * @return the new object, or null if the entry has been deleted.
+     */
+    public T compute(String key, CacheComputeFunction<T> function) {
+        return compute(key, function, false);
+    }
+
+    /**
+     * Same as {@link #compute(String, CacheComputeFunction)}, but only if an object is currently
+     * cached for the key.
+     *
+     * @param key      is the key of the object.
+     * @param function computes the new object from the current one, which is never null.
+     * @return the new object, or null if there was no object or the entry has been deleted.
+     */
+    public T computeIfPresent(String key, CacheComputeFunction<T> function) {
+        return compute(key, function, true);
+    }
+
+    /**
+     * Put the given object in cache if no object is cached for its key, or merge it with the
+     * current object otherwise, atomically with respect to other writes of the same key. If the
+     * merge function returns null, the entry is deleted.
+     *
+     * <p>The function must not access other entries of this cache: the entry stays locked while
+     * it runs, and locking another entry meanwhile throws an {@link IllegalStateException}.
+     *
+     * @param key      is the key of the object.
+     * @param object   is the object to put or merge.
+     * @param function merges the current object with the given one.
+     * @return the new object, or null if the entry has been deleted.
+     */
+    public T merge(final String key, final T object, final CacheMergeFunction<T> function) {
+        return compute(key, new CacheComputeFunction<T>() {
+            @Override
+            public T compute(String key, T currentObject) {
+                return currentObject == null ? object : function.merge(currentObject, object);
+            }
+        }, false);
+    }
+
+    private T compute(String key, CacheComputeFunction<T> function, boolean onlyIfPresent) {
+        syncWithOtherProcesses(key);
+        T newObject;
+        dualCacheLock.lockDiskEntryWrite(key);
+        try {
+            T current = get(key, true);
+            if (current == null && onlyIfPresent) {
+                return null;
+            }
+            newObject = function.compute(key, current);
+            if (newObject != null) {
+                putLocked(key, newObject);
+            } else if (current != null) {
+                deleteLocked(key);
+            }
+        } finally {
+            dualCacheLock.unLockDiskEntryWrite(key);
+        }
+        rebuildDiskKeyFilterIfOverloaded();
+        evictNamespacesOverQuota();
+        return newObject;
+    }
+
+    /**
+     * Delete the corresponding objects in cache. Like {@link #delete(String)}, the entries of
+     * each key are removed under the write lock of the entry.
+     *
+     * @param keys are the keys of the objects.
+     */
+    public void deleteAll(Collection<String> keys) {
+        syncWithOtherProcesses(keys);
+        for (String key : keys) {
+            dualCacheLock.lockDiskEntryWrite(key);
+            try {
+                deleteLocked(key);
+            } finally {
+                dualCacheLock.unLockDiskEntryWrite(key);
+            }
+        }
+    }
+
+    private void recordRemoval(String key) {
+        if (ramCurve != null) {
+            ramCurve.recordRemoval(key);
+        }
+        if (diskCurve != null) {
+            diskCurve.recordRemoval(key);
+        }
+    }
+
+    private void deleteFromDisk(String key) {
+        boolean isOtherProcessesLocked = false;
+        dualCacheLock.lockDiskEntryWrite(key);
+        try {
+            lockOtherProcesses();
+            isOtherProcessesLocked = true;
+            if (isInvalidatedByOtherProcess()) {
+                return;
+            }
+            if (removalDispatcher.removeFromDisk(diskLruCache, key)) {
+                if (processSync != null) {
+                    // The journal is shared: the removal must reach it before another process
+                    // writes the key again, or the journal would end with it.
+                    diskLruCache.flush();
+                }
+                recordChangeForOtherProcesses(key);
+                diskKeyFilter.remove(key);
+                boolean evicted = removalDispatcher.causeOf(false, null) == RemovalCause.EVICTED;
+                CacheNamespace namespace = namespaceOf(key);
+                if (namespace != null) {
+                    namespace.onDiskRemoved(key, evicted);
+                }
+                if (evicted) {
+                    stats.recordDiskEviction();
+                    traces.record(CacheOperation.EVICTION, DualCacheLayer.DISK, key, -1, 0);
+                }
+            }
+        } catch (IOException e) {
+            logger.logError(e);
+        } finally {
+            if (isOtherProcessesLocked) {
+                unlockOtherProcesses();
+            }
+            dualCacheLock.unLockDiskEntryWrite(key);
+        }
+    }
+
+    /**
+     * Remove all objects from cache (both RAM and disk). The remote layer, shared with other
+     * nodes, is left as it is.
+     */
+    public void invalidate() {
+        invalidateDisk();
+        invalidateRAM();
+        if (writeTimes != null) {
+            writeTimes.evictAll();
+        }
+    }
+
+    /**
+     * Write the snapshot of the RAM layer and record its hot keys, then close the disk layer. The
+     * cache must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        if (ramSnapshot != null) {
+            try {
+                ramSnapshot.write(ramCacheLru.snapshot());
+            } catch (IOException e) {
+                logger.logError(e);
+            }
+        }
+        if (hotKeyManifest != null) {
+            recordHotKeys();
+        }
+        if (diskLruCache != null) {
+            dualCacheLock.lockFullDiskWrite();
+            try {
+                isClosed = true;
+                diskLruCache.close();
+            } catch (IOException e) {
+                logger.logError(e);
+            } finally {
+                dualCacheLock.unLockFullDiskWrite();
+            }
+        }
+        isClosed = true;
+        if (processSync != null) {
+            processSync.close();
+        }
+    }
+
+    /**
+     * Remove all objects from RAM.
+     */
+    public void invalidateRAM() {
+        if (!ramMode.equals(DualCacheRamMode.DISABLE)) {
+            long traceStart = traces.startTimer();
+            long size = ramCacheLru.size();
+            RemovalCause previous = removalDispatcher.beginCause(RemovalCause.INVALIDATED);
+            try {
+                ramCacheLru.evictAll();
+            } finally {
+                removalDispatcher.endCause(previous);
+            }
+            if (hotObjects != null) {
+                hotObjects.clear();
+            }
+            if (traces.isEnabled()) {
+                traces.record(CacheOperation.INVALIDATION, DualCacheLayer.RAM, null, size,
+                    System.nanoTime() - traceStart);
+            }
+            if (ramCurve != null) {
+                ramCurve.recordInvalidation();
+            }
+        }
+    }
+
+    /**
+     * Remove all objects from Disk.
+     */
+    public void invalidateDisk() {
+        if (!diskMode.equals(DualCacheDiskMode.DISABLE)) {
+            long traceStart = traces.startTimer();
+            long size = -1;
+            boolean isOtherProcessesLocked = false;
+            dualCacheLock.lockFullDiskWrite();
+            try {
+                lockOtherProcesses();
+                isOtherProcessesLocked = true;
+                size = diskLruCache.size();
+                diskLruCache.delete();
+                removalDispatcher.onDiskInvalidated();
+                if (diskCurve != null) {
+                    diskCurve.recordInvalidation();
+                }
+                for (CacheNamespace namespace : namespaces) {
+                    namespace.onDiskInvalidated();
+                }
+                openDiskLruCache(diskCacheFolder);
+                if (processSync != null) {
+                    processSync.recordInvalidation();
+                }
+            } catch (IOException e) {
+                logger.logError(e);
+            } finally {
+                if (isOtherProcessesLocked) {
+                    unlockOtherProcesses();
+                }
+                dualCacheLock.unLockFullDiskWrite();
+            }
+            if (traces.isEnabled()) {
+                traces.record(CacheOperation.INVALIDATION, DualCacheLayer.DISK, null, size,
+                    System.nanoTime() - traceStart);
+            }
+        }
+    }
+
+    /**
+     * Test if an object is present in cache.
+     * @param key is the key of the object.
+     * @return true if the object is present in cache, false otherwise.
+     */
+    public boolean contains(String key) {
+        syncWithOtherProcesses(key);
+        if (!ramMode.equals(DualCacheRamMode.DISABLE) && ramCacheLru.containsKey(key)) {
+            return true;
+        }
+        if (diskMode.equals(DualCacheDiskMode.DISABLE) || !isMaybeOnDisk(key)) {
+            return false;
+        }
+        dualCacheLock.lockDiskEntryRead(key);
+        try {
+            DiskLruCache.Snapshot snapshot = diskLruCache.get(key);
+            if (snapshot != null) {
+                snapshot.close();
+                onDiskRead(key);
+                return true;
+            }
+        } catch (IOException e) {
+            logger.logError(e);
+        } finally {
+            dualCacheLock.unLockDiskEntryRead(key);
+        }
+        return false;
+    }
+
+    /**
+     * Asynchronous version of {@link #get(String)}, reading the layers in the same order. An
+     * object found in the RAM layer, or a key ruled out by the disk key filter when no remote
+     * layer is used, completes the future immediately on the calling thread. Otherwise the disk
+     * and remote layers are read on the async executor. When the disk folder is shared with other
+     * processes, the whole lookup runs on the async executor, after applying their changes.
+     *
+     * @param key is the key of the object.
+     * @return a future of the object of the corresponding key, or of null if no object is
+     * available.
+     */
+    public CacheFuture<T> getAsync(final String key) {
+        if (processSync != null) {
+            return runAsync(new Callable<T>() {
+                @Override
+                public T call() {
+                    return get(key);
+                }
+            }, false);
+        }
+        final long traceStart = traces.startTimer();
+        T ramObject = getFromRam(key, true);
+        if (ramObject != null) {
+            traces.recordIfSlow(CacheOperation.GET, DualCacheLayer.RAM, key, -1, traceStart);
+            return CacheFuture.completed(ramObject);
+        }
+        final boolean isDiskRead =
+            !diskMode.equals(DualCacheDiskMode.DISABLE) && isMaybeOnDisk(key);
+        if (!isDiskRead) {
+            // Records the disk miss without taking any lock.
+            getFromDisk(key, true);
+            if (remoteTier == null) {
+                return CacheFuture.completed(getBelowRam(key, true, false, traceStart));
+            }
+        }
+        return runAsync(new Callable<T>() {
+            @Override
+            public T call() {
+                return getBelowRam(key, true, isDiskRead, traceStart);
+            }
+        }, false);
+    }
+
+    /**
+     * Asynchronous version of {@link #put(String, Object)}. Runs on the calling thread when the
+     * disk layer is disabled, on the async executor otherwise.
+     *
+     * @param key    is the key of the object.
+     * @param object is the object to put in cache.
+     * @return a future completed once the object is in cache.
+     */
+    public CacheFuture<Void> putAsync(final String key, final T object) {
+        return runAsync(new Callable<Void>() {
+            @Override
+            public Void call() {
+                put(key, object);
+                return null;
+            }
+        }, diskMode.equals(DualCacheDiskMode.DISABLE));
+    }
+
+    /**
+     * Asynchronous version of {@link #delete(String)}. Runs on the calling thread when the disk
+     * layer is disabled, on the async executor otherwise.
+     *
+     * @param key is the key of the object.
+     * @return a future completed once the object is deleted.
+     */
+    public CacheFuture<Void> deleteAsync(final String key) {
+        return runAsync(new Callable<Void>() {
+            @Override
+            public Void call() {
+                delete(key);
+                return null;
+            }
+        }, diskMode.equals(DualCacheDiskMode.DISABLE));
+    }
+
+    /**
+     * Asynchronous version of {@link #contains(String)}. An object found in the RAM layer
+     * completes the future immediately on the calling thread. Otherwise the disk layer is checked
+     * on the async executor. When the disk folder is shared with other processes, the whole check
+     * runs on the async executor, after applying their changes.
+     *
+     * @param key is the key of the object.
+     * @return a future of true if the object is present in cache, false otherwise.
+     */
+    public CacheFuture<Boolean> containsAsync(final String key) {
+        if (processSync != null) {
+            return runAsync(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return contains(key);
+                }
+            }, false);
+        }
+        boolean isInRam = !ramMode.equals(DualCacheRamMode.DISABLE)
+            && ramCacheLru.containsKey(key);
+        if (isInRam || diskMode.equals(DualCacheDiskMode.DISABLE) || !isMaybeOnDisk(key)) {
+            return CacheFuture.completed(isInRam);
+        }
+        return runAsync(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return contains(key);
+            }
+        }, false);
+    }
+
+    /**
+     * Run the given operations in parallel on the async executor and wait for their results. The
+     * calling thread runs the last operation itself, then every operation no worker has started
+     * yet, so that it never waits on a task queued behind others: invoked from a task of a
+     * saturated executor, the operations still complete.
+     */
+    private <V> List<V> invokeAll(List<Callable<V>> operations) {
+        List<CacheFuture<V>> futures = new ArrayList<>(operations.size());
+        for (int i = 0; i < operations.size(); i++) {
+            futures.add(runAsync(operations.get(i), i == operations.size() - 1));
+        }
+        List<V> results = new ArrayList<>(futures.size());
+        for (CacheFuture<V> future : futures) {
+            // Does nothing if a worker already started or completed the operation.
+            future.run();
+            results.add(future.join());
+        }
+        return results;
+    }
+
+    private <V> CacheFuture<V> runAsync(Callable<V> operation, boolean onCallingThread) {
+        CacheFuture<V> future = new CacheFuture<>(operation);
+        if (onCallingThread) {
+            future.run();
+        } else if (asyncExecutor != null) {
+            asyncExecutor.execute(future);
+        } else {
+            DualCacheExecutors.async().execute(future);
+        }
+        return future;
+    }
+
+    private void lockOtherProcesses() throws IOException {
+        if (processSync != null) {
+            processSync.lock();
+        }
+    }
+
+    private void unlockOtherProcesses() {
+        if (processSync != null) {
+            processSync.unlock();
+        }
+    }
+
+    /**
+     * Tell whether another process invalidated the disk folder since this one last opened it, in
+     * which case it can not be written before being opened again by the next synchronization.
+     * The caller must hold the lock of the other processes.
+     */
+    private boolean isInvalidatedByOtherProcess() throws IOException {
+        if (processSync != null && processSync.isInvalidatedElsewhere()) {
+            processSyncForced = true;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Let the other processes know that the disk entry of the key changed. The caller must hold
+     * the lock of the other processes.
+     */
+    private void recordChangeForOtherProcesses(String key) throws IOException {
+        if (processSync != null) {
+            processSync.recordChange(key);
+            // The journal of this process now knows the entry as it is on disk.
+            foreignKeys.remove(key);
+        }
+    }
+
+    /**
+     * Same as {@link #syncWithOtherProcesses(Collection)} for a single key.
+     */
+    private void syncWithOtherProcesses(String key) {
+        syncWithOtherProcesses(Collections.singleton(key));
+    }
+
+    /**
+     * Apply the changes made to the disk folder by the other processes, at most once per sync
+     * interval: the objects they rewrote or removed are dropped from RAM, notified as
+     * {@link RemovalCause#REPLACED}, and the RAM layer is invalidated if they invalidated the
+     * disk folder. Then, if one of the given keys has been written by another process, the disk
+     * layer is opened again to learn the entry from the journal. Must be called without holding
+     * any lock of the cache.
+     *
+     * @param keys are the keys about to be accessed.
+     */
+    private void syncWithOtherProcesses(Collection<String> keys) {
+        if (processSync == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (processSyncForced || now - lastProcessSyncNanos >= processSyncIntervalNanos) {
+            lastProcessSyncNanos = now;
+            processSyncForced = false;
+            DiskProcessSync.Changes changes = null;
+            try {
+                processSync.lock();
+                try {
+                    changes = processSync.readChanges();
+                } finally {
+                    processSync.unlock();
+                }
+            } catch (IOException e) {
+                logger.logError(e);
+            }
+            if (changes != null) {
+                applyChangesOfOtherProcesses(changes);
+            }
+        }
+        if (!foreignKeys.isEmpty()) {
+            for (String key : keys) {
+                if (foreignKeys.contains(key)) {
+                    reopenDisk(false);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void applyChangesOfOtherProcesses(DiskProcessSync.Changes changes) {
+        if (changes.invalidated || changes.lostTrack) {
+            reopenDisk(changes.invalidated);
+            invalidateRAM();
+            if (writeTimes != null) {
+                writeTimes.evictAll();
+            }
+        }
+        RemovalCause previous = removalDispatcher.beginCause(RemovalCause.REPLACED);
+        try {
+            for (String key : changes.keys) {
+                // Not in the middle of a compute or a put of this key in this process.
+                dualCacheLock.lockDiskEntryWrite(key);
+                try {
+                    if (DiskEntries.fileOf(diskCacheFolder, key).exists()
+                        && removalDispatcher.onForeignDiskWrite(key)) {
+                        diskKeyFilter.add(key);
+                    }
+                    foreignKeys.add(key);
+                    if (!ramMode.equals(DualCacheRamMode.DISABLE)) {
+                        ramCacheLru.remove(key);
+                    }
+                    if (writeTimes != null) {
+                        writeTimes.remove(key);
+                    }
+                } finally {
+                    dualCacheLock.unLockDiskEntryWrite(key);
+                }
+            }
+        } finally {
+            removalDispatcher.endCause(previous);
+        }
+    }
+
+    /**
+     * Open the journal of the disk layer again, so that it includes the entries written by the
+     * other processes.
+     *
+     * @param invalidated is true if another process invalidated the disk folder.
+     */
+    private void reopenDisk(boolean invalidated) {
+        boolean isOtherProcessesLocked = false;
+        dualCacheLock.lockFullDiskWrite();
+        try {
+            // No other process is in the middle of a write, whose files the opening would delete.
+            processSync.lock();
+            isOtherProcessesLocked = true;
+            if (invalidated) {
+                removalDispatcher.onDiskInvalidated();
+                if (diskCurve != null) {
+                    diskCurve.recordInvalidation();
+                }
+                for (CacheNamespace namespace : namespaces) {
+                    namespace.onDiskInvalidated();
+                }
+            }
+            diskLruCache.close();
+            openJournal(diskCacheFolder);
+            // The filter has been rebuilt from the disk content, which the index must match.
+            removalDispatcher.loadDiskIndex(diskCacheFolder);
+        } catch (IOException e) {
+            logger.logError(e);
+        } finally {
+            if (isOtherProcessesLocked) {
+                processSync.unlock();
+            }
+            dualCacheLock.unLockFullDiskWrite();
+        }
+    }
+
+    /**
+     * Check the disk key filter, without taking any lock.
+     *
+     * @param key is the key of the object.
+     * @return false if the object is definitely not on disk, true if it may be.
+     */
+    boolean isMaybeOnDisk(String key) {
+        DiskKeyFilter filter = diskKeyFilter;
+        return filter == null || filter.mightContain(key);
+    }
+
+    /**
+     * Record a read in the disk layer, which makes the entry the most recently used one.
+     */
+    private void onDiskRead(String key) {
+        removalDispatcher.onDiskRead(key);
+        CacheNamespace namespace = namespaceOf(key);
+        if (namespace != null) {
+            namespace.onDiskRead(key);
+        }
+    }
+
+    /**
+     * @param key is the key of an entry.
+     * @return the namespace of the entry, or null if it does not belong to a namespace.
+     */
+    private CacheNamespace namespaceOf(String key) {
+        for (CacheNamespace namespace : namespaces) {
+            if (namespace.contains(key)) {
+                return namespace;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Remove the disk entries which went over the quota of their namespace. Must be called
+     * without holding any entry lock, since it locks the entries to remove.
+     */
+    private void evictNamespacesOverQuota() {
+        for (CacheNamespace namespace : namespaces) {
+            String key;
+            while ((key = namespace.pollDiskOverQuota()) != null) {
+                dualCacheLock.lockDiskEntryWrite(key);
+                try {
+                    // The entry may have been written again since it went over quota.
+                    if (!namespace.isIndexedOnDisk(key)) {
+                        RemovalCause previous = removalDispatcher.beginCause(RemovalCause.EVICTED);
+                        try {
+                            deleteFromDisk(key);
+                        } finally {
+                            removalDispatcher.endCause(previous);
+                        }
+                    }
+                } finally {
+                    dualCacheLock.unLockDiskEntryWrite(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Put the entries of the RAM snapshot back in the RAM layer, in their LRU order, with a single
+     * read of the snapshot. Called once the cache is built, before the warm up.
+     */
+    void restoreRam() {
+        if (ramSnapshot == null) {
+            return;
+        }
+        Map<String, Object> entries;
+        try {
+            entries = ramSnapshot.read();
+        } catch (IOException e) {
+            logger.logError(e);
+            return;
+        }
+        if (entries == null) {
+            return;
+        }
+        ramCacheLru.putAll(entries);
+        for (Map.Entry<String, Object> entry : entries.entrySet()) {
+            // The least recently used entries do not fit if the RAM layer has been shrunk.
+            if (ramCacheLru.containsKey(entry.getKey())) {
+                recordRamWrite(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Prefetch the keys of the hot key manifest from the disk layer into the RAM layer, the
+     * hottest first, in parallel on the warm-up executor, until the time or the size budget is
+     * spent. The keys already in RAM are skipped. Called once the cache is built.
+     */
+    void startWarmUp() {
+        if (hotKeyManifest == null) {
+            return;
+        }
+        final List<String> keys;
+        try {
+            keys = hotKeyManifest.read();
+        } catch (IOException e) {
+            logger.logError(e);
+            return;
+        }
+        final long deadline = System.nanoTime() + warmUpTimeNanos;
+        final AtomicInteger nextKey = new AtomicInteger();
+        final AtomicLong warmedUpSize = new AtomicLong();
+        int taskCount = Math.min(WARM_UP_PARALLELISM, keys.size());
+        for (int i = 0; i < taskCount; i++) {
+            try {
+                warmUpExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        int index = nextKey.getAndIncrement();
+                        while (index < keys.size() && System.nanoTime() - deadline < 0
+                            && warmedUpSize.get() < maxWarmUpSize) {
+                            warmedUpSize.addAndGet(warmUp(keys.get(index)));
+                            index = nextKey.getAndIncrement();
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                logger.logError(e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Load the object of the key from the disk layer into the RAM layer, without counting a
+     * lookup, unless it is already in RAM.
+     *
+     * @return the size of the object in the RAM layer, or 0 if it has not been loaded.
+     */
+    private int warmUp(String key) {
+        if (!isMaybeOnDisk(key)) {
+            return 0;
+        }
+        dualCacheLock.lockDiskEntryRead(key);
+        try {
+            if (isClosed || ramCacheLru.containsKey(key)) {
+                return 0;
+            }
+            String diskResult = readFromDisk(key);
+            if (diskResult == null) {
+                return 0;
+            }
+            Object ramValue;
+            if (ramMode.equals(DualCacheRamMode.ENABLE_WITH_REFERENCE)) {
+                ramValue = deserialize(DualCacheLayer.DISK, key, diskResult);
+            } else if (diskSerializer == ramSerializer) {
+                ramValue = diskResult;
+            } else {
+                ramValue = serialize(DualCacheLayer.RAM, key,
+                    deserialize(DualCacheLayer.DISK, key, diskResult));
+            }
+            ramCacheLru.put(key, ramValue);
+            recordRamWrite(key, ramValue);
+            return ramCacheLru.sizeOf(key, ramValue);
+        } finally {
+            dualCacheLock.unLockDiskEntryRead(key);
+        }
+    }
+
+    /**
+     * Record the hottest keys of the RAM layer in background, at most once per record interval.
+     */
+    private void recordHotKeysIfDue() {
+        if (hotKeyManifest == null
+            || System.nanoTime() - lastHotKeysRecordNanos < HOT_KEYS_RECORD_INTERVAL_NANOS
+            || !isRecordingHotKeys.compareAndSet(false, true)) {
+            return;
+        }
+        lastHotKeysRecordNanos = System.nanoTime();
+        try {
+            warmUpExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        recordHotKeys();
+                    } finally {
+                        isRecordingHotKeys.set(false);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            isRecordingHotKeys.set(false);
+            logger.logError(e);
+        }
+    }
+
+    /**
+     * Replace the hot key manifest with the most recently used keys of the RAM layer.
+     */
+    private void recordHotKeys() {
+        try {
+            hotKeyManifest.write(ramCacheLru.recentKeys(maxHotKeys));
+        } catch (IOException e) {
+            logger.logError(e);
+        }
+    }
+
+    /**
+     * Rebuild the disk key filter with a bigger capacity once too many keys have been added to it.
+     * The folder is scanned in background, and the full disk write lock is only held to start
+     * recording the keys added meanwhile, and to swap the filters.
+     */
+    private void rebuildDiskKeyFilterIfOverloaded() {
+        final DiskKeyFilter filter = diskKeyFilter;
+        if (filter == null || !filter.isOverloaded()) {
+            return;
+        }
+        dualCacheLock.lockFullDiskWrite();
+        try {
+            if (diskKeyFilter != filter || !filter.beginRebuild()) {
+                return;
+            }
+        } finally {
+            dualCacheLock.unLockFullDiskWrite();
+        }
+        try {
+            DualCacheExecutors.background().execute(new Runnable() {
+                @Override
+                public void run() {
+                    DiskKeyFilter rebuilt = DiskKeyFilter.fromDirectory(diskCacheFolder);
+                    dualCacheLock.lockFullDiskWrite();
+                    try {
+                        filter.endRebuild(rebuilt);
+                        // The disk layer may have been invalidated meanwhile.
+                        if (diskKeyFilter == filter) {
+                            diskKeyFilter = rebuilt;
+                        }
+                    } finally {
+                        dualCacheLock.unLockFullDiskWrite();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            filter.endRebuild(null);
+            logger.logError(e);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Settings of a {@link DualCache}, filled by {@link BaseBuilder} once it has checked them. The
+ * executors left to their default are already resolved to the shared ones.
+ *
+ * @param <T> is the class of object to store in cache.
+ */
+final class DualCacheConfig<T> {
+
+    int appVersion;
+    Logger logger;
+
+    DualCacheRamMode ramMode;
+    CacheSerializer<T> ramSerializer;
+    int maxRamSizeBytes;
+    /** Number of decoded objects kept for the hot keys of a serializing RAM layer, or 0. */
+    int maxHotObjects;
+    CacheCopier<T> hotObjectCopier;
+    SizeOf<T> sizeOf;
+
+    DualCacheDiskMode diskMode;
+    CacheSerializer<T> diskSerializer;
+    boolean compressDisk;
+    int maxDiskSizeBytes;
+    File diskFolder;
+
+    /** Age after which a read refreshes the object in background, or 0 to never refresh. */
+    long refreshAfterWriteNanos;
+    Executor refreshExecutor;
+    Executor asyncExecutor;
+
+    boolean recordStats;
+    CacheEventListener eventListener;
+    RemovalListener<T> removalListener;
+    Executor removalExecutor;
+    Map<String, CacheNamespace.Quota> namespaceQuotas;
+    CacheTracer tracer;
+    long traceThresholdNanos;
+
+    /** Remote layer read after a disk miss, or null if there is none. */
+    RemoteTier<T> remoteTier;
+
+    boolean multiProcessDisk;
+    long processSyncIntervalNanos;
+
+    /** Number of hot keys recorded for the warm-up, or 0 to not warm up. */
+    int maxHotKeys;
+    long warmUpTimeNanos;
+    int maxWarmUpSize;
+    Executor warmUpExecutor;
+
+    /** File the RAM layer is copied to when the cache is closed, or null. */
+    File ramSnapshotFile;
+}
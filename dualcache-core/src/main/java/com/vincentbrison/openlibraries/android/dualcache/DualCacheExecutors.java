@@ -0,0 +1,144 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Provide the executors used for background work when none is configured on the builder.
+ */
+final class DualCacheExecutors {
+
+    private static final int KEEP_ALIVE_SECONDS = 30;
+    private static final String THREAD_NAME_PREFIX = "dualcache-background-";
+    private static final String REMOTE_THREAD_NAME_PREFIX = "dualcache-remote-";
+
+    private static volatile Executor backgroundExecutor;
+    private static volatile Executor asyncExecutor;
+    private static volatile Executor remoteExecutor;
+
+    private DualCacheExecutors() {
+    }
+
+    /**
+     * Return the executor shared by all caches for background work. Its threads are daemon
+     * threads, created lazily and released after being idle for a while.
+     *
+     * @return the shared background executor.
+     */
+    static Executor background() {
+        Executor executor = backgroundExecutor;
+        if (executor == null) {
+            synchronized (DualCacheExecutors.class) {
+                executor = backgroundExecutor;
+                if (executor == null) {
+                    executor = createBackgroundExecutor();
+                    backgroundExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Return the executor shared by all caches for asynchronous operations. It starts a virtual
+     * thread per task when the runtime supports them, and falls back to the background executor.
+     *
+     * @return the shared executor for asynchronous operations.
+     */
+    static Executor async() {
+        Executor executor = asyncExecutor;
+        if (executor == null) {
+            synchronized (DualCacheExecutors.class) {
+                executor = asyncExecutor;
+                if (executor == null) {
+                    executor = createVirtualThreadExecutor();
+                    if (executor == null) {
+                        executor = background();
+                    }
+                    asyncExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Return the executor shared by all caches for the requests to a remote cache, which block
+     * until the remote cache answers. It starts a virtual thread per task when the runtime
+     * supports them, and otherwise a daemon thread whenever none is idle, so that a request never
+     * waits behind other work.
+     *
+     * @return the shared executor for remote requests.
+     */
+    static Executor remote() {
+        Executor executor = remoteExecutor;
+        if (executor == null) {
+            synchronized (DualCacheExecutors.class) {
+                executor = remoteExecutor;
+                if (executor == null) {
+                    executor = createVirtualThreadExecutor();
+                    if (executor == null) {
+                        executor = new ThreadPoolExecutor(
+                            0,
+                            Integer.MAX_VALUE,
+                            KEEP_ALIVE_SECONDS,
+                            TimeUnit.SECONDS,
+                            new SynchronousQueue<Runnable>(),
+                            new DaemonThreadFactory(REMOTE_THREAD_NAME_PREFIX));
+                    }
+                    remoteExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    private static Executor createVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (Executor) factory.invoke(null);
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            return null;
+        }
+    }
+
+    private static Executor createBackgroundExecutor() {
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            threads,
+            threads,
+            KEEP_ALIVE_SECONDS,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(),
+            new DaemonThreadFactory(THREAD_NAME_PREFIX)
+        );
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static final class DaemonThreadFactory implements ThreadFactory {
+        private final String namePrefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        DaemonThreadFactory(String namePrefix) {
+            this.namePrefix = namePrefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, namePrefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+/**
+ * Define the layers of a cache.
+ */
+public enum DualCacheLayer {
+    /**
+     * The RAM layer.
+     */
+    RAM,
+
+    /**
+     * The disk layer.
+     */
+    DISK,
+
+    /**
+     * The remote layer, shared by several nodes.
+     */
+    REMOTE
+}
@@ -0,0 +1,166 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Locks used to synchronize the access to the disk layer. Entries are mapped onto a fixed table
+ * of read/write locks (lock striping), so the memory used stays the same whatever the number of
+ * distinct keys going through the cache. Reads of an entry share its lock, writes are exclusive.
+ *
+ * <p>Two keys may share the same stripe, so two threads each holding the lock of an entry and
+ * locking the entry of the other would deadlock. A thread holding the lock of an entry may only
+ * lock the same entry again, the write lock before the read lock, and locking another stripe or
+ * the whole disk throws an {@link IllegalStateException} instead of risking a deadlock.
+ */
+class DualCacheLock {
+
+    private static final int DEFAULT_STRIPES = 64;
+
+    private final ReentrantReadWriteLock[] entryLocks;
+    /** Number of releases of the write lock of each stripe, guarded by the lock itself. */
+    private final int[] writeStamps;
+    private final int stripeMask;
+    private final ReadWriteLock invalidationReadWriteLock = new ReentrantReadWriteLock();
+    private final StatsRecorder stats;
+    private final TraceRecorder traces;
+    /** Stripe of the entry locks held by the current thread, and the number of holds. */
+    private final ThreadLocal<int[]> heldStripe = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[] {-1, 0};
+        }
+    };
+
+    DualCacheLock(StatsRecorder stats, TraceRecorder traces) {
+        this(DEFAULT_STRIPES, stats, traces);
+    }
+
+    /**
+     * @param stripes is the minimal number of entry locks, rounded up to a power of two.
+     * @param stats   records the time spent waiting for the locks.
+     * @param traces  reports the long waits for the locks.
+     */
+    DualCacheLock(int stripes, StatsRecorder stats, TraceRecorder traces) {
+        this.stats = stats;
+        this.traces = traces;
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.entryLocks = new ReentrantReadWriteLock[size];
+        this.writeStamps = new int[size];
+        for (int i = 0; i < size; i++) {
+            entryLocks[i] = new ReentrantReadWriteLock();
+        }
+        this.stripeMask = size - 1;
+    }
+
+    void lockDiskEntryRead(String key) {
+        int stripe = stripeOf(key);
+        lock(key, stripe, entryLocks[stripe].readLock());
+    }
+
+    void unLockDiskEntryRead(String key) {
+        int stripe = stripeOf(key);
+        entryLocks[stripe].readLock().unlock();
+        invalidationReadWriteLock.readLock().unlock();
+        release();
+    }
+
+    void lockDiskEntryWrite(String key) {
+        int stripe = stripeOf(key);
+        if (heldStripe.get()[1] > 0 && !entryLocks[stripe].isWriteLockedByCurrentThread()) {
+            throw new IllegalStateException(
+                "The entry " + key + " can not be locked for write while locked for read");
+        }
+        lock(key, stripe, entryLocks[stripe].writeLock());
+    }
+
+    void unLockDiskEntryWrite(String key) {
+        int stripe = stripeOf(key);
+        if (entryLocks[stripe].getWriteHoldCount() == 1) {
+            writeStamps[stripe]++;
+        }
+        entryLocks[stripe].writeLock().unlock();
+        invalidationReadWriteLock.readLock().unlock();
+        release();
+    }
+
+    void lockFullDiskWrite() {
+        if (heldStripe.get()[1] > 0) {
+            throw new IllegalStateException(
+                "The whole disk can not be locked while holding the lock of an entry");
+        }
+        long start = stats.startTimer();
+        long traceStart = traces.startTimer();
+        invalidationReadWriteLock.writeLock().lock();
+        stats.recordLockWait(start);
+        traces.recordIfSlow(CacheOperation.LOCK_WAIT, DualCacheLayer.DISK, null, -1, traceStart);
+    }
+
+    void unLockFullDiskWrite() {
+        invalidationReadWriteLock.writeLock().unlock();
+    }
+
+    private void lock(String key, int stripe, Lock entryLock) {
+        int[] held = heldStripe.get();
+        if (held[1] > 0 && held[0] != stripe) {
+            throw new IllegalStateException(
+                "The entry " + key + " can not be locked while holding the lock of another one");
+        }
+        long start = stats.startTimer();
+        long traceStart = traces.startTimer();
+        invalidationReadWriteLock.readLock().lock();
+        entryLock.lock();
+        held[0] = stripe;
+        held[1]++;
+        stats.recordLockWait(start);
+        traces.recordIfSlow(CacheOperation.LOCK_WAIT, DualCacheLayer.DISK, key, -1, traceStart);
+    }
+
+    private void release() {
+        int[] held = heldStripe.get();
+        if (--held[1] == 0) {
+            held[0] = -1;
+        }
+    }
+
+    /**
+     * @param key is the key of the entry.
+     * @return the index of the stripe locking the entry.
+     */
+    int stripeOf(String key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 20) ^ (hash >>> 12);
+        hash ^= (hash >>> 7) ^ (hash >>> 4);
+        return hash & stripeMask;
+    }
+
+    /**
+     * Return the write stamp of the stripe of an entry, which grows by one each time a thread
+     * releases the write lock of the stripe it held. The caller must hold the lock of the entry
+     * or the whole disk.
+     *
+     * @param key is the key of the entry.
+     * @return the write stamp of the stripe of the entry.
+     */
+    int writeStampOf(String key) {
+        return writeStamps[stripeOf(key)];
+    }
+
+    /**
+     * Copy the write stamps of all the stripes, without locking them: a stamp may be read older
+     * than it is, never newer.
+     *
+     * @param stamps receives the stamps, indexed by stripe.
+     */
+    void copyWriteStamps(int[] stamps) {
+        System.arraycopy(writeStamps, 0, stamps, 0, writeStamps.length);
+    }
+
+    /**
+     * @return the number of stripes.
+     */
+    int getStripeCount() {
+        return entryLocks.length;
+    }
+}
@@ -0,0 +1,106 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+/**
+ * View of a namespace of a {@link DualCache}, returned by {@link DualCache#namespace(String)}.
+ * The keys given to this view are prefixed with the name of the namespace and a dash, so using
+ * the view is the same as using the cache with the prefixed keys.
+ *
+ * @param <T> is the Class of object cached.
+ */
+public final class DualCacheNamespace<T> {
+
+    private final DualCache<T> cache;
+    private final CacheNamespace namespace;
+
+    DualCacheNamespace(DualCache<T> cache, CacheNamespace namespace) {
+        this.cache = cache;
+        this.namespace = namespace;
+    }
+
+    /**
+     * @return the name of the namespace.
+     */
+    public String getName() {
+        return namespace.getName();
+    }
+
+    /**
+     * Put an object in the namespace.
+     *
+     * @param key    is the key of the object in the namespace.
+     * @param object is the object to put in cache.
+     */
+    public void put(String key, T object) {
+        cache.put(namespace.keyOf(key), object);
+    }
+
+    /**
+     * Return the object of the corresponding key from the namespace, or null if no object is
+     * available.
+     *
+     * @param key is the key of the object in the namespace.
+     * @return the object of the corresponding key, or null.
+     */
+    public T get(String key) {
+        return cache.get(namespace.keyOf(key));
+    }
+
+    /**
+     * Same as {@link DualCache#get(String, CacheLoader)} in the namespace. The loader receives
+     * the key of the object in the namespace.
+     *
+     * @param key    is the key of the object in the namespace.
+     * @param loader computes the object when it is not in cache.
+     * @return the object of the corresponding key, or null if the loader returned null.
+     */
+    public T get(final String key, final CacheLoader<T> loader) {
+        return cache.get(namespace.keyOf(key), new CacheLoader<T>() {
+            @Override
+            public T load(String cacheKey) {
+                return loader.load(key);
+            }
+        });
+    }
+
+    /**
+     * Delete the corresponding object from the namespace.
+     *
+     * @param key is the key of the object in the namespace.
+     */
+    public void delete(String key) {
+        cache.delete(namespace.keyOf(key));
+    }
+
+    /**
+     * Test if an object is present in the namespace.
+     *
+     * @param key is the key of the object in the namespace.
+     * @return true if the object is present in cache, false otherwise.
+     */
+    public boolean contains(String key) {
+        return cache.contains(namespace.keyOf(key));
+    }
+
+    /**
+     * @return the size of the objects of the namespace in the RAM layer, or -1 if the RAM layer
+     * is disabled.
+     */
+    public long getRamUsedInBytes() {
+        return namespace.getRamUsedInBytes();
+    }
+
+    /**
+     * @return the size of the objects of the namespace in the disk layer, or -1 if the disk layer
+     * is disabled.
+     */
+    public long getDiskUsedInBytes() {
+        return namespace.getDiskUsedInBytes();
+    }
+
+    /**
+     * @return the current statistics of the namespace.
+     */
+    public DualCacheNamespaceStats getStats() {
+        return namespace.snapshot();
+    }
+}
@@ -0,0 +1,132 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+/**
+ * Immutable snapshot of the statistics of a namespace of a cache, as returned by
+ * {@link DualCacheNamespace#getStats()}. They are always collected, whether the cache has been
+ * built with {@code recordStats()} or not.
+ */
+public final class DualCacheNamespaceStats {
+
+    private final long ramHitCount;
+    private final long ramMissCount;
+    private final long ramEvictionCount;
+    private final long diskHitCount;
+    private final long diskMissCount;
+    private final long diskEvictionCount;
+    private final long ramUsedInBytes;
+    private final long diskUsedInBytes;
+
+    DualCacheNamespaceStats(
+        long ramHitCount,
+        long ramMissCount,
+        long ramEvictionCount,
+        long diskHitCount,
+        long diskMissCount,
+        long diskEvictionCount,
+        long ramUsedInBytes,
+        long diskUsedInBytes
+    ) {
+        this.ramHitCount = ramHitCount;
+        this.ramMissCount = ramMissCount;
+        this.ramEvictionCount = ramEvictionCount;
+        this.diskHitCount = diskHitCount;
+        this.diskMissCount = diskMissCount;
+        this.diskEvictionCount = diskEvictionCount;
+        this.ramUsedInBytes = ramUsedInBytes;
+        this.diskUsedInBytes = diskUsedInBytes;
+    }
+
+    /**
+     * @return the number of gets of the namespace answered by the RAM layer.
+     */
+    public long getRamHitCount() {
+        return ramHitCount;
+    }
+
+    /**
+     * @return the number of gets of the namespace the RAM layer could not answer.
+     */
+    public long getRamMissCount() {
+        return ramMissCount;
+    }
+
+    /**
+     * @return the ratio of the gets of the namespace answered by the RAM layer, or 0 if there was
+     * no get.
+     */
+    public double getRamHitRate() {
+        return rate(ramHitCount, ramMissCount);
+    }
+
+    /**
+     * @return the number of entries of the namespace evicted from the RAM layer, to respect
+     * either the maximum size of the layer or the quota of the namespace.
+     */
+    public long getRamEvictionCount() {
+        return ramEvictionCount;
+    }
+
+    /**
+     * @return the number of gets of the namespace answered by the disk layer.
+     */
+    public long getDiskHitCount() {
+        return diskHitCount;
+    }
+
+    /**
+     * @return the number of gets of the namespace the disk layer could not answer.
+     */
+    public long getDiskMissCount() {
+        return diskMissCount;
+    }
+
+    /**
+     * @return the ratio of the gets reaching the disk layer it could answer, or 0 if there was
+     * no such get.
+     */
+    public double getDiskHitRate() {
+        return rate(diskHitCount, diskMissCount);
+    }
+
+    /**
+     * @return the number of entries of the namespace removed from the disk layer to respect the
+     * quota of the namespace.
+     */
+    public long getDiskEvictionCount() {
+        return diskEvictionCount;
+    }
+
+    /**
+     * @return the size of the entries of the namespace in the RAM layer, or -1 if the RAM layer
+     * is disabled.
+     */
+    public long getRamUsedInBytes() {
+        return ramUsedInBytes;
+    }
+
+    /**
+     * @return the size of the entries of the namespace in the disk layer, or -1 if the disk layer
+     * is disabled.
+     */
+    public long getDiskUsedInBytes() {
+        return diskUsedInBytes;
+    }
+
+    private static double rate(long hits, long misses) {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return "DualCacheNamespaceStats[ramHits=" + ramHitCount
+            + ",ramMisses=" + ramMissCount
+            + ",ramEvictions=" + ramEvictionCount
+            + ",diskHits=" + diskHitCount
+            + ",diskMisses=" + diskMissCount
+            + ",diskEvictions=" + diskEvictionCount
+            + ",ramUsed=" + ramUsedInBytes
+            + ",diskUsed=" + diskUsedInBytes
+            + "]";
+    }
+}
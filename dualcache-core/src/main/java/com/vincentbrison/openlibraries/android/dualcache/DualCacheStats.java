@@ -0,0 +1,189 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+/**
+ * Immutable snapshot of the statistics of a cache, as returned by {@link DualCache#getStats()}
+ * and {@link AndCache#getStats()}. Statistics are only collected by caches built with
+ * {@code recordStats()}; other caches report zeros.
+ *
+ * <p>Counters are read one after the other without stopping the cache, so a snapshot taken under
+ * load may be slightly inconsistent (e.g. a hit counted but its latency not yet recorded).
+ */
+public final class DualCacheStats {
+
+    private final long ramHitCount;
+    private final long ramMissCount;
+    private final long ramEvictionCount;
+    private final long diskHitCount;
+    private final long diskMissCount;
+    private final long diskEvictionCount;
+    private final LatencySnapshot ramGetLatency;
+    private final LatencySnapshot diskGetLatency;
+    private final LatencySnapshot serializeLatency;
+    private final LatencySnapshot deserializeLatency;
+    private final LatencySnapshot lockWaitLatency;
+    private final HitRatioCurve ramHitRatioCurve;
+    private final HitRatioCurve diskHitRatioCurve;
+
+    DualCacheStats(
+        long ramHitCount,
+        long ramMissCount,
+        long ramEvictionCount,
+        long diskHitCount,
+        long diskMissCount,
+        long diskEvictionCount,
+        LatencySnapshot ramGetLatency,
+        LatencySnapshot diskGetLatency,
+        LatencySnapshot serializeLatency,
+        LatencySnapshot deserializeLatency,
+        LatencySnapshot lockWaitLatency,
+        HitRatioCurve ramHitRatioCurve,
+        HitRatioCurve diskHitRatioCurve
+    ) {
+        this.ramHitCount = ramHitCount;
+        this.ramMissCount = ramMissCount;
+        this.ramEvictionCount = ramEvictionCount;
+        this.diskHitCount = diskHitCount;
+        this.diskMissCount = diskMissCount;
+        this.diskEvictionCount = diskEvictionCount;
+        this.ramGetLatency = ramGetLatency;
+        this.diskGetLatency = diskGetLatency;
+        this.serializeLatency = serializeLatency;
+        this.deserializeLatency = deserializeLatency;
+        this.lockWaitLatency = lockWaitLatency;
+        this.ramHitRatioCurve = ramHitRatioCurve;
+        this.diskHitRatioCurve = diskHitRatioCurve;
+    }
+
+    /**
+     * @return the number of gets answered by the RAM layer.
+     */
+    public long getRamHitCount() {
+        return ramHitCount;
+    }
+
+    /**
+     * @return the number of gets the RAM layer could not answer.
+     */
+    public long getRamMissCount() {
+        return ramMissCount;
+    }
+
+    /**
+     * @return the number of entries evicted from the RAM layer, either to respect its maximum size
+     * or the quota of their namespace, or by an invalidation of the RAM layer.
+     */
+    public long getRamEvictionCount() {
+        return ramEvictionCount;
+    }
+
+    /**
+     * @return the number of gets answered by the disk layer.
+     */
+    public long getDiskHitCount() {
+        return diskHitCount;
+    }
+
+    /**
+     * @return the number of gets the disk layer could not answer.
+     */
+    public long getDiskMissCount() {
+        return diskMissCount;
+    }
+
+    /**
+     * @return the number of entries evicted from the disk layer, either to respect its maximum
+     * size or the quota of their namespace. The disk layer of an {@link AndCache} does not tell
+     * its evictions, which are not counted.
+     */
+    public long getDiskEvictionCount() {
+        return diskEvictionCount;
+    }
+
+    /**
+     * @return the ratio of RAM hits over RAM lookups, or 0 if there was no lookup.
+     */
+    public double getRamHitRate() {
+        return rate(ramHitCount, ramMissCount);
+    }
+
+    /**
+     * @return the ratio of disk hits over disk lookups, or 0 if there was no lookup.
+     */
+    public double getDiskHitRate() {
+        return rate(diskHitCount, diskMissCount);
+    }
+
+    /**
+     * @return the time spent looking entries up in the RAM layer, deserialization excluded.
+     */
+    public LatencySnapshot getRamGetLatency() {
+        return ramGetLatency;
+    }
+
+    /**
+     * @return the time spent reading entries from the disk layer, deserialization excluded.
+     */
+    public LatencySnapshot getDiskGetLatency() {
+        return diskGetLatency;
+    }
+
+    /**
+     * @return the time spent in {@link CacheSerializer#toString(Object)}.
+     */
+    public LatencySnapshot getSerializeLatency() {
+        return serializeLatency;
+    }
+
+    /**
+     * @return the time spent in {@link CacheSerializer#fromString(String)}.
+     */
+    public LatencySnapshot getDeserializeLatency() {
+        return deserializeLatency;
+    }
+
+    /**
+     * @return the time spent waiting for the locks protecting the disk layer.
+     */
+    public LatencySnapshot getLockWaitLatency() {
+        return lockWaitLatency;
+    }
+
+    /**
+     * @return the estimated hit ratio of the RAM layer with other maximum sizes, or null if the
+     * RAM layer is disabled or the cache does not estimate it.
+     */
+    public HitRatioCurve getRamHitRatioCurve() {
+        return ramHitRatioCurve;
+    }
+
+    /**
+     * @return the estimated hit ratio of the disk layer with other maximum sizes, or null if the
+     * disk layer is disabled or the cache does not estimate it.
+     */
+    public HitRatioCurve getDiskHitRatioCurve() {
+        return diskHitRatioCurve;
+    }
+
+    private static double rate(long hits, long misses) {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return "DualCacheStats[ramHits=" + ramHitCount
+            + ",ramMisses=" + ramMissCount
+            + ",ramEvictions=" + ramEvictionCount
+            + ",diskHits=" + diskHitCount
+            + ",diskMisses=" + diskMissCount
+            + ",diskEvictions=" + diskEvictionCount
+            + ",ramGet=" + ramGetLatency
+            + ",diskGet=" + diskGetLatency
+            + ",serialize=" + serializeLatency
+            + ",deserialize=" + deserializeLatency
+            + ",lockWait=" + lockWaitLatency
+            + ",ramCurve=" + ramHitRatioCurve
+            + ",diskCurve=" + diskHitRatioCurve
+            + "]";
+    }
+}
@@ -0,0 +1,64 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+/**
+ * Immutable estimate of the hit ratio a layer of the cache would have with other maximum sizes,
+ * computed online on a sample of the keys. It tells whether giving more (or less) space to the
+ * layer would pay off, for the current traffic.
+ */
+public final class HitRatioCurve {
+
+    private final long maxSizeBytes;
+    private final double[] sizeFactors;
+    private final double[] hitRatios;
+    private final long sampledLookupCount;
+
+    HitRatioCurve(long maxSizeBytes, double[] sizeFactors, double[] hitRatios,
+                  long sampledLookupCount) {
+        this.maxSizeBytes = maxSizeBytes;
+        this.sizeFactors = sizeFactors;
+        this.hitRatios = hitRatios;
+        this.sampledLookupCount = sampledLookupCount;
+    }
+
+    /**
+     * @return the current maximum size of the layer.
+     */
+    public long getMaxSizeBytes() {
+        return maxSizeBytes;
+    }
+
+    /**
+     * @return the number of lookups the estimate is based on. Estimates based on a few hundred
+     * lookups or less are not reliable.
+     */
+    public long getSampledLookupCount() {
+        return sampledLookupCount;
+    }
+
+    /**
+     * Return the estimated hit ratio of the layer if its maximum size was multiplied by the given
+     * factor. The available factors are 0.5, 1, 2 and 4.
+     *
+     * @param sizeFactor is the factor applied to the current maximum size.
+     * @return the estimated hit ratio, between 0 and 1.
+     */
+    public double getHitRatio(double sizeFactor) {
+        for (int i = 0; i < sizeFactors.length; i++) {
+            if (sizeFactors[i] == sizeFactor) {
+                return hitRatios[i];
+            }
+        }
+        throw new IllegalArgumentException("No estimate for the size factor " + sizeFactor);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("HitRatioCurve[maxSizeBytes=")
+            .append(maxSizeBytes);
+        for (int i = 0; i < sizeFactors.length; i++) {
+            builder.append(',').append(sizeFactors[i]).append("x=")
+                .append(String.format("%.3f", hitRatios[i]));
+        }
+        return builder.append(']').toString();
+    }
+}
@@ -0,0 +1,272 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estimate online the hit ratio a layer would have with other maximum sizes, by sampling keys
+ * spatially (SHARDS): only the keys whose hash is below a threshold are tracked, and the reuse
+ * distance of each of their lookups, in bytes, is scaled by the sampling rate. With a least
+ * recently used policy, a lookup hits in a layer of size S if the objects used since the
+ * previous use of the key, plus the object itself, fit in S.
+ *
+ * <p>Because a few hot keys carry most of the hits, the sampled lookups are compared with the
+ * number expected from the sampling rate, and the difference is counted as hits at the smallest
+ * distance (SHARDS-adj), which corrects the bias of a sample missing or over-representing them.
+ *
+ * <p>The number of tracked keys is bounded: once it is exceeded, the threshold is halved and the
+ * keys above it are dropped. Counts are halved periodically so the curve follows the traffic.
+ * Keys which are not sampled only cost a hash computation.
+ */
+final class HitRatioCurveEstimator {
+
+    static final double[] SIZE_FACTORS = {0.5, 1, 2, 4};
+
+    private static final int HASH_RANGE = 1 << 24;
+    private static final int INITIAL_THRESHOLD = HASH_RANGE / 8;
+    private static final int MAX_TRACKED_KEYS = 4096;
+    private static final long DECAY_PERIOD = 1 << 16;
+
+    private final long maxSizeBytes;
+    private final long[] capacities = new long[SIZE_FACTORS.length];
+    private volatile int threshold = INITIAL_THRESHOLD;
+    private final StripedCounter allLookups = new StripedCounter();
+
+    // Guarded by this.
+    private final Map<String, Sample> samples = new HashMap<>();
+    private final long[] hitCounts = new long[SIZE_FACTORS.length];
+    private long lookupCount;
+    /** Number of sampled lookups expected from the sampling rate, decayed like the counts. */
+    private double expectedLookupCount;
+    private long countedLookups;
+    private int clock;
+    /** Fenwick tree of the sizes of the samples, indexed by the time of their last use. */
+    private long[] sizesByTime = new long[4 * MAX_TRACKED_KEYS + 1];
+
+    HitRatioCurveEstimator(long maxSizeBytes) {
+        this.maxSizeBytes = maxSizeBytes;
+        for (int i = 0; i < SIZE_FACTORS.length; i++) {
+            capacities[i] = (long) (maxSizeBytes * SIZE_FACTORS[i]);
+        }
+    }
+
+    /**
+     * @param key is the key of the object.
+     * @return true if the accesses to this key are tracked. Callers can skip computing the size
+     * of objects which are not.
+     */
+    boolean isSampled(String key) {
+        return hash(key) < threshold;
+    }
+
+    /**
+     * Record a lookup in the layer.
+     *
+     * @param key is the key of the object.
+     */
+    void recordLookup(String key) {
+        allLookups.increment();
+        if (isSampled(key)) {
+            synchronized (this) {
+                record(key, -1);
+            }
+        }
+    }
+
+    /**
+     * Record a write in the layer, which makes the object the most recently used one.
+     *
+     * @param key  is the key of the object.
+     * @param size is the size of the object in the layer.
+     */
+    void recordWrite(String key, long size) {
+        if (isSampled(key)) {
+            synchronized (this) {
+                record(key, size);
+            }
+        }
+    }
+
+    /**
+     * Record the removal of an object from the layer.
+     *
+     * @param key is the key of the object.
+     */
+    void recordRemoval(String key) {
+        if (isSampled(key)) {
+            synchronized (this) {
+                Sample sample = samples.remove(key);
+                if (sample != null) {
+                    add(sample.time, -sample.size);
+                }
+            }
+        }
+    }
+
+    /**
+     * Record the removal of all the objects from the layer.
+     */
+    synchronized void recordInvalidation() {
+        samples.clear();
+        sizesByTime = new long[sizesByTime.length];
+        clock = 0;
+    }
+
+    synchronized HitRatioCurve snapshot() {
+        countLookups();
+        double[] hitRatios = new double[SIZE_FACTORS.length];
+        double adjustment = expectedLookupCount - lookupCount;
+        double total = Math.max(expectedLookupCount, lookupCount);
+        for (int i = 0; i < hitRatios.length; i++) {
+            double hits = Math.max(0, hitCounts[i] + adjustment);
+            hitRatios[i] = total == 0 ? 0 : Math.min(1, hits / total);
+        }
+        return new HitRatioCurve(maxSizeBytes, SIZE_FACTORS.clone(), hitRatios, lookupCount);
+    }
+
+    /**
+     * @param size is the size of the written object, or -1 for a lookup.
+     */
+    private void record(String key, long size) {
+        int hash = hash(key);
+        if (hash >= threshold) {
+            return;
+        }
+        Sample sample = samples.get(key);
+        if (size < 0) {
+            recordLookup(sample);
+            if (sample == null) {
+                // The size of the object is unknown until it is written.
+                return;
+            }
+        }
+        if (sample == null) {
+            sample = new Sample(hash);
+            samples.put(key, sample);
+            if (samples.size() > MAX_TRACKED_KEYS) {
+                lowerThreshold();
+                if (hash >= threshold) {
+                    return;
+                }
+            }
+        } else {
+            add(sample.time, -sample.size);
+        }
+        if (size >= 0) {
+            sample.size = size;
+        }
+        if (clock == sizesByTime.length - 1) {
+            compact();
+        }
+        sample.time = ++clock;
+        add(sample.time, sample.size);
+    }
+
+    private void recordLookup(Sample sample) {
+        countLookups();
+        lookupCount++;
+        if (sample != null) {
+            double samplingRate = (double) threshold / HASH_RANGE;
+            long usedSince = sum(clock) - sum(sample.time);
+            long distance = (long) (usedSince / samplingRate) + sample.size;
+            for (int i = 0; i < capacities.length; i++) {
+                if (distance <= capacities[i]) {
+                    hitCounts[i]++;
+                }
+            }
+        }
+        if (lookupCount >= DECAY_PERIOD) {
+            lookupCount /= 2;
+            expectedLookupCount /= 2;
+            for (int i = 0; i < hitCounts.length; i++) {
+                hitCounts[i] /= 2;
+            }
+        }
+    }
+
+    /**
+     * Add the lookups of all the keys made since the last call to the expected number of sampled
+     * lookups, at the current sampling rate.
+     */
+    private void countLookups() {
+        long all = allLookups.sum();
+        expectedLookupCount += (all - countedLookups) * ((double) threshold / HASH_RANGE);
+        countedLookups = all;
+    }
+
+    /**
+     * Halve the sampling rate, dropping the samples above the new threshold.
+     */
+    private void lowerThreshold() {
+        threshold /= 2;
+        Iterator<Sample> iterator = samples.values().iterator();
+        while (iterator.hasNext()) {
+            Sample sample = iterator.next();
+            if (sample.hash >= threshold) {
+                if (sample.time > 0) {
+                    add(sample.time, -sample.size);
+                }
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Renumber the times of the samples from 1, keeping their order, once the clock reaches the
+     * end of the tree.
+     */
+    private void compact() {
+        List<Sample> ordered = new ArrayList<>(samples.values());
+        Collections.sort(ordered, new Comparator<Sample>() {
+            @Override
+            public int compare(Sample lhs, Sample rhs) {
+                return lhs.time < rhs.time ? -1 : (lhs.time == rhs.time ? 0 : 1);
+            }
+        });
+        sizesByTime = new long[sizesByTime.length];
+        clock = 0;
+        for (Sample sample : ordered) {
+            if (sample.time > 0) {
+                sample.time = ++clock;
+                add(sample.time, sample.size);
+            }
+        }
+    }
+
+    private void add(int time, long size) {
+        for (int i = time; i < sizesByTime.length; i += i & -i) {
+            sizesByTime[i] += size;
+        }
+    }
+
+    private long sum(int time) {
+        long sum = 0;
+        for (int i = time; i > 0; i -= i & -i) {
+            sum += sizesByTime[i];
+        }
+        return sum;
+    }
+
+    private static int hash(String key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h & (HASH_RANGE - 1);
+    }
+
+    private static final class Sample {
+        private final int hash;
+        private int time;
+        private long size;
+
+        private Sample(int hash) {
+            this.hash = hash;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * List of the hottest keys of a cache, stored in its disk folder so that the RAM layer can be
+ * warmed up from the disk layer after a restart. The file holds a version, the number of keys,
+ * and the keys, the hottest first. Its name can not be mistaken for an entry, since the keys of
+ * the disk layer do not contain any dot.
+ */
+final class HotKeyManifest {
+
+    private static final String FILE_NAME = "hotkeys.manifest";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+    private static final int VERSION = 1;
+
+    private final File diskFolder;
+
+    /**
+     * @param diskFolder is the folder of the disk cache.
+     */
+    HotKeyManifest(File diskFolder) {
+        this.diskFolder = diskFolder;
+    }
+
+    /**
+     * Replace the manifest with the given keys. The keys are written to a temporary file renamed
+     * over the manifest, so that a crash never leaves a truncated one.
+     *
+     * @param keys are the keys to record, the hottest first.
+     * @throws IOException if the manifest can not be written.
+     */
+    void write(List<String> keys) throws IOException {
+        File temp = File.createTempFile(FILE_NAME, TEMP_FILE_SUFFIX, diskFolder);
+        try {
+            FileOutputStream fileOut = new FileOutputStream(temp);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut));
+            try {
+                out.writeInt(VERSION);
+                out.writeInt(keys.size());
+                for (String key : keys) {
+                    out.writeUTF(key);
+                }
+                out.flush();
+                fileOut.getFD().sync();
+            } finally {
+                out.close();
+            }
+            if (!temp.renameTo(new File(diskFolder, FILE_NAME))) {
+                throw new IOException("Can not rename " + temp);
+            }
+        } finally {
+            if (temp.exists() && !temp.delete()) {
+                temp.deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * @return the keys recorded, the hottest first, or an empty list if there is no manifest.
+     * @throws IOException if the manifest can not be read.
+     */
+    List<String> read() throws IOException {
+        List<String> keys = new ArrayList<>();
+        DataInputStream in;
+        try {
+            in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(new File(diskFolder, FILE_NAME))));
+        } catch (FileNotFoundException e) {
+            return keys;
+        }
+        try {
+            if (in.readInt() != VERSION) {
+                return keys;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                keys.add(in.readUTF());
+            }
+        } finally {
+            in.close();
+        }
+        return keys;
+    }
+}
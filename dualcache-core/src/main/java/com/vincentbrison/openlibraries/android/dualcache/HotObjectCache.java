@@ -0,0 +1,75 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+/**
+ * Small LRU cache of the objects deserialized from the RAM layer, keyed by the serialized form
+ * they have been decoded from: a hit only counts if the RAM layer still holds that very string,
+ * so that any write or removal of the key makes the decoded object stale without having to keep
+ * both caches in sync.
+ *
+ * @param <T> is the class of object stored in the cache.
+ */
+final class HotObjectCache<T> {
+
+    private final RamLruCache<String, HotObject<T>> objects;
+    private final CacheCopier<T> copier;
+
+    /**
+     * @param maxObjects is the maximum number of decoded objects kept.
+     * @param copier     copies the objects handed out, or null to share the instances.
+     */
+    HotObjectCache(int maxObjects, CacheCopier<T> copier) {
+        this.objects = new RamLruCache<>(maxObjects);
+        this.copier = copier;
+    }
+
+    /**
+     * @param key        is the key of the object.
+     * @param serialized is the serialized form found in the RAM layer.
+     * @return the object decoded from this serialized form, or null if it is not kept.
+     */
+    T get(String key, String serialized) {
+        HotObject<T> hotObject = objects.get(key);
+        if (hotObject == null || hotObject.serialized != serialized) {
+            return null;
+        }
+        return handOut(hotObject.object);
+    }
+
+    /**
+     * Keep an object decoded from the RAM layer.
+     *
+     * @param key        is the key of the object.
+     * @param serialized is the serialized form the object has been decoded from.
+     * @param object     is the decoded object.
+     * @return the object to give to the caller.
+     */
+    T put(String key, String serialized, T object) {
+        if (object == null) {
+            return null;
+        }
+        objects.put(key, new HotObject<>(serialized, object));
+        return handOut(object);
+    }
+
+    void remove(String key) {
+        objects.remove(key);
+    }
+
+    void clear() {
+        objects.evictAll();
+    }
+
+    private T handOut(T object) {
+        return copier == null ? object : copier.copy(object);
+    }
+
+    private static final class HotObject<T> {
+        private final String serialized;
+        private final T object;
+
+        private HotObject(String serialized, T object) {
+            this.serialized = serialized;
+            this.object = object;
+        }
+    }
+}
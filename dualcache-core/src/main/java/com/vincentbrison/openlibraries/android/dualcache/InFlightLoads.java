@@ -0,0 +1,68 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Coalesce concurrent loads of the same key: the first caller runs the load, callers arriving
+ * while it is in flight wait for its result instead of starting their own.
+ *
+ * @param <V> is the class of object loaded.
+ */
+final class InFlightLoads<V> {
+
+    private final ConcurrentMap<String, FutureTask<V>> loads = new ConcurrentHashMap<>();
+
+    /**
+     * Run the given load for the key, or wait for the one already in flight.
+     *
+     * @param key  is the key of the object to load.
+     * @param load computes the object. Runs on the calling thread of the first caller.
+     * @return the result of the load.
+     */
+    V load(String key, Callable<V> load) {
+        FutureTask<V> task = new FutureTask<>(load);
+        FutureTask<V> inFlight = loads.putIfAbsent(key, task);
+        if (inFlight == null) {
+            try {
+                task.run();
+            } finally {
+                loads.remove(key, task);
+            }
+            inFlight = task;
+        }
+        return getUninterruptibly(inFlight);
+    }
+
+    private V getUninterruptibly(FutureTask<V> task) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return task.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    throw propagate(e.getCause());
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static RuntimeException propagate(Throwable cause) {
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new IllegalStateException("Loading failed", cause);
+    }
+}
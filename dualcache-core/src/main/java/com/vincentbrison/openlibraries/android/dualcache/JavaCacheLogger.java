@@ -0,0 +1,28 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+import java.util.logging.Level;
+
+/**
+ * Write the logs of the library with {@link java.util.logging}, one logger per tag. It is the
+ * default outside of Android.
+ */
+final class JavaCacheLogger implements CacheLogger {
+
+    @Override
+    public void log(int priority, String tag, String msg, Throwable error) {
+        java.util.logging.Logger.getLogger(tag).log(levelOf(priority), msg, error);
+    }
+
+    private static Level levelOf(int priority) {
+        switch (priority) {
+            case VERBOSE:
+                return Level.FINE;
+            case INFO:
+                return Level.INFO;
+            case WARN:
+                return Level.WARNING;
+            default:
+                return Level.SEVERE;
+        }
+    }
+}
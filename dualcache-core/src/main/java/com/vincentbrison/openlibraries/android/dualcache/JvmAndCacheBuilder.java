@@ -0,0 +1,33 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+/**
+ * Class used to build a cache on a plain JVM, where the disk folder is always given explicitly
+ * with {@link #diskCacheDir(java.io.File)}.
+ */
+public final class JvmAndCacheBuilder extends BaseAndCacheBuilder<JvmAndCacheBuilder> {
+
+    /**
+     * Start the building of the cache.
+     *
+     * @param id         is the id of the cache (should be unique).
+     * @param appVersion is the app version of the app. If data are already stored in disk cache
+     *                   with previous app version, it will be invalidate.
+     */
+    public JvmAndCacheBuilder(String id, int appVersion) {
+        super(id, appVersion);
+    }
+
+    @Override
+    protected JvmAndCacheBuilder self() {
+        return this;
+    }
+
+    /**
+     * Builder the cache. Exception will be thrown if it can not be created.
+     *
+     * @return the cache instance.
+     */
+    public AndCache build() {
+        return build(null);
+    }
+}
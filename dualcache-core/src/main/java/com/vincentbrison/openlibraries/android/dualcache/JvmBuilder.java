@@ -0,0 +1,25 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+/**
+ * Class used to build a cache on a plain JVM, where the disk folder is always given explicitly.
+ *
+ * @param <T> is the class of object to store in cache.
+ */
+public final class JvmBuilder<T> extends BaseBuilder<T, JvmBuilder<T>> {
+
+    /**
+     * Start the building of the cache.
+     *
+     * @param id         is the id of the cache (should be unique).
+     * @param appVersion is the app version of the app. If data are already stored in disk cache
+     *                   with previous app version, it will be invalidate.
+     */
+    public JvmBuilder(String id, int appVersion) {
+        super(id, appVersion);
+    }
+
+    @Override
+    protected JvmBuilder<T> self() {
+        return this;
+    }
+}
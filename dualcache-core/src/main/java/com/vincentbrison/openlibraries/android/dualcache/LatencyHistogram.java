@@ -0,0 +1,50 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of durations in nanoseconds, with log-scaled buckets: each power of two is split into
+ * {@link #SUB_BUCKETS} buckets, which bounds the relative error of a reported value to 25%.
+ */
+final class LatencyHistogram {
+
+    static final int SUB_BUCKETS = 4;
+    static final int BUCKETS = 62 * SUB_BUCKETS;
+
+    private static final int SUB_BUCKET_BITS = 2;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final StripedCounter totalNanos = new StripedCounter();
+
+    void record(long nanos) {
+        long value = Math.max(0, nanos);
+        buckets.incrementAndGet(bucketOf(value));
+        totalNanos.add(value);
+    }
+
+    LatencySnapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return new LatencySnapshot(counts, totalNanos.sum());
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return Math.min(BUCKETS - 1, (exponent - 1) * SUB_BUCKETS + subBucket);
+    }
+
+    static long lowerBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + 1;
+        long subBucket = bucket % SUB_BUCKETS;
+        return (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+    }
+}
@@ -0,0 +1,88 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+/**
+ * Immutable snapshot of the durations recorded for one kind of cache operation. Durations are
+ * kept in log-scaled buckets, so percentiles are approximated by the upper bound of their bucket
+ * (at most 25% above the actual value).
+ */
+public final class LatencySnapshot {
+
+    private final long[] bucketCounts;
+    private final long count;
+    private final long totalNanos;
+
+    LatencySnapshot(long[] bucketCounts, long totalNanos) {
+        this.bucketCounts = bucketCounts;
+        this.totalNanos = totalNanos;
+        long sum = 0;
+        for (long bucketCount : bucketCounts) {
+            sum += bucketCount;
+        }
+        this.count = sum;
+    }
+
+    /**
+     * Return the number of recorded operations.
+     *
+     * @return the number of recorded operations.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Return the sum of the durations of all recorded operations.
+     *
+     * @return the total duration in nanoseconds.
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * Return the mean duration of the recorded operations.
+     *
+     * @return the mean duration in nanoseconds, or 0 if nothing has been recorded.
+     */
+    public double getMeanNanos() {
+        return count == 0 ? 0 : (double) totalNanos / count;
+    }
+
+    /**
+     * Return an approximation of a percentile of the recorded durations.
+     *
+     * @param percentile is the percentile to compute, between 0 and 100.
+     * @return the upper bound of the bucket holding the percentile in nanoseconds, or 0 if nothing
+     * has been recorded.
+     */
+    public long getPercentileNanos(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100");
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < bucketCounts.length; bucket++) {
+            seen += bucketCounts[bucket];
+            if (seen >= rank) {
+                return upperBoundOf(bucket);
+            }
+        }
+        return upperBoundOf(bucketCounts.length - 1);
+    }
+
+    private static long upperBoundOf(int bucket) {
+        if (bucket == LatencyHistogram.BUCKETS - 1) {
+            return Long.MAX_VALUE;
+        }
+        return LatencyHistogram.lowerBoundOf(bucket + 1) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Latency[count=%d,mean=%.0fns,p50=%dns,p99=%dns]",
+            count, getMeanNanos(), getPercentileNanos(50), getPercentileNanos(99));
+    }
+}
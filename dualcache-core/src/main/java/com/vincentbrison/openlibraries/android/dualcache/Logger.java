@@ -16,23 +16,28 @@
 
 package com.vincentbrison.openlibraries.android.dualcache;
 
-import android.util.Log;
-
 /**
  * This class provide a logging instance to the library.
  */
 final class Logger {
 
     private static final String DEFAULT_LOG_TAG = "dualcache";
-    private final boolean isLogEnable;
+    private final CacheLogger sink;
+
+    /**
+     * @param sink writes the logs, or null to disable them.
+     */
+    Logger(CacheLogger sink) {
+        this.sink = sink;
+    }
 
-    Logger(boolean isLogEnable) {
-        this.isLogEnable = isLogEnable;
+    boolean isLogEnabled() {
+        return sink != null;
     }
 
     private void log(int lvl, String tag, String msg) {
-        if (isLogEnable) {
-            Log.println(lvl, tag, msg);
+        if (sink != null) {
+            sink.log(lvl, tag, msg, null);
         }
     }
 
@@ -42,7 +47,7 @@ final class Logger {
      * @param msg is the msg to log.
      */
     void logInfo(String tag, String msg) {
-        log(Log.INFO, tag, msg);
+        log(CacheLogger.INFO, tag, msg);
     }
 
     /**
@@ -50,7 +55,7 @@ final class Logger {
      * @param msg is the msg to log.
      */
     void logInfo(String msg) {
-        log(Log.INFO, DEFAULT_LOG_TAG, msg);
+        log(CacheLogger.INFO, DEFAULT_LOG_TAG, msg);
     }
 
     /**
@@ -58,7 +63,7 @@ final class Logger {
      * @param msg is the msg to log.
      */
     void logVerbose(String msg) {
-        log(Log.VERBOSE, DEFAULT_LOG_TAG, msg);
+        log(CacheLogger.VERBOSE, DEFAULT_LOG_TAG, msg);
     }
 
     /**
@@ -66,7 +71,7 @@ final class Logger {
      * @param msg is the msg to log.
      */
     void logWarning(String msg) {
-        log(Log.WARN, DEFAULT_LOG_TAG, msg);
+        log(CacheLogger.WARN, DEFAULT_LOG_TAG, msg);
     }
 
     /**
@@ -74,8 +79,8 @@ final class Logger {
      * @param error is the error to log.
      */
     void logError(Throwable error) {
-        if (isLogEnable) {
-            Log.e(DEFAULT_LOG_TAG, "error : ", error);
+        if (sink != null) {
+            sink.log(CacheLogger.ERROR, DEFAULT_LOG_TAG, "error : ", error);
         }
     }
 }
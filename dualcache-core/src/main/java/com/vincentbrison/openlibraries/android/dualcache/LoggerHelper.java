@@ -0,0 +1,46 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+/**
+ * Log the events of a cache with {@link Logger}. Only registered when the log is enabled, so the
+ * messages are never built otherwise.
+ */
+class LoggerHelper implements CacheEventListener {
+
+    private static final String LOG_PREFIX = "Entry for ";
+
+    private final Logger logger;
+
+    LoggerHelper(Logger logger) {
+        this.logger = logger;
+    }
+
+    @Override
+    public void onWrite(String key) {
+        logger.logInfo(LOG_PREFIX + key + " is saved in cache.");
+    }
+
+    @Override
+    public void onRamHit(String key) {
+        logger.logInfo(LOG_PREFIX + key + " is in RAM.");
+    }
+
+    @Override
+    public void onRamMiss(String key) {
+        logger.logInfo(LOG_PREFIX + key + " is not in RAM.");
+    }
+
+    @Override
+    public void onDiskHit(String key) {
+        logger.logInfo(LOG_PREFIX + key + " is on disk.");
+    }
+
+    @Override
+    public void onDiskMiss(String key) {
+        logger.logInfo(LOG_PREFIX + key + " is not on disk.");
+    }
+
+    @Override
+    public void onEvict(String key) {
+        logger.logInfo(LOG_PREFIX + key + " is evicted from RAM.");
+    }
+}
@@ -16,8 +16,11 @@
 
 package com.vincentbrison.openlibraries.android.dualcache;
 
-import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -156,6 +159,42 @@ class RamLruCache<K, V> {
         }
     }
 
+    /**
+     * Returns the values cached for {@code keys}, looked up under a single
+     * acquisition of the cache lock. Keys without a cached value are absent from
+     * the returned map. Returned values are moved to the head of the queue.
+     * Unlike {@link #get}, this never calls {@link #create}.
+     */
+    public final Map<K, V> getAll(Collection<? extends K> keys) {
+        Map<K, V> result = new LinkedHashMap<K, V>();
+        synchronized (this) {
+            for (K key : keys) {
+                if (key == null) {
+                    throw new NullPointerException("key == null");
+                }
+                V mapValue = map.get(key);
+                if (mapValue != null) {
+                    hitCount++;
+                    result.put(key, mapValue);
+                } else {
+                    missCount++;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns true if a value exists for {@code key}. Unlike {@link #get}, this
+     * does not move the value to the head of the queue nor count a hit or miss.
+     */
+    public synchronized final boolean containsKey(K key) {
+        if (key == null) {
+            throw new NullPointerException("key == null");
+        }
+        return map.containsKey(key);
+    }
+
     /**
      * Caches {@code value} for {@code key}. The value is moved to the head of
      * the queue.
@@ -185,6 +224,40 @@ class RamLruCache<K, V> {
         return previous;
     }
 
+    /**
+     * Caches all the given entries under a single acquisition of the cache
+     * lock, then trims the cache once.
+     */
+    public final void putAll(Map<? extends K, ? extends V> entries) {
+        List<K> replacedKeys = new ArrayList<K>();
+        List<V> previousValues = new ArrayList<V>();
+        List<V> newValues = new ArrayList<V>();
+        synchronized (this) {
+            for (Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+                K key = entry.getKey();
+                V value = entry.getValue();
+                if (key == null || value == null) {
+                    throw new NullPointerException("key == null || value == null");
+                }
+                putCount++;
+                size += safeSizeOf(key, value);
+                V previous = map.put(key, value);
+                if (previous != null) {
+                    size -= safeSizeOf(key, previous);
+                    replacedKeys.add(key);
+                    previousValues.add(previous);
+                    newValues.add(value);
+                }
+            }
+        }
+
+        for (int i = 0; i < replacedKeys.size(); i++) {
+            entryRemoved(false, replacedKeys.get(i), previousValues.get(i), newValues.get(i));
+        }
+
+        trimToSize(maxSize);
+    }
+
     /**
      * Remove the eldest entries until the total of remaining entries is at or
      * below the requested size.
@@ -205,20 +278,12 @@ class RamLruCache<K, V> {
                 if (size <= maxSize) {
                     break;
                 }
-                Map.Entry<K, V> toEvict = null;
-                try {
-                    toEvict = (Map.Entry<K, V>) map.getClass().getMethod("eldest").invoke(map);
-
-                } catch (NoSuchMethodException e) {
-                    e.printStackTrace();
-                } catch (InvocationTargetException e) {
-                    e.printStackTrace();
-                } catch (IllegalAccessException e) {
-                    e.printStackTrace();
-                }
-                if (toEvict == null) {
+                // The map is in access order, so its first entry is the least recently used one.
+                // LinkedHashMap.eldest() would do the same but only exists on Android.
+                if (map.isEmpty()) {
                     break;
                 }
+                Map.Entry<K, V> toEvict = map.entrySet().iterator().next();
                 key = toEvict.getKey();
                 value = toEvict.getValue();
                 map.remove(key);
@@ -254,6 +319,32 @@ class RamLruCache<K, V> {
         return previous;
     }
 
+    /**
+     * Removes the entries for all the given keys under a single acquisition of
+     * the cache lock.
+     */
+    public final void removeAll(Collection<? extends K> keys) {
+        List<K> removedKeys = new ArrayList<K>();
+        List<V> previousValues = new ArrayList<V>();
+        synchronized (this) {
+            for (K key : keys) {
+                if (key == null) {
+                    throw new NullPointerException("key == null");
+                }
+                V previous = map.remove(key);
+                if (previous != null) {
+                    size -= safeSizeOf(key, previous);
+                    removedKeys.add(key);
+                    previousValues.add(previous);
+                }
+            }
+        }
+
+        for (int i = 0; i < removedKeys.size(); i++) {
+            entryRemoved(false, removedKeys.get(i), previousValues.get(i), null);
+        }
+    }
+
     /**
      * Called for entries that have been evicted or removed. This method is
      * invoked when a value is evicted to make space, removed by a call to
@@ -379,6 +470,38 @@ class RamLruCache<K, V> {
         return new LinkedHashMap<K, V>(map);
     }
 
+    /**
+     * Returns the keys of the {@code maxCount} most recently accessed entries,
+     * ordered from most recently accessed to least recently accessed. Unlike
+     * {@link #snapshot}, the values are not copied.
+     */
+    public synchronized final List<K> recentKeys(int maxCount) {
+        int skipped = map.size() - maxCount;
+        List<K> keys = new ArrayList<K>(Math.min(map.size(), Math.max(0, maxCount)));
+        for (K key : map.keySet()) {
+            if (skipped-- <= 0) {
+                keys.add(key);
+            }
+        }
+        Collections.reverse(keys);
+        return keys;
+    }
+
+    /**
+     * Returns the keys of the {@code maxCount} least recently accessed entries,
+     * ordered from least recently accessed to most recently accessed.
+     */
+    public synchronized final List<K> eldestKeys(int maxCount) {
+        List<K> keys = new ArrayList<K>(Math.min(map.size(), Math.max(0, maxCount)));
+        for (K key : map.keySet()) {
+            if (keys.size() >= maxCount) {
+                break;
+            }
+            keys.add(key);
+        }
+        return keys;
+    }
+
     @Override public synchronized final String toString() {
         int accesses = hitCount + missCount;
         int hitPercent = accesses != 0 ? (100 * hitCount / accesses) : 0;
@@ -0,0 +1,138 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Copy of the content of a RAM layer in a single file, written when the cache is closed and
+ * read back in one sequential pass when it is built again. The file holds a version, the app
+ * version, the format of the values, the number of entries, and the entries from the least
+ * recently used to the most recently used, so that putting them back in this order restores the
+ * LRU order. Each entry is a key and a value, both in UTF-8 prefixed by their length.
+ */
+final class RamSnapshot {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+    private static final int VERSION = 1;
+    /** The values are the strings held by a serializing RAM layer. */
+    private static final int FORMAT_RAM_SERIALIZED = 0;
+    /** The values are objects held by reference, serialized with the disk serializer. */
+    private static final int FORMAT_DISK_SERIALIZED = 1;
+
+    private final File file;
+    private final int appVersion;
+    private final CacheSerializer<Object> serializer;
+
+    /**
+     * @param file       is the file of the snapshot.
+     * @param appVersion is the app version, a snapshot of another one is ignored.
+     * @param serializer serializes the objects held by reference, or null if the RAM layer holds
+     *                   serialized strings.
+     */
+    RamSnapshot(File file, int appVersion, CacheSerializer<Object> serializer) {
+        this.file = file;
+        this.appVersion = appVersion;
+        this.serializer = serializer;
+    }
+
+    /**
+     * Replace the snapshot with the given entries. They are written to a temporary file renamed
+     * over the snapshot, so that a crash never leaves a truncated one.
+     *
+     * @param entries are the entries of the RAM layer, the least recently used first.
+     * @throws IOException if the snapshot can not be written.
+     */
+    void write(Map<String, ?> entries) throws IOException {
+        File folder = file.getAbsoluteFile().getParentFile();
+        File temp = File.createTempFile(file.getName(), TEMP_FILE_SUFFIX, folder);
+        try {
+            FileOutputStream fileOut = new FileOutputStream(temp);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut));
+            try {
+                out.writeInt(VERSION);
+                out.writeInt(appVersion);
+                out.writeByte(format());
+                out.writeInt(entries.size());
+                for (Map.Entry<String, ?> entry : entries.entrySet()) {
+                    writeString(out, entry.getKey());
+                    writeString(out, serializer == null
+                        ? (String) entry.getValue() : serializer.toString(entry.getValue()));
+                }
+                out.flush();
+                fileOut.getFD().sync();
+            } finally {
+                out.close();
+            }
+            if (!temp.renameTo(file)) {
+                throw new IOException("Can not rename " + temp);
+            }
+        } finally {
+            if (temp.exists() && !temp.delete()) {
+                temp.deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Read the snapshot, then delete it, so that it is never restored over the writes made
+     * after it.
+     *
+     * @return the entries, the least recently used first, or null if there is no snapshot of
+     * this app version in this format.
+     * @throws IOException if the snapshot can not be read.
+     */
+    Map<String, Object> read() throws IOException {
+        DataInputStream in;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+        try {
+            if (in.readInt() != VERSION || in.readInt() != appVersion
+                || in.readByte() != format()) {
+                return null;
+            }
+            int count = in.readInt();
+            Map<String, Object> entries = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                String key = readString(in);
+                String value = readString(in);
+                entries.put(key, serializer == null ? value : serializer.fromString(value));
+            }
+            return entries;
+        } finally {
+            in.close();
+            if (!file.delete()) {
+                throw new IOException("Can not delete " + file);
+            }
+        }
+    }
+
+    private int format() {
+        return serializer == null ? FORMAT_RAM_SERIALIZED : FORMAT_DISK_SERIALIZED;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
@@ -0,0 +1,60 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+/**
+ * Tier of a {@link TieredCache} keeping references to the objects in RAM, which makes its hits
+ * the cheapest but returns the stored instances themselves.
+ *
+ * @param <T> is the class of object stored in the tier.
+ */
+public class ReferenceRamTier<T> implements CacheTier<T> {
+
+    private final ReferenceLruCache<T> ramCache;
+    private volatile TierEvictionListener<T> evictionListener;
+
+    /**
+     * @param maxRamSizeBytes is the maximum amount of RAM in bytes used by the tier.
+     * @param sizeOf          computes the size of each object stored in the tier.
+     */
+    public ReferenceRamTier(int maxRamSizeBytes, SizeOf<T> sizeOf) {
+        this.ramCache = new ReferenceLruCache<T>(maxRamSizeBytes, sizeOf) {
+            @Override
+            protected void entryRemoved(boolean evicted, String key, T oldValue, T newValue) {
+                TierEvictionListener<T> listener = evictionListener;
+                if (evicted && listener != null) {
+                    listener.onEvicted(key, oldValue);
+                }
+            }
+        };
+    }
+
+    @Override
+    public T get(String key) {
+        return ramCache.get(key);
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return ramCache.containsKey(key);
+    }
+
+    @Override
+    public void put(String key, T value) {
+        ramCache.put(key, value);
+    }
+
+    @Override
+    public void remove(String key) {
+        ramCache.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        // Removed rather than evicted, so that they are not demoted.
+        ramCache.removeAll(ramCache.snapshot().keySet());
+    }
+
+    @Override
+    public void setEvictionListener(TierEvictionListener<T> listener) {
+        this.evictionListener = listener;
+    }
+}
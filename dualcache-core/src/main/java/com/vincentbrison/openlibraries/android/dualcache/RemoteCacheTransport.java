@@ -0,0 +1,34 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+import java.io.IOException;
+
+/**
+ * Access to a cache shared by several nodes, such as a memcached or Redis server, used as the
+ * remote tier of a cache. The objects are exchanged serialized.
+ *
+ * <p>The calls block until the server answers, they are made on a background executor and the
+ * cache stops waiting for a read after its timeout. An implementation should still set its own
+ * socket timeouts so that the threads making the calls are released.
+ */
+public interface RemoteCacheTransport {
+
+    /**
+     * @param key is the key of the object.
+     * @return the serialized object, or null if the server does not have it.
+     * @throws IOException if the server could not be reached.
+     */
+    String get(String key) throws IOException;
+
+    /**
+     * @param key        is the key of the object.
+     * @param serialized is the serialized object.
+     * @throws IOException if the server could not be reached.
+     */
+    void put(String key, String serialized) throws IOException;
+
+    /**
+     * @param key is the key of the object to remove from the server.
+     * @throws IOException if the server could not be reached.
+     */
+    void remove(String key) throws IOException;
+}
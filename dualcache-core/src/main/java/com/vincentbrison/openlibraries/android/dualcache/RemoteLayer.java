@@ -0,0 +1,175 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Remote tier of a cache, reading and writing serialized objects through a
+ * {@link RemoteCacheTransport}, so that it can only lower the cost of a miss:
+ * <ul>
+ * <li>a read waits at most the timeout, after which it is a miss. The request keeps running in
+ * background, and the reads of the same key arriving meanwhile wait for it instead of sending
+ * their own;</li>
+ * <li>writes are sent in background. Only the last write of a key not sent yet is kept, and the
+ * writes of a key are sent one at a time, in order. Until it is sent, a write answers the reads
+ * of its key;</li>
+ * <li>a failed request is logged and is a miss.</li>
+ * </ul>
+ */
+final class RemoteLayer {
+
+    private final RemoteCacheTransport transport;
+    private final long timeoutNanos;
+    private final Executor executor;
+    private final Logger logger;
+    private final ConcurrentMap<String, FutureTask<String>> inFlightGets =
+        new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, PendingWrite> pendingWrites = new ConcurrentHashMap<>();
+    private final StripedCounter timeoutCount = new StripedCounter();
+
+    /**
+     * @param transport    sends the requests to the remote cache.
+     * @param timeoutNanos is the time after which a read is a miss.
+     * @param executor     sends the requests.
+     * @param logger       logs the failed requests.
+     */
+    RemoteLayer(
+        RemoteCacheTransport transport, long timeoutNanos, Executor executor, Logger logger) {
+        this.transport = transport;
+        this.timeoutNanos = timeoutNanos;
+        this.executor = executor;
+        this.logger = logger;
+    }
+
+    /**
+     * @param key is the key of the object.
+     * @return the serialized object, or null if the remote cache does not have it or did not
+     * answer in time.
+     */
+    String get(final String key) {
+        PendingWrite pending = pendingWrites.get(key);
+        if (pending != null) {
+            return pending.serialized;
+        }
+        FutureTask<String> request = inFlightGets.get(key);
+        if (request == null) {
+            FutureTask<String> newRequest = new FutureTask<String>(new Callable<String>() {
+                @Override
+                public String call() throws IOException {
+                    return transport.get(key);
+                }
+            }) {
+                @Override
+                protected void done() {
+                    inFlightGets.remove(key, this);
+                }
+            };
+            request = inFlightGets.putIfAbsent(key, newRequest);
+            if (request == null) {
+                request = newRequest;
+                try {
+                    executor.execute(newRequest);
+                } catch (RejectedExecutionException e) {
+                    inFlightGets.remove(key, newRequest);
+                    logger.logError(e);
+                    return null;
+                }
+            }
+        }
+        try {
+            return request.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            timeoutCount.increment();
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            logger.logError(e.getCause());
+            return null;
+        }
+    }
+
+    /**
+     * Send the object to the remote cache in background.
+     *
+     * @param key        is the key of the object.
+     * @param serialized is the serialized object.
+     */
+    void put(String key, String serialized) {
+        enqueue(key, new PendingWrite(serialized));
+    }
+
+    /**
+     * Remove the object from the remote cache in background.
+     *
+     * @param key is the key of the object.
+     */
+    void remove(String key) {
+        enqueue(key, new PendingWrite(null));
+    }
+
+    /**
+     * @return the number of reads which were a miss because the remote cache did not answer in
+     * time.
+     */
+    long getTimeoutCount() {
+        return timeoutCount.sum();
+    }
+
+    private void enqueue(final String key, PendingWrite write) {
+        // A read in flight may answer with the object this write replaces.
+        inFlightGets.remove(key);
+        if (pendingWrites.put(key, write) != null) {
+            // The task sending the writes of the key will send this one next.
+            return;
+        }
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    send(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pendingWrites.remove(key, write);
+            logger.logError(e);
+        }
+    }
+
+    private void send(String key) {
+        PendingWrite write = pendingWrites.get(key);
+        while (write != null) {
+            try {
+                if (write.serialized == null) {
+                    transport.remove(key);
+                } else {
+                    transport.put(key, write.serialized);
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.logError(e);
+            }
+            if (pendingWrites.remove(key, write)) {
+                return;
+            }
+            write = pendingWrites.get(key);
+        }
+    }
+
+    private static final class PendingWrite {
+        /** Null for a removal. */
+        private final String serialized;
+
+        PendingWrite(String serialized) {
+            this.serialized = serialized;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tier of a {@link TieredCache} keeping the objects serialized in a cache shared by several
+ * nodes, reached through a {@link RemoteCacheTransport}. It is meant to be the last tier.
+ *
+ * <p>A get waits at most the timeout, after which it is a miss, and the concurrent gets of a key
+ * share a single request. Puts and removals are sent in background, so the tier never slows down
+ * a write. The tier is shared: {@link #clear()} leaves it as it is.
+ *
+ * @param <T> is the class of object stored in the tier.
+ */
+public class RemoteTier<T> implements CacheTier<T> {
+
+    private final RemoteLayer remoteLayer;
+    private final CacheSerializer<T> serializer;
+
+    /**
+     * @param transport  reaches the remote cache.
+     * @param serializer serializes the objects stored in the tier.
+     * @param timeout    is the time after which a get is a miss.
+     * @param unit       is the unit of the timeout.
+     * @param executor   sends the requests, or null to use the shared one. The requests block, so
+     *                   it should be able to run many of them concurrently.
+     * @param logger     logs the failed requests, or null to not log them.
+     */
+    public RemoteTier(
+        RemoteCacheTransport transport,
+        CacheSerializer<T> serializer,
+        long timeout,
+        TimeUnit unit,
+        Executor executor,
+        CacheLogger logger
+    ) {
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("The remote timeout must be positive");
+        }
+        this.remoteLayer = new RemoteLayer(transport, unit.toNanos(timeout),
+            executor == null ? DualCacheExecutors.remote() : executor, new Logger(logger));
+        this.serializer = serializer;
+    }
+
+    @Override
+    public T get(String key) {
+        String serialized = remoteLayer.get(key);
+        return serialized == null ? null : serializer.fromString(serialized);
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return remoteLayer.get(key) != null;
+    }
+
+    @Override
+    public void put(String key, T value) {
+        remoteLayer.put(key, serializer.toString(value));
+    }
+
+    @Override
+    public void remove(String key) {
+        remoteLayer.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        // Other nodes rely on the objects of the shared cache.
+    }
+
+    @Override
+    public void setEvictionListener(TierEvictionListener<T> listener) {
+        // The remote cache evicts on its own.
+    }
+
+    /**
+     * @return the serializer of the objects stored in the tier.
+     */
+    CacheSerializer<T> getSerializer() {
+        return serializer;
+    }
+
+    /**
+     * Same as {@link #get(String)}, without deserializing the object.
+     *
+     * @param key is the key of the object.
+     * @return the serialized object, or null if the tier does not hold it.
+     */
+    String getSerialized(String key) {
+        return remoteLayer.get(key);
+    }
+
+    /**
+     * Same as {@link #put(String, Object)}, for an object already serialized with the serializer
+     * of the tier.
+     *
+     * @param key        is the key of the object.
+     * @param serialized is the serialized object.
+     */
+    void putSerialized(String key, String serialized) {
+        remoteLayer.put(key, serialized);
+    }
+
+    /**
+     * @return the number of gets which were a miss because the remote cache did not answer in
+     * time.
+     */
+    public long getTimeoutCount() {
+        return remoteLayer.getTimeoutCount();
+    }
+}
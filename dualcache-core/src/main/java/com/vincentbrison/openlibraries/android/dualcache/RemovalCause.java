@@ -0,0 +1,28 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+/**
+ * Define why an object has been removed from a layer of the cache.
+ */
+public enum RemovalCause {
+    /**
+     * The object has been evicted to respect the maximum size of the layer, or the quota of its
+     * namespace in the layer.
+     */
+    EVICTED,
+
+    /**
+     * The object has been replaced by a new object put for the same key, or reloaded because it
+     * was older than the refresh interval set with {@link BaseBuilder#refreshAfterWrite}.
+     */
+    REPLACED,
+
+    /**
+     * The object has been deleted by the user, or by a compute function returning null.
+     */
+    EXPLICIT,
+
+    /**
+     * The object has been removed by an invalidation of the layer.
+     */
+    INVALIDATED
+}
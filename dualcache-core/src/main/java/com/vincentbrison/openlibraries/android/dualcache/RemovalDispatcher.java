@@ -0,0 +1,309 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+import com.jakewharton.disklrucache.DiskLruCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Turn the removals of a cache into {@link RemovalNotification}s, delivered to a
+ * {@link RemovalListener} on an executor. Without listener, no notification is created.
+ *
+ * <p>{@link DiskLruCache} evicts entries without telling anyone, so the disk layer is mirrored by
+ * an index of the entry sizes, kept in the same least recently used order. Once the disk layer
+ * trimmed itself, the entries of the index whose file it deleted are the disk evictions. The
+ * index is kept with or without listener, as it also tells the cache which keys are on disk.
+ *
+ * @param <T> is the Class of object cached.
+ */
+final class RemovalDispatcher<T> {
+
+    /**
+     * Cause of the removals done by the current thread, overriding the one deduced from the layer.
+     */
+    private static final ThreadLocal<RemovalCause> CAUSE = new ThreadLocal<>();
+    /** Number of the least recently used entries of the index first checked for an eviction. */
+    private static final int EVICTION_CHECK_BATCH = 8;
+
+    private final RemovalListener<T> listener;
+    private final Executor executor;
+    private final Logger logger;
+    private final CacheSerializer<T> ramSerializer;
+    private final int maxDiskSizeBytes;
+    private final RamLruCache<String, Integer> diskIndex;
+    private File diskFolder;
+    /** True while the disk index is loaded, whose changes are not notified. */
+    private boolean isLoadingDiskIndex;
+
+    /**
+     * @param listener         receives the notifications, may be null.
+     * @param executor         delivers the notifications.
+     * @param ramSerializer    deserializes the values of the RAM layer, or null if the RAM layer
+     *                         holds references.
+     * @param maxDiskSizeBytes is the maximum size of the disk layer, or 0 if it is disabled or
+     *                         does not need to be indexed.
+     */
+    RemovalDispatcher(
+        RemovalListener<T> listener,
+        Executor executor,
+        Logger logger,
+        CacheSerializer<T> ramSerializer,
+        int maxDiskSizeBytes
+    ) {
+        this.listener = listener;
+        this.executor = executor;
+        this.logger = logger;
+        this.ramSerializer = ramSerializer;
+        this.maxDiskSizeBytes = maxDiskSizeBytes;
+        if (maxDiskSizeBytes <= 0) {
+            this.diskIndex = null;
+        } else {
+            // Never trimmed by itself: only the entries the disk layer removed leave the index.
+            this.diskIndex = new RamLruCache<String, Integer>(Integer.MAX_VALUE) {
+                @Override
+                protected int sizeOf(String key, Integer size) {
+                    return size;
+                }
+
+                @Override
+                protected void entryRemoved(
+                    boolean evicted, String key, Integer oldValue, Integer newValue) {
+                    if (RemovalDispatcher.this.listener != null && !isLoadingDiskIndex) {
+                        dispatch(DualCacheLayer.DISK, evicted, key, null, null, newValue);
+                    }
+                }
+            };
+        }
+    }
+
+    /**
+     * Make the current thread report its evictions as {@link RemovalCause#INVALIDATED}, or its
+     * explicit removals as {@link RemovalCause#EVICTED} or {@link RemovalCause#REPLACED}, until
+     * {@link #endCause(RemovalCause)}. Replacements are always reported as
+     * {@link RemovalCause#REPLACED}.
+     *
+     * @param cause is the cause to report.
+     * @return the previous cause, to give back to {@link #endCause(RemovalCause)}.
+     */
+    RemovalCause beginCause(RemovalCause cause) {
+        RemovalCause previous = CAUSE.get();
+        CAUSE.set(cause);
+        return previous;
+    }
+
+    void endCause(RemovalCause previous) {
+        if (previous == null) {
+            CAUSE.remove();
+        } else {
+            CAUSE.set(previous);
+        }
+    }
+
+    /**
+     * @param oldObject     is the removed object, if the RAM layer holds references.
+     * @param oldSerialized is the removed object, if the RAM layer holds serialized objects.
+     * @param newValue      is the value replacing the removed one, or null.
+     */
+    void onRamEntryRemoved(
+        boolean evicted, String key, T oldObject, String oldSerialized, Object newValue) {
+        if (listener != null) {
+            dispatch(DualCacheLayer.RAM, evicted, key, oldObject, oldSerialized, newValue);
+        }
+    }
+
+    /**
+     * Bring the disk index in line with the entries on disk, the oldest files first: fill it
+     * once the disk layer is opened, or catch up with the entries written or removed by other
+     * processes once it is opened again. Those changes are not notified, the cache already
+     * reported the objects other processes changed as {@link RemovalCause#REPLACED} in RAM.
+     *
+     * @param diskFolder is the folder of the disk cache.
+     */
+    synchronized void loadDiskIndex(File diskFolder) {
+        if (diskIndex == null) {
+            return;
+        }
+        this.diskFolder = diskFolder;
+        Map<String, Integer> sizes = new LinkedHashMap<>();
+        for (File file : DiskEntries.listByAge(diskFolder)) {
+            sizes.put(DiskEntries.keyOf(file), DiskEntries.sizeOf(file));
+        }
+        isLoadingDiskIndex = true;
+        try {
+            for (Map.Entry<String, Integer> entry : diskIndex.snapshot().entrySet()) {
+                Integer size = sizes.get(entry.getKey());
+                if (size == null) {
+                    diskIndex.remove(entry.getKey());
+                } else if (size.equals(entry.getValue())) {
+                    sizes.remove(entry.getKey());
+                }
+            }
+            diskIndex.putAll(sizes);
+        } finally {
+            isLoadingDiskIndex = false;
+        }
+    }
+
+    /**
+     * Record a write in the disk layer.
+     *
+     * @param key  is the key of the entry.
+     * @param size is the size of the entry in bytes.
+     * @return true if the entry has been created, false if it has been rewritten.
+     */
+    synchronized boolean onDiskWrite(String key, int size) {
+        return diskIndex == null || diskIndex.put(key, size) == null;
+    }
+
+    /**
+     * Record an entry written in the disk layer by another process. The disk layer does not know
+     * its size until its journal is opened again, so neither does the index.
+     *
+     * @param key is the key of the entry.
+     * @return true if the entry was not indexed yet.
+     */
+    synchronized boolean onForeignDiskWrite(String key) {
+        if (diskIndex == null || diskIndex.containsKey(key)) {
+            return false;
+        }
+        diskIndex.put(key, 0);
+        return true;
+    }
+
+    /**
+     * Record a read in the disk layer, which makes the entry the most recently used one.
+     *
+     * @param key is the key of the entry.
+     */
+    void onDiskRead(String key) {
+        if (diskIndex != null) {
+            diskIndex.get(key);
+        }
+    }
+
+    /**
+     * Remove an entry from the disk layer and record it, so that {@link #onDiskTrimmed(long)}
+     * never sees its file deleted and reports it as evicted.
+     *
+     * @param diskLruCache is the disk layer.
+     * @param key          is the key of the entry.
+     * @return true if the entry has been removed, false if it was not on disk.
+     * @throws IOException if the entry can not be removed.
+     */
+    boolean removeFromDisk(DiskLruCache diskLruCache, String key) throws IOException {
+        if (diskIndex == null) {
+            return diskLruCache.remove(key);
+        }
+        synchronized (this) {
+            if (!diskLruCache.remove(key)) {
+                return false;
+            }
+            diskIndex.remove(key);
+            return true;
+        }
+    }
+
+    /**
+     * Tell whether the entries written in the disk layer exceed its maximum size, so that it
+     * has to evict some of them.
+     */
+    boolean isDiskOverSize() {
+        return diskIndex != null && diskIndex.size() > maxDiskSizeBytes;
+    }
+
+    /**
+     * Report as evicted the entries whose file the disk layer deleted to make space, the least
+     * recently used first, until the index is back to the size of the disk layer.
+     *
+     * @param diskSize is the size of the disk layer in bytes, once trimmed.
+     * @return the keys of the entries evicted.
+     */
+    List<String> onDiskTrimmed(long diskSize) {
+        if (diskIndex == null) {
+            return Collections.emptyList();
+        }
+        List<String> evicted = new ArrayList<>();
+        RemovalCause previous = beginCause(RemovalCause.EVICTED);
+        try {
+            synchronized (this) {
+                int count = EVICTION_CHECK_BATCH;
+                while (diskIndex.size() > diskSize) {
+                    List<String> keys = diskIndex.eldestKeys(count);
+                    for (String key : keys) {
+                        if (diskIndex.size() <= diskSize) {
+                            break;
+                        }
+                        if (!DiskEntries.fileOf(diskFolder, key).exists()) {
+                            diskIndex.remove(key);
+                            evicted.add(key);
+                        }
+                    }
+                    if (keys.size() < count) {
+                        // Every entry has been checked.
+                        break;
+                    }
+                    count *= 2;
+                }
+            }
+        } finally {
+            endCause(previous);
+        }
+        return evicted;
+    }
+
+    /**
+     * Record the deletion of all the entries of the disk layer.
+     */
+    void onDiskInvalidated() {
+        if (diskIndex != null) {
+            RemovalCause previous = beginCause(RemovalCause.INVALIDATED);
+            try {
+                diskIndex.evictAll();
+            } finally {
+                endCause(previous);
+            }
+        }
+    }
+
+    /**
+     * Return the cause of a removal done by the current thread.
+     *
+     * @param evicted  is true if the layer removed the entry to make space.
+     * @param newValue is the value replacing the removed one, or null.
+     * @return the cause of the removal.
+     */
+    RemovalCause causeOf(boolean evicted, Object newValue) {
+        RemovalCause override = CAUSE.get();
+        if (evicted) {
+            return override == RemovalCause.INVALIDATED ? override : RemovalCause.EVICTED;
+        } else if (newValue != null) {
+            return RemovalCause.REPLACED;
+        } else {
+            return override == RemovalCause.EVICTED || override == RemovalCause.REPLACED
+                ? override : RemovalCause.EXPLICIT;
+        }
+    }
+
+    private void dispatch(DualCacheLayer layer, boolean evicted, String key, T oldObject,
+        String oldSerialized, Object newValue) {
+        RemovalCause cause = causeOf(evicted, newValue);
+        final RemovalNotification<T> notification = new RemovalNotification<>(
+            key, layer, cause, oldObject, oldSerialized, ramSerializer);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    listener.onRemoval(notification);
+                } catch (Exception e) {
+                    logger.logError(e);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,22 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+/**
+ * Receive the objects removed from a cache. Register it with
+ * {@link BaseBuilder#useRemovalListener(RemovalListener)}.
+ *
+ * <p>Notifications are delivered asynchronously, on an executor, so a listener never adds latency
+ * to the operations of the cache. They may be delivered in a different order than the removals
+ * happened. A removal from both layers, like a {@link DualCache#delete(String)}, gives one
+ * notification per layer.
+ *
+ * @param <T> is the Class of object cached.
+ */
+public interface RemovalListener<T> {
+
+    /**
+     * Called once an object has been removed from a layer of the cache.
+     *
+     * @param notification describes the removed object.
+     */
+    void onRemoval(RemovalNotification<T> notification);
+}
@@ -0,0 +1,82 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+/**
+ * Describe an object removed from a layer of the cache.
+ *
+ * @param <T> is the Class of object cached.
+ */
+public final class RemovalNotification<T> {
+
+    private final String key;
+    private final DualCacheLayer layer;
+    private final RemovalCause cause;
+    private final CacheSerializer<T> serializer;
+    private String serializedValue;
+    private T value;
+    private boolean isValueResolved;
+
+    /**
+     * @param value           is the removed object, if the layer holds it by reference.
+     * @param serializedValue is the removed object, if the layer holds it serialized.
+     * @param serializer      deserializes the serialized value.
+     */
+    RemovalNotification(
+        String key,
+        DualCacheLayer layer,
+        RemovalCause cause,
+        T value,
+        String serializedValue,
+        CacheSerializer<T> serializer
+    ) {
+        this.key = key;
+        this.layer = layer;
+        this.cause = cause;
+        this.value = value;
+        this.serializedValue = serializedValue;
+        this.serializer = serializer;
+    }
+
+    /**
+     * @return the key of the removed object.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return the layer the object has been removed from.
+     */
+    public DualCacheLayer getLayer() {
+        return layer;
+    }
+
+    /**
+     * @return why the object has been removed.
+     */
+    public RemovalCause getCause() {
+        return cause;
+    }
+
+    /**
+     * Return the removed object. Objects serialized in the RAM layer are only deserialized by the
+     * first call to this method. Objects removed from the disk layer are not available anymore:
+     * for them this method returns null.
+     *
+     * @return the removed object, or null if it is not available.
+     */
+    public synchronized T getValue() {
+        if (!isValueResolved) {
+            if (serializedValue != null) {
+                value = serializer.fromString(serializedValue);
+            }
+            serializedValue = null;
+            isValueResolved = true;
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "RemovalNotification[key=" + key + ",layer=" + layer + ",cause=" + cause + "]";
+    }
+}
@@ -0,0 +1,64 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+/**
+ * Tier of a {@link TieredCache} keeping the objects serialized in RAM, which returns a new
+ * instance on each hit.
+ *
+ * @param <T> is the class of object stored in the tier.
+ */
+public class SerializedRamTier<T> implements CacheTier<T> {
+
+    private final StringLruCache ramCache;
+    private final CacheSerializer<T> serializer;
+    private volatile TierEvictionListener<T> evictionListener;
+
+    /**
+     * @param maxRamSizeBytes is the maximum amount of RAM in bytes used by the tier.
+     * @param serializer      serializes the objects stored in the tier.
+     */
+    public SerializedRamTier(int maxRamSizeBytes, CacheSerializer<T> serializer) {
+        this.serializer = serializer;
+        this.ramCache = new StringLruCache(maxRamSizeBytes) {
+            @Override
+            protected void entryRemoved(
+                boolean evicted, String key, String oldValue, String newValue) {
+                TierEvictionListener<T> listener = evictionListener;
+                if (evicted && listener != null) {
+                    listener.onEvicted(key, SerializedRamTier.this.serializer.fromString(oldValue));
+                }
+            }
+        };
+    }
+
+    @Override
+    public T get(String key) {
+        String serialized = ramCache.get(key);
+        return serialized == null ? null : serializer.fromString(serialized);
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return ramCache.containsKey(key);
+    }
+
+    @Override
+    public void put(String key, T value) {
+        ramCache.put(key, serializer.toString(value));
+    }
+
+    @Override
+    public void remove(String key) {
+        ramCache.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        // Removed rather than evicted, so that they are not demoted.
+        ramCache.removeAll(ramCache.snapshot().keySet());
+    }
+
+    @Override
+    public void setEvictionListener(TierEvictionListener<T> listener) {
+        this.evictionListener = listener;
+    }
+}
@@ -0,0 +1,115 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+/**
+ * Collects the statistics of a cache. When disabled, every method returns immediately and no
+ * clock is read, so caches built without {@code recordStats()} pay nothing for it.
+ */
+final class StatsRecorder {
+
+    static final StatsRecorder DISABLED = new StatsRecorder(false);
+
+    private final boolean enabled;
+    private final StripedCounter ramHits = new StripedCounter();
+    private final StripedCounter ramMisses = new StripedCounter();
+    private final StripedCounter ramEvictions = new StripedCounter();
+    private final StripedCounter diskHits = new StripedCounter();
+    private final StripedCounter diskMisses = new StripedCounter();
+    private final StripedCounter diskEvictions = new StripedCounter();
+    private final LatencyHistogram ramGet = new LatencyHistogram();
+    private final LatencyHistogram diskGet = new LatencyHistogram();
+    private final LatencyHistogram serialize = new LatencyHistogram();
+    private final LatencyHistogram deserialize = new LatencyHistogram();
+    private final LatencyHistogram lockWait = new LatencyHistogram();
+
+    StatsRecorder(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the start time to give back to one of the record methods, or 0 if disabled.
+     */
+    long startTimer() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    void recordRamGet(long startNanos, boolean hit) {
+        if (enabled) {
+            ramGet.record(System.nanoTime() - startNanos);
+            (hit ? ramHits : ramMisses).increment();
+        }
+    }
+
+    /**
+     * Record a batch lookup in the RAM layer as a single latency sample.
+     */
+    void recordRamGets(long startNanos, int hits, int misses) {
+        if (enabled) {
+            ramGet.record(System.nanoTime() - startNanos);
+            ramHits.add(hits);
+            ramMisses.add(misses);
+        }
+    }
+
+    void recordDiskGet(long startNanos, boolean hit) {
+        if (enabled) {
+            diskGet.record(System.nanoTime() - startNanos);
+            (hit ? diskHits : diskMisses).increment();
+        }
+    }
+
+    void recordRamEviction() {
+        if (enabled) {
+            ramEvictions.increment();
+        }
+    }
+
+    void recordDiskEviction() {
+        if (enabled) {
+            diskEvictions.increment();
+        }
+    }
+
+    void recordSerialize(long startNanos) {
+        if (enabled) {
+            serialize.record(System.nanoTime() - startNanos);
+        }
+    }
+
+    void recordDeserialize(long startNanos) {
+        if (enabled) {
+            deserialize.record(System.nanoTime() - startNanos);
+        }
+    }
+
+    void recordLockWait(long startNanos) {
+        if (enabled) {
+            lockWait.record(System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * @param ramCurve  estimates the hit ratio curve of the RAM layer, may be null.
+     * @param diskCurve estimates the hit ratio curve of the disk layer, may be null.
+     */
+    DualCacheStats snapshot(HitRatioCurveEstimator ramCurve, HitRatioCurveEstimator diskCurve) {
+        return new DualCacheStats(
+            ramHits.sum(),
+            ramMisses.sum(),
+            ramEvictions.sum(),
+            diskHits.sum(),
+            diskMisses.sum(),
+            diskEvictions.sum(),
+            ramGet.snapshot(),
+            diskGet.snapshot(),
+            serialize.snapshot(),
+            deserialize.snapshot(),
+            lockWait.snapshot(),
+            ramCurve == null ? null : ramCurve.snapshot(),
+            diskCurve == null ? null : diskCurve.snapshot()
+        );
+    }
+}
@@ -34,6 +34,14 @@ class StringLruCache extends RamLruCache<String, String> {
 
     @Override
     protected int sizeOf(String key, String value) {
+        return sizeOfSerialized(value);
+    }
+
+    /**
+     * @param value is a serialized object.
+     * @return the size of the serialized object in a RAM layer.
+     */
+    static int sizeOfSerialized(String value) {
         return value.getBytes(Charset.defaultCharset()).length;
     }
 }
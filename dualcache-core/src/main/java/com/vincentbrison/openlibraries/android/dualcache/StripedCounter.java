@@ -0,0 +1,33 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counter spread over several cells, each on its own cache line, so that threads incrementing it
+ * concurrently rarely update the same memory. Reading the value sums all the cells.
+ */
+final class StripedCounter {
+
+    private static final int CELLS = 16;
+    private static final int LONGS_PER_CACHE_LINE = 8;
+
+    private final AtomicLongArray cells = new AtomicLongArray(CELLS * LONGS_PER_CACHE_LINE);
+
+    void increment() {
+        add(1);
+    }
+
+    void add(long value) {
+        long id = Thread.currentThread().getId();
+        int cell = (int) ((id ^ (id >>> 16)) * 0x9E3779B9L >>> 28) & (CELLS - 1);
+        cells.getAndAdd(cell * LONGS_PER_CACHE_LINE, value);
+    }
+
+    long sum() {
+        long sum = 0;
+        for (int cell = 0; cell < CELLS; cell++) {
+            sum += cells.get(cell * LONGS_PER_CACHE_LINE);
+        }
+        return sum;
+    }
+}
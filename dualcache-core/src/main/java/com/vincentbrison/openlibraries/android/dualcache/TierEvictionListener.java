@@ -0,0 +1,19 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+/**
+ * Receive the objects a {@link CacheTier} evicts to make space, so that they can be demoted to
+ * the next tier.
+ *
+ * @param <T> is the class of object stored in the tier.
+ */
+public interface TierEvictionListener<T> {
+
+    /**
+     * Called on the thread which made the tier evict the object, once the object is no longer
+     * stored in the tier.
+     *
+     * @param key   is the key of the evicted object.
+     * @param value is the evicted object.
+     */
+    void onEvicted(String key, T value);
+}
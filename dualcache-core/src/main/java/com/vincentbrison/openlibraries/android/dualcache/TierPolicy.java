@@ -0,0 +1,62 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+/**
+ * Declare how objects move into and out of a tier of a {@link TieredCache}.
+ */
+public final class TierPolicy {
+
+    /**
+     * Every put is written to the tier and hits in the lower tiers are copied into it, which is
+     * what the RAM and disk layers of {@link DualCache} do.
+     */
+    public static final TierPolicy INCLUSIVE = new TierPolicy(true, true, false);
+
+    /**
+     * Like {@link #INCLUSIVE}, but the objects the tier evicts are demoted to the next tier.
+     */
+    public static final TierPolicy DEMOTING = new TierPolicy(true, true, true);
+
+    /**
+     * The tier only receives the objects demoted from the tier above it and the hits of the lower
+     * tiers, so that it holds what the tier above could not keep instead of a copy of it.
+     */
+    public static final TierPolicy VICTIM = new TierPolicy(false, true, false);
+
+    private final boolean writeThrough;
+    private final boolean promoteOnHit;
+    private final boolean demoteOnEviction;
+
+    /**
+     * @param writeThrough     is true if every put is written to the tier. Otherwise a put removes
+     *                         the previous object from the tier.
+     * @param promoteOnHit     is true if an object found in a lower tier is copied into the tier.
+     * @param demoteOnEviction is true if the objects the tier evicts are written to the next tier,
+     *                         unless that tier is written through and so already has them.
+     */
+    public TierPolicy(boolean writeThrough, boolean promoteOnHit, boolean demoteOnEviction) {
+        this.writeThrough = writeThrough;
+        this.promoteOnHit = promoteOnHit;
+        this.demoteOnEviction = demoteOnEviction;
+    }
+
+    /**
+     * @return true if every put is written to the tier.
+     */
+    public boolean isWriteThrough() {
+        return writeThrough;
+    }
+
+    /**
+     * @return true if an object found in a lower tier is copied into the tier.
+     */
+    public boolean isPromoteOnHit() {
+        return promoteOnHit;
+    }
+
+    /**
+     * @return true if the objects the tier evicts are written to the next tier.
+     */
+    public boolean isDemoteOnEviction() {
+        return demoteOnEviction;
+    }
+}
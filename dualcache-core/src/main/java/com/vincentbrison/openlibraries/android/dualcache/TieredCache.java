@@ -0,0 +1,326 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Cache assembled from an ordered list of {@link CacheTier}, the fastest first: for instance
+ * references in RAM, then compressed objects in RAM, then the disk, then a remote cache shared by
+ * several processes. Use a {@link TieredCacheBuilder} to build it.
+ *
+ * <p>A get reads the tiers in order and stops at the first one holding the object, which is then
+ * copied into the tiers above it declaring {@link TierPolicy#isPromoteOnHit()}. A put is written
+ * to the tiers declaring {@link TierPolicy#isWriteThrough()} and removes the previous object from
+ * the others. The objects evicted by a tier declaring {@link TierPolicy#isDemoteOnEviction()} are
+ * written to the next tier once the operation which evicted them is done.
+ *
+ * <p>Reads of an entry beyond the first tier share its lock, puts and deletes are exclusive, so a
+ * promotion never writes an object older than the one put concurrently. A demotion is dropped if
+ * the entry has been written or deleted since the operation which evicted it began.
+ *
+ * @param <T> is the class of object stored in the cache.
+ */
+public class TieredCache<T> {
+
+    private final List<CacheTier<T>> tiers;
+    private final TierPolicy[] policies;
+    private final Logger logger;
+    private final DualCacheLock lock =
+        new DualCacheLock(StatsRecorder.DISABLED, TraceRecorder.DISABLED);
+    private final StripedCounter[] hitCounts;
+    private final StripedCounter missCount = new StripedCounter();
+    private final boolean hasDemotions;
+    /** Number of invalidations, only changed while all the entries are locked. */
+    private volatile int invalidationCount;
+    private final ThreadLocal<Demotions<T>> pendingDemotions = new ThreadLocal<Demotions<T>>() {
+        @Override
+        protected Demotions<T> initialValue() {
+            return new Demotions<>(lock.getStripeCount());
+        }
+    };
+
+    TieredCache(List<CacheTier<T>> tiers, List<TierPolicy> policies, Logger logger) {
+        this.tiers = new ArrayList<>(tiers);
+        this.policies = policies.toArray(new TierPolicy[policies.size()]);
+        this.logger = logger;
+        this.hitCounts = new StripedCounter[tiers.size()];
+        boolean hasDemotions = false;
+        for (int i = 0; i < tiers.size(); i++) {
+            hitCounts[i] = new StripedCounter();
+            boolean nextIsFilledByDemotion = i + 1 < tiers.size()
+                && !this.policies[i + 1].isWriteThrough();
+            if (this.policies[i].isDemoteOnEviction() && nextIsFilledByDemotion) {
+                hasDemotions = true;
+                final int tierIndex = i;
+                tiers.get(i).setEvictionListener(new TierEvictionListener<T>() {
+                    @Override
+                    public void onEvicted(String key, T value) {
+                        Demotions<T> demotions = pendingDemotions.get();
+                        int stamp = demotions.startStamps[lock.stripeOf(key)];
+                        demotions.list.add(new Demotion<>(tierIndex, key, value, stamp));
+                    }
+                });
+            }
+        }
+        this.hasDemotions = hasDemotions;
+    }
+
+    /**
+     * Return the object of the given key from the first tier holding it, after copying it into
+     * the tiers above which promote on hit.
+     *
+     * @param key is the key of the object.
+     * @return the object, or null if no tier holds it.
+     */
+    public T get(String key) {
+        T value = getFrom(0, key);
+        if (value != null) {
+            hitCounts[0].increment();
+            return value;
+        }
+        beginOperation();
+        lock.lockDiskEntryRead(key);
+        try {
+            for (int i = 1; i < tiers.size(); i++) {
+                value = getFrom(i, key);
+                if (value != null) {
+                    hitCounts[i].increment();
+                    for (int upper = 0; upper < i; upper++) {
+                        if (policies[upper].isPromoteOnHit()) {
+                            putIn(upper, key, value);
+                        }
+                    }
+                    return value;
+                }
+            }
+            missCount.increment();
+            return null;
+        } finally {
+            lock.unLockDiskEntryRead(key);
+            demotePending();
+        }
+    }
+
+    /**
+     * Put an object in the cache.
+     *
+     * @param key    is the key of the object.
+     * @param object is the object to put, never null.
+     */
+    public void put(String key, T object) {
+        if (object == null) {
+            throw new IllegalArgumentException("Null objects can not be put in a tiered cache");
+        }
+        beginOperation();
+        lock.lockDiskEntryWrite(key);
+        try {
+            for (int i = 0; i < tiers.size(); i++) {
+                if (policies[i].isWriteThrough()) {
+                    putIn(i, key, object);
+                } else {
+                    removeFrom(i, key);
+                }
+            }
+        } finally {
+            unLockWrite(key);
+            demotePending();
+        }
+    }
+
+    /**
+     * Delete the object of the given key from all the tiers.
+     *
+     * @param key is the key of the object.
+     */
+    public void delete(String key) {
+        lock.lockDiskEntryWrite(key);
+        try {
+            for (int i = 0; i < tiers.size(); i++) {
+                removeFrom(i, key);
+            }
+        } finally {
+            lock.unLockDiskEntryWrite(key);
+        }
+    }
+
+    /**
+     * Remove all the objects from all the tiers.
+     */
+    public void invalidate() {
+        lock.lockFullDiskWrite();
+        try {
+            for (CacheTier<T> tier : tiers) {
+                try {
+                    tier.clear();
+                } catch (IOException e) {
+                    logger.logError(e);
+                }
+            }
+            invalidationCount++;
+        } finally {
+            lock.unLockFullDiskWrite();
+        }
+    }
+
+    /**
+     * @return the number of tiers of the cache.
+     */
+    public int getTierCount() {
+        return tiers.size();
+    }
+
+    /**
+     * @param index is the index of the tier, 0 being the first one read.
+     * @return the tier.
+     */
+    public CacheTier<T> getTier(int index) {
+        return tiers.get(index);
+    }
+
+    /**
+     * @param index is the index of the tier, 0 being the first one read.
+     * @return the number of gets served by the tier.
+     */
+    public long getHitCount(int index) {
+        return hitCounts[index].sum();
+    }
+
+    /**
+     * @return the number of gets no tier could serve.
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    private T getFrom(int index, String key) {
+        try {
+            return tiers.get(index).get(key);
+        } catch (IOException e) {
+            logger.logError(e);
+            return null;
+        }
+    }
+
+    private void putIn(int index, String key, T value) {
+        try {
+            tiers.get(index).put(key, value);
+        } catch (IOException e) {
+            logger.logError(e);
+            // The tier must not keep serving the object this put replaced.
+            removeFrom(index, key);
+        }
+    }
+
+    private void removeFrom(int index, String key) {
+        try {
+            tiers.get(index).remove(key);
+        } catch (IOException e) {
+            logger.logError(e);
+        }
+    }
+
+    /**
+     * Record the write stamps of the entry locks before an operation which may evict entries, to
+     * tell later whether another thread wrote them since.
+     */
+    private void beginOperation() {
+        if (hasDemotions) {
+            Demotions<T> demotions = pendingDemotions.get();
+            demotions.startInvalidationCount = invalidationCount;
+            lock.copyWriteStamps(demotions.startStamps);
+            Arrays.fill(demotions.ownWrites, 0);
+        }
+    }
+
+    /**
+     * Release the write lock of an entry, counting the write of this thread in its stripe.
+     */
+    private void unLockWrite(String key) {
+        lock.unLockDiskEntryWrite(key);
+        if (hasDemotions) {
+            pendingDemotions.get().ownWrites[lock.stripeOf(key)]++;
+        }
+    }
+
+    /**
+     * Write the objects evicted by this thread to the tier below the one which evicted them.
+     * Called once the lock of the entry which caused the evictions is released, since an evicted
+     * entry may share its stripe. The demotion is dropped if the object has been put, or promoted,
+     * again since: the tiers up to the evicting one then hold the key. It is dropped as well if
+     * another thread wrote the stripe of the entry since the operation began, as it may have
+     * deleted the object after it was evicted, or put a newer one in the lower tiers, and if the
+     * cache has been invalidated since.
+     */
+    private void demotePending() {
+        if (!hasDemotions) {
+            return;
+        }
+        Demotions<T> demotions = pendingDemotions.get();
+        List<Demotion<T>> list = demotions.list;
+        // Demoting may evict from the next tier, which appends to the list.
+        for (int d = 0; d < list.size(); d++) {
+            Demotion<T> demotion = list.get(d);
+            int stripe = lock.stripeOf(demotion.key);
+            lock.lockDiskEntryWrite(demotion.key);
+            try {
+                boolean isWrittenSince =
+                    lock.writeStampOf(demotion.key) != demotion.stamp + demotions.ownWrites[stripe]
+                        || invalidationCount != demotions.startInvalidationCount;
+                if (!isWrittenSince && !isHeldUpTo(demotion.tierIndex, demotion.key)) {
+                    putIn(demotion.tierIndex + 1, demotion.key, demotion.value);
+                }
+            } finally {
+                unLockWrite(demotion.key);
+            }
+        }
+        list.clear();
+    }
+
+    private boolean isHeldUpTo(int lastIndex, String key) {
+        for (int i = 0; i <= lastIndex; i++) {
+            try {
+                if (tiers.get(i).contains(key)) {
+                    return true;
+                }
+            } catch (IOException e) {
+                logger.logError(e);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Demotion<T> {
+        private final int tierIndex;
+        private final String key;
+        private final T value;
+        /** Write stamp of the stripe of the entry when the operation evicting it began. */
+        private final int stamp;
+
+        Demotion(int tierIndex, String key, T value, int stamp) {
+            this.tierIndex = tierIndex;
+            this.key = key;
+            this.value = value;
+            this.stamp = stamp;
+        }
+    }
+
+    /**
+     * Demotions of the current operation of a thread.
+     */
+    private static final class Demotions<T> {
+        private final List<Demotion<T>> list = new ArrayList<>();
+        /** Write stamps of the stripes when the operation began. */
+        private final int[] startStamps;
+        /** Number of writes of the operation in each stripe. */
+        private final int[] ownWrites;
+        private int startInvalidationCount;
+
+        Demotions(int stripeCount) {
+            this.startStamps = new int[stripeCount];
+            this.ownWrites = new int[stripeCount];
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class used to build a {@link TieredCache}, adding its tiers from the fastest to the slowest.
+ *
+ * @param <T> is the class of object to store in cache.
+ */
+public class TieredCacheBuilder<T> {
+
+    private final List<CacheTier<T>> tiers = new ArrayList<>();
+    private final List<TierPolicy> policies = new ArrayList<>();
+    private CacheLogger logger;
+
+    /**
+     * Add a tier read after the ones already added, with the {@link TierPolicy#INCLUSIVE} policy.
+     *
+     * @param tier is the tier to add.
+     * @return the builder.
+     */
+    public TieredCacheBuilder<T> addTier(CacheTier<T> tier) {
+        return addTier(tier, TierPolicy.INCLUSIVE);
+    }
+
+    /**
+     * Add a tier read after the ones already added.
+     *
+     * @param tier   is the tier to add.
+     * @param policy declares how objects move into and out of the tier.
+     * @return the builder.
+     */
+    public TieredCacheBuilder<T> addTier(CacheTier<T> tier, TierPolicy policy) {
+        if (tier == null || policy == null) {
+            throw new IllegalArgumentException("The tier and its policy must not be null");
+        }
+        if (tiers.contains(tier)) {
+            throw new IllegalArgumentException("The tier is already added");
+        }
+        tiers.add(tier);
+        policies.add(policy);
+        return this;
+    }
+
+    /**
+     * Enabling log from the cache, written by the given logger. By default disable.
+     *
+     * @param logger writes the logs.
+     * @return the builder.
+     */
+    public TieredCacheBuilder<T> enableLog(CacheLogger logger) {
+        this.logger = logger;
+        return this;
+    }
+
+    /**
+     * Builder the cache. Exception will be thrown if it can not be created.
+     *
+     * @return the cache instance.
+     */
+    public TieredCache<T> build() {
+        if (tiers.isEmpty()) {
+            throw new IllegalStateException("No tier added");
+        }
+        return new TieredCache<>(tiers, policies, new Logger(logger));
+    }
+}
@@ -0,0 +1,72 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+/**
+ * Report the slow operations of a cache to its {@link CacheTracer}. Without tracer, every method
+ * returns immediately and no clock is read.
+ */
+final class TraceRecorder {
+
+    static final TraceRecorder DISABLED = new TraceRecorder(null, 0);
+
+    private final CacheTracer tracer;
+    private final long thresholdNanos;
+
+    /**
+     * @param tracer         receives the slow operations, may be null.
+     * @param thresholdNanos is the duration from which an operation is slow.
+     */
+    TraceRecorder(CacheTracer tracer, long thresholdNanos) {
+        this.tracer = tracer;
+        this.thresholdNanos = thresholdNanos;
+    }
+
+    boolean isEnabled() {
+        return tracer != null;
+    }
+
+    /**
+     * @return the start time to give back to {@link #slowDuration(long)}, or 0 if disabled.
+     */
+    long startTimer() {
+        return tracer == null ? 0L : System.nanoTime();
+    }
+
+    /**
+     * @param startNanos is the time returned by {@link #startTimer()}.
+     * @return the duration of the operation if it is slow, or -1 if it is not or if disabled.
+     */
+    long slowDuration(long startNanos) {
+        if (tracer == null) {
+            return -1;
+        }
+        long duration = System.nanoTime() - startNanos;
+        return duration >= thresholdNanos ? duration : -1;
+    }
+
+    /**
+     * Report the operation if it is slow. Use {@link #slowDuration(long)} instead when the size of
+     * the entry is costly to compute.
+     */
+    void recordIfSlow(
+        CacheOperation operation, DualCacheLayer layer, String key, long sizeBytes,
+        long startNanos) {
+        long duration = slowDuration(startNanos);
+        if (duration >= 0) {
+            record(operation, layer, key, sizeBytes, duration);
+        }
+    }
+
+    /**
+     * Report an operation, whatever its duration.
+     *
+     * @param key is the key of the entry, or null if there is none.
+     */
+    void record(
+        CacheOperation operation, DualCacheLayer layer, String key, long sizeBytes,
+        long durationNanos) {
+        if (tracer != null) {
+            tracer.trace(
+                operation, layer, key == null ? 0 : key.hashCode(), sizeBytes, durationNanos);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+/**
+ * Measure strings in UTF-8 without encoding them.
+ */
+final class Utf8 {
+
+    private Utf8() {
+    }
+
+    /**
+     * Return the number of bytes of a string encoded in UTF-8. A surrogate pair takes 4 bytes,
+     * and an unpaired surrogate 3 bytes, as written by {@link BinaryWriter#writeString(String)}.
+     *
+     * @param value is the string to measure.
+     * @return the length of the string in UTF-8.
+     */
+    static int length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,69 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.Serializable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the disk reads of the cache of serializable objects.
+ */
+public class AndCacheTest {
+    private static final int KEY_COUNT = 20;
+    private static final int READ_COUNT = 2000;
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testDiskReadsCloseEntries() throws Exception {
+        assertDiskReadsCloseEntries(null);
+    }
+
+    @Test
+    public void testBinaryDiskReadsCloseEntries() throws Exception {
+        assertDiskReadsCloseEntries(new BinaryCodec());
+    }
+
+    private void assertDiskReadsCloseEntries(BinaryCodec codec) throws Exception {
+        JvmAndCacheBuilder builder = new JvmAndCacheBuilder("andcache", 0)
+            .useReferenceInRam(1024 * 1024, new SizeOf<Serializable>() {
+                @Override
+                public int sizeOf(Serializable object) {
+                    return 1;
+                }
+            })
+            .diskCacheDir(temporaryFolder.getRoot());
+        if (codec != null) {
+            builder.useBinaryCodec(codec);
+        }
+        AndCache cache = builder.build();
+        for (int i = 0; i < KEY_COUNT; i++) {
+            cache.put("key" + i, "value" + i);
+        }
+        int openFiles = countOpenFiles();
+        for (int i = 0; i < READ_COUNT; i++) {
+            cache.invalidateRAM();
+            String key = "key" + (i % KEY_COUNT);
+            assertEquals("value" + (i % KEY_COUNT), cache.get(key));
+            assertTrue(cache.contains(key));
+        }
+        if (openFiles >= 0) {
+            assertTrue(openFiles + " then " + countOpenFiles(),
+                countOpenFiles() < openFiles + KEY_COUNT);
+        }
+    }
+
+    /**
+     * @return the number of files open by this process, or -1 if it is not available.
+     */
+    private static int countOpenFiles() {
+        String[] files = new File("/proc/self/fd").list();
+        return files == null ? -1 : files.length;
+    }
+}
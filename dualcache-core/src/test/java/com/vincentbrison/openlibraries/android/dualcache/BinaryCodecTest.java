@@ -0,0 +1,263 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test the binary format of the disk entries.
+ */
+public class BinaryCodecTest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int POINT_ID = BinaryCodec.FIRST_USER_ID;
+
+    private final BinaryCodec codec = new BinaryCodec().register(POINT_ID, Point.class,
+        new BinaryTypeCodec<Point>() {
+            @Override
+            public void write(BinaryWriter writer, Point value) throws IOException {
+                writer.writeDouble(value.x);
+                writer.writeFloat(value.y);
+                writer.writeBoolean(value.visible);
+                writer.writeObject(value.label);
+            }
+
+            @Override
+            public Point read(BinaryReader reader) throws IOException {
+                return new Point(reader.readDouble(), reader.readFloat(), reader.readBoolean(),
+                    reader.readObject());
+            }
+        });
+
+    @Test
+    public void testVarIntBoundaries() throws Exception {
+        int[] values = {0, 1, 0x7F, 0x80, 0x3FFF, 0x4000, Integer.MAX_VALUE, -1,
+            Integer.MIN_VALUE};
+        int[] sizes = {1, 1, 1, 2, 2, 3, 5, 5, 5};
+        for (int i = 0; i < values.length; i++) {
+            BinaryWriter writer = new BinaryWriter(codec);
+            writer.writeVarInt(values[i]);
+            assertEquals(sizes[i], writer.size());
+            assertEquals(values[i], readerOf(writer).readVarInt());
+        }
+
+        long[] longValues = {0, 0x7F, 0x80, Long.MAX_VALUE, -1, Long.MIN_VALUE};
+        int[] longSizes = {1, 1, 2, 9, 10, 10};
+        for (int i = 0; i < longValues.length; i++) {
+            BinaryWriter writer = new BinaryWriter(codec);
+            writer.writeVarLong(longValues[i]);
+            assertEquals(longSizes[i], writer.size());
+            assertEquals(longValues[i], readerOf(writer).readVarLong());
+        }
+    }
+
+    @Test
+    public void testZigZagBoundaries() throws Exception {
+        int[] values = {0, -1, 1, -64, 63, -65, Integer.MIN_VALUE, Integer.MAX_VALUE};
+        int[] sizes = {1, 1, 1, 1, 1, 2, 5, 5};
+        for (int i = 0; i < values.length; i++) {
+            BinaryWriter writer = new BinaryWriter(codec);
+            writer.writeInt(values[i]);
+            assertEquals(sizes[i], writer.size());
+            assertEquals(values[i], readerOf(writer).readInt());
+        }
+
+        long[] longValues = {0, -1, 1, Long.MIN_VALUE, Long.MAX_VALUE,
+            Integer.MIN_VALUE, Integer.MAX_VALUE};
+        int[] longSizes = {1, 1, 1, 10, 10, 5, 5};
+        for (int i = 0; i < longValues.length; i++) {
+            BinaryWriter writer = new BinaryWriter(codec);
+            writer.writeLong(longValues[i]);
+            assertEquals(longSizes[i], writer.size());
+            assertEquals(longValues[i], readerOf(writer).readLong());
+        }
+    }
+
+    @Test
+    public void testUtf8Strings() throws Exception {
+        // One, two, three and four bytes characters, the last ones as surrogate pairs.
+        String[] values = {"", "ascii", "\u00e9t\u00e9", "\u07ff\u0800", "\u20ac\uffff",
+            "\ud83d\ude00", "a\ud800\udc00b\udbff\udfff", "\ud83d\ude00\u20ac\u00e9a"};
+        for (String value : values) {
+            byte[] expected = value.getBytes(UTF_8);
+            assertEquals(value, expected.length, Utf8.length(value));
+            BinaryWriter writer = new BinaryWriter(codec);
+            writer.writeString(value);
+            // Prefixed by the length plus one, in a single byte for these strings.
+            assertEquals(expected.length + 1, writer.buffer()[0]);
+            assertArrayEquals(expected,
+                Arrays.copyOfRange(writer.buffer(), 1, writer.size()));
+            assertEquals(value, readerOf(writer).readString());
+        }
+
+        BinaryWriter writer = new BinaryWriter(codec);
+        writer.writeString(null);
+        assertEquals(1, writer.size());
+        assertNull(readerOf(writer).readString());
+
+        // An unpaired surrogate takes 3 bytes, like a character of the BMP.
+        assertEquals(3, Utf8.length("\ud800"));
+        assertEquals(4, Utf8.length("\udc00a"));
+    }
+
+    @Test
+    public void testRegisteredTypes() throws Exception {
+        assertEquals("value", roundTrip("value"));
+        assertEquals("", roundTrip(""));
+        assertEquals(Integer.MIN_VALUE, roundTrip(Integer.MIN_VALUE));
+        assertEquals(Integer.MAX_VALUE, roundTrip(Integer.MAX_VALUE));
+        assertEquals(Long.MIN_VALUE, roundTrip(Long.MIN_VALUE));
+        assertEquals(Long.MAX_VALUE, roundTrip(Long.MAX_VALUE));
+        assertArrayEquals(new byte[0], (byte[]) roundTrip(new byte[0]));
+        assertArrayEquals(new byte[] {0, -1, 127, -128}, (byte[]) roundTrip(
+            new byte[] {0, -1, 127, -128}));
+
+        Point point = new Point(-0.5, Float.MAX_VALUE, true, "\ud83d\ude00");
+        assertEquals(point, roundTrip(point));
+        // Nested objects of any registered class, or null.
+        Point nested = new Point(Double.NaN, -0f, false, new Point(1, 2, true, null));
+        assertEquals(nested, roundTrip(nested));
+        Point withLong = new Point(0, 0, false, Long.MIN_VALUE);
+        assertEquals(withLong, roundTrip(withLong));
+    }
+
+    @Test
+    public void testJavaSerializationFallback() throws Exception {
+        List<String> value = new ArrayList<>(Arrays.asList("a", "\u20ac"));
+        assertFalse(codec.canEncode(value));
+        assertFalse(codec.canEncode(null));
+        assertTrue(codec.canEncode("a"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ObjectOutputStream objectOut = new ObjectOutputStream(out);
+        objectOut.writeObject(value);
+        objectOut.close();
+        byte[] entry = out.toByteArray();
+        assertEquals(value, codec.decode(new ByteArrayInputStream(entry), entry.length));
+        // A registered class written with the Java serialization stays readable.
+        Point point = new Point(1, 2, true, "label");
+        out = new ByteArrayOutputStream();
+        objectOut = new ObjectOutputStream(out);
+        objectOut.writeObject(point);
+        objectOut.close();
+        entry = out.toByteArray();
+        assertEquals(point, codec.decode(new ByteArrayInputStream(entry), entry.length));
+    }
+
+    @Test
+    public void testInvalidEntriesRejected() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        codec.encode(new Point(1, 2, true, "label"), out);
+        byte[] entry = out.toByteArray();
+        try {
+            codec.decode(new ByteArrayInputStream(entry, 0, entry.length - 1), entry.length - 1);
+            fail();
+        } catch (IOException e) {
+            // Expected, the entry is truncated.
+        }
+        try {
+            codec.decode(new ByteArrayInputStream(entry), entry.length + 1);
+            fail();
+        } catch (IOException e) {
+            // Expected, the stream ends before the length given.
+        }
+        entry[0] = 0;
+        try {
+            codec.decode(new ByteArrayInputStream(entry), entry.length);
+            fail();
+        } catch (IOException e) {
+            // Expected, the format is unknown.
+        }
+        try {
+            codec.encode(new Object(), new ByteArrayOutputStream());
+            fail();
+        } catch (IOException e) {
+            // Expected, the class is not registered.
+        }
+    }
+
+    @Test
+    public void testRegistrationChecked() {
+        try {
+            new BinaryCodec().register(BinaryCodec.FIRST_USER_ID - 1, Point.class,
+                new BinaryTypeCodec<Point>() {
+                    @Override
+                    public void write(BinaryWriter writer, Point value) {
+                    }
+
+                    @Override
+                    public Point read(BinaryReader reader) {
+                        return null;
+                    }
+                });
+            fail();
+        } catch (IllegalArgumentException e) {
+            // Expected, the id is reserved.
+        }
+        try {
+            codec.register(POINT_ID + 1, Point.class, null);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // Expected, the codec is missing.
+        }
+    }
+
+    private Object roundTrip(Object value) throws Exception {
+        assertTrue(codec.canEncode(value));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        codec.encode(value, out);
+        byte[] entry = out.toByteArray();
+        return codec.decode(new ByteArrayInputStream(entry), entry.length);
+    }
+
+    private BinaryReader readerOf(BinaryWriter writer) {
+        return new BinaryReader(codec, writer.buffer(), 0, writer.size());
+    }
+
+    /**
+     * Class registered in the codec, with a field of any registered class.
+     */
+    private static final class Point implements Serializable {
+        private final double x;
+        private final float y;
+        private final boolean visible;
+        private final Object label;
+
+        private Point(double x, float y, boolean visible, Object label) {
+            this.x = x;
+            this.y = y;
+            this.visible = visible;
+            this.label = label;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Point)) {
+                return false;
+            }
+            Point other = (Point) o;
+            return Double.compare(x, other.x) == 0 && Float.compare(y, other.y) == 0
+                && visible == other.visible
+                && (label == null ? other.label == null : label.equals(other.label));
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(new Object[] {x, y, visible, label});
+        }
+    }
+}
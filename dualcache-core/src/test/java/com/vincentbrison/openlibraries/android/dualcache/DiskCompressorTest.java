@@ -0,0 +1,160 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the compression of the disk entries, training the dictionaries on the calling thread.
+ */
+public class DiskCompressorTest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    /** Writes of a dictionary, after the ones training it, which measure its ratio. */
+    private static final int WINDOW = 1024;
+    private static final int SAMPLES = 128;
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /** Last value written in each file, by key. */
+    private final Map<String, String> written = new HashMap<>();
+    private File folder;
+    private DiskCompressor compressor;
+
+    @Before
+    public void setUp() throws Exception {
+        folder = temporaryFolder.getRoot();
+        compressor = new DiskCompressor(new Logger(null),
+            new DualCacheLock(StatsRecorder.DISABLED, TraceRecorder.DISABLED), new Executor() {
+                @Override
+                public void execute(Runnable command) {
+                    command.run();
+                }
+            });
+        compressor.load(folder);
+    }
+
+    @Test
+    public void testCompressedSmallerThanPlain() throws Exception {
+        for (int i = 0; i < SAMPLES; i++) {
+            String value = car(i);
+            // Stored as plain UTF-8 until a dictionary is trained.
+            assertTrue(Arrays.equals(value.getBytes(UTF_8), compressor.encode(value)));
+        }
+        assertEquals(new HashSet<>(Arrays.asList(1)), compressor.getDictionaryIds());
+        assertTrue(new File(folder, "dictionary-1.dict").exists());
+
+        long plainSize = 0;
+        long compressedSize = 0;
+        for (int i = SAMPLES; i < 2 * SAMPLES; i++) {
+            String value = car(i);
+            byte[] entry = compressor.encode(value);
+            plainSize += value.getBytes(UTF_8).length;
+            compressedSize += entry.length;
+            assertEquals(value, decode(entry));
+        }
+        assertTrue(compressedSize + " of " + plainSize, compressedSize * 2 < plainSize);
+
+        // Loaded again, the dictionary still reads the entries written with it.
+        byte[] entry = compressor.encode(car(0));
+        compressor.load(folder);
+        assertEquals(car(0), decode(entry));
+    }
+
+    @Test
+    public void testEntriesReadableAcrossRetrains() throws Exception {
+        // Trained on cars, then measured on cars.
+        for (int i = 0; i < SAMPLES + WINDOW; i++) {
+            write("car" + (i % 10), car(i));
+        }
+        assertEquals(new HashSet<>(Arrays.asList(1)), compressor.getDictionaryIds());
+
+        // The ratio of the bikes is worse, which retrains the dictionary on them. The cars still
+        // on disk keep the first dictionary.
+        for (int i = 0; i < WINDOW; i++) {
+            write("bike" + (i % 10), bike(i));
+        }
+        assertEquals(new HashSet<>(Arrays.asList(1, 2)), compressor.getDictionaryIds());
+        assertEntriesReadable();
+        byte[] entry = compressor.encode(bike(0));
+        assertEquals(2, entry[1]);
+        assertEquals(bike(0), decode(entry));
+
+        // Once no car is left on disk, the next retrain deletes the first dictionary.
+        for (int i = 0; i < 10; i++) {
+            assertTrue(new File(folder, "car" + i + ".0").delete());
+            written.remove("car" + i);
+        }
+        for (int i = 0; i < WINDOW; i++) {
+            write("bike" + (i % 10), bike(i));
+        }
+        for (int i = 0; i < WINDOW; i++) {
+            write("truck" + (i % 10), truck(i));
+        }
+        assertEquals(new HashSet<>(Arrays.asList(2, 3)), compressor.getDictionaryIds());
+        assertFalse(new File(folder, "dictionary-1.dict").exists());
+        assertEntriesReadable();
+    }
+
+    private void write(String key, String value) throws IOException {
+        written.put(key, value);
+        FileOutputStream out = new FileOutputStream(new File(folder, key + ".0"));
+        try {
+            out.write(compressor.encode(value));
+        } finally {
+            out.close();
+        }
+    }
+
+    private void assertEntriesReadable() throws IOException {
+        for (Map.Entry<String, String> entry : written.entrySet()) {
+            assertEquals(entry.getValue(), read(entry.getKey()));
+        }
+    }
+
+    private String read(String key) throws IOException {
+        File file = new File(folder, key + ".0");
+        FileInputStream in = new FileInputStream(file);
+        try {
+            return compressor.decode(in, file.length());
+        } finally {
+            in.close();
+        }
+    }
+
+    private String decode(byte[] entry) throws IOException {
+        return compressor.decode(new ByteArrayInputStream(entry), entry.length);
+    }
+
+    private static String car(int i) {
+        return "{\"class\":\"CoolCar\",\"id\":" + i + ",\"name\":\"car number " + i
+            + "\",\"wheels\":4,\"color\":\"red\",\"brand\":\"vehicule maker\",\"doors\":5}";
+    }
+
+    private static String bike(int i) {
+        return "[BIKE|serial=" + (i * 7919) + "|frame=ALUMINIUM|gears=" + (i % 21)
+            + "|owner=" + Integer.toHexString(i * 31) + "|tyres=PUNCTURE_PROOF]";
+    }
+
+    private static String truck(int i) {
+        return "<truck load='" + (i * 13) + " kg' axles='" + (2 + i % 4)
+            + "'><driver>Driver " + i + "</driver><route>warehouse to harbour</route></truck>";
+    }
+}
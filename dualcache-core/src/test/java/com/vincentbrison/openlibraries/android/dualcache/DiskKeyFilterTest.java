@@ -0,0 +1,205 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test that the disk key filter never rules out a key which is on disk.
+ */
+public class DiskKeyFilterTest {
+    private static final int KEY_COUNT = 5000;
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final CacheSerializer<String> serializer = new CacheSerializer<String>() {
+        @Override
+        public String fromString(String data) {
+            return data;
+        }
+
+        @Override
+        public String toString(String object) {
+            return object;
+        }
+    };
+
+    @Test
+    public void testNoFalseNegativeAfterRemove() {
+        DiskKeyFilter filter = new DiskKeyFilter(KEY_COUNT);
+        for (int i = 0; i < KEY_COUNT; i++) {
+            filter.add("key" + i);
+        }
+        for (int i = 0; i < KEY_COUNT; i += 2) {
+            filter.remove("key" + i);
+        }
+        for (int i = 1; i < KEY_COUNT; i += 2) {
+            assertTrue(filter.mightContain("key" + i));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < KEY_COUNT; i++) {
+            if (filter.mightContain("other" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < KEY_COUNT / 20);
+    }
+
+    @Test
+    public void testSaturatedCountersNeverDecremented() {
+        DiskKeyFilter filter = new DiskKeyFilter(1);
+        // The same key added more times than a counter can count.
+        for (int i = 0; i < 20; i++) {
+            filter.add("key");
+        }
+        for (int i = 0; i < 19; i++) {
+            filter.remove("key");
+        }
+        assertTrue(filter.mightContain("key"));
+    }
+
+    @Test
+    public void testOverloaded() {
+        DiskKeyFilter filter = new DiskKeyFilter(KEY_COUNT);
+        for (int i = 0; i < KEY_COUNT; i++) {
+            filter.add("key" + i);
+        }
+        assertFalse(filter.isOverloaded());
+        // Only the keys still counted make the filter overloaded.
+        for (int i = 0; i < KEY_COUNT; i++) {
+            filter.remove("key" + i);
+            filter.add("other" + i);
+        }
+        assertFalse(filter.isOverloaded());
+        filter.add("last");
+        assertTrue(filter.isOverloaded());
+    }
+
+    @Test
+    public void testRebuildKeepsKeysAddedMeanwhile() throws Exception {
+        File folder = temporaryFolder.getRoot();
+        for (int i = 0; i < 10; i++) {
+            createEntry(folder, "key" + i);
+        }
+        createEntry(folder, "journal");
+        DiskKeyFilter filter = DiskKeyFilter.fromDirectory(folder);
+        assertTrue(filter.beginRebuild());
+        assertFalse(filter.beginRebuild());
+        // Written while the folder is scanned, so not seen by the scan.
+        filter.add("late");
+        DiskKeyFilter rebuilt = DiskKeyFilter.fromDirectory(folder);
+        filter.endRebuild(rebuilt);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(rebuilt.mightContain("key" + i));
+        }
+        assertTrue(rebuilt.mightContain("late"));
+        assertFalse(rebuilt.mightContain("journal"));
+
+        // Once ended, the keys added are not recorded anymore.
+        assertTrue(filter.beginRebuild());
+        filter.endRebuild(null);
+        DiskKeyFilter other = new DiskKeyFilter(KEY_COUNT);
+        filter.add("after");
+        filter.endRebuild(other);
+        assertFalse(other.mightContain("after"));
+    }
+
+    @Test
+    public void testCacheFindsEveryKeyAcrossRebuilds() throws Exception {
+        DualCache<String> cache = new JvmBuilder<String>("diskkeyfilter", 0)
+            .noRam()
+            .useSerializerInDisk(10 * 1024 * 1024, temporaryFolder.getRoot(), serializer)
+            .build();
+        try {
+            // Past the minimum capacity of the filter, so that it is rebuilt.
+            int count = 3000;
+            for (int i = 0; i < count; i++) {
+                cache.put("key" + i, "value" + i);
+                if (i % 100 == 0) {
+                    for (int j = 0; j <= i; j += 7) {
+                        assertEquals("value" + j, cache.get("key" + j));
+                    }
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                assertEquals("value" + i, cache.get("key" + i));
+            }
+        } finally {
+            cache.invalidate();
+        }
+    }
+
+    @Test
+    public void testRewrittenKeyRuledOutOnceDeleted() throws Exception {
+        DualCache<String> cache = new JvmBuilder<String>("diskkeyfilter", 0)
+            .noRam()
+            .useSerializerInDisk(10 * 1024 * 1024, temporaryFolder.newFolder(), serializer)
+            .build();
+        AndCache andCache = new JvmAndCacheBuilder("diskkeyfilter", 0)
+            .useReferenceInRam(1024, new SizeOf<Serializable>() {
+                @Override
+                public int sizeOf(Serializable object) {
+                    return 1;
+                }
+            })
+            .diskCacheDir(temporaryFolder.newFolder())
+            .build();
+        // More rewrites than a counter can count.
+        for (int i = 0; i < 20; i++) {
+            cache.put("key", "value" + i);
+            andCache.put("key", "value" + i);
+        }
+        assertTrue(cache.isMaybeOnDisk("key"));
+        assertTrue(andCache.isMaybeOnDisk("key"));
+        cache.delete("key");
+        andCache.delete("key");
+        assertFalse(cache.isMaybeOnDisk("key"));
+        assertFalse(andCache.isMaybeOnDisk("key"));
+    }
+
+    @Test
+    public void testEvictedKeyRuledOut() throws Exception {
+        int entrySize = 100;
+        int diskEntries = 10;
+        DualCache<String> cache = new JvmBuilder<String>("diskkeyfilter", 0)
+            .noRam()
+            .useSerializerInDisk(entrySize * diskEntries, temporaryFolder.getRoot(), serializer)
+            .useNamespace("ns", 0, 0)
+            .build();
+        DualCacheNamespace<String> namespace = cache.namespace("ns");
+        StringBuilder value = new StringBuilder();
+        while (value.length() < entrySize) {
+            value.append('x');
+        }
+        int keyCount = 3 * diskEntries;
+        for (int i = 0; i < keyCount; i++) {
+            namespace.put("key" + i, value.toString());
+        }
+        int onDisk = 0;
+        for (int i = 0; i < keyCount; i++) {
+            String key = "ns-key" + i;
+            boolean isOnDisk = DiskEntries.fileOf(temporaryFolder.getRoot(), key).exists();
+            // Without removal listener, the evictions of the disk layer still reach the filter.
+            assertEquals(key, isOnDisk, cache.isMaybeOnDisk(key));
+            if (isOnDisk) {
+                onDisk++;
+            }
+        }
+        assertTrue(onDisk < keyCount);
+        assertEquals(onDisk * entrySize, namespace.getDiskUsedInBytes());
+        assertEquals(keyCount - onDisk, namespace.getStats().getDiskEvictionCount());
+    }
+
+    private static void createEntry(File folder, String key) throws IOException {
+        assertTrue(new File(folder, key + ".0").createNewFile());
+    }
+}
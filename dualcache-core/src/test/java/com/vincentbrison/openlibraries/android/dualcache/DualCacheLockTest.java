@@ -0,0 +1,150 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test the table of entry locks.
+ */
+public class DualCacheLockTest {
+
+    @Test
+    public void testStripeCount() {
+        assertEquals(2, newLock(1).getStripeCount());
+        assertEquals(64, newLock(64).getStripeCount());
+        assertEquals(128, newLock(65).getStripeCount());
+        assertEquals(64, new DualCacheLock(StatsRecorder.DISABLED, TraceRecorder.DISABLED)
+            .getStripeCount());
+    }
+
+    @Test
+    public void testKeysSpreadOverStripes() {
+        DualCacheLock lock = newLock(64);
+        int[] counts = new int[lock.getStripeCount()];
+        int keyCount = 64 * 100;
+        for (int i = 0; i < keyCount; i++) {
+            String key = "key" + i;
+            int stripe = lock.stripeOf(key);
+            assertEquals(stripe, lock.stripeOf(key));
+            counts[stripe]++;
+        }
+        for (int count : counts) {
+            // Every stripe gets a fair share of the keys.
+            assertTrue(count > 100 / 4 && count < 100 * 4);
+        }
+    }
+
+    @Test
+    public void testWriteStampGrowsOncePerWrite() {
+        DualCacheLock lock = newLock(64);
+        lock.lockDiskEntryWrite("key");
+        int stamp = lock.writeStampOf("key");
+        // Nested holds and read locks do not count as writes.
+        lock.lockDiskEntryWrite("key");
+        lock.unLockDiskEntryWrite("key");
+        lock.lockDiskEntryRead("key");
+        lock.unLockDiskEntryRead("key");
+        assertEquals(stamp, lock.writeStampOf("key"));
+        lock.unLockDiskEntryWrite("key");
+        lock.lockFullDiskWrite();
+        assertEquals(stamp + 1, lock.writeStampOf("key"));
+        lock.unLockFullDiskWrite();
+    }
+
+    @Test
+    public void testSameEntryLockedAgain() {
+        DualCacheLock lock = newLock(64);
+        lock.lockDiskEntryWrite("key");
+        lock.lockDiskEntryRead("key");
+        lock.lockDiskEntryWrite("key");
+        lock.unLockDiskEntryWrite("key");
+        lock.unLockDiskEntryRead("key");
+        lock.unLockDiskEntryWrite("key");
+        // Every lock has been released.
+        lock.lockFullDiskWrite();
+        lock.unLockFullDiskWrite();
+    }
+
+    @Test
+    public void testNestedLocksRejected() {
+        DualCacheLock lock = newLock(64);
+        String key = "key";
+        String other = keyOnOtherStripe(lock, key);
+        lock.lockDiskEntryWrite(key);
+        try {
+            lock.lockDiskEntryRead(other);
+            fail();
+        } catch (IllegalStateException e) {
+            // Expected, the other entry may be locked by a thread waiting for this one.
+        }
+        try {
+            lock.lockFullDiskWrite();
+            fail();
+        } catch (IllegalStateException e) {
+            // Expected, the full lock waits for the entry locks to be released.
+        }
+        lock.unLockDiskEntryWrite(key);
+
+        lock.lockDiskEntryRead(key);
+        try {
+            lock.lockDiskEntryWrite(key);
+            fail();
+        } catch (IllegalStateException e) {
+            // Expected, a read lock can not be upgraded.
+        }
+        lock.unLockDiskEntryRead(key);
+
+        // Once released, any entry can be locked.
+        lock.lockDiskEntryWrite(other);
+        lock.unLockDiskEntryWrite(other);
+    }
+
+    @Test
+    public void testReadsSharedAndWritesExclusive() throws Exception {
+        final DualCacheLock lock = newLock(64);
+        lock.lockDiskEntryRead("key");
+        final CountDownLatch read = new CountDownLatch(1);
+        final CountDownLatch written = new CountDownLatch(1);
+        final AtomicBoolean isWriting = new AtomicBoolean();
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                lock.lockDiskEntryRead("key");
+                lock.unLockDiskEntryRead("key");
+                read.countDown();
+                lock.lockDiskEntryWrite("key");
+                isWriting.set(true);
+                lock.unLockDiskEntryWrite("key");
+                written.countDown();
+            }
+        }).start();
+        assertTrue(read.await(5, TimeUnit.SECONDS));
+        assertFalse(written.await(100, TimeUnit.MILLISECONDS));
+        assertFalse(isWriting.get());
+        lock.unLockDiskEntryRead("key");
+        assertTrue(written.await(5, TimeUnit.SECONDS));
+    }
+
+    private static DualCacheLock newLock(int stripes) {
+        return new DualCacheLock(stripes, StatsRecorder.DISABLED, TraceRecorder.DISABLED);
+    }
+
+    private static String keyOnOtherStripe(DualCacheLock lock, String key) {
+        for (int i = 0; ; i++) {
+            String other = "other" + i;
+            if (lock.stripeOf(other) != lock.stripeOf(key)) {
+                assertNotEquals(key, other);
+                return other;
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test the eviction counts of the statistics of a cache.
+ */
+public class DualCacheStatsTest {
+    private static final int ENTRY_SIZE = 100;
+    private static final int LAYER_ENTRIES = 10;
+    private static final int KEY_COUNT = 3 * LAYER_ENTRIES;
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final CacheSerializer<String> serializer = new CacheSerializer<String>() {
+        @Override
+        public String fromString(String data) {
+            return data;
+        }
+
+        @Override
+        public String toString(String object) {
+            return object;
+        }
+    };
+
+    @Test
+    public void testEvictionsCountedPerLayer() throws Exception {
+        DualCache<String> cache = fillCache(true);
+        int onDisk = 0;
+        for (int i = 0; i < KEY_COUNT; i++) {
+            if (DiskEntries.fileOf(temporaryFolder.getRoot(), "key" + i).exists()) {
+                onDisk++;
+            }
+        }
+        DualCacheStats stats = cache.getStats();
+        assertEquals(KEY_COUNT - LAYER_ENTRIES, stats.getRamEvictionCount());
+        assertEquals(KEY_COUNT - onDisk, stats.getDiskEvictionCount());
+
+        cache.invalidateRAM();
+        assertEquals(KEY_COUNT, cache.getStats().getRamEvictionCount());
+    }
+
+    @Test
+    public void testNoEvictionCountedWithoutStats() throws Exception {
+        DualCache<String> cache = fillCache(false);
+        cache.invalidateRAM();
+        DualCacheStats stats = cache.getStats();
+        assertEquals(0, stats.getRamEvictionCount());
+        assertEquals(0, stats.getDiskEvictionCount());
+    }
+
+    private DualCache<String> fillCache(boolean recordStats) {
+        JvmBuilder<String> builder = new JvmBuilder<String>("stats", 0)
+            .useSerializerInRam(ENTRY_SIZE * LAYER_ENTRIES, serializer)
+            .useSerializerInDisk(ENTRY_SIZE * LAYER_ENTRIES, temporaryFolder.getRoot(), serializer);
+        if (recordStats) {
+            builder.recordStats();
+        }
+        DualCache<String> cache = builder.build();
+        for (int i = 0; i < KEY_COUNT; i++) {
+            cache.put("key" + i, valueOf(i));
+        }
+        return cache;
+    }
+
+    /**
+     * @return a value whose serialized form takes {@link #ENTRY_SIZE} bytes in both layers.
+     */
+    private static String valueOf(int i) {
+        StringBuilder value = new StringBuilder();
+        value.append(i);
+        while (value.length() < ENTRY_SIZE) {
+            value.append('x');
+        }
+        return value.toString();
+    }
+}
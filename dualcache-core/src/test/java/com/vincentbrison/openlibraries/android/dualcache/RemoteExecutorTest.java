@@ -0,0 +1,71 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test the executor making the requests of the remote layer when none is configured.
+ */
+public class RemoteExecutorTest {
+    private static final long TIMEOUT_SECONDS = 1;
+
+    private final CacheSerializer<String> serializer = new CacheSerializer<String>() {
+        @Override
+        public String fromString(String data) {
+            return data;
+        }
+
+        @Override
+        public String toString(String object) {
+            return object;
+        }
+    };
+
+    @Test
+    public void testRemoteReadNotQueuedBehindBackgroundWork() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        Executor background = DualCacheExecutors.background();
+        // More blocked tasks than the background executor has threads.
+        int tasks = Math.max(2, Runtime.getRuntime().availableProcessors()) + 1;
+        for (int i = 0; i < tasks; i++) {
+            background.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+        }
+        try {
+            DualCache<String> cache = new JvmBuilder<String>("remote", 0)
+                .useSerializerInRam(1024, serializer)
+                .noDisk()
+                .useRemoteLayer(new RemoteCacheTransport() {
+                    @Override
+                    public String get(String key) {
+                        return "remote " + key;
+                    }
+
+                    @Override
+                    public void put(String key, String serialized) {
+                    }
+
+                    @Override
+                    public void remove(String key) {
+                    }
+                }, TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .build();
+            assertEquals("remote key", cache.get("key"));
+        } finally {
+            release.countDown();
+        }
+    }
+}
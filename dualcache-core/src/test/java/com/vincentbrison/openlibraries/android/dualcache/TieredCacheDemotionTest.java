@@ -0,0 +1,137 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the demotions of a tiered cache racing with the other operations.
+ */
+public class TieredCacheDemotionTest {
+    private static final long TIMEOUT_SECONDS = 10;
+
+    @Test
+    public void testDeleteDuringDemotion() throws Exception {
+        String[] keys = keysOnDistinctStripes();
+        final String evictedKey = keys[0];
+        final String evictingKey = keys[1];
+        final CountDownLatch evicted = new CountDownLatch(1);
+        final CountDownLatch deleted = new CountDownLatch(1);
+        BlockingRamTier firstTier = new BlockingRamTier(evicted, deleted);
+        MapTier secondTier = new MapTier();
+        final TieredCache<String> cache = new TieredCacheBuilder<String>()
+            .addTier(firstTier, TierPolicy.DEMOTING)
+            .addTier(secondTier, TierPolicy.VICTIM)
+            .build();
+
+        cache.put(evictedKey, "evicted");
+        Thread putter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                cache.put(evictingKey, "evicting");
+            }
+        });
+        putter.start();
+        assertTrue(evicted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        cache.delete(evictedKey);
+        deleted.countDown();
+        putter.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+
+        assertFalse(putter.isAlive());
+        assertFalse(secondTier.contains(evictedKey));
+        assertNull(cache.get(evictedKey));
+    }
+
+    /**
+     * @return two keys whose entry locks are distinct, so that deleting the first one does not
+     * wait for a put of the second one.
+     */
+    private static String[] keysOnDistinctStripes() {
+        DualCacheLock lock = new DualCacheLock(StatsRecorder.DISABLED, TraceRecorder.DISABLED);
+        String first = "key0";
+        for (int i = 1; ; i++) {
+            String second = "key" + i;
+            if (lock.stripeOf(first) != lock.stripeOf(second)) {
+                return new String[] {first, second};
+            }
+        }
+    }
+
+    /**
+     * Tier holding a single object, whose eviction waits for the object to be deleted.
+     */
+    private static final class BlockingRamTier extends ReferenceRamTier<String> {
+        private final CountDownLatch evicted;
+        private final CountDownLatch deleted;
+
+        BlockingRamTier(CountDownLatch evicted, CountDownLatch deleted) {
+            super(1, new SizeOf<String>() {
+                @Override
+                public int sizeOf(String object) {
+                    return 1;
+                }
+            });
+            this.evicted = evicted;
+            this.deleted = deleted;
+        }
+
+        @Override
+        public void setEvictionListener(final TierEvictionListener<String> listener) {
+            super.setEvictionListener(new TierEvictionListener<String>() {
+                @Override
+                public void onEvicted(String key, String value) {
+                    evicted.countDown();
+                    try {
+                        deleted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    listener.onEvicted(key, value);
+                }
+            });
+        }
+    }
+
+    /**
+     * Unbounded tier backed by a map.
+     */
+    private static final class MapTier implements CacheTier<String> {
+        private final Map<String, String> objects = new ConcurrentHashMap<>();
+
+        @Override
+        public String get(String key) {
+            return objects.get(key);
+        }
+
+        @Override
+        public boolean contains(String key) {
+            return objects.containsKey(key);
+        }
+
+        @Override
+        public void put(String key, String value) {
+            objects.put(key, value);
+        }
+
+        @Override
+        public void remove(String key) {
+            objects.remove(key);
+        }
+
+        @Override
+        public void clear() {
+            objects.clear();
+        }
+
+        @Override
+        public void setEvictionListener(TierEvictionListener<String> listener) {
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.vincentbrison.openlibraries.android.dualcache.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder events created by {@link JfrCacheTracer}, one type per cache operation. The
+ * cache only reports the operations slower than the threshold of its tracer, so the events carry
+ * the measured duration in a field of their own and their built-in duration is zero.
+ */
+final class DualCacheEvents {
+
+    private DualCacheEvents() {
+    }
+
+    @Category("DualCache")
+    abstract static class DualCacheEvent extends Event {
+
+        @Label("Layer")
+        @Description("Layer of the cache, RAM or DISK, empty if none")
+        String layer;
+
+        @Label("Key Hash")
+        @Description("Hash code of the key of the entry")
+        int keyHash;
+
+        @Label("Size")
+        @Description("Size of the entry in the layer, -1 if unknown")
+        @DataAmount
+        long size;
+
+        @Label("Operation Duration")
+        @Timespan
+        long operationDuration;
+    }
+
+    @Name("com.vincentbrison.dualcache.Get")
+    @Label("Cache Get")
+    @Description("Lookup of an object, the layer is the one which answered")
+    static final class GetEvent extends DualCacheEvent {
+    }
+
+    @Name("com.vincentbrison.dualcache.DiskRead")
+    @Label("Cache Disk Read")
+    static final class DiskReadEvent extends DualCacheEvent {
+    }
+
+    @Name("com.vincentbrison.dualcache.Serialization")
+    @Label("Cache Serialization")
+    static final class SerializationEvent extends DualCacheEvent {
+    }
+
+    @Name("com.vincentbrison.dualcache.Deserialization")
+    @Label("Cache Deserialization")
+    static final class DeserializationEvent extends DualCacheEvent {
+    }
+
+    @Name("com.vincentbrison.dualcache.Eviction")
+    @Label("Cache Eviction")
+    static final class EvictionEvent extends DualCacheEvent {
+    }
+
+    @Name("com.vincentbrison.dualcache.Invalidation")
+    @Label("Cache Invalidation")
+    static final class InvalidationEvent extends DualCacheEvent {
+    }
+
+    @Name("com.vincentbrison.dualcache.LockWait")
+    @Label("Cache Lock Wait")
+    static final class LockWaitEvent extends DualCacheEvent {
+    }
+}
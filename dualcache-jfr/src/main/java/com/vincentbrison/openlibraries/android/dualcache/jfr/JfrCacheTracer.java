@@ -0,0 +1,59 @@
+package com.vincentbrison.openlibraries.android.dualcache.jfr;
+
+import com.vincentbrison.openlibraries.android.dualcache.CacheOperation;
+import com.vincentbrison.openlibraries.android.dualcache.CacheTracer;
+import com.vincentbrison.openlibraries.android.dualcache.DualCacheLayer;
+
+/**
+ * Tracer turning the slow operations of a cache into Java Flight Recorder events, so that cache
+ * stalls show up next to the GC and I/O events of a recording:
+ *
+ * <pre>
+ * new JvmBuilder&lt;T&gt;(id, version)
+ *     .useTracer(new JfrCacheTracer(), 1, TimeUnit.MILLISECONDS)
+ *     ...
+ * </pre>
+ *
+ * <p>Events are named {@code com.vincentbrison.dualcache.*} and can be disabled individually in
+ * the recording settings. When no recording is running, an operation reported by the cache only
+ * costs the allocation of an event.
+ */
+public final class JfrCacheTracer implements CacheTracer {
+
+    @Override
+    public void trace(
+        CacheOperation operation,
+        DualCacheLayer layer,
+        int keyHash,
+        long sizeBytes,
+        long durationNanos
+    ) {
+        DualCacheEvents.DualCacheEvent event = newEvent(operation);
+        if (event.isEnabled()) {
+            event.layer = layer == null ? "" : layer.name();
+            event.keyHash = keyHash;
+            event.size = sizeBytes;
+            event.operationDuration = durationNanos;
+            event.commit();
+        }
+    }
+
+    private static DualCacheEvents.DualCacheEvent newEvent(CacheOperation operation) {
+        switch (operation) {
+            case GET:
+                return new DualCacheEvents.GetEvent();
+            case DISK_READ:
+                return new DualCacheEvents.DiskReadEvent();
+            case SERIALIZATION:
+                return new DualCacheEvents.SerializationEvent();
+            case DESERIALIZATION:
+                return new DualCacheEvents.DeserializationEvent();
+            case EVICTION:
+                return new DualCacheEvents.EvictionEvent();
+            case INVALIDATION:
+                return new DualCacheEvents.InvalidationEvent();
+            default:
+                return new DualCacheEvents.LockWaitEvent();
+        }
+    }
+}
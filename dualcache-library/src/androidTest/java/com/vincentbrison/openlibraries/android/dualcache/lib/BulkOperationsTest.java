@@ -0,0 +1,168 @@
+package com.vincentbrison.openlibraries.android.dualcache.lib;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.vincentbrison.openlibraries.android.dualcache.Builder;
+import com.vincentbrison.openlibraries.android.dualcache.CacheComputeFunction;
+import com.vincentbrison.openlibraries.android.dualcache.CacheSerializer;
+import com.vincentbrison.openlibraries.android.dualcache.DualCache;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test the bulk operations, run in parallel on the async executor.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BulkOperationsTest {
+    private static final String CACHE_NAME = "bulk";
+    private static final int RAM_SIZE = 1024 * 1024;
+    private static final int DISK_SIZE = 10 * 1024 * 1024;
+    private static final int KEY_COUNT = 20;
+
+    private ExecutorService asyncExecutor;
+    private DualCache<String> cache;
+
+    @Before
+    public void setUp() throws Exception {
+        Context context = InstrumentationRegistry.getTargetContext();
+        CacheSerializer<String> serializer = new CacheSerializer<String>() {
+            @Override
+            public String fromString(String data) {
+                return data;
+            }
+
+            @Override
+            public String toString(String object) {
+                return object;
+            }
+        };
+        asyncExecutor = Executors.newSingleThreadExecutor();
+        cache = new Builder<String>(CACHE_NAME, 0)
+            .useSerializerInRam(RAM_SIZE, serializer)
+            .useSerializerInDisk(
+                DISK_SIZE, new File(context.getCacheDir(), CACHE_NAME), serializer)
+            .useAsyncExecutor(asyncExecutor)
+            .build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        asyncExecutor.shutdownNow();
+        cache.invalidate();
+    }
+
+    @Test
+    public void testBulkOperationsFromAsyncExecutor() throws Exception {
+        // The only worker of the executor runs the bulk operations, so it can not run the
+        // operations they queue on the same executor.
+        Future<Map<String, String>> result = asyncExecutor.submit(
+            new Callable<Map<String, String>>() {
+                @Override
+                public Map<String, String> call() {
+                    cache.putAll(values("value"));
+                    cache.invalidateRAM();
+                    return cache.getAll(keys());
+                }
+            });
+        assertEquals(values("value"), result.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testPutAllWritesEveryRamEntry() throws Exception {
+        // More keys than entry locks, so that the batch writes several keys of each lock.
+        Map<String, String> values = new LinkedHashMap<>();
+        long size = 0;
+        for (int i = 0; i < 10 * KEY_COUNT; i++) {
+            values.put("key" + i, "value" + i);
+            size += ("value" + i).length();
+        }
+        cache.putAll(values);
+        assertEquals(size, cache.getRamUsedInBytes());
+        assertEquals(values, cache.getAll(values.keySet()));
+        cache.invalidateRAM();
+        assertEquals(values, cache.getAll(values.keySet()));
+    }
+
+    @Test
+    public void testComputeMixedWithBulkOperations() throws Exception {
+        final int iterations = 100;
+        List<Thread> threads = new ArrayList<>();
+        threads.add(new Thread() {
+            @Override
+            public void run() {
+                for (int i = 0; i < iterations; i++) {
+                    final String value = "compute" + i;
+                    for (String key : keys()) {
+                        cache.compute(key, new CacheComputeFunction<String>() {
+                            @Override
+                            public String compute(String key, String currentObject) {
+                                return value + key;
+                            }
+                        });
+                    }
+                }
+            }
+        });
+        threads.add(new Thread() {
+            @Override
+            public void run() {
+                for (int i = 0; i < iterations; i++) {
+                    cache.putAll(values("put" + i));
+                }
+            }
+        });
+        threads.add(new Thread() {
+            @Override
+            public void run() {
+                for (int i = 0; i < iterations; i++) {
+                    cache.deleteAll(keys().subList(0, KEY_COUNT / 2));
+                }
+            }
+        });
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Every key holds the same object in RAM and on disk.
+        Map<String, String> inRam = cache.getAll(keys());
+        cache.invalidateRAM();
+        assertEquals(inRam, cache.getAll(keys()));
+    }
+
+    private static List<String> keys() {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < KEY_COUNT; i++) {
+            keys.add("key" + i);
+        }
+        return keys;
+    }
+
+    private static Map<String, String> values(String prefix) {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String key : keys()) {
+            values.put(key, prefix + key);
+        }
+        return values;
+    }
+}
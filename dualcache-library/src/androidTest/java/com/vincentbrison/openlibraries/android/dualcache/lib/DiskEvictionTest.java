@@ -0,0 +1,122 @@
+package com.vincentbrison.openlibraries.android.dualcache.lib;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.vincentbrison.openlibraries.android.dualcache.Builder;
+import com.vincentbrison.openlibraries.android.dualcache.CacheSerializer;
+import com.vincentbrison.openlibraries.android.dualcache.DualCache;
+import com.vincentbrison.openlibraries.android.dualcache.DualCacheLayer;
+import com.vincentbrison.openlibraries.android.dualcache.RemovalCause;
+import com.vincentbrison.openlibraries.android.dualcache.RemovalListener;
+import com.vincentbrison.openlibraries.android.dualcache.RemovalNotification;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the notification of the entries evicted by the disk layer.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DiskEvictionTest {
+    private static final String CACHE_NAME = "diskeviction";
+    private static final int ENTRY_SIZE = 100;
+    private static final int DISK_ENTRIES = 10;
+    private static final int KEY_COUNT = 3 * DISK_ENTRIES;
+
+    private final List<String> evicted = new ArrayList<>();
+    private final List<String> explicit = new ArrayList<>();
+    private DualCache<String> cache;
+
+    @Before
+    public void setUp() throws Exception {
+        Context context = InstrumentationRegistry.getTargetContext();
+        CacheSerializer<String> serializer = new CacheSerializer<String>() {
+            @Override
+            public String fromString(String data) {
+                return data;
+            }
+
+            @Override
+            public String toString(String object) {
+                return object;
+            }
+        };
+        RemovalListener<String> listener = new RemovalListener<String>() {
+            @Override
+            public synchronized void onRemoval(RemovalNotification<String> notification) {
+                assertEquals(DualCacheLayer.DISK, notification.getLayer());
+                if (notification.getCause() == RemovalCause.EVICTED) {
+                    evicted.add(notification.getKey());
+                } else if (notification.getCause() == RemovalCause.EXPLICIT) {
+                    explicit.add(notification.getKey());
+                }
+            }
+        };
+        cache = new Builder<String>(CACHE_NAME, 0)
+            .noRam()
+            .useSerializerInDisk(ENTRY_SIZE * DISK_ENTRIES,
+                new File(context.getCacheDir(), CACHE_NAME), serializer)
+            .useRemovalListener(listener, new Executor() {
+                @Override
+                public void execute(Runnable command) {
+                    command.run();
+                }
+            })
+            .build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        cache.invalidate();
+    }
+
+    @Test
+    public void testEvictionsMatchDiskContent() throws Exception {
+        for (int i = 0; i < KEY_COUNT; i++) {
+            cache.put("key" + i, valueOf(i));
+            if (i % 3 == 0) {
+                // Keeps the first entry the most recently used one.
+                assertEquals(valueOf(0), cache.get("key0"));
+            }
+        }
+        assertFalse(evicted.isEmpty());
+        assertFalse(evicted.contains("key0"));
+        Set<String> notified = new HashSet<>(evicted);
+        assertEquals(evicted.size(), notified.size());
+        for (int i = 0; i < KEY_COUNT; i++) {
+            String key = "key" + i;
+            // An entry is notified as evicted if and only if it left the disk layer.
+            assertEquals(key, notified.contains(key), cache.get(key) == null);
+        }
+
+        cache.delete("key0");
+        assertEquals(1, explicit.size());
+        assertEquals("key0", explicit.get(0));
+        assertFalse(cache.contains("key0"));
+        assertTrue(cache.contains("key" + (KEY_COUNT - 1)));
+    }
+
+    private static String valueOf(int i) {
+        StringBuilder value = new StringBuilder();
+        value.append(i);
+        while (value.length() < ENTRY_SIZE) {
+            value.append('x');
+        }
+        return value.toString();
+    }
+}
@@ -5,11 +5,27 @@ import android.support.test.InstrumentationRegistry;
 import android.support.test.runner.AndroidJUnit4;
 import android.util.Log;
 
+import com.vincentbrison.openlibraries.android.dualcache.CacheCallback;
+import com.vincentbrison.openlibraries.android.dualcache.CacheComputeFunction;
+import com.vincentbrison.openlibraries.android.dualcache.CacheCopier;
+import com.vincentbrison.openlibraries.android.dualcache.CacheEventListener;
+import com.vincentbrison.openlibraries.android.dualcache.CacheLoader;
+import com.vincentbrison.openlibraries.android.dualcache.CacheMergeFunction;
+import com.vincentbrison.openlibraries.android.dualcache.CacheOperation;
 import com.vincentbrison.openlibraries.android.dualcache.CacheSerializer;
+import com.vincentbrison.openlibraries.android.dualcache.CacheTracer;
+import com.vincentbrison.openlibraries.android.dualcache.CacheViewSerializer;
 import com.vincentbrison.openlibraries.android.dualcache.DualCache;
 import com.vincentbrison.openlibraries.android.dualcache.DualCacheDiskMode;
+import com.vincentbrison.openlibraries.android.dualcache.DualCacheLayer;
+import com.vincentbrison.openlibraries.android.dualcache.DualCacheNamespace;
+import com.vincentbrison.openlibraries.android.dualcache.DualCacheNamespaceStats;
 import com.vincentbrison.openlibraries.android.dualcache.DualCacheRamMode;
+import com.vincentbrison.openlibraries.android.dualcache.DualCacheStats;
+import com.vincentbrison.openlibraries.android.dualcache.HitRatioCurve;
 import com.vincentbrison.openlibraries.android.dualcache.JsonSerializer;
+import com.vincentbrison.openlibraries.android.dualcache.RemovalListener;
+import com.vincentbrison.openlibraries.android.dualcache.RemovalNotification;
 import com.vincentbrison.openlibraries.android.dualcache.SizeOf;
 import com.vincentbrison.openlibraries.android.dualcache.lib.testobjects.AbstractVehicule;
 import com.vincentbrison.openlibraries.android.dualcache.lib.testobjects.CoolBike;
@@ -20,12 +36,23 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.io.File;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 @RunWith(AndroidJUnit4.class)
 public abstract class DualCacheTest {
@@ -33,9 +60,21 @@ public abstract class DualCacheTest {
     protected static final int RAM_MAX_SIZE = 1000;
     protected static final int DISK_MAX_SIZE = 20 * RAM_MAX_SIZE;
     protected static final String CACHE_NAME = "test";
+    protected static final String NAMESPACE = "cars";
+    protected static final int HOT_OBJECTS = 4;
     protected static final int TEST_APP_VERSION = 0;
+    protected static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
     protected DualCache<AbstractVehicule> cache;
     protected CacheSerializer<AbstractVehicule> defaultCacheSerializer;
+    protected CacheCopier<AbstractVehicule> copier;
+    protected CountingEventListener eventListener;
+    protected RecordingRemovalListener removalListener;
+    protected CountingTracer tracer;
     private Context context;
 
     protected Context getContext() {
@@ -45,6 +84,15 @@ public abstract class DualCacheTest {
     @Before
     public void setUp() throws Exception {
         defaultCacheSerializer = new JsonSerializer<>(AbstractVehicule.class);
+        copier = new CacheCopier<AbstractVehicule>() {
+            @Override
+            public AbstractVehicule copy(AbstractVehicule object) {
+                return defaultCacheSerializer.fromString(defaultCacheSerializer.toString(object));
+            }
+        };
+        eventListener = new CountingEventListener();
+        removalListener = new RecordingRemovalListener();
+        tracer = new CountingTracer();
         context = InstrumentationRegistry.getTargetContext();
     }
 
@@ -204,6 +252,433 @@ public abstract class DualCacheTest {
         assertFalse("test", false);
     }
 
+    @Test
+    public void testGetWithLoaderCoalescesConcurrentMisses() throws Exception {
+        final String key = "loaded";
+        final AtomicInteger numberOfLoads = new AtomicInteger();
+        final CacheLoader<AbstractVehicule> loader = new CacheLoader<AbstractVehicule>() {
+            @Override
+            public AbstractVehicule load(String key) {
+                numberOfLoads.incrementAndGet();
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+                return new CoolCar();
+            }
+        };
+        final List<AbstractVehicule> results = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    AbstractVehicule result = cache.get(key, loader);
+                    synchronized (results) {
+                        results.add(result);
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(1, numberOfLoads.get());
+        assertEquals(10, results.size());
+        for (AbstractVehicule result : results) {
+            assertEquals(new CoolCar(), result);
+        }
+        assertEquals(new CoolCar(), cache.get(key));
+    }
+
+    @Test
+    public void testAsyncOperations() throws Exception {
+        CoolCar car = new CoolCar();
+        String keyCar = "car";
+        cache.putAsync(keyCar, car).get();
+        assertEquals(car, cache.getAsync(keyCar).get());
+        assertEquals(true, cache.containsAsync(keyCar).get());
+
+        cache.invalidateRAM();
+        if (cache.getDiskMode().equals(DualCacheDiskMode.DISABLE)) {
+            assertNull(cache.getAsync(keyCar).get());
+        } else {
+            assertEquals(car, cache.getAsync(keyCar).get());
+        }
+
+        final CountDownLatch deleted = new CountDownLatch(1);
+        cache.deleteAsync(keyCar).addCallback(new CacheCallback<Void>() {
+            @Override
+            public void onSuccess(Void result) {
+                deleted.countDown();
+            }
+
+            @Override
+            public void onFailure(Throwable error) {
+                throw new AssertionError(error);
+            }
+        });
+        assertTrue(deleted.await(5, TimeUnit.SECONDS));
+        assertNull(cache.getAsync(keyCar).get());
+        assertEquals(false, cache.containsAsync(keyCar).get());
+    }
+
+    @Test
+    public void testBulkOperations() throws Exception {
+        CoolCar car = new CoolCar();
+        CoolBike bike = new CoolBike();
+        Map<String, AbstractVehicule> vehicules = new LinkedHashMap<>();
+        vehicules.put("car", car);
+        vehicules.put("bike", bike);
+        cache.putAll(vehicules);
+
+        Map<String, AbstractVehicule> result = cache.getAll(Arrays.asList("bike", "none", "car"));
+        assertEquals(Arrays.asList("bike", "car"), new ArrayList<>(result.keySet()));
+        assertEquals(bike, result.get("bike"));
+        assertEquals(car, result.get("car"));
+
+        cache.invalidateRAM();
+        result = cache.getAll(Arrays.asList("car", "bike"));
+        if (cache.getDiskMode().equals(DualCacheDiskMode.DISABLE)) {
+            assertTrue(result.isEmpty());
+        } else {
+            assertEquals(vehicules, result);
+        }
+
+        cache.putAll(vehicules);
+        cache.deleteAll(Arrays.asList("car", "bike"));
+        assertTrue(cache.getAll(Arrays.asList("car", "bike")).isEmpty());
+        assertEquals(false, cache.contains("car"));
+        assertEquals(false, cache.contains("bike"));
+    }
+
+    @Test
+    public void testStatistics() throws Exception {
+        boolean hasRam = !cache.getRAMMode().equals(DualCacheRamMode.DISABLE);
+        boolean hasDisk = !cache.getDiskMode().equals(DualCacheDiskMode.DISABLE);
+        cache.put("car", new CoolCar());
+        cache.invalidateRAM();
+        cache.get("car");
+        cache.get("car");
+        cache.get("missing");
+
+        DualCacheStats stats = cache.getStats();
+        if (hasRam) {
+            assertEquals(hasDisk ? 1 : 0, stats.getRamHitCount());
+            assertEquals(hasDisk ? 2 : 3, stats.getRamMissCount());
+            assertEquals(3, stats.getRamGetLatency().getCount());
+        } else {
+            assertEquals(0, stats.getRamGetLatency().getCount());
+        }
+        if (hasDisk) {
+            assertEquals(hasRam ? 1 : 2, stats.getDiskHitCount());
+            assertEquals(1, stats.getDiskMissCount());
+            assertTrue(stats.getLockWaitLatency().getCount() > 0);
+        } else {
+            assertEquals(0, stats.getDiskHitCount() + stats.getDiskMissCount());
+        }
+        assertTrue(stats.getDiskGetLatency().getPercentileNanos(50)
+            <= stats.getDiskGetLatency().getPercentileNanos(100));
+        assertEquals(hasRam ? 1 : 0, stats.getRamEvictionCount());
+    }
+
+    @Test
+    public void testHotObjects() throws Exception {
+        boolean isRamSerialized =
+            cache.getRAMMode().equals(DualCacheRamMode.ENABLE_WITH_SPECIFIC_SERIALIZER);
+        boolean hasRam = !cache.getRAMMode().equals(DualCacheRamMode.DISABLE);
+        CoolCar car = new CoolCar();
+        cache.put("car", car);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(car, cache.get("car"));
+        }
+
+        // The serialized configurations keep the hot objects decoded after the first hit.
+        long deserializations = cache.getStats().getDeserializeLatency().getCount();
+        assertEquals(isRamSerialized ? 1 : (hasRam ? 0 : 3), deserializations);
+
+        CoolBike bike = new CoolBike();
+        cache.put("car", bike);
+        assertEquals(bike, cache.get("car"));
+        cache.delete("car");
+        assertNull(cache.get("car"));
+    }
+
+    @Test
+    public void testViews() throws Exception {
+        boolean hasRam = !cache.getRAMMode().equals(DualCacheRamMode.DISABLE);
+        boolean hasDisk = !cache.getDiskMode().equals(DualCacheDiskMode.DISABLE);
+        boolean isRamSerialized =
+            cache.getRAMMode().equals(DualCacheRamMode.ENABLE_WITH_SPECIFIC_SERIALIZER);
+        CacheViewSerializer<AbstractVehicule, String> sourceOfView =
+            new CacheViewSerializer<AbstractVehicule, String>() {
+                @Override
+                public String fromString(String data) {
+                    return data.isEmpty() ? null : "ram";
+                }
+
+                @Override
+                public String fromBytes(ByteBuffer data) {
+                    return data.remaining() == 0 ? null : "disk";
+                }
+
+                @Override
+                public String fromObject(AbstractVehicule object) {
+                    return object.getName();
+                }
+            };
+        cache.put("car", new CoolCar());
+        String ramView = isRamSerialized ? "ram" : CoolCar.class.getSimpleName();
+        assertEquals(hasRam ? ramView : "disk", cache.getView("car", sourceOfView));
+        cache.invalidateRAM();
+        assertEquals(hasDisk ? "disk" : null, cache.getView("car", sourceOfView));
+        assertNull(cache.getView("missing", sourceOfView));
+        assertEquals(0, cache.getStats().getDeserializeLatency().getCount());
+    }
+
+    @Test
+    public void testDiskCompression() throws Exception {
+        boolean hasDisk = !cache.getDiskMode().equals(DualCacheDiskMode.DISABLE);
+        // Entries written before a dictionary is trained, then enough writes to train it.
+        int numberOfEarlyItems = 10;
+        for (int i = 0; i < numberOfEarlyItems; i++) {
+            cache.put("early" + i, i % 2 == 0 ? new CoolCar() : new CoolBike());
+        }
+        int numberOfItems = 20;
+        for (int i = 0; i < 300; i++) {
+            AbstractVehicule vehicule = i % 2 == 0 ? new CoolCar() : new CoolBike();
+            cache.put("vehicule" + (i % numberOfItems), vehicule);
+        }
+        cache.invalidateRAM();
+        for (int i = 0; i < numberOfEarlyItems; i++) {
+            AbstractVehicule vehicule = i % 2 == 0 ? new CoolCar() : new CoolBike();
+            assertEquals(hasDisk ? vehicule : null, cache.get("early" + i));
+        }
+        for (int i = 0; i < numberOfItems; i++) {
+            AbstractVehicule vehicule = i % 2 == 0 ? new CoolCar() : new CoolBike();
+            assertEquals(hasDisk ? vehicule : null, cache.get("vehicule" + i));
+        }
+    }
+
+    @Test
+    public void testDiskReadsCloseEntries() throws Exception {
+        int numberOfItems = 20;
+        for (int i = 0; i < 300; i++) {
+            AbstractVehicule vehicule = i % 2 == 0 ? new CoolCar() : new CoolBike();
+            cache.put("vehicule" + (i % numberOfItems), vehicule);
+        }
+        int openFiles = countOpenFiles();
+        for (int i = 0; i < 2000; i++) {
+            cache.invalidateRAM();
+            cache.get("vehicule" + (i % numberOfItems));
+            cache.contains("vehicule" + (i % numberOfItems));
+        }
+        if (openFiles >= 0) {
+            assertTrue(openFiles + " then " + countOpenFiles(),
+                countOpenFiles() < openFiles + numberOfItems);
+        }
+    }
+
+    @Test
+    public void testHitRatioCurve() throws Exception {
+        boolean hasRam = !cache.getRAMMode().equals(DualCacheRamMode.DISABLE);
+        boolean hasDisk = !cache.getDiskMode().equals(DualCacheDiskMode.DISABLE);
+        for (int i = 0; i < 200; i++) {
+            cache.put("car" + i, new CoolCar());
+            cache.get("car" + i);
+            cache.get("car" + (i / 2));
+        }
+
+        DualCacheStats stats = cache.getStats();
+        assertEquals(hasRam, stats.getRamHitRatioCurve() != null);
+        assertEquals(hasDisk, stats.getDiskHitRatioCurve() != null);
+        for (HitRatioCurve curve
+            : new HitRatioCurve[] {stats.getRamHitRatioCurve(), stats.getDiskHitRatioCurve()}) {
+            if (curve != null) {
+                double previous = 0;
+                for (double factor : new double[] {0.5, 1, 2, 4}) {
+                    double hitRatio = curve.getHitRatio(factor);
+                    assertTrue(hitRatio >= previous && hitRatio <= 1);
+                    previous = hitRatio;
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testNamespaces() throws Exception {
+        boolean hasRam = !cache.getRAMMode().equals(DualCacheRamMode.DISABLE);
+        boolean hasDisk = !cache.getDiskMode().equals(DualCacheDiskMode.DISABLE);
+        DualCacheNamespace<AbstractVehicule> cars = cache.namespace(NAMESPACE);
+        CoolCar car = new CoolCar();
+        cars.put("car", car);
+        assertEquals(car, cars.get("car"));
+        assertEquals(car, cache.get(NAMESPACE + "-car"));
+        assertTrue(cache.contains(NAMESPACE + "-car"));
+
+        // Overflow the quotas of the namespace, which are half of the sizes of the layers.
+        int numberOfItemsToAdd = 1;
+        if (hasRam) {
+            numberOfItemsToAdd += RAM_MAX_SIZE / 2 / cars.getRamUsedInBytes();
+        }
+        if (hasDisk) {
+            numberOfItemsToAdd = Math.max(
+                numberOfItemsToAdd, 1 + (int) (DISK_MAX_SIZE / 2 / cars.getDiskUsedInBytes()));
+        }
+        for (int i = 0; i < numberOfItemsToAdd; i++) {
+            cars.put("car" + i, new CoolCar());
+        }
+        assertFalse(cars.contains("car"));
+
+        DualCacheNamespaceStats stats = cars.getStats();
+        if (hasRam) {
+            assertEquals(2, stats.getRamHitCount());
+            assertTrue(stats.getRamEvictionCount() > 0);
+            assertTrue(cars.getRamUsedInBytes() <= RAM_MAX_SIZE / 2);
+        } else {
+            assertEquals(-1, cars.getRamUsedInBytes());
+        }
+        if (hasDisk) {
+            assertEquals(hasRam ? 0 : 2, stats.getDiskHitCount());
+            assertTrue(stats.getDiskEvictionCount() > 0);
+            assertTrue(cars.getDiskUsedInBytes() <= DISK_MAX_SIZE / 2);
+        } else {
+            assertEquals(-1, cars.getDiskUsedInBytes());
+        }
+    }
+
+    @Test
+    public void testTracer() throws Exception {
+        boolean hasRam = !cache.getRAMMode().equals(DualCacheRamMode.DISABLE);
+        boolean hasDisk = !cache.getDiskMode().equals(DualCacheDiskMode.DISABLE);
+        cache.put("car", new CoolCar());
+        cache.get("car");
+        cache.invalidateRAM();
+        cache.get("car");
+
+        // The threshold of the tracer is zero, so every operation is reported.
+        assertEquals(2, tracer.count(CacheOperation.GET));
+        assertEquals(hasRam ? 1 : 0, tracer.count(CacheOperation.INVALIDATION));
+        assertEquals(hasDisk ? (hasRam ? 1 : 2) : 0, tracer.count(CacheOperation.DISK_READ));
+        if (hasDisk) {
+            assertTrue(tracer.count(CacheOperation.LOCK_WAIT) > 0);
+            assertEquals(DualCacheLayer.DISK, tracer.lastLayer);
+        }
+        assertEquals(0, tracer.count(CacheOperation.EVICTION));
+    }
+
+    @Test
+    public void testTracerAsync() throws Exception {
+        cache.put("car", new CoolCar());
+        cache.getAsync("car").get();
+        cache.invalidateRAM();
+        cache.getAsync("car").get();
+        cache.getAsync("missing").get();
+
+        // Asynchronous gets are traced like the synchronous ones.
+        assertEquals(3, tracer.count(CacheOperation.GET));
+    }
+
+    @Test
+    public void testEventListener() throws Exception {
+        cache.put("car", new CoolCar());
+        cache.invalidateRAM();
+        cache.get("car");
+        cache.get("car");
+        cache.get("missing");
+
+        DualCacheStats stats = cache.getStats();
+        assertEquals(1, eventListener.writes.get());
+        assertEquals(stats.getRamEvictionCount(), eventListener.evictions.get());
+        assertEquals(stats.getRamHitCount(), eventListener.ramHits.get());
+        assertEquals(stats.getRamMissCount(), eventListener.ramMisses.get());
+        assertEquals(stats.getDiskHitCount(), eventListener.diskHits.get());
+        assertEquals(stats.getDiskMissCount(), eventListener.diskMisses.get());
+    }
+
+    @Test
+    public void testRemovalListener() throws Exception {
+        boolean hasRam = !cache.getRAMMode().equals(DualCacheRamMode.DISABLE);
+        boolean hasDisk = !cache.getDiskMode().equals(DualCacheDiskMode.DISABLE);
+        CoolCar car = new CoolCar();
+        cache.put("vehicule", car);
+        cache.put("vehicule", new CoolBike());
+        cache.delete("vehicule");
+        cache.put("vehicule", car);
+        cache.invalidate();
+
+        List<String> expected = new ArrayList<>();
+        if (hasRam) {
+            expected.add("RAM:REPLACED");
+        }
+        if (hasDisk) {
+            expected.add("DISK:REPLACED");
+        }
+        if (hasRam) {
+            expected.add("RAM:EXPLICIT");
+        }
+        if (hasDisk) {
+            expected.add("DISK:EXPLICIT");
+            expected.add("DISK:INVALIDATED");
+        }
+        if (hasRam) {
+            expected.add("RAM:INVALIDATED");
+        }
+        assertEquals(expected, removalListener.removals);
+        if (hasRam) {
+            assertEquals(car, removalListener.notifications.get(0).getValue());
+        }
+    }
+
+    @Test
+    public void testAtomicOperations() throws Exception {
+        CoolCar car = new CoolCar();
+        CoolBike bike = new CoolBike();
+        String key = "vehicule";
+        CacheComputeFunction<AbstractVehicule> swap = new CacheComputeFunction<AbstractVehicule>() {
+            @Override
+            public AbstractVehicule compute(String key, AbstractVehicule currentObject) {
+                return currentObject instanceof CoolCar ? new CoolBike() : new CoolCar();
+            }
+        };
+
+        assertNull(cache.putIfAbsent(key, car));
+        assertEquals(car, cache.putIfAbsent(key, bike));
+        assertEquals(car, cache.get(key));
+
+        assertEquals(bike, cache.compute(key, swap));
+        cache.invalidateRAM();
+        if (cache.getDiskMode().equals(DualCacheDiskMode.DISABLE)) {
+            assertNull(cache.computeIfPresent(key, swap));
+            assertNull(cache.get(key));
+        } else {
+            assertEquals(car, cache.computeIfPresent(key, swap));
+            assertEquals(car, cache.get(key));
+        }
+
+        cache.delete(key);
+        assertNull(cache.computeIfPresent(key, swap));
+        assertNull(cache.get(key));
+
+        CacheMergeFunction<AbstractVehicule> deleteOnMerge =
+            new CacheMergeFunction<AbstractVehicule>() {
+                @Override
+                public AbstractVehicule merge(AbstractVehicule current, AbstractVehicule object) {
+                    return null;
+                }
+            };
+        assertEquals(bike, cache.merge(key, bike, deleteOnMerge));
+        assertEquals(bike, cache.get(key));
+        assertNull(cache.merge(key, car, deleteOnMerge));
+        assertNull(cache.get(key));
+        assertEquals(false, cache.contains(key));
+    }
+
     private Thread createWrokerThread(final DualCache<AbstractVehicule> cache) {
         return new Thread() {
             int sMaxNumberOfRun = 1000;
@@ -265,4 +740,80 @@ public abstract class DualCacheTest {
             return size;
         }
     }
+
+    /**
+     * @return the number of files open by this process, or -1 if it is not available.
+     */
+    private static int countOpenFiles() {
+        String[] files = new File("/proc/self/fd").list();
+        return files == null ? -1 : files.length;
+    }
+
+    protected static class CountingEventListener implements CacheEventListener {
+        private final AtomicInteger ramHits = new AtomicInteger();
+        private final AtomicInteger ramMisses = new AtomicInteger();
+        private final AtomicInteger diskHits = new AtomicInteger();
+        private final AtomicInteger diskMisses = new AtomicInteger();
+        private final AtomicInteger evictions = new AtomicInteger();
+        private final AtomicInteger writes = new AtomicInteger();
+
+        @Override
+        public void onRamHit(String key) {
+            ramHits.incrementAndGet();
+        }
+
+        @Override
+        public void onRamMiss(String key) {
+            ramMisses.incrementAndGet();
+        }
+
+        @Override
+        public void onDiskHit(String key) {
+            diskHits.incrementAndGet();
+        }
+
+        @Override
+        public void onDiskMiss(String key) {
+            diskMisses.incrementAndGet();
+        }
+
+        @Override
+        public void onEvict(String key) {
+            evictions.incrementAndGet();
+        }
+
+        @Override
+        public void onWrite(String key) {
+            writes.incrementAndGet();
+        }
+    }
+
+    protected static class RecordingRemovalListener implements RemovalListener<AbstractVehicule> {
+        private final List<String> removals = new ArrayList<>();
+        private final List<RemovalNotification<AbstractVehicule>> notifications =
+            new ArrayList<>();
+
+        @Override
+        public synchronized void onRemoval(RemovalNotification<AbstractVehicule> notification) {
+            removals.add(notification.getLayer() + ":" + notification.getCause());
+            notifications.add(notification);
+        }
+    }
+
+    protected static class CountingTracer implements CacheTracer {
+        private final AtomicIntegerArray counts =
+            new AtomicIntegerArray(CacheOperation.values().length);
+        private volatile DualCacheLayer lastLayer;
+
+        @Override
+        public void trace(CacheOperation operation, DualCacheLayer layer, int keyHash,
+                          long sizeBytes, long durationNanos) {
+            counts.incrementAndGet(operation.ordinal());
+            lastLayer = layer;
+        }
+
+        int count(CacheOperation operation) {
+            return counts.get(operation.ordinal());
+        }
+    }
 }
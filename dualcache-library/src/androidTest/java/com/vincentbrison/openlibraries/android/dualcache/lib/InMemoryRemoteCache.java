@@ -0,0 +1,110 @@
+package com.vincentbrison.openlibraries.android.dualcache.lib;
+
+import com.vincentbrison.openlibraries.android.dualcache.RemoteCacheTransport;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stand-in for a remote cache server, keeping the objects in the memory of the process. Caches
+ * sharing an instance behave as nodes sharing a server, which lets the remote tier be tested
+ * without a network. A latency can be added to each request, and the server can be made
+ * unavailable.
+ */
+public class InMemoryRemoteCache implements RemoteCacheTransport {
+
+    private final ConcurrentMap<String, String> entries = new ConcurrentHashMap<>();
+    private final AtomicLong getCount = new AtomicLong();
+    private final AtomicLong putCount = new AtomicLong();
+    private volatile long latencyNanos;
+    private volatile boolean available = true;
+
+    @Override
+    public String get(String key) throws IOException {
+        getCount.incrementAndGet();
+        request();
+        return entries.get(key);
+    }
+
+    @Override
+    public void put(String key, String serialized) throws IOException {
+        putCount.incrementAndGet();
+        request();
+        entries.put(key, serialized);
+    }
+
+    @Override
+    public void remove(String key) throws IOException {
+        request();
+        entries.remove(key);
+    }
+
+    /**
+     * @param latency is the time each request takes.
+     * @param unit    is the unit of the latency.
+     */
+    public void setLatency(long latency, TimeUnit unit) {
+        this.latencyNanos = unit.toNanos(latency);
+    }
+
+    /**
+     * @param available is false to make the requests fail, as if the server was down.
+     */
+    public void setAvailable(boolean available) {
+        this.available = available;
+    }
+
+    /**
+     * @param key is the key of the object.
+     * @return true if the server stores an object for the key.
+     */
+    public boolean contains(String key) {
+        return entries.containsKey(key);
+    }
+
+    /**
+     * @return the number of objects stored.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Remove all the objects stored.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * @return the number of get requests received.
+     */
+    public long getGetCount() {
+        return getCount.get();
+    }
+
+    /**
+     * @return the number of put requests received.
+     */
+    public long getPutCount() {
+        return putCount.get();
+    }
+
+    private void request() throws IOException {
+        long latency = latencyNanos;
+        if (latency > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the server");
+            }
+        }
+        if (!available) {
+            throw new IOException("The remote cache server is unavailable");
+        }
+    }
+}
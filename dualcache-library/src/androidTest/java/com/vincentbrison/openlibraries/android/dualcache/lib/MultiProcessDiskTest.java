@@ -0,0 +1,167 @@
+package com.vincentbrison.openlibraries.android.dualcache.lib;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.vincentbrison.openlibraries.android.dualcache.Builder;
+import com.vincentbrison.openlibraries.android.dualcache.CacheSerializer;
+import com.vincentbrison.openlibraries.android.dualcache.DualCache;
+import com.vincentbrison.openlibraries.android.dualcache.RemovalCause;
+import com.vincentbrison.openlibraries.android.dualcache.RemovalListener;
+import com.vincentbrison.openlibraries.android.dualcache.RemovalNotification;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test two caches built on the same disk folder, standing for two processes.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MultiProcessDiskTest {
+    private static final String CACHE_NAME = "multiprocess";
+    private static final int RAM_SIZE = 1024 * 1024;
+    private static final int DISK_SIZE = 10 * 1024 * 1024;
+
+    private final CacheSerializer<String> serializer = new CacheSerializer<String>() {
+        @Override
+        public String fromString(String data) {
+            return data;
+        }
+
+        @Override
+        public String toString(String object) {
+            return object;
+        }
+    };
+    private final List<RemovalNotification<String>> secondRemovals = new CopyOnWriteArrayList<>();
+    private DualCache<String> firstProcess;
+    private DualCache<String> secondProcess;
+
+    @Before
+    public void setUp() throws Exception {
+        firstProcess = buildProcess(null);
+        secondProcess = buildProcess(new RemovalListener<String>() {
+            @Override
+            public void onRemoval(RemovalNotification<String> notification) {
+                secondRemovals.add(notification);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        firstProcess.invalidate();
+        secondProcess.invalidate();
+    }
+
+    @Test
+    public void testWriteSeenByOtherProcess() throws Exception {
+        firstProcess.put("key", "value");
+        assertTrue(secondProcess.contains("key"));
+        assertEquals("value", secondProcess.get("key"));
+
+        // The second process holds the object in RAM, the rewrite must drop it.
+        firstProcess.put("key", "new value");
+        assertEquals("new value", secondProcess.get("key"));
+        assertEquals(1, secondRemovals.size());
+        assertEquals(RemovalCause.REPLACED, secondRemovals.get(0).getCause());
+
+        secondProcess.delete("key");
+        assertNull(firstProcess.get("key"));
+        assertFalse(firstProcess.contains("key"));
+    }
+
+    @Test
+    public void testWriteAfterDeleteSeenByOtherProcess() throws Exception {
+        firstProcess.put("key", "value");
+        firstProcess.delete("key");
+        secondProcess.put("key", "new value");
+        assertEquals("new value", firstProcess.get("key"));
+        firstProcess.invalidateRAM();
+        assertEquals("new value", firstProcess.get("key"));
+    }
+
+    @Test
+    public void testInvalidationSeenByOtherProcess() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            firstProcess.put("key" + i, "value" + i);
+            assertEquals("value" + i, secondProcess.get("key" + i));
+        }
+        firstProcess.invalidate();
+        for (int i = 0; i < 4; i++) {
+            assertNull(secondProcess.get("key" + i));
+        }
+        assertEquals(0, secondProcess.getRamUsedInBytes());
+
+        // Both processes keep writing to the folder opened again.
+        secondProcess.put("key", "value");
+        assertEquals("value", firstProcess.get("key"));
+    }
+
+    @Test
+    public void testAsyncSeesOtherProcess() throws Exception {
+        firstProcess.put("key", "value");
+        assertEquals("value", secondProcess.getAsync("key").get(5, TimeUnit.SECONDS));
+
+        // The second process holds the object in RAM, which the async reads must not return.
+        firstProcess.put("key", "new value");
+        assertEquals("new value", secondProcess.getAsync("key").get(5, TimeUnit.SECONDS));
+        firstProcess.delete("key");
+        assertFalse(secondProcess.containsAsync("key").get(5, TimeUnit.SECONDS));
+
+        secondProcess.putAsync("key", "async value").get(5, TimeUnit.SECONDS);
+        assertEquals("async value", firstProcess.get("key"));
+        secondProcess.deleteAsync("key").get(5, TimeUnit.SECONDS);
+        assertFalse(firstProcess.contains("key"));
+    }
+
+    @Test
+    public void testCompressionRejected() {
+        Context context = InstrumentationRegistry.getTargetContext();
+        try {
+            new Builder<String>(CACHE_NAME + "compressed", 0)
+                .useSerializerInRam(RAM_SIZE, serializer)
+                .useSerializerInDisk(DISK_SIZE,
+                    new File(context.getCacheDir(), CACHE_NAME + "compressed"), serializer)
+                .useDiskCompression()
+                .useMultiProcessDisk()
+                .build();
+            fail();
+        } catch (IllegalStateException e) {
+            // Expected, the dictionaries are not shared between processes.
+        }
+    }
+
+    private DualCache<String> buildProcess(RemovalListener<String> removalListener) {
+        Context context = InstrumentationRegistry.getTargetContext();
+        Builder<String> builder = new Builder<String>(CACHE_NAME, 0)
+            .useSerializerInRam(RAM_SIZE, serializer)
+            .useSerializerInDisk(
+                DISK_SIZE, new File(context.getCacheDir(), CACHE_NAME), serializer)
+            .useMultiProcessDisk(0, TimeUnit.MILLISECONDS);
+        if (removalListener != null) {
+            builder.useRemovalListener(removalListener, new Executor() {
+                @Override
+                public void execute(Runnable command) {
+                    command.run();
+                }
+            });
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,123 @@
+package com.vincentbrison.openlibraries.android.dualcache.lib;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.vincentbrison.openlibraries.android.dualcache.Builder;
+import com.vincentbrison.openlibraries.android.dualcache.CacheSerializer;
+import com.vincentbrison.openlibraries.android.dualcache.DualCache;
+import com.vincentbrison.openlibraries.android.dualcache.SizeOf;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the RAM layer of a cache built again after a closed one wrote its snapshot.
+ */
+@RunWith(AndroidJUnit4.class)
+public class RamSnapshotTest {
+    private static final String CACHE_NAME = "snapshot";
+    private static final int RAM_ENTRIES = 5;
+    private static final int RAM_SIZE = 1024 * 1024;
+    private static final int DISK_SIZE = 10 * 1024 * 1024;
+
+    private final CacheSerializer<String> serializer = new CacheSerializer<String>() {
+        @Override
+        public String fromString(String data) {
+            return data;
+        }
+
+        @Override
+        public String toString(String object) {
+            return object;
+        }
+    };
+    private File snapshotFile;
+    private DualCache<String> restartedCache;
+
+    @Before
+    public void setUp() throws Exception {
+        Context context = InstrumentationRegistry.getTargetContext();
+        snapshotFile = new File(context.getCacheDir(), CACHE_NAME + ".snapshot");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        restartedCache.invalidate();
+        snapshotFile.delete();
+    }
+
+    @Test
+    public void testReferencesRestoredInLruOrder() throws Exception {
+        DualCache<String> cache = buildReferenceCache();
+        for (int i = 0; i < RAM_ENTRIES; i++) {
+            cache.put("key" + i, "value" + i);
+        }
+        cache.get("key0");
+        cache.close();
+        assertTrue(snapshotFile.exists());
+
+        restartedCache = buildReferenceCache();
+        assertFalse(snapshotFile.exists());
+        assertEquals(RAM_ENTRIES, restartedCache.getRamUsedInBytes());
+        // The least recently used entry is now key1, evicted by the next put.
+        restartedCache.put("key" + RAM_ENTRIES, "value" + RAM_ENTRIES);
+        for (int i = 0; i <= RAM_ENTRIES; i++) {
+            if (i != 1) {
+                assertEquals("value" + i, restartedCache.get("key" + i));
+            }
+        }
+        assertEquals(RAM_ENTRIES, restartedCache.getStats().getRamHitCount());
+        assertEquals("value1", restartedCache.get("key1"));
+        assertEquals(1, restartedCache.getStats().getRamMissCount());
+    }
+
+    @Test
+    public void testRamOnlyCacheRestored() throws Exception {
+        DualCache<String> cache = buildRamOnlyCache();
+        cache.put("key", "value");
+        cache.close();
+
+        restartedCache = buildRamOnlyCache();
+        assertEquals("value", restartedCache.get("key"));
+        restartedCache.delete("key");
+        restartedCache.close();
+
+        restartedCache = buildRamOnlyCache();
+        assertNull(restartedCache.get("key"));
+    }
+
+    private DualCache<String> buildReferenceCache() {
+        Context context = InstrumentationRegistry.getTargetContext();
+        return new Builder<String>(CACHE_NAME, 0)
+            .useReferenceInRam(RAM_ENTRIES, new SizeOf<String>() {
+                @Override
+                public int sizeOf(String object) {
+                    return 1;
+                }
+            })
+            .useSerializerInDisk(
+                DISK_SIZE, new File(context.getCacheDir(), CACHE_NAME), serializer)
+            .useRamSnapshot(snapshotFile)
+            .recordStats()
+            .build();
+    }
+
+    private DualCache<String> buildRamOnlyCache() {
+        return new Builder<String>(CACHE_NAME, 0)
+            .useSerializerInRam(RAM_SIZE, serializer)
+            .noDisk()
+            .useRamSnapshot(snapshotFile)
+            .build();
+    }
+}
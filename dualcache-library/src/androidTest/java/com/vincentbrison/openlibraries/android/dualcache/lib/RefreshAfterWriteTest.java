@@ -0,0 +1,168 @@
+package com.vincentbrison.openlibraries.android.dualcache.lib;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.vincentbrison.openlibraries.android.dualcache.Builder;
+import com.vincentbrison.openlibraries.android.dualcache.CacheLoader;
+import com.vincentbrison.openlibraries.android.dualcache.CacheSerializer;
+import com.vincentbrison.openlibraries.android.dualcache.DualCache;
+import com.vincentbrison.openlibraries.android.dualcache.RemovalCause;
+import com.vincentbrison.openlibraries.android.dualcache.RemovalListener;
+import com.vincentbrison.openlibraries.android.dualcache.RemovalNotification;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the reload in background of the objects older than the refresh interval.
+ */
+@RunWith(AndroidJUnit4.class)
+public class RefreshAfterWriteTest {
+    private static final String CACHE_NAME = "refresh";
+    private static final int RAM_SIZE = 1024 * 1024;
+    private static final int DISK_SIZE = 10 * 1024 * 1024;
+    private static final long REFRESH_MILLIS = 50;
+
+    private ExecutorService refreshExecutor;
+    private DualCache<String> cache;
+    private BlockingLoader loader;
+    private final List<RemovalCause> removals =
+        Collections.synchronizedList(new ArrayList<RemovalCause>());
+
+    @Before
+    public void setUp() throws Exception {
+        Context context = InstrumentationRegistry.getTargetContext();
+        CacheSerializer<String> serializer = new CacheSerializer<String>() {
+            @Override
+            public String fromString(String data) {
+                return data;
+            }
+
+            @Override
+            public String toString(String object) {
+                return object;
+            }
+        };
+        refreshExecutor = Executors.newSingleThreadExecutor();
+        cache = new Builder<String>(CACHE_NAME, 0)
+            .useSerializerInRam(RAM_SIZE, serializer)
+            .useSerializerInDisk(
+                DISK_SIZE, new File(context.getCacheDir(), CACHE_NAME), serializer)
+            .refreshAfterWrite(REFRESH_MILLIS, TimeUnit.MILLISECONDS, refreshExecutor)
+            .useRemovalListener(new RemovalListener<String>() {
+                @Override
+                public void onRemoval(RemovalNotification<String> notification) {
+                    removals.add(notification.getCause());
+                }
+            }, new Executor() {
+                @Override
+                public void execute(Runnable command) {
+                    command.run();
+                }
+            })
+            .build();
+        loader = new BlockingLoader();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        loader.release.countDown();
+        refreshExecutor.shutdownNow();
+        cache.invalidate();
+    }
+
+    @Test
+    public void testReloadAfterInterval() throws Exception {
+        loader.release.countDown();
+        cache.put("key", "old");
+        assertEquals("old", cache.get("key", loader));
+        assertEquals(0, loader.loadCount.get());
+
+        Thread.sleep(REFRESH_MILLIS * 2);
+        // The stale object is still returned, and reloaded in background.
+        assertEquals("old", cache.get("key", loader));
+        awaitRefreshes();
+        assertEquals(1, loader.loadCount.get());
+        assertEquals("new", cache.get("key"));
+        // The reloaded object replaced the old one in both layers.
+        assertEquals(2, removals.size());
+        for (RemovalCause cause : removals) {
+            assertEquals(RemovalCause.REPLACED, cause);
+        }
+    }
+
+    @Test
+    public void testServedDuringReload() throws Exception {
+        cache.put("key", "old");
+        Thread.sleep(REFRESH_MILLIS * 2);
+        assertEquals("old", cache.get("key", loader));
+        assertTrue(loader.started.await(5, TimeUnit.SECONDS));
+        // A single reload runs, while the reads keep returning the current object.
+        for (int i = 0; i < 10; i++) {
+            assertEquals("old", cache.get("key", loader));
+        }
+        loader.release.countDown();
+        awaitRefreshes();
+        assertEquals(1, loader.loadCount.get());
+        assertEquals("new", cache.get("key"));
+    }
+
+    @Test
+    public void testPutDuringReloadNotOverwritten() throws Exception {
+        cache.put("key", "old");
+        Thread.sleep(REFRESH_MILLIS * 2);
+        assertEquals("old", cache.get("key", loader));
+        assertTrue(loader.started.await(5, TimeUnit.SECONDS));
+        cache.put("key", "put");
+        loader.release.countDown();
+        awaitRefreshes();
+        assertEquals(1, loader.loadCount.get());
+        assertEquals("put", cache.get("key"));
+        cache.invalidateRAM();
+        assertEquals("put", cache.get("key"));
+    }
+
+    private void awaitRefreshes() throws Exception {
+        refreshExecutor.shutdown();
+        assertTrue(refreshExecutor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Loader returning "new" once released.
+     */
+    private static final class BlockingLoader implements CacheLoader<String> {
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final AtomicInteger loadCount = new AtomicInteger();
+
+        @Override
+        public String load(String key) {
+            loadCount.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "new";
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.vincentbrison.openlibraries.android.dualcache.lib;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.vincentbrison.openlibraries.android.dualcache.Builder;
+import com.vincentbrison.openlibraries.android.dualcache.CacheSerializer;
+import com.vincentbrison.openlibraries.android.dualcache.DualCache;
+import com.vincentbrison.openlibraries.android.dualcache.RemoteTier;
+import com.vincentbrison.openlibraries.android.dualcache.ReferenceRamTier;
+import com.vincentbrison.openlibraries.android.dualcache.SizeOf;
+import com.vincentbrison.openlibraries.android.dualcache.TieredCache;
+import com.vincentbrison.openlibraries.android.dualcache.TieredCacheBuilder;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test two caches, standing for two nodes, sharing a remote layer.
+ */
+@RunWith(AndroidJUnit4.class)
+public class RemoteLayerTest {
+    private static final String CACHE_NAME = "remote";
+    private static final int RAM_SIZE = 1024 * 1024;
+    private static final int DISK_SIZE = 10 * 1024 * 1024;
+    private static final long TIMEOUT_MILLIS = 50;
+
+    private final CacheSerializer<String> serializer = new CacheSerializer<String>() {
+        @Override
+        public String fromString(String data) {
+            return data;
+        }
+
+        @Override
+        public String toString(String object) {
+            return object;
+        }
+    };
+    private InMemoryRemoteCache server;
+    private ExecutorService executor;
+    private DualCache<String> firstNode;
+    private DualCache<String> secondNode;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new InMemoryRemoteCache();
+        executor = Executors.newCachedThreadPool();
+        firstNode = buildNode("first");
+        secondNode = buildNode("second");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        firstNode.invalidate();
+        secondNode.invalidate();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testSharedBetweenNodes() throws Exception {
+        firstNode.put("key", "value");
+        awaitWrite("key", true);
+        assertTrue(server.contains("key"));
+
+        assertEquals("value", secondNode.get("key"));
+        // The object read from the remote layer is now stored locally.
+        server.setAvailable(false);
+        secondNode.invalidateRAM();
+        assertEquals("value", secondNode.get("key"));
+
+        server.setAvailable(true);
+        firstNode.delete("key");
+        awaitWrite("key", false);
+        assertFalse(server.contains("key"));
+        secondNode.invalidate();
+        assertNull(secondNode.get("key"));
+    }
+
+    @Test
+    public void testSlowServer() throws Exception {
+        server.put("key", "value");
+        server.setLatency(TIMEOUT_MILLIS * 10, TimeUnit.MILLISECONDS);
+        List<Future<String>> gets = new ArrayList<>();
+        ExecutorService readers = Executors.newFixedThreadPool(8);
+        long start = System.nanoTime();
+        for (int i = 0; i < 8; i++) {
+            gets.add(readers.submit(new Callable<String>() {
+                @Override
+                public String call() {
+                    return secondNode.get("key");
+                }
+            }));
+        }
+        for (Future<String> get : gets) {
+            assertNull(get.get());
+        }
+        readers.shutdown();
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS * 5));
+        // The concurrent reads shared a single request.
+        assertEquals(1, server.getGetCount());
+
+        server.setLatency(0, TimeUnit.MILLISECONDS);
+        server.setAvailable(false);
+        assertNull(firstNode.get("other"));
+    }
+
+    @Test
+    public void testGetAsyncFromRemote() throws Exception {
+        server.put("key", "value");
+        DualCache<String> ramOnlyNode = new Builder<String>(CACHE_NAME + "ramonly", 0)
+            .useSerializerInRam(RAM_SIZE, serializer)
+            .noDisk()
+            .useRemoteLayer(server, TIMEOUT_MILLIS, TimeUnit.MILLISECONDS, executor)
+            .build();
+        try {
+            assertEquals("value", ramOnlyNode.getAsync("key").get(5, TimeUnit.SECONDS));
+            // Stored in RAM by the read from the remote layer.
+            server.setAvailable(false);
+            assertEquals("value", ramOnlyNode.getAsync("key").get(5, TimeUnit.SECONDS));
+        } finally {
+            ramOnlyNode.invalidate();
+        }
+
+        server.setAvailable(true);
+        assertEquals("value", secondNode.getAsync("key").get(5, TimeUnit.SECONDS));
+        assertNull(secondNode.getAsync("other").get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testRemoteTier() throws Exception {
+        TieredCache<String> tieredCache = new TieredCacheBuilder<String>()
+            .addTier(new ReferenceRamTier<>(RAM_SIZE, new SizeOf<String>() {
+                @Override
+                public int sizeOf(String object) {
+                    return object.length();
+                }
+            }))
+            .addTier(new RemoteTier<>(
+                server, serializer, TIMEOUT_MILLIS, TimeUnit.MILLISECONDS, executor, null))
+            .build();
+        firstNode.put("key", "value");
+        awaitWrite("key", true);
+        assertEquals("value", tieredCache.get("key"));
+        assertEquals(1, tieredCache.getHitCount(1));
+        assertEquals("value", tieredCache.get("key"));
+        assertEquals(1, tieredCache.getHitCount(0));
+    }
+
+    private DualCache<String> buildNode(String name) {
+        Context context = InstrumentationRegistry.getTargetContext();
+        return new Builder<String>(CACHE_NAME + name, 0)
+            .useSerializerInRam(RAM_SIZE, serializer)
+            .useSerializerInDisk(
+                DISK_SIZE, new File(context.getCacheDir(), CACHE_NAME + name), serializer)
+            .useRemoteLayer(server, TIMEOUT_MILLIS, TimeUnit.MILLISECONDS, executor)
+            .build();
+    }
+
+    /**
+     * Wait for the write of the key, sent in background, to reach the server.
+     */
+    private void awaitWrite(String key, boolean isPresent) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (server.contains(key) != isPresent && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.vincentbrison.openlibraries.android.dualcache.lib;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.vincentbrison.openlibraries.android.dualcache.CacheSerializer;
+import com.vincentbrison.openlibraries.android.dualcache.CompressedRamTier;
+import com.vincentbrison.openlibraries.android.dualcache.DiskTier;
+import com.vincentbrison.openlibraries.android.dualcache.ReferenceRamTier;
+import com.vincentbrison.openlibraries.android.dualcache.SizeOf;
+import com.vincentbrison.openlibraries.android.dualcache.TierPolicy;
+import com.vincentbrison.openlibraries.android.dualcache.TieredCache;
+import com.vincentbrison.openlibraries.android.dualcache.TieredCacheBuilder;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test a cache made of references in RAM, demoting to compressed objects in RAM, in front of the
+ * disk.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TieredCacheTest {
+    private static final String CACHE_NAME = "tiered";
+    private static final int REFERENCE_ENTRIES = 2;
+    private static final int COMPRESSED_RAM_SIZE = 1024 * 1024;
+    private static final int DISK_SIZE = 10 * 1024 * 1024;
+
+    private TieredCache<String> cache;
+    private ReferenceRamTier<String> referenceTier;
+    private CompressedRamTier<String> compressedTier;
+    private DiskTier<String> diskTier;
+
+    @Before
+    public void setUp() throws Exception {
+        Context context = InstrumentationRegistry.getTargetContext();
+        CacheSerializer<String> serializer = new CacheSerializer<String>() {
+            @Override
+            public String fromString(String data) {
+                return data;
+            }
+
+            @Override
+            public String toString(String object) {
+                return object;
+            }
+        };
+        referenceTier = new ReferenceRamTier<>(REFERENCE_ENTRIES, new SizeOf<String>() {
+            @Override
+            public int sizeOf(String object) {
+                return 1;
+            }
+        });
+        compressedTier = new CompressedRamTier<>(COMPRESSED_RAM_SIZE, serializer);
+        diskTier = new DiskTier<>(
+            DISK_SIZE, new File(context.getCacheDir(), CACHE_NAME), 0, serializer);
+        cache = new TieredCacheBuilder<String>()
+            .addTier(referenceTier, TierPolicy.DEMOTING)
+            .addTier(compressedTier, TierPolicy.VICTIM)
+            .addTier(diskTier)
+            .build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        cache.invalidate();
+    }
+
+    @Test
+    public void testPutGetDelete() throws Exception {
+        assertNull(cache.get("key"));
+        cache.put("key", "value");
+        assertEquals("value", cache.get("key"));
+        assertEquals(1, cache.getHitCount(0));
+        assertEquals(1, cache.getMissCount());
+        assertTrue(diskTier.contains("key"));
+        assertFalse(compressedTier.contains("key"));
+
+        cache.delete("key");
+        assertNull(cache.get("key"));
+        assertFalse(referenceTier.contains("key"));
+        assertFalse(diskTier.contains("key"));
+    }
+
+    @Test
+    public void testDemotionAndPromotion() throws Exception {
+        String value = repeat("tiered cache ", 100);
+        for (int i = 0; i < 4; i++) {
+            cache.put("key" + i, value + i);
+        }
+        // The first keys do not fit in the reference tier anymore, and have been demoted.
+        assertFalse(referenceTier.contains("key0"));
+        assertTrue(compressedTier.contains("key0"));
+        assertTrue(compressedTier.contains("key1"));
+        assertTrue(referenceTier.contains("key3"));
+
+        assertEquals(value + 0, cache.get("key0"));
+        assertEquals(1, cache.getHitCount(1));
+        assertTrue(referenceTier.contains("key0"));
+
+        // A put of a demoted key replaces it in the victim tier.
+        cache.put("key1", "new");
+        assertFalse(compressedTier.contains("key1"));
+        assertEquals("new", cache.get("key1"));
+
+        // Once out of the RAM tiers, an object is read from the disk and promoted to both.
+        compressedTier.clear();
+        referenceTier.clear();
+        assertEquals(value + 2, cache.get("key2"));
+        assertEquals(1, cache.getHitCount(2));
+        assertTrue(referenceTier.contains("key2"));
+        assertTrue(compressedTier.contains("key2"));
+        assertEquals(value + 2, compressedTier.get("key2"));
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            cache.put("key" + i, "value" + i);
+        }
+        cache.invalidate();
+        for (int i = 0; i < 4; i++) {
+            assertNull(cache.get("key" + i));
+        }
+        assertEquals(4, cache.getMissCount());
+    }
+
+    private static String repeat(String part, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append(part);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,105 @@
+package com.vincentbrison.openlibraries.android.dualcache.lib;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.vincentbrison.openlibraries.android.dualcache.Builder;
+import com.vincentbrison.openlibraries.android.dualcache.CacheSerializer;
+import com.vincentbrison.openlibraries.android.dualcache.DualCache;
+import com.vincentbrison.openlibraries.android.dualcache.SizeOf;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test the warm up of the RAM layer of a cache built again on the disk folder of a closed one.
+ */
+@RunWith(AndroidJUnit4.class)
+public class WarmUpTest {
+    private static final String CACHE_NAME = "warmup";
+    private static final int RAM_ENTRIES = 100;
+    private static final int DISK_SIZE = 10 * 1024 * 1024;
+    private static final int ENTRY_COUNT = 10;
+
+    private DualCache<String> restartedCache;
+
+    @After
+    public void tearDown() throws Exception {
+        restartedCache.invalidate();
+    }
+
+    @Test
+    public void testWarmUpAfterRestart() throws Exception {
+        DualCache<String> cache = buildCache(RAM_ENTRIES);
+        for (int i = 0; i < ENTRY_COUNT; i++) {
+            cache.put("key" + i, "value" + i);
+        }
+        cache.close();
+
+        restartedCache = buildCache(RAM_ENTRIES);
+        assertEquals(ENTRY_COUNT, restartedCache.getRamUsedInBytes());
+        for (int i = 0; i < ENTRY_COUNT; i++) {
+            assertEquals("value" + i, restartedCache.get("key" + i));
+        }
+        assertEquals(ENTRY_COUNT, restartedCache.getStats().getRamHitCount());
+    }
+
+    @Test
+    public void testWarmUpBudget() throws Exception {
+        DualCache<String> cache = buildCache(RAM_ENTRIES);
+        for (int i = 0; i < ENTRY_COUNT; i++) {
+            cache.put("key" + i, "value" + i);
+        }
+        cache.get("key3");
+        cache.close();
+
+        // Only the two hottest keys fit in the budget.
+        restartedCache = buildCache(2);
+        assertEquals(2, restartedCache.getRamUsedInBytes());
+        assertEquals("value3", restartedCache.get("key3"));
+        assertEquals("value9", restartedCache.get("key9"));
+        assertEquals(2, restartedCache.getStats().getRamHitCount());
+        assertEquals("value8", restartedCache.get("key8"));
+        assertEquals(1, restartedCache.getStats().getRamMissCount());
+    }
+
+    private DualCache<String> buildCache(int maxWarmUpSize) {
+        Context context = InstrumentationRegistry.getTargetContext();
+        CacheSerializer<String> serializer = new CacheSerializer<String>() {
+            @Override
+            public String fromString(String data) {
+                return data;
+            }
+
+            @Override
+            public String toString(String object) {
+                return object;
+            }
+        };
+        return new Builder<String>(CACHE_NAME, 0)
+            .useReferenceInRam(RAM_ENTRIES, new SizeOf<String>() {
+                @Override
+                public int sizeOf(String object) {
+                    return 1;
+                }
+            })
+            .useSerializerInDisk(
+                DISK_SIZE, new File(context.getCacheDir(), CACHE_NAME), serializer)
+            .useWarmUp(RAM_ENTRIES, 10, TimeUnit.SECONDS, maxWarmUpSize, new Executor() {
+                @Override
+                public void execute(Runnable command) {
+                    command.run();
+                }
+            })
+            .recordStats()
+            .build();
+    }
+}
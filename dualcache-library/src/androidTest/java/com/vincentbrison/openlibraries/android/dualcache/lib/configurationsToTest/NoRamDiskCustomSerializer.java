@@ -4,6 +4,8 @@ import com.vincentbrison.openlibraries.android.dualcache.Builder;
 import com.vincentbrison.openlibraries.android.dualcache.lib.DualCacheTest;
 import com.vincentbrison.openlibraries.android.dualcache.lib.testobjects.AbstractVehicule;
 
+import java.util.concurrent.TimeUnit;
+
 public class NoRamDiskCustomSerializer extends DualCacheTest {
 
     @Override
@@ -11,12 +13,18 @@ public class NoRamDiskCustomSerializer extends DualCacheTest {
         super.setUp();
         cache = new Builder<AbstractVehicule>(CACHE_NAME, TEST_APP_VERSION)
             .enableLog()
+            .recordStats()
+            .useTracer(tracer, 0, TimeUnit.NANOSECONDS)
+            .useNamespace(NAMESPACE, RAM_MAX_SIZE / 2, DISK_MAX_SIZE / 2)
+            .useEventListener(eventListener)
+            .useRemovalListener(removalListener, DIRECT_EXECUTOR)
             .noRam()
             .useSerializerInDisk(
                 DISK_MAX_SIZE,
                 true,
                 new DualCacheTest.SerializerForTesting(),
                 getContext())
+            .useDiskCompression()
             .build();
     }
 }
@@ -4,6 +4,8 @@ import com.vincentbrison.openlibraries.android.dualcache.Builder;
 import com.vincentbrison.openlibraries.android.dualcache.lib.DualCacheTest;
 import com.vincentbrison.openlibraries.android.dualcache.lib.testobjects.AbstractVehicule;
 
+import java.util.concurrent.TimeUnit;
+
 public class RamCustomSerializerNoDisk extends DualCacheTest {
 
     @Override
@@ -11,7 +13,12 @@ public class RamCustomSerializerNoDisk extends DualCacheTest {
         super.setUp();
         cache = new Builder<AbstractVehicule>(CACHE_NAME, TEST_APP_VERSION)
             .enableLog()
-            .useSerializerInRam(RAM_MAX_SIZE, new SerializerForTesting())
+            .recordStats()
+            .useTracer(tracer, 0, TimeUnit.NANOSECONDS)
+            .useNamespace(NAMESPACE, RAM_MAX_SIZE / 2, DISK_MAX_SIZE / 2)
+            .useEventListener(eventListener)
+            .useRemovalListener(removalListener, DIRECT_EXECUTOR)
+            .useSerializerInRam(RAM_MAX_SIZE, new SerializerForTesting(), HOT_OBJECTS, null)
             .noDisk()
             .build();
     }
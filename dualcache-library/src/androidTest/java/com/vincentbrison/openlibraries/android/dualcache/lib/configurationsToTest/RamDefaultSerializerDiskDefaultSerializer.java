@@ -4,6 +4,8 @@ import com.vincentbrison.openlibraries.android.dualcache.Builder;
 import com.vincentbrison.openlibraries.android.dualcache.lib.DualCacheTest;
 import com.vincentbrison.openlibraries.android.dualcache.lib.testobjects.AbstractVehicule;
 
+import java.util.concurrent.TimeUnit;
+
 public class RamDefaultSerializerDiskDefaultSerializer extends DualCacheTest {
 
     @Override
@@ -11,7 +13,12 @@ public class RamDefaultSerializerDiskDefaultSerializer extends DualCacheTest {
         super.setUp();
         cache = new Builder<AbstractVehicule>(CACHE_NAME, TEST_APP_VERSION)
             .enableLog()
-            .useSerializerInRam(RAM_MAX_SIZE, defaultCacheSerializer)
+            .recordStats()
+            .useTracer(tracer, 0, TimeUnit.NANOSECONDS)
+            .useNamespace(NAMESPACE, RAM_MAX_SIZE / 2, DISK_MAX_SIZE / 2)
+            .useEventListener(eventListener)
+            .useRemovalListener(removalListener, DIRECT_EXECUTOR)
+            .useSerializerInRam(RAM_MAX_SIZE, defaultCacheSerializer, HOT_OBJECTS, copier)
             .useSerializerInDisk(DISK_MAX_SIZE, true, defaultCacheSerializer, getContext())
             .build();
     }
@@ -3,12 +3,11 @@ package com.vincentbrison.openlibraries.android.dualcache;
 import android.content.Context;
 
 import java.io.File;
-import java.io.Serializable;
 
 /**
  * Class used to build a cache.
  */
-public class AndCacheBuilder {
+public class AndCacheBuilder extends BaseAndCacheBuilder<AndCacheBuilder> {
 
     /**
      * Defined the sub folder from {@link Context#getCacheDir()} used to store all
@@ -16,17 +15,7 @@ public class AndCacheBuilder {
      */
     private static final String CACHE_FILE_PREFIX = "andcache";
 
-    private String id;
-    private int appVersion;
-    private boolean logEnabled;
-    private int maxRamSizeBytes;
-    private DualCacheRamMode ramMode;
-    private CacheSerializer<Serializable> ramSerializer;
-    private SizeOf<Serializable> sizeOf;
-    private int maxDiskSizeBytes;
-    private File diskFolder;
     private boolean usePrivateFiles = true;
-    private boolean noDisk;
 
     /**
      * Start the building of the cache.
@@ -36,23 +25,19 @@ public class AndCacheBuilder {
      *                   with previous app version, it will be invalidate.
      */
     public AndCacheBuilder(String id, int appVersion) {
-        this.id = id;
-        this.appVersion = appVersion;
-        this.ramMode = null;
-        this.logEnabled = false;
-        this.maxDiskSizeBytes = 100 * 1024 * 1024;
+        super(id, appVersion);
     }
 
-    /**
-     * Enabling log from the cache. By default disable.
-     *
-     * @return the builder.
-     */
-    public AndCacheBuilder enableLog() {
-        this.logEnabled = true;
+    @Override
+    protected AndCacheBuilder self() {
         return this;
     }
 
+    @Override
+    protected CacheLogger defaultLogger() {
+        return new AndroidCacheLogger();
+    }
+
     /**
      * Builder the cache. Exception will be thrown if it can not be created.
      *
@@ -60,83 +45,8 @@ public class AndCacheBuilder {
      * @return the cache instance.
      */
     public AndCache build(Context context) {
-        if (ramMode == null) {
-            throw new IllegalStateException("No ram mode set");
-        }
-
-        if(!noDisk && null == diskFolder) {
-            diskFolder = getDefaultDiskCacheFolder(usePrivateFiles , context);
-        }
-
-        return new AndCache(
-                appVersion,
-                new Logger(logEnabled),
-                ramMode,
-                ramSerializer,
-                maxRamSizeBytes,
-                sizeOf,
-                noDisk,
-                maxDiskSizeBytes,
-                diskFolder
-        );
-    }
-
-    /**
-     * Use Json serialization/deserialization to store and retrieve object from ram cache.
-     *
-     * @param maxRamSizeBytes is the max amount of ram in bytes which can be used by the ram cache.
-     * @param serializer      is the cache interface which provide serialization/deserialization
-     *                        methods
-     *                        for the ram cache layer.
-     * @return the builder.
-     */
-    public AndCacheBuilder useSerializerInRam(
-        int maxRamSizeBytes, CacheSerializer<Serializable> serializer
-    ) {
-        this.ramMode = DualCacheRamMode.ENABLE_WITH_SPECIFIC_SERIALIZER;
-        this.maxRamSizeBytes = maxRamSizeBytes;
-        this.ramSerializer = serializer;
-        return this;
-    }
-
-    /**
-     * Store directly objects in ram (without serialization/deserialization).
-     * You have to provide a way to compute the size of an object in
-     * ram to be able to used the LRU capacity of the ram cache.
-     *
-     * @param maxRamSizeBytes is the max amount of ram which can be used by the ram cache.
-     * @param handlerSizeOf   computes the size of object stored in ram.
-     * @return the builder.
-     */
-    public AndCacheBuilder useReferenceInRam(
-        int maxRamSizeBytes, SizeOf<Serializable> handlerSizeOf
-    ) {
-        this.ramMode = DualCacheRamMode.ENABLE_WITH_REFERENCE;
-        this.maxRamSizeBytes = maxRamSizeBytes;
-        this.sizeOf = handlerSizeOf;
-        return this;
-    }
-
-    /**
-     * The max size of disk in bytes which can be used by the disk cache
-     *
-     * @param bytes disk cache size in bytes
-     * @return the builder
-     */
-    public AndCacheBuilder maxDiskSize(int bytes) {
-        this.maxDiskSizeBytes = bytes;
-        return this;
-    }
-
-    /**
-     * 设置磁盘缓存目录，这里需要注意的是，如果使用的是自定义外部存储，6.0以上系统需要保证用户有访问外部存储的权限
-     *
-     * @param diskCacheDir 磁盘缓存目录
-     * @return the builder
-     */
-    public AndCacheBuilder diskCacheDir(File diskCacheDir) {
-        diskFolder = diskCacheDir;
-        return this;
+        return build(needsDiskFolder()
+            ? getDefaultDiskCacheFolder(usePrivateFiles, context) : null);
     }
 
     /**
@@ -155,26 +65,15 @@ public class AndCacheBuilder {
         File folder;
         if (usePrivateFiles) {
             folder = context.getDir(
-                CACHE_FILE_PREFIX + this.id,
+                CACHE_FILE_PREFIX + getId(),
                 Context.MODE_PRIVATE
             );
         } else {
             folder = new File(context.getCacheDir().getPath()
                                   + "/" + CACHE_FILE_PREFIX
-                                  + "/" + this.id
+                                  + "/" + getId()
             );
         }
         return folder;
     }
-
-    /**
-     * Use this if you do not want use the disk cache layer, meaning that only the ram cache layer
-     * will be used.
-     *
-     * @return the builder.
-     */
-    public AndCacheBuilder noDisk() {
-        noDisk = true;
-        return this;
-    }
 }
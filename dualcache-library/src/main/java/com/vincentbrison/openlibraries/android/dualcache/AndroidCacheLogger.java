@@ -0,0 +1,18 @@
+package com.vincentbrison.openlibraries.android.dualcache;
+
+import android.util.Log;
+
+/**
+ * Write the logs of the library to the Android log.
+ */
+final class AndroidCacheLogger implements CacheLogger {
+
+    @Override
+    public void log(int priority, String tag, String msg, Throwable error) {
+        if (error == null) {
+            Log.println(priority, tag, msg);
+        } else {
+            Log.println(priority, tag, msg + '\n' + Log.getStackTraceString(error));
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.vincentbrison.openlibraries.android.dualcache.simulator;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Model of a layer of the cache: the least recently used objects are evicted once the total size
+ * exceeds the maximum, like the RAM layer (RamLruCache) and the disk layer (DiskLruCache) do. An
+ * object bigger than the maximum size is evicted right after being put, as in both layers.
+ */
+final class LruTier {
+
+    private final long maxSize;
+    private final LinkedHashMap<String, Long> sizes = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+    private long evictionCount;
+
+    LruTier(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Look an object up, making it the most recently used one.
+     *
+     * @param key is the key of the object.
+     * @return the size of the object, or -1 if it is not in this layer.
+     */
+    long get(String key) {
+        Long objectSize = sizes.get(key);
+        return objectSize == null ? -1 : objectSize;
+    }
+
+    void put(String key, long objectSize) {
+        Long previous = sizes.put(key, objectSize);
+        if (previous != null) {
+            size -= previous;
+        }
+        size += objectSize;
+        Iterator<Map.Entry<String, Long>> eldest = sizes.entrySet().iterator();
+        while (size > maxSize && eldest.hasNext()) {
+            size -= eldest.next().getValue();
+            eldest.remove();
+            evictionCount++;
+        }
+    }
+
+    void remove(String key) {
+        Long previous = sizes.remove(key);
+        if (previous != null) {
+            size -= previous;
+        }
+    }
+
+    long getEvictionCount() {
+        return evictionCount;
+    }
+}
@@ -0,0 +1,22 @@
+package com.vincentbrison.openlibraries.android.dualcache.simulator;
+
+/**
+ * Operation done on the cache by an access of a trace.
+ */
+enum Operation {
+    /**
+     * Read the object. If it is missing from a trace which does not record the puts, load it then
+     * put it in cache, like {@code DualCache.get(key, loader)}.
+     */
+    GET,
+
+    /**
+     * Put the object in cache, like {@code DualCache.put(key, object)}.
+     */
+    PUT,
+
+    /**
+     * Delete the object from cache, like {@code DualCache.delete(key)}.
+     */
+    DELETE
+}
@@ -0,0 +1,117 @@
+package com.vincentbrison.openlibraries.android.dualcache.simulator;
+
+import java.util.Locale;
+
+/**
+ * Model of a DualCache with a given RAM size and disk size, replaying the accesses of a trace
+ * the way DualCache handles them. A size of 0 disables the layer. The objects missed are put in
+ * cache only when the trace does not record the puts itself, otherwise they would be put twice.
+ */
+final class SimulatedCache implements TraceVisitor {
+
+    private final long maxRamSizeBytes;
+    private final long maxDiskSizeBytes;
+    private final LruTier ram;
+    private final LruTier disk;
+    private final boolean isLoadedOnMiss;
+    private long requestCount;
+    private long ramHitCount;
+    private long diskHitCount;
+    private long diskBytesRead;
+    private long diskBytesWritten;
+
+    /**
+     * @param maxRamSizeBytes  is the size of the RAM layer, or 0 to disable it.
+     * @param maxDiskSizeBytes is the size of the disk layer, or 0 to disable it.
+     * @param isLoadedOnMiss   is true to put the objects missed in cache, for the traces which
+     *                         do not record the puts.
+     */
+    SimulatedCache(long maxRamSizeBytes, long maxDiskSizeBytes, boolean isLoadedOnMiss) {
+        this.maxRamSizeBytes = maxRamSizeBytes;
+        this.maxDiskSizeBytes = maxDiskSizeBytes;
+        this.isLoadedOnMiss = isLoadedOnMiss;
+        this.ram = maxRamSizeBytes > 0 ? new LruTier(maxRamSizeBytes) : null;
+        this.disk = maxDiskSizeBytes > 0 ? new LruTier(maxDiskSizeBytes) : null;
+    }
+
+    @Override
+    public void visit(String key, long size, Operation operation) {
+        switch (operation) {
+            case GET:
+                get(key, size);
+                break;
+            case PUT:
+                put(key, size);
+                break;
+            default:
+                delete(key);
+        }
+    }
+
+    private void get(String key, long size) {
+        requestCount++;
+        if (ram != null && ram.get(key) >= 0) {
+            ramHitCount++;
+            return;
+        }
+        long diskSize = disk == null ? -1 : disk.get(key);
+        if (diskSize >= 0) {
+            // Objects read from disk are put back in RAM.
+            diskHitCount++;
+            diskBytesRead += diskSize;
+            if (ram != null) {
+                ram.put(key, diskSize);
+            }
+            return;
+        }
+        if (isLoadedOnMiss) {
+            // The object is loaded, then put in both layers.
+            put(key, size);
+        }
+    }
+
+    private void put(String key, long size) {
+        if (ram != null) {
+            ram.put(key, size);
+        }
+        if (disk != null) {
+            disk.put(key, size);
+            diskBytesWritten += size;
+        }
+    }
+
+    private void delete(String key) {
+        if (ram != null) {
+            ram.remove(key);
+        }
+        if (disk != null) {
+            disk.remove(key);
+        }
+    }
+
+    static String header() {
+        return "ramBytes,diskBytes,requests,hitRatio,ramHitRatio,diskHitRatio,"
+            + "diskBytesRead,diskBytesWritten,ramEvictions,diskEvictions";
+    }
+
+    /**
+     * @return the results of the replay, in the columns of {@link #header()}.
+     */
+    String results() {
+        long ramMissCount = requestCount - ramHitCount;
+        return maxRamSizeBytes
+            + "," + maxDiskSizeBytes
+            + "," + requestCount
+            + "," + ratio(ramHitCount + diskHitCount, requestCount)
+            + "," + ratio(ramHitCount, requestCount)
+            + "," + ratio(diskHitCount, ramMissCount)
+            + "," + diskBytesRead
+            + "," + diskBytesWritten
+            + "," + (ram == null ? 0 : ram.getEvictionCount())
+            + "," + (disk == null ? 0 : disk.getEvictionCount());
+    }
+
+    private static String ratio(long count, long total) {
+        return total == 0 ? "0" : String.format(Locale.US, "%.4f", (double) count / total);
+    }
+}
@@ -0,0 +1,129 @@
+package com.vincentbrison.openlibraries.android.dualcache.simulator;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Replay a trace of key accesses against every combination of the given RAM and disk sizes, in a
+ * single pass over the trace, and print the hit ratio, the bytes read from and written to disk
+ * and the evictions of each combination as CSV.
+ *
+ * <pre>
+ * Simulator --trace requests.csv --format csv --ram 0,1m,4m,16m --disk 0,64m,256m --size 4k
+ * </pre>
+ *
+ * <p>Options: {@code --trace} the file of the trace, gzipped if it ends with ".gz";
+ * {@code --format} one of plain, lirs, arc and csv (default plain); {@code --ram} and
+ * {@code --disk} the comma separated sizes to simulate, 0 disabling the layer; {@code --size} the
+ * size of the objects when the trace does not give it (default 4k). Sizes accept the k, m and g
+ * suffixes.
+ */
+public final class Simulator {
+
+    private Simulator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        String trace = null;
+        TraceFormat format = TraceFormat.PLAIN;
+        String ramSizes = "0";
+        String diskSizes = "0";
+        long defaultSize = 4 * 1024;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--trace":
+                    trace = value;
+                    break;
+                case "--format":
+                    format = TraceFormat.valueOf(value.toUpperCase(Locale.US));
+                    break;
+                case "--ram":
+                    ramSizes = value;
+                    break;
+                case "--disk":
+                    diskSizes = value;
+                    break;
+                case "--size":
+                    defaultSize = parseSize(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (trace == null) {
+            throw new IllegalArgumentException("No trace set, use --trace <file>");
+        }
+
+        List<SimulatedCache> caches = new ArrayList<>();
+        for (String ramSize : ramSizes.split(",")) {
+            for (String diskSize : diskSizes.split(",")) {
+                if (parseSize(ramSize) > 0 || parseSize(diskSize) > 0) {
+                    caches.add(new SimulatedCache(
+                        parseSize(ramSize), parseSize(diskSize), !format.hasPuts()));
+                }
+            }
+        }
+        if (caches.isEmpty()) {
+            throw new IllegalArgumentException("At least one layer must be enabled");
+        }
+
+        replay(new File(trace), format, defaultSize, caches);
+        System.out.println(SimulatedCache.header());
+        for (SimulatedCache cache : caches) {
+            System.out.println(cache.results());
+        }
+    }
+
+    private static void replay(
+        File trace, TraceFormat format, long defaultSize, final List<SimulatedCache> caches
+    ) throws IOException {
+        TraceVisitor visitor = new TraceVisitor() {
+            @Override
+            public void visit(String key, long size, Operation operation) {
+                for (SimulatedCache cache : caches) {
+                    cache.visit(key, size, operation);
+                }
+            }
+        };
+        InputStream input = new FileInputStream(trace);
+        if (trace.getName().endsWith(".gz")) {
+            input = new GZIPInputStream(input);
+        }
+        try (BufferedReader reader =
+                 new BufferedReader(new InputStreamReader(input, Charset.forName("UTF-8")))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && line.charAt(0) != '#') {
+                    format.parse(line, defaultSize, visitor);
+                }
+            }
+        }
+    }
+
+    static long parseSize(String size) {
+        String value = size.trim().toLowerCase(Locale.US);
+        long unit = 1;
+        if (value.endsWith("k")) {
+            unit = 1024;
+        } else if (value.endsWith("m")) {
+            unit = 1024 * 1024;
+        } else if (value.endsWith("g")) {
+            unit = 1024 * 1024 * 1024;
+        }
+        if (unit > 1) {
+            value = value.substring(0, value.length() - 1);
+        }
+        return Long.parseLong(value) * unit;
+    }
+}
@@ -0,0 +1,89 @@
+package com.vincentbrison.openlibraries.android.dualcache.simulator;
+
+import java.util.Locale;
+
+/**
+ * Formats of the traces the simulator can replay. Blank lines and lines starting with '#' are
+ * ignored by every format.
+ */
+enum TraceFormat {
+
+    /**
+     * One key per line. Every object has the default size.
+     */
+    PLAIN(false) {
+        @Override
+        void parse(String line, long defaultSize, TraceVisitor visitor) {
+            visitor.visit(line, defaultSize, Operation.GET);
+        }
+    },
+
+    /**
+     * Traces of the LIRS paper: one block number per line. Lines which are not a block number,
+     * like the '*' end markers, are ignored. Every block has the default size.
+     */
+    LIRS(false) {
+        @Override
+        void parse(String line, long defaultSize, TraceVisitor visitor) {
+            if (Character.isDigit(line.charAt(0))) {
+                visitor.visit(line, defaultSize, Operation.GET);
+            }
+        }
+    },
+
+    /**
+     * Traces of the ARC paper: each line is "first_block block_count ignored request_number" and
+     * reads block_count consecutive blocks. Every block has the default size.
+     */
+    ARC(false) {
+        @Override
+        void parse(String line, long defaultSize, TraceVisitor visitor) {
+            String[] fields = line.split("\\s+");
+            long firstBlock = Long.parseLong(fields[0]);
+            long blockCount = Long.parseLong(fields[1]);
+            for (long block = firstBlock; block < firstBlock + blockCount; block++) {
+                visitor.visit(Long.toString(block), defaultSize, Operation.GET);
+            }
+        }
+    },
+
+    /**
+     * Comma separated "key,size[,operation]", where operation is get (the default), put or
+     * delete. This is the format to export the accesses of an application to. As the puts are
+     * part of the trace, an object missed by a get is not put in cache.
+     */
+    CSV(true) {
+        @Override
+        void parse(String line, long defaultSize, TraceVisitor visitor) {
+            String[] fields = line.split(",");
+            long size = fields.length > 1 && !fields[1].trim().isEmpty()
+                ? Long.parseLong(fields[1].trim()) : defaultSize;
+            Operation operation = fields.length > 2
+                ? Operation.valueOf(fields[2].trim().toUpperCase(Locale.US)) : Operation.GET;
+            visitor.visit(fields[0].trim(), size, operation);
+        }
+    };
+
+    private final boolean hasPuts;
+
+    /**
+     * @param hasPuts is true if the traces record the puts, false if they only record the reads
+     *                and every object missed has to be loaded and put in cache.
+     */
+    TraceFormat(boolean hasPuts) {
+        this.hasPuts = hasPuts;
+    }
+
+    boolean hasPuts() {
+        return hasPuts;
+    }
+
+    /**
+     * Parse a line of a trace.
+     *
+     * @param line        is the line, trimmed and not empty.
+     * @param defaultSize is the size of the objects when the trace does not give it.
+     * @param visitor     receives the accesses of the line.
+     */
+    abstract void parse(String line, long defaultSize, TraceVisitor visitor);
+}
@@ -0,0 +1,14 @@
+package com.vincentbrison.openlibraries.android.dualcache.simulator;
+
+/**
+ * Receive the accesses read from a trace.
+ */
+interface TraceVisitor {
+
+    /**
+     * @param key       is the key of the object accessed.
+     * @param size      is the size of the object in bytes.
+     * @param operation is the operation done on the cache.
+     */
+    void visit(String key, long size, Operation operation);
+}
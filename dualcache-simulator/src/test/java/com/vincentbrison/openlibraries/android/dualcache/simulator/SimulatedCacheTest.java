@@ -0,0 +1,56 @@
+package com.vincentbrison.openlibraries.android.dualcache.simulator;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test the replay of small traces, whose results have been worked out by hand.
+ */
+public class SimulatedCacheTest {
+
+    @Test
+    public void testReadOnlyTraceLoadsMisses() {
+        // RAM of two objects: a, b, a hit, c evicts b, b evicts a, a evicts c.
+        SimulatedCache cache = new SimulatedCache(2, 0, !TraceFormat.PLAIN.hasPuts());
+        replay(TraceFormat.PLAIN, cache, "a", "b", "a", "c", "b", "a");
+        assertEquals("2,0,6,0.1667,0.1667,0.0000,0,0,3,0", cache.results());
+    }
+
+    @Test
+    public void testCsvTraceReplaysPuts() {
+        SimulatedCache cache = new SimulatedCache(1, 2, !TraceFormat.CSV.hasPuts());
+        replay(TraceFormat.CSV, cache,
+            "a,1,put",
+            // RAM hit.
+            "a",
+            // Missed by both layers, and not put: the trace records the puts.
+            "b",
+            // Evicts a from RAM.
+            "b,1,put",
+            // RAM hit.
+            "b",
+            // Disk hit, put back in RAM where it evicts b.
+            "a",
+            // Evicts a from RAM, and b, the least recently used, from disk.
+            "c,1,put",
+            "a,1,delete",
+            // Missed by both layers.
+            "a");
+        assertEquals("1,2,5,0.6000,0.4000,0.3333,1,3,3,1", cache.results());
+    }
+
+    @Test
+    public void testParseSize() {
+        assertEquals(12, Simulator.parseSize("12"));
+        assertEquals(4 * 1024, Simulator.parseSize("4k"));
+        assertEquals(16L * 1024 * 1024, Simulator.parseSize(" 16M "));
+        assertEquals(2L * 1024 * 1024 * 1024, Simulator.parseSize("2g"));
+    }
+
+    private static void replay(TraceFormat format, SimulatedCache cache, String... lines) {
+        for (String line : lines) {
+            format.parse(line, 1, cache);
+        }
+    }
+}